@@ -0,0 +1,319 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.shardingsphere.transaction.base.saga.persistence.file;
+
+import com.google.common.util.concurrent.MoreExecutors;
+import io.shardingsphere.transaction.base.saga.actuator.transport.SagaTransportFactory;
+import io.shardingsphere.transaction.base.saga.config.SagaConfigurationLoader;
+import io.shardingsphere.transaction.base.saga.config.SagaPersistenceConfiguration;
+import io.shardingsphere.transaction.base.saga.persistence.PendingSagaHandler;
+import io.shardingsphere.transaction.base.saga.persistence.RecoverablePersistentStore;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.servicecomb.saga.core.EventEnvelope;
+import org.apache.servicecomb.saga.core.JacksonToJsonFormat;
+import org.apache.servicecomb.saga.core.SagaEndedEvent;
+import org.apache.servicecomb.saga.core.SagaEvent;
+import org.apache.servicecomb.saga.core.ToJsonFormat;
+import org.apache.servicecomb.saga.format.JacksonSagaEventFormat;
+import org.apache.servicecomb.saga.format.SagaEventFormat;
+import org.apache.shardingsphere.core.exception.ShardingException;
+import org.apache.shardingsphere.core.execute.ShardingThreadFactoryBuilder;
+
+import java.io.File;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Saga persistence based on memory mapped append only event log.
+ *
+ * <p>
+ * Events are appended to active segment, segment is rolled when full.
+ * Segments are deleted from head of log once every saga in them has ended,
+ * so ended event of saga is always deleted after all other events of the saga.
+ * </p>
+ *
+ * @author zhaojun
+ */
+@Slf4j
+public final class FileSagaPersistence implements RecoverablePersistentStore, AutoCloseable {
+    
+    private final File directory;
+    
+    private final int segmentSize;
+    
+    private final FsyncPolicy fsyncPolicy;
+    
+    private final LinkedList<SagaEventLogSegment> segments = new LinkedList<>();
+    
+    private final Map<String, Set<SagaEventLogSegment>> liveSagaSegments = new HashMap<>();
+    
+    private final AtomicBoolean dirty = new AtomicBoolean();
+    
+    private final ToJsonFormat toJsonFormat = new JacksonToJsonFormat();
+    
+    private final SagaEventFormat sagaEventFormat = new JacksonSagaEventFormat(SagaTransportFactory.getInstance());
+    
+    private final ScheduledExecutorService fsyncExecutor;
+    
+    private SagaEventLogSegment activeSegment;
+    
+    private long nextEventId = 1L;
+    
+    public FileSagaPersistence() {
+        this(SagaConfigurationLoader.load().getSagaPersistenceConfiguration());
+    }
+    
+    public FileSagaPersistence(final SagaPersistenceConfiguration persistenceConfiguration) {
+        this(new File(persistenceConfiguration.getFileDirectory()), persistenceConfiguration.getFileSegmentSize(),
+            FsyncPolicy.valueOf(persistenceConfiguration.getFileFsyncPolicy()), persistenceConfiguration.getFileFsyncIntervalMilliseconds());
+    }
+    
+    public FileSagaPersistence(final File directory, final int segmentSize, final FsyncPolicy fsyncPolicy, final long fsyncIntervalMilliseconds) {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.fsyncPolicy = fsyncPolicy;
+        try {
+            openSegments();
+        } catch (final IOException ex) {
+            throw new ShardingException("Open saga event log failed", ex);
+        }
+        fsyncExecutor = FsyncPolicy.INTERVAL == fsyncPolicy ? startFsyncExecutor(fsyncIntervalMilliseconds) : null;
+    }
+    
+    private void openSegments() throws IOException {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException(String.format("Cannot create saga event log directory `%s`", directory));
+        }
+        File[] files = directory.listFiles(new FilenameFilter() {
+            @Override
+            public boolean accept(final File dir, final String name) {
+                return name.startsWith(SagaEventLogSegment.FILE_PREFIX) && name.endsWith(SagaEventLogSegment.FILE_SUFFIX);
+            }
+        });
+        if (null != files) {
+            Arrays.sort(files);
+            for (File each : files) {
+                openSegment(each);
+            }
+        }
+        deleteEndedSegments();
+        rollSegment();
+    }
+    
+    private void openSegment(final File file) throws IOException {
+        SagaEventLogSegment segment = SagaEventLogSegment.open(file);
+        if (0 == segment.getPosition()) {
+            deleteSegmentFile(segment);
+            return;
+        }
+        segments.add(segment);
+        for (SagaEventRecord each : segment.readRecords()) {
+            nextEventId = Math.max(nextEventId, each.getId() + 1);
+            track(segment, each.getSagaId(), each.isSagaEnded());
+        }
+    }
+    
+    private ScheduledExecutorService startFsyncExecutor(final long fsyncIntervalMilliseconds) {
+        ScheduledExecutorService result = Executors.newSingleThreadScheduledExecutor(ShardingThreadFactoryBuilder.build("SagaEventLogFsync"));
+        MoreExecutors.addDelayedShutdownHook(result, 30, TimeUnit.SECONDS);
+        result.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                fsync();
+            }
+        }, fsyncIntervalMilliseconds, fsyncIntervalMilliseconds, TimeUnit.MILLISECONDS);
+        return result;
+    }
+    
+    private void fsync() {
+        if (!dirty.getAndSet(false)) {
+            return;
+        }
+        SagaEventLogSegment segment;
+        synchronized (this) {
+            segment = activeSegment;
+        }
+        try {
+            segment.force();
+        } catch (final RuntimeException ex) {
+            dirty.set(true);
+            log.error("Force saga event log failed", ex);
+        }
+    }
+    
+    @Override
+    public void offer(final SagaEvent sagaEvent) {
+        append(sagaEvent.sagaId, sagaEvent.getClass().getSimpleName(), sagaEvent instanceof SagaEndedEvent, sagaEvent.json(toJsonFormat));
+    }
+    
+    synchronized void append(final String sagaId, final String type, final boolean sagaEnded, final String contentJson) {
+        try {
+            byte[] payload = new SagaEventRecord(nextEventId, System.currentTimeMillis(), sagaId, type, sagaEnded, contentJson).encode();
+            if (payload.length > activeSegment.getMaxPayloadLength()) {
+                throw new ShardingException("Saga event of saga `%s` is larger than saga event log segment", sagaId);
+            }
+            if (!activeSegment.append(payload)) {
+                activeSegment.force();
+                rollSegment();
+                activeSegment.append(payload);
+            }
+            nextEventId++;
+            track(activeSegment, sagaId, sagaEnded);
+            if (FsyncPolicy.EVERY_WRITE == fsyncPolicy) {
+                activeSegment.force();
+            } else {
+                dirty.set(true);
+            }
+            if (sagaEnded) {
+                deleteEndedSegments();
+            }
+        } catch (final IOException ex) {
+            throw new ShardingException("Append saga event failed", ex);
+        }
+    }
+    
+    private void track(final SagaEventLogSegment segment, final String sagaId, final boolean sagaEnded) {
+        if (sagaEnded) {
+            Set<SagaEventLogSegment> sagaSegments = liveSagaSegments.remove(sagaId);
+            if (null != sagaSegments) {
+                for (SagaEventLogSegment each : sagaSegments) {
+                    each.getLiveSagaIds().remove(sagaId);
+                }
+            }
+            return;
+        }
+        if (segment.getLiveSagaIds().add(sagaId)) {
+            Set<SagaEventLogSegment> sagaSegments = liveSagaSegments.get(sagaId);
+            if (null == sagaSegments) {
+                sagaSegments = new HashSet<>();
+                liveSagaSegments.put(sagaId, sagaSegments);
+            }
+            sagaSegments.add(segment);
+        }
+    }
+    
+    private void rollSegment() throws IOException {
+        activeSegment = SagaEventLogSegment.create(directory, nextEventId, segmentSize);
+        segments.add(activeSegment);
+    }
+    
+    private void deleteEndedSegments() {
+        Iterator<SagaEventLogSegment> iterator = segments.iterator();
+        while (iterator.hasNext()) {
+            SagaEventLogSegment segment = iterator.next();
+            if (segment == activeSegment || !segment.getLiveSagaIds().isEmpty()) {
+                return;
+            }
+            iterator.remove();
+            deleteSegmentFile(segment);
+        }
+    }
+    
+    private void deleteSegmentFile(final SagaEventLogSegment segment) {
+        segment.close();
+        if (!segment.getFile().delete()) {
+            log.warn("Delete saga event log segment {} failed", segment.getFile());
+        }
+    }
+    
+    @Override
+    public Map<String, List<EventEnvelope>> findPendingSagaEvents() {
+        Map<String, List<EventEnvelope>> result = new LinkedHashMap<>();
+        for (Entry<String, List<SagaEventRecord>> entry : readPendingSagaRecords(new LinkedHashMap<String, List<SagaEventRecord>>()).entrySet()) {
+            result.put(entry.getKey(), toEventEnvelopes(entry.getValue(), sagaEventFormat));
+        }
+        return result;
+    }
+    
+    @Override
+    public void streamPendingSagaEvents(final int fetchSize, final SagaEventFormat sagaEventFormat, final PendingSagaHandler handler) {
+        for (Entry<String, List<SagaEventRecord>> entry : readPendingSagaRecords(new TreeMap<String, List<SagaEventRecord>>()).entrySet()) {
+            handler.handle(entry.getKey(), toEventEnvelopes(entry.getValue(), sagaEventFormat));
+        }
+    }
+    
+    synchronized Map<String, List<SagaEventRecord>> readPendingSagaRecords(final Map<String, List<SagaEventRecord>> result) {
+        try {
+            for (SagaEventLogSegment each : segments) {
+                if (each.getLiveSagaIds().isEmpty()) {
+                    continue;
+                }
+                for (SagaEventRecord record : each.readRecords()) {
+                    if (!liveSagaSegments.containsKey(record.getSagaId())) {
+                        continue;
+                    }
+                    List<SagaEventRecord> sagaRecords = result.get(record.getSagaId());
+                    if (null == sagaRecords) {
+                        sagaRecords = new LinkedList<>();
+                        result.put(record.getSagaId(), sagaRecords);
+                    }
+                    sagaRecords.add(record);
+                }
+            }
+        } catch (final IOException ex) {
+            throw new ShardingException("Find pending saga events failed", ex);
+        }
+        return result;
+    }
+    
+    private List<EventEnvelope> toEventEnvelopes(final List<SagaEventRecord> records, final SagaEventFormat sagaEventFormat) {
+        List<EventEnvelope> result = new LinkedList<>();
+        for (SagaEventRecord each : records) {
+            result.add(new EventEnvelope(each.getId(), each.getCreateTime(), sagaEventFormat.toSagaEvent(each.getSagaId(), each.getType(), each.getContentJson())));
+        }
+        return result;
+    }
+    
+    /**
+     * Get count of saga event log segments.
+     *
+     * @return count of segments
+     */
+    public synchronized int getSegmentCount() {
+        return segments.size();
+    }
+    
+    /**
+     * Force appended events to disk, stop fsync executor and unmap all segments.
+     */
+    @Override
+    public synchronized void close() {
+        if (null != fsyncExecutor) {
+            fsyncExecutor.shutdown();
+        }
+        activeSegment.force();
+        for (SagaEventLogSegment each : segments) {
+            each.close();
+        }
+    }
+}
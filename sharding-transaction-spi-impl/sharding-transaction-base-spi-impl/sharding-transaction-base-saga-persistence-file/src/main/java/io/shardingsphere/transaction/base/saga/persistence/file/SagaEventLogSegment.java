@@ -0,0 +1,225 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.shardingsphere.transaction.base.saga.persistence.file;
+
+import com.google.common.base.Preconditions;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.CRC32;
+
+/**
+ * Memory mapped segment of saga event log.
+ *
+ * <p>
+ * Every record is framed as payload length (4 bytes), CRC32 of payload (4 bytes) and payload.
+ * Unused space of segment is zero filled, so the first zero length or CRC mismatch marks end of segment.
+ * Segment should be closed before its file is deleted, closing unmaps the buffer so file is released at once on every platform.
+ * </p>
+ *
+ * @author zhaojun
+ */
+@Slf4j
+public final class SagaEventLogSegment {
+    
+    static final String FILE_PREFIX = "saga-event-";
+    
+    static final String FILE_SUFFIX = ".log";
+    
+    private static final int RECORD_HEADER_LENGTH = 8;
+    
+    @Getter
+    private final File file;
+    
+    private MappedByteBuffer buffer;
+    
+    @Getter
+    private int position;
+    
+    @Getter(AccessLevel.PACKAGE)
+    private final Set<String> liveSagaIds = new HashSet<>();
+    
+    private SagaEventLogSegment(final File file, final MappedByteBuffer buffer) {
+        this.file = file;
+        this.buffer = buffer;
+        position = scanEndPosition();
+    }
+    
+    /**
+     * Create new segment.
+     *
+     * @param directory directory of event log
+     * @param baseEventId id of first event in segment
+     * @param segmentSize segment size in bytes
+     * @return new segment
+     * @throws IOException IO exception
+     */
+    public static SagaEventLogSegment create(final File directory, final long baseEventId, final int segmentSize) throws IOException {
+        File file = new File(directory, String.format("%s%020d%s", FILE_PREFIX, baseEventId, FILE_SUFFIX));
+        return new SagaEventLogSegment(file, map(file, segmentSize));
+    }
+    
+    /**
+     * Open existed segment.
+     *
+     * @param file segment file
+     * @return segment
+     * @throws IOException IO exception
+     */
+    public static SagaEventLogSegment open(final File file) throws IOException {
+        return new SagaEventLogSegment(file, map(file, (int) file.length()));
+    }
+    
+    private static MappedByteBuffer map(final File file, final int size) throws IOException {
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+             FileChannel channel = randomAccessFile.getChannel()) {
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        }
+    }
+    
+    /**
+     * Append record payload.
+     *
+     * @param payload record payload
+     * @return appended or not, false if no enough space in segment
+     */
+    public synchronized boolean append(final byte[] payload) {
+        checkOpened();
+        if (position + RECORD_HEADER_LENGTH + payload.length > buffer.capacity()) {
+            return false;
+        }
+        CRC32 crc = new CRC32();
+        crc.update(payload, 0, payload.length);
+        ByteBuffer target = buffer.duplicate();
+        target.position(position + RECORD_HEADER_LENGTH);
+        target.put(payload);
+        target.position(position + 4);
+        target.putInt((int) crc.getValue());
+        target.position(position);
+        target.putInt(payload.length);
+        position += RECORD_HEADER_LENGTH + payload.length;
+        return true;
+    }
+    
+    /**
+     * Read all records of segment.
+     *
+     * @return records
+     * @throws IOException IO exception
+     */
+    public synchronized List<SagaEventRecord> readRecords() throws IOException {
+        checkOpened();
+        List<SagaEventRecord> result = new LinkedList<>();
+        ByteBuffer source = buffer.duplicate();
+        int offset = 0;
+        while (offset < position) {
+            source.position(offset);
+            byte[] payload = new byte[source.getInt()];
+            source.getInt();
+            source.get(payload);
+            result.add(SagaEventRecord.decode(payload));
+            offset += RECORD_HEADER_LENGTH + payload.length;
+        }
+        return result;
+    }
+    
+    /**
+     * Force appended records to disk, closed segment is ignored.
+     */
+    public synchronized void force() {
+        if (null != buffer) {
+            buffer.force();
+        }
+    }
+    
+    /**
+     * Get max length of record payload which segment could hold.
+     *
+     * @return max length of record payload
+     */
+    public synchronized int getMaxPayloadLength() {
+        checkOpened();
+        return buffer.capacity() - RECORD_HEADER_LENGTH;
+    }
+    
+    /**
+     * Close segment and unmap its buffer.
+     */
+    public synchronized void close() {
+        if (null == buffer) {
+            return;
+        }
+        MappedByteBuffer mappedBuffer = buffer;
+        buffer = null;
+        unmap(mappedBuffer);
+    }
+    
+    private void unmap(final MappedByteBuffer mappedBuffer) {
+        try {
+            Method cleanerMethod = mappedBuffer.getClass().getMethod("cleaner");
+            cleanerMethod.setAccessible(true);
+            Object cleaner = cleanerMethod.invoke(mappedBuffer);
+            if (null != cleaner) {
+                Method cleanMethod = cleaner.getClass().getMethod("clean");
+                cleanMethod.setAccessible(true);
+                cleanMethod.invoke(cleaner);
+            }
+        } catch (final ReflectiveOperationException | RuntimeException ex) {
+            log.debug("Unmap saga event log segment {} failed, it is released when buffer is collected", file, ex);
+        }
+    }
+    
+    private void checkOpened() {
+        Preconditions.checkState(null != buffer, "Saga event log segment `%s` is closed", file);
+    }
+    
+    private int scanEndPosition() {
+        ByteBuffer source = buffer.duplicate();
+        int result = 0;
+        while (result + RECORD_HEADER_LENGTH <= source.capacity()) {
+            source.position(result);
+            int length = source.getInt();
+            int checksum = source.getInt();
+            if (0 >= length || result + RECORD_HEADER_LENGTH + length > source.capacity()) {
+                break;
+            }
+            byte[] payload = new byte[length];
+            source.get(payload);
+            CRC32 crc = new CRC32();
+            crc.update(payload, 0, length);
+            if ((int) crc.getValue() != checksum) {
+                log.warn("Discard broken saga event record at position {} of {}", result, file);
+                break;
+            }
+            result += RECORD_HEADER_LENGTH + length;
+        }
+        return result;
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.shardingsphere.transaction.base.saga.persistence.file;
+
+import com.google.common.base.Strings;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Saga event record of event log.
+ *
+ * <p>
+ * Binary layout: event id (8 bytes), create time (8 bytes), saga ended flag (1 byte),
+ * saga id (modified UTF-8), event type (modified UTF-8), content length (4 bytes), content (UTF-8).
+ * </p>
+ *
+ * @author zhaojun
+ */
+@RequiredArgsConstructor
+@Getter
+public final class SagaEventRecord {
+    
+    private final long id;
+    
+    private final long createTime;
+    
+    private final String sagaId;
+    
+    private final String type;
+    
+    private final boolean sagaEnded;
+    
+    private final String contentJson;
+    
+    /**
+     * Encode record to bytes.
+     *
+     * @return encoded bytes
+     * @throws IOException IO exception
+     */
+    public byte[] encode() throws IOException {
+        byte[] content = Strings.nullToEmpty(contentJson).getBytes(StandardCharsets.UTF_8);
+        ByteArrayOutputStream result = new ByteArrayOutputStream(content.length + 64);
+        try (DataOutputStream output = new DataOutputStream(result)) {
+            output.writeLong(id);
+            output.writeLong(createTime);
+            output.writeBoolean(sagaEnded);
+            output.writeUTF(Strings.nullToEmpty(sagaId));
+            output.writeUTF(Strings.nullToEmpty(type));
+            output.writeInt(content.length);
+            output.write(content);
+        }
+        return result.toByteArray();
+    }
+    
+    /**
+     * Decode record from bytes.
+     *
+     * @param payload encoded bytes
+     * @return saga event record
+     * @throws IOException IO exception
+     */
+    public static SagaEventRecord decode(final byte[] payload) throws IOException {
+        try (DataInputStream input = new DataInputStream(new ByteArrayInputStream(payload))) {
+            long id = input.readLong();
+            long createTime = input.readLong();
+            boolean sagaEnded = input.readBoolean();
+            String sagaId = input.readUTF();
+            String type = input.readUTF();
+            byte[] content = new byte[input.readInt()];
+            input.readFully(content);
+            return new SagaEventRecord(id, createTime, sagaId, type, sagaEnded, new String(content, StandardCharsets.UTF_8));
+        }
+    }
+}
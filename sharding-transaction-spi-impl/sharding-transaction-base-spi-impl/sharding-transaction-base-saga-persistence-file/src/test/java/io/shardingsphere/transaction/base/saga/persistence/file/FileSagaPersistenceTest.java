@@ -0,0 +1,106 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.shardingsphere.transaction.base.saga.persistence.file;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public final class FileSagaPersistenceTest {
+    
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+    
+    @Test
+    public void assertReadPendingSagaRecords() {
+        FileSagaPersistence persistence = new FileSagaPersistence(temporaryFolder.getRoot(), 4096, FsyncPolicy.EVERY_WRITE, 0L);
+        persistence.append("saga-1", "SagaStartedEvent", false, "{}");
+        persistence.append("saga-2", "SagaStartedEvent", false, "{}");
+        persistence.append("saga-1", "TransactionEndedEvent", false, "{}");
+        persistence.append("saga-2", "SagaEndedEvent", true, "{}");
+        Map<String, List<SagaEventRecord>> actual = persistence.readPendingSagaRecords(new TreeMap<String, List<SagaEventRecord>>());
+        assertThat(actual.size(), is(1));
+        assertThat(actual.get("saga-1").size(), is(2));
+        assertThat(actual.get("saga-1").get(1).getType(), is("TransactionEndedEvent"));
+        persistence.close();
+    }
+    
+    @Test
+    public void assertRecoverPendingSagaRecordsAfterRestart() {
+        File directory = temporaryFolder.getRoot();
+        FileSagaPersistence persistence = new FileSagaPersistence(directory, 4096, FsyncPolicy.INTERVAL, 10L);
+        persistence.append("saga-1", "SagaStartedEvent", false, "{}");
+        persistence.append("saga-2", "SagaStartedEvent", false, "{}");
+        persistence.append("saga-2", "SagaEndedEvent", true, "{}");
+        persistence.close();
+        FileSagaPersistence actual = new FileSagaPersistence(directory, 4096, FsyncPolicy.INTERVAL, 10L);
+        Map<String, List<SagaEventRecord>> pendingSagaRecords = actual.readPendingSagaRecords(new TreeMap<String, List<SagaEventRecord>>());
+        assertThat(pendingSagaRecords.size(), is(1));
+        assertTrue(pendingSagaRecords.containsKey("saga-1"));
+        assertThat(actual.getSegmentCount(), is(2));
+        actual.append("saga-1", "SagaEndedEvent", true, "{}");
+        assertThat(actual.getSegmentCount(), is(1));
+        assertTrue(actual.readPendingSagaRecords(new TreeMap<String, List<SagaEventRecord>>()).isEmpty());
+        actual.close();
+    }
+    
+    @Test
+    public void assertRollAndDeleteEndedSegments() {
+        FileSagaPersistence persistence = new FileSagaPersistence(temporaryFolder.getRoot(), 128, FsyncPolicy.EVERY_WRITE, 0L);
+        for (int i = 0; i < 10; i++) {
+            persistence.append("saga-" + i, "SagaStartedEvent", false, "{}");
+        }
+        assertTrue(persistence.getSegmentCount() > 1);
+        for (int i = 0; i < 10; i++) {
+            persistence.append("saga-" + i, "SagaEndedEvent", true, "{}");
+        }
+        assertThat(persistence.getSegmentCount(), is(1));
+        assertThat(temporaryFolder.getRoot().list().length, is(1));
+        assertTrue(persistence.readPendingSagaRecords(new TreeMap<String, List<SagaEventRecord>>()).isEmpty());
+        persistence.close();
+    }
+    
+    @Test
+    public void assertKeepEndedEventWhileEarlierSegmentIsLive() {
+        File directory = temporaryFolder.getRoot();
+        FileSagaPersistence persistence = new FileSagaPersistence(directory, 128, FsyncPolicy.EVERY_WRITE, 0L);
+        persistence.append("saga-live", "SagaStartedEvent", false, "{}");
+        persistence.append("saga-ended", "SagaStartedEvent", false, "{}");
+        for (int i = 0; i < 5; i++) {
+            persistence.append("saga-filler-" + i, "SagaStartedEvent", false, "{}");
+            persistence.append("saga-filler-" + i, "SagaEndedEvent", true, "{}");
+        }
+        persistence.append("saga-ended", "SagaEndedEvent", true, "{}");
+        persistence.close();
+        Map<String, List<SagaEventRecord>> actual = new FileSagaPersistence(directory, 128, FsyncPolicy.EVERY_WRITE, 0L)
+            .readPendingSagaRecords(new TreeMap<String, List<SagaEventRecord>>());
+        assertThat(actual.size(), is(1));
+        assertTrue(actual.containsKey("saga-live"));
+        assertFalse(actual.containsKey("saga-ended"));
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.shardingsphere.transaction.base.saga.persistence.file;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.List;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public final class SagaEventLogSegmentTest {
+    
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+    
+    @Test
+    public void assertAppendAndReopen() throws IOException {
+        SagaEventLogSegment segment = SagaEventLogSegment.create(temporaryFolder.getRoot(), 1L, 4096);
+        assertTrue(segment.append(new SagaEventRecord(1L, 100L, "saga-1", "SagaStartedEvent", false, "{}").encode()));
+        assertTrue(segment.append(new SagaEventRecord(2L, 200L, "saga-1", "SagaEndedEvent", true, "{\"ended\":true}").encode()));
+        segment.force();
+        List<SagaEventRecord> actual = SagaEventLogSegment.open(segment.getFile()).readRecords();
+        assertThat(actual.size(), is(2));
+        assertThat(actual.get(0).getId(), is(1L));
+        assertThat(actual.get(0).getCreateTime(), is(100L));
+        assertThat(actual.get(0).getSagaId(), is("saga-1"));
+        assertThat(actual.get(0).getType(), is("SagaStartedEvent"));
+        assertFalse(actual.get(0).isSagaEnded());
+        assertTrue(actual.get(1).isSagaEnded());
+        assertThat(actual.get(1).getContentJson(), is("{\"ended\":true}"));
+    }
+    
+    @Test
+    public void assertCloseBeforeDelete() throws IOException {
+        SagaEventLogSegment segment = SagaEventLogSegment.create(temporaryFolder.getRoot(), 1L, 4096);
+        assertTrue(segment.append(new SagaEventRecord(1L, 100L, "saga-1", "SagaStartedEvent", false, "{}").encode()));
+        segment.close();
+        segment.close();
+        segment.force();
+        assertTrue(segment.getFile().delete());
+    }
+    
+    @Test(expected = IllegalStateException.class)
+    public void assertAppendAfterClose() throws IOException {
+        SagaEventLogSegment segment = SagaEventLogSegment.create(temporaryFolder.getRoot(), 1L, 4096);
+        segment.close();
+        segment.append(new SagaEventRecord(1L, 100L, "saga-1", "SagaStartedEvent", false, "{}").encode());
+    }
+    
+    @Test
+    public void assertFileName() throws IOException {
+        SagaEventLogSegment segment = SagaEventLogSegment.create(temporaryFolder.getRoot(), 42L, 4096);
+        assertThat(segment.getFile().getName(), is("saga-event-00000000000000000042.log"));
+    }
+    
+    @Test
+    public void assertAppendWhenSegmentFull() throws IOException {
+        SagaEventLogSegment segment = SagaEventLogSegment.create(temporaryFolder.getRoot(), 1L, 64);
+        byte[] payload = new SagaEventRecord(1L, 100L, "saga-1", "SagaStartedEvent", false, "{}").encode();
+        assertTrue(segment.append(payload));
+        assertFalse(segment.append(payload));
+        assertThat(segment.getPosition(), is(payload.length + 8));
+    }
+    
+    @Test
+    public void assertReopenWithTornRecord() throws IOException {
+        SagaEventLogSegment segment = SagaEventLogSegment.create(temporaryFolder.getRoot(), 1L, 4096);
+        byte[] payload = new SagaEventRecord(1L, 100L, "saga-1", "SagaStartedEvent", false, "{}").encode();
+        segment.append(payload);
+        segment.append(new SagaEventRecord(2L, 200L, "saga-1", "SagaEndedEvent", true, "{}").encode());
+        segment.force();
+        corrupt(segment.getFile(), payload.length + 8 + 20);
+        SagaEventLogSegment actual = SagaEventLogSegment.open(segment.getFile());
+        assertThat(actual.getPosition(), is(payload.length + 8));
+        assertThat(actual.readRecords().size(), is(1));
+    }
+    
+    private void corrupt(final File file, final long position) throws IOException {
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw")) {
+            randomAccessFile.seek(position);
+            int origin = randomAccessFile.read();
+            randomAccessFile.seek(position);
+            randomAccessFile.write(origin ^ 0xFF);
+        }
+    }
+}
@@ -18,6 +18,11 @@
 package io.shardingsphere.transaction.base.saga.persistence.jpa;
 
 import io.shardingsphere.transaction.base.saga.actuator.transport.SagaTransportFactory;
+import io.shardingsphere.transaction.base.saga.config.SagaConfigurationLoader;
+import io.shardingsphere.transaction.base.saga.config.SagaPersistenceConfiguration;
+import io.shardingsphere.transaction.base.saga.persistence.BatchSagaEventRepository;
+import io.shardingsphere.transaction.base.saga.persistence.GroupCommitSagaEventWriter;
+import io.shardingsphere.transaction.base.saga.persistence.SagaEventCodec;
 import io.shardingsphere.transaction.base.saga.persistence.jpa.entity.SagaEventEntity;
 import io.shardingsphere.transaction.base.saga.persistence.jpa.repository.SagaEventRepository;
 import org.apache.servicecomb.saga.core.EventEnvelope;
@@ -28,6 +33,8 @@ import org.apache.servicecomb.saga.core.ToJsonFormat;
 import org.apache.servicecomb.saga.format.JacksonSagaEventFormat;
 import org.apache.servicecomb.saga.format.SagaEventFormat;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
@@ -46,17 +53,29 @@ public final class SagaPersistenceImpl implements PersistentStore {
     
     private final ToJsonFormat toJsonFormat = new JacksonToJsonFormat();
     
+    private final SagaEventCodec eventCodec;
+    
+    private final GroupCommitSagaEventWriter eventWriter;
+    
+    public SagaPersistenceImpl() {
+        SagaPersistenceConfiguration persistenceConfiguration = SagaConfigurationLoader.load().getSagaPersistenceConfiguration();
+        eventCodec = new SagaEventCodec(persistenceConfiguration.isEventCompact());
+        eventWriter = createEventWriter(persistenceConfiguration);
+    }
+    
     @Override
     public Map<String, List<EventEnvelope>> findPendingSagaEvents() {
         List<SagaEventEntity> events = sagaEventRepository.findIncompleteSagaEventsGroupBySagaId();
     
         Map<String, List<EventEnvelope>> result = new HashMap<>();
+        Map<String, byte[]> dictionaries = new HashMap<>();
         for (SagaEventEntity each : events) {
             if (!result.containsKey(each.getSagaId())) {
                 result.put(each.getSagaId(), new LinkedList<EventEnvelope>());
             }
+            String contentJson = eventCodec.decode(each.getSagaId(), each.getType(), each.getContentJson(), dictionaries);
             result.get(each.getSagaId()).add(new EventEnvelope(each.getId(), each.getCreationTime().getTime(),
-                                             sagaEventFormat.toSagaEvent(each.getSagaId(), each.getType(), each.getContentJson())));
+                                             sagaEventFormat.toSagaEvent(each.getSagaId(), each.getType(), contentJson)));
         }
     
         return result;
@@ -64,10 +83,40 @@ public final class SagaPersistenceImpl implements PersistentStore {
     
     @Override
     public void offer(final SagaEvent sagaEvent) {
-        SagaEventEntity eventEntity = new SagaEventEntity();
-        eventEntity.setSagaId(sagaEvent.sagaId);
-        eventEntity.setType(sagaEvent.getClass().getSimpleName());
-        eventEntity.setContentJson(sagaEvent.json(toJsonFormat));
-        sagaEventRepository.insert(eventEntity);
+        if (null == eventWriter) {
+            sagaEventRepository.insert(toEventEntity(sagaEvent));
+        } else {
+            eventWriter.offer(sagaEvent);
+        }
+    }
+    
+    private SagaEventEntity toEventEntity(final SagaEvent sagaEvent) {
+        SagaEventEntity result = new SagaEventEntity();
+        result.setSagaId(sagaEvent.sagaId);
+        result.setType(sagaEvent.getClass().getSimpleName());
+        result.setContentJson(eventCodec.encode(sagaEvent.sagaId, result.getType(), sagaEvent.json(toJsonFormat)));
+        return result;
+    }
+    
+    private GroupCommitSagaEventWriter createEventWriter(final SagaPersistenceConfiguration persistenceConfiguration) {
+        if (1 >= persistenceConfiguration.getEventBatchSize()) {
+            return null;
+        }
+        return new GroupCommitSagaEventWriter(new BatchSagaEventRepository() {
+            @Override
+            public void insert(final SagaEvent sagaEvent) {
+                sagaEventRepository.insert(toEventEntity(sagaEvent));
+            }
+            
+            @Override
+            public void insert(final Collection<SagaEvent> sagaEvents) {
+                Collection<SagaEventEntity> eventEntities = new ArrayList<>(sagaEvents.size());
+                for (SagaEvent each : sagaEvents) {
+                    eventEntities.add(toEventEntity(each));
+                }
+                sagaEventRepository.insert(eventEntities);
+            }
+        }, persistenceConfiguration.getEventBufferSize(), persistenceConfiguration.getEventBatchSize(),
+            persistenceConfiguration.getEventFlushIntervalMilliseconds(), persistenceConfiguration.isEventAsync());
     }
 }
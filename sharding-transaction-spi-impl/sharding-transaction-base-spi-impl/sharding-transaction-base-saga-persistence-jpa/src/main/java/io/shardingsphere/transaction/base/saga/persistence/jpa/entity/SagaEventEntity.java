@@ -22,6 +22,8 @@ import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
 import lombok.ToString;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
 
 import javax.persistence.Column;
 import javax.persistence.Entity;
@@ -40,7 +42,7 @@ import java.util.Date;
 @Entity
 @Table(name = "saga_event")
 @NamedNativeQuery(name = "findIncompleteSagaEventsGroupBySagaId",
-                  query = "SELECT * FROM saga_event WHERE saga_id NOT IN (SELECT DISTINCT saga_id FROM saga_event WHERE type = 'SagaEndedEvent')",
+                  query = "SELECT * FROM saga_event WHERE saga_id NOT IN (SELECT DISTINCT saga_id FROM saga_event WHERE type = 'SagaEndedEvent') ORDER BY saga_id, id",
                   resultClass = SagaEventEntity.class)
 @AllArgsConstructor
 @NoArgsConstructor
@@ -50,7 +52,11 @@ import java.util.Date;
 public class SagaEventEntity {
     
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "saga_event_id")
+    @GenericGenerator(name = "saga_event_id", strategy = "org.hibernate.id.enhanced.SequenceStyleGenerator", parameters = {
+        @Parameter(name = "sequence_name", value = "saga_event_sequence"),
+        @Parameter(name = "increment_size", value = "100"),
+        @Parameter(name = "optimizer", value = "pooled-lo")})
     private Long id;
     
     @Column(name = "saga_id")
@@ -21,7 +21,11 @@ import io.shardingsphere.transaction.base.saga.persistence.jpa.entity.SagaEventE
 
 import javax.persistence.EntityManager;
 import javax.persistence.EntityManagerFactory;
+import javax.persistence.EntityTransaction;
 import javax.persistence.Persistence;
+import javax.persistence.PersistenceException;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 
 /**
@@ -31,18 +35,52 @@ import java.util.List;
  */
 public class SagaEventRepository {
     
+    private static final int FLUSH_SIZE = 100;
+    
     private final EntityManagerFactory entityManagerFactory = Persistence.createEntityManagerFactory("io.shardingsphere.transaction.saga.core.persistence");
     
+    private final ThreadLocal<EntityManager> entityManagers = new ThreadLocal<>();
+    
     /**
      * Insert new saga event.
      *
      * @param sagaEventEntity saga event entity
      */
     public void insert(final SagaEventEntity sagaEventEntity) {
-        EntityManager entityManager = entityManagerFactory.createEntityManager();
-        entityManager.getTransaction().begin();
-        entityManager.persist(sagaEventEntity);
-        entityManager.getTransaction().commit();
+        insert(Collections.singletonList(sagaEventEntity));
+    }
+    
+    /**
+     * Insert saga events in one transaction.
+     *
+     * <p>
+     * Entities are flushed every {@code hibernate.jdbc.batch_size} rows, so inserts are sent by JDBC batch.
+     * </p>
+     *
+     * @param sagaEventEntities saga event entities
+     */
+    public void insert(final Collection<SagaEventEntity> sagaEventEntities) {
+        EntityManager entityManager = getEntityManager();
+        EntityTransaction transaction = entityManager.getTransaction();
+        transaction.begin();
+        try {
+            int count = 0;
+            for (SagaEventEntity each : sagaEventEntities) {
+                entityManager.persist(each);
+                if (0 == ++count % FLUSH_SIZE) {
+                    entityManager.flush();
+                    entityManager.clear();
+                }
+            }
+            transaction.commit();
+        } catch (final PersistenceException ex) {
+            if (transaction.isActive()) {
+                transaction.rollback();
+            }
+            throw ex;
+        } finally {
+            entityManager.clear();
+        }
     }
     
     /**
@@ -51,7 +89,20 @@ public class SagaEventRepository {
      * @return incomplete saga event list
      */
     public List<SagaEventEntity> findIncompleteSagaEventsGroupBySagaId() {
-        EntityManager entityManager = entityManagerFactory.createEntityManager();
-        return entityManager.createNamedQuery("findIncompleteSagaEventsGroupBySagaId", SagaEventEntity.class).getResultList();
+        EntityManager entityManager = getEntityManager();
+        try {
+            return entityManager.createNamedQuery("findIncompleteSagaEventsGroupBySagaId", SagaEventEntity.class).getResultList();
+        } finally {
+            entityManager.clear();
+        }
+    }
+    
+    private EntityManager getEntityManager() {
+        EntityManager result = entityManagers.get();
+        if (null == result || !result.isOpen()) {
+            result = entityManagerFactory.createEntityManager();
+            entityManagers.set(result);
+        }
+        return result;
     }
 }
@@ -48,6 +48,12 @@ public final class BranchTransaction {
     
     private RevertSQLResult revertSQLResult;
     
+    private volatile int retryCount;
+    
+    private volatile long retryDelayMilliseconds;
+    
+    private volatile long nextRetryTimeMillis;
+    
     public BranchTransaction(final String dataSourceName, final String sql, final List<Collection<Object>> parameters, final ExecuteStatus executeStatus) {
         this(dataSourceName, sql, parameters);
         this.executeStatus = executeStatus;
@@ -17,15 +17,31 @@
 
 package io.shardingsphere.transaction.base.context;
 
+import com.google.common.base.Optional;
+import io.shardingsphere.transaction.base.hook.revert.executor.SQLRouteResultIndex;
+import io.shardingsphere.transaction.base.hook.revert.snapshot.BatchSnapshotLoader;
+import io.shardingsphere.transaction.base.hook.revert.snapshot.RouteUnitConnectionFinder;
+import io.shardingsphere.transaction.base.hook.revert.snapshot.UndoDataStore;
+import lombok.AccessLevel;
+import lombok.EqualsAndHashCode;
 import lombok.Getter;
+import lombok.RequiredArgsConstructor;
 import org.apache.shardingsphere.core.constant.SQLType;
 import org.apache.shardingsphere.core.metadata.table.ShardingTableMetaData;
 import org.apache.shardingsphere.core.metadata.table.TableMetaData;
 import org.apache.shardingsphere.core.parse.antlr.sql.statement.SQLStatement;
+import org.apache.shardingsphere.core.route.RouteUnit;
 import org.apache.shardingsphere.core.route.SQLRouteResult;
 
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * Logic SQL transaction.
@@ -34,7 +50,7 @@ import java.util.concurrent.ConcurrentLinkedQueue;
  * @author zhaojun
  */
 @Getter
-public class LogicSQLTransaction {
+public class LogicSQLTransaction implements RouteUnitConnectionFinder {
     
     private final SQLRouteResult sqlRouteResult;
     
@@ -46,11 +62,29 @@ public class LogicSQLTransaction {
     
     private final Queue<BranchTransaction> branchTransactions = new ConcurrentLinkedQueue<>();
     
-    public LogicSQLTransaction(final SQLRouteResult sqlRouteResult, final ShardingTableMetaData shardingTableMetaData) {
+    private final BatchSnapshotLoader snapshotLoader;
+    
+    private final SQLRouteResultIndex sqlRouteResultIndex;
+    
+    @Getter(AccessLevel.NONE)
+    private final Map<DataSourceSQLKey, List<Connection>> statementConnections = new HashMap<>();
+    
+    @Getter(AccessLevel.NONE)
+    private Map<RouteUnit, Integer> routeUnitOrdinals;
+    
+    @Getter(AccessLevel.NONE)
+    private Map<DataSourceSQLKey, Integer> routeUnitCounts;
+    
+    @Getter(AccessLevel.NONE)
+    private final ConcurrentMap<DataSourceSQLKey, Object> compensationLocks = new ConcurrentHashMap<>();
+    
+    public LogicSQLTransaction(final SQLRouteResult sqlRouteResult, final ShardingTableMetaData shardingTableMetaData, final UndoDataStore undoDataStore) {
         this.sqlRouteResult = sqlRouteResult;
         logicTableName = sqlRouteResult.getSqlStatement().getTables().getSingleTableName();
         sqlStatement = sqlRouteResult.getSqlStatement();
         tableMetaData = shardingTableMetaData.get(logicTableName);
+        snapshotLoader = new BatchSnapshotLoader(sqlRouteResult, tableMetaData, undoDataStore, this);
+        sqlRouteResultIndex = new SQLRouteResultIndex(sqlRouteResult);
     }
     
     /**
@@ -61,4 +95,102 @@ public class LogicSQLTransaction {
     public boolean isDMLLogicSQL() {
         return SQLType.DML.equals(sqlStatement.getType());
     }
+    
+    /**
+     * Get lock of compensating branch transactions with the same data source and revert SQL.
+     *
+     * <p>
+     * Only branch transactions which could be coalesced into one compensation share a lock,
+     * compensations of other data sources and revert SQLs of this logic SQL are executed in parallel.
+     * </p>
+     *
+     * @param dataSourceName data source name
+     * @param revertSQL revert SQL
+     * @return compensation lock
+     */
+    public Object getCompensationLock(final String dataSourceName, final String revertSQL) {
+        DataSourceSQLKey key = new DataSourceSQLKey(dataSourceName, revertSQL);
+        Object result = compensationLocks.get(key);
+        if (null == result) {
+            Object newLock = new Object();
+            result = compensationLocks.putIfAbsent(key, newLock);
+            if (null == result) {
+                result = newLock;
+            }
+        }
+        return result;
+    }
+    
+    /**
+     * Add connection which prepared statement for route unit of this logic SQL.
+     *
+     * <p>
+     * Statement is prepared with SQL of its route unit before execution starts,
+     * connections preparing statements after execution started are ignored.
+     * </p>
+     *
+     * @param dataSourceName data source name
+     * @param sql SQL of statement
+     * @param connection connection
+     */
+    public synchronized void addStatementConnection(final String dataSourceName, final String sql, final Connection connection) {
+        if (null != routeUnitOrdinals) {
+            return;
+        }
+        DataSourceSQLKey key = new DataSourceSQLKey(dataSourceName, sql);
+        List<Connection> connections = statementConnections.get(key);
+        if (null == connections) {
+            connections = new ArrayList<>(1);
+            statementConnections.put(key, connections);
+        }
+        connections.add(connection);
+    }
+    
+    /**
+     * Find executing connection of route unit.
+     *
+     * <p>
+     * Route unit is mapped to the connection which prepared its SQL in its data source,
+     * route units with the same SQL in one data source are mapped in route order.
+     * </p>
+     *
+     * @param routeUnit route unit
+     * @return executing connection, absent if statements prepared with SQL of route unit do not match route units one by one
+     */
+    @Override
+    public synchronized Optional<Connection> findExecutingConnection(final RouteUnit routeUnit) {
+        if (null == routeUnitOrdinals) {
+            buildRouteUnitOrdinals();
+        }
+        DataSourceSQLKey key = new DataSourceSQLKey(routeUnit.getDataSourceName(), routeUnit.getSqlUnit().getSql());
+        Integer ordinal = routeUnitOrdinals.get(routeUnit);
+        List<Connection> connections = statementConnections.get(key);
+        if (null == ordinal || null == connections || connections.size() != routeUnitCounts.get(key)) {
+            return Optional.absent();
+        }
+        return Optional.of(connections.get(ordinal));
+    }
+    
+    private void buildRouteUnitOrdinals() {
+        routeUnitOrdinals = new HashMap<>(sqlRouteResult.getRouteUnits().size(), 1);
+        routeUnitCounts = new HashMap<>();
+        for (RouteUnit each : sqlRouteResult.getRouteUnits()) {
+            DataSourceSQLKey key = new DataSourceSQLKey(each.getDataSourceName(), each.getSqlUnit().getSql());
+            Integer count = routeUnitCounts.get(key);
+            int ordinal = null == count ? 0 : count;
+            if (!routeUnitOrdinals.containsKey(each)) {
+                routeUnitOrdinals.put(each, ordinal);
+            }
+            routeUnitCounts.put(key, ordinal + 1);
+        }
+    }
+    
+    @RequiredArgsConstructor
+    @EqualsAndHashCode
+    private static final class DataSourceSQLKey {
+        
+        private final String dataSourceName;
+        
+        private final String sql;
+    }
 }
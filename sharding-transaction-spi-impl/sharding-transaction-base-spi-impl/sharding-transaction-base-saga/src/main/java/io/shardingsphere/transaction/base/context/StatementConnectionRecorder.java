@@ -0,0 +1,80 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.shardingsphere.transaction.base.context;
+
+import lombok.RequiredArgsConstructor;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.Statement;
+
+/**
+ * Statement connection recorder.
+ *
+ * <p>
+ * Connection of data source in saga transaction is wrapped to record which connection prepares statement of every route unit by its SQL,
+ * so snapshot of route unit could be taken on its own executing connection.
+ * Statements created without SQL are not recorded.
+ * </p>
+ *
+ * @author zhaojun
+ */
+@RequiredArgsConstructor
+public final class StatementConnectionRecorder implements InvocationHandler {
+    
+    private final String dataSourceName;
+    
+    private final Connection connection;
+    
+    /**
+     * Create new instance of statement connection recorder.
+     *
+     * @param dataSourceName data source name
+     * @param connection connection to be recorded
+     * @return recorded connection
+     */
+    public static Connection newInstance(final String dataSourceName, final Connection connection) {
+        return (Connection) Proxy.newProxyInstance(StatementConnectionRecorder.class.getClassLoader(), new Class[]{Connection.class}, new StatementConnectionRecorder(dataSourceName, connection));
+    }
+    
+    @Override
+    public Object invoke(final Object proxy, final Method method, final Object[] args) throws Throwable {
+        if ("equals".equals(method.getName()) && 1 == method.getParameterTypes().length) {
+            return proxy == args[0];
+        }
+        if ("hashCode".equals(method.getName()) && 0 == method.getParameterTypes().length) {
+            return System.identityHashCode(proxy);
+        }
+        Object result;
+        try {
+            result = method.invoke(connection, args);
+        } catch (final InvocationTargetException ex) {
+            throw ex.getTargetException();
+        }
+        if (result instanceof Statement && null != args && 0 < args.length && args[0] instanceof String) {
+            TransactionContext transactionContext = TransactionContextHolder.get();
+            if (null != transactionContext) {
+                transactionContext.addStatementConnection(dataSourceName, (String) args[0], (Connection) proxy);
+            }
+        }
+        return result;
+    }
+}
@@ -18,21 +18,40 @@
 package io.shardingsphere.transaction.base.context;
 
 import com.google.common.base.Optional;
+import io.shardingsphere.transaction.base.hook.revert.SQLTemplateCache;
+import io.shardingsphere.transaction.base.hook.revert.SetBasedRevertLimit;
+import io.shardingsphere.transaction.base.hook.revert.snapshot.UndoDataStore;
+import io.shardingsphere.transaction.base.saga.actuator.SagaBulkhead;
+import io.shardingsphere.transaction.base.saga.actuator.SagaCircuitBreaker;
+import io.shardingsphere.transaction.base.saga.actuator.SagaRetryBackoff;
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.RequiredArgsConstructor;
 import lombok.Setter;
+import org.apache.shardingsphere.core.constant.SQLType;
+import org.apache.shardingsphere.core.exception.ShardingException;
 import org.apache.shardingsphere.core.metadata.table.ShardingTableMetaData;
+import org.apache.shardingsphere.core.route.RouteUnit;
 import org.apache.shardingsphere.core.route.SQLRouteResult;
 import org.apache.shardingsphere.transaction.core.TransactionOperationType;
 
 import java.sql.Connection;
-import java.util.Collection;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Queue;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * Transaction context.
@@ -50,22 +69,388 @@ public final class TransactionContext {
     
     private LogicSQLTransaction currentLogicSQLTransaction;
     
-    private final Map<String, Connection> cachedConnections = new HashMap<>();
+    private final Map<String, Connection> cachedConnections = new ConcurrentHashMap<>();
+    
+    @Getter(AccessLevel.NONE)
+    private final ConcurrentMap<String, Queue<Connection>> idleConnections = new ConcurrentHashMap<>();
+    
+    @Getter(AccessLevel.NONE)
+    private final Set<Connection> leasedConnections = Collections.newSetFromMap(new ConcurrentHashMap<Connection, Boolean>());
+    
+    @Getter(AccessLevel.NONE)
+    private final ConcurrentMap<String, BranchTransaction> branchTransactionIdIndex = new ConcurrentHashMap<>();
     
     @Setter
     private TransactionOperationType operationType = TransactionOperationType.BEGIN;
     
+    private final SetBasedRevertLimit setBasedRevertLimit;
+    
+    private final UndoDataStore undoDataStore;
+    
+    private final SQLTemplateCache sqlTemplateCache;
+    
+    private final SagaBulkhead bulkhead;
+    
+    private final SagaCircuitBreaker circuitBreaker;
+    
+    private final SagaRetryBackoff retryBackoff;
+    
+    @Setter
+    @Getter(AccessLevel.NONE)
+    private boolean localTransactionEnabled;
+    
+    private volatile String localDataSourceName;
+    
+    @Getter(AccessLevel.NONE)
+    private volatile boolean localTransactionWritten;
+    
+    @Getter(AccessLevel.NONE)
+    private final List<Connection> localConnections = new LinkedList<>();
+    
+    @Getter(AccessLevel.NONE)
+    private final Map<String, TransactionSavepoint> savepoints = new LinkedHashMap<>();
+    
+    @Getter(AccessLevel.NONE)
+    private volatile int compensationStartIndex;
+    
     /**
-     * Go to next logic SQL transaction.
+     * Go to next logic SQL transaction, only DML statement starts logic SQL transaction.
      *
      * @param sqlRouteResult SQL route result
      * @param shardingTableMetaData sharding table meta data
      */
     public void nextLogicSQLTransaction(final SQLRouteResult sqlRouteResult, final ShardingTableMetaData shardingTableMetaData) {
-        currentLogicSQLTransaction = new LogicSQLTransaction(sqlRouteResult, shardingTableMetaData);
-        if (currentLogicSQLTransaction.isDMLLogicSQL()) {
-            logicSQLTransactions.add(currentLogicSQLTransaction);
+        if (!SQLType.DML.equals(sqlRouteResult.getSqlStatement().getType())) {
+            currentLogicSQLTransaction = null;
+            return;
+        }
+        currentLogicSQLTransaction = new LogicSQLTransaction(sqlRouteResult, shardingTableMetaData, undoDataStore);
+        logicSQLTransactions.add(currentLogicSQLTransaction);
+    }
+    
+    /**
+     * Cache connection of data source.
+     *
+     * <p>
+     * One data source may hold several connections for parallel execution, every cached connection could be acquired by one route unit at a time.
+     * </p>
+     *
+     * @param dataSourceName data source name
+     * @param connection connection
+     */
+    public void cacheConnection(final String dataSourceName, final Connection connection) {
+        cachedConnections.put(dataSourceName, connection);
+        Queue<Connection> connections = idleConnections.get(dataSourceName);
+        if (null == connections) {
+            Queue<Connection> newConnections = new ConcurrentLinkedQueue<>();
+            connections = idleConnections.putIfAbsent(dataSourceName, newConnections);
+            if (null == connections) {
+                connections = newConnections;
+            }
+        }
+        connections.offer(connection);
+    }
+    
+    /**
+     * Acquire connection of data source.
+     *
+     * <p>
+     * Only idle connection is acquired, connection in use by another route unit or compensation is never shared.
+     * </p>
+     *
+     * @param dataSourceName data source name
+     * @return connection
+     * @throws ShardingException no idle connection of data source, throw this exception
+     */
+    public Connection acquireConnection(final String dataSourceName) {
+        Queue<Connection> connections = idleConnections.get(dataSourceName);
+        Connection result = null == connections ? null : connections.poll();
+        if (null == result) {
+            throw new ShardingException("No idle connection of data source `%s` in saga transaction", dataSourceName);
         }
+        leasedConnections.add(result);
+        return result;
+    }
+    
+    /**
+     * Acquire connection of route unit.
+     *
+     * <p>
+     * The connection executing route unit is preferred, so snapshot is taken on the same connection and thread as the DML,
+     * connection of data source is leased if executing connection could not be identified.
+     * </p>
+     *
+     * @param routeUnit route unit
+     * @return connection
+     * @throws ShardingException executing connection could not be identified and no idle connection of data source, throw this exception
+     */
+    public Connection acquireConnection(final RouteUnit routeUnit) {
+        Optional<Connection> result = null == currentLogicSQLTransaction ? Optional.<Connection>absent() : currentLogicSQLTransaction.findExecutingConnection(routeUnit);
+        return result.isPresent() ? result.get() : acquireConnection(routeUnit.getDataSourceName());
+    }
+    
+    /**
+     * Add connection which prepared statement for current logic SQL.
+     *
+     * @param dataSourceName data source name
+     * @param sql SQL of statement
+     * @param connection connection
+     */
+    public void addStatementConnection(final String dataSourceName, final String sql, final Connection connection) {
+        LogicSQLTransaction logicSQLTransaction = currentLogicSQLTransaction;
+        if (null != logicSQLTransaction) {
+            logicSQLTransaction.addStatementConnection(dataSourceName, sql, connection);
+        }
+    }
+    
+    /**
+     * Release acquired connection of data source.
+     *
+     * @param dataSourceName data source name
+     * @param connection connection
+     */
+    public void releaseConnection(final String dataSourceName, final Connection connection) {
+        if (null != connection && leasedConnections.remove(connection)) {
+            idleConnections.get(dataSourceName).offer(connection);
+        }
+    }
+    
+    /**
+     * Join connection into local transaction.
+     *
+     * <p>
+     * The first data source of transaction is committed or rolled back natively without snapshot and saga.
+     * When another data source joins, local transaction escalates to saga if no DML executed in it yet,
+     * otherwise the joining is rejected, because undo data of executed DML could not be captured any more.
+     * Local transaction assumes one connection per data source, more connections of local data source join the same local transaction.
+     * </p>
+     *
+     * @param dataSourceName data source name
+     * @param connection connection
+     * @throws SQLException failed to disable auto commit, throw this exception
+     * @throws ShardingException DML executed in local transaction before another data source joins, throw this exception
+     */
+    public void joinLocalTransaction(final String dataSourceName, final Connection connection) throws SQLException {
+        if (!localTransactionEnabled) {
+            return;
+        }
+        if (null == localDataSourceName) {
+            localDataSourceName = dataSourceName;
+        }
+        if (localDataSourceName.equals(dataSourceName)) {
+            connection.setAutoCommit(false);
+            localConnections.add(connection);
+            return;
+        }
+        escalateLocalTransaction(dataSourceName);
+    }
+    
+    private void escalateLocalTransaction(final String dataSourceName) {
+        if (localTransactionWritten) {
+            throw new ShardingException("Data source `%s` can not join saga transaction, DML executed in local transaction of data source `%s` could not be compensated. "
+                + "Disable saga.actuator.local.transaction.enabled for transactions across data sources", dataSourceName, localDataSourceName);
+        }
+        localTransactionEnabled = false;
+        localDataSourceName = null;
+        for (TransactionSavepoint each : savepoints.values()) {
+            each.getLocalSavepoints().clear();
+        }
+        commitLocalTransaction();
+    }
+    
+    /**
+     * Mark DML executed in local transaction.
+     */
+    public void markLocalTransactionWritten() {
+        localTransactionWritten = true;
+    }
+    
+    /**
+     * Whether data source is in local transaction or not.
+     *
+     * @param dataSourceName data source name
+     * @return true or false
+     */
+    public boolean isLocalDataSource(final String dataSourceName) {
+        return null != dataSourceName && dataSourceName.equals(localDataSourceName);
+    }
+    
+    /**
+     * Commit local transaction.
+     *
+     * <p>
+     * Connections not committed yet are rolled back if any commit failed.
+     * </p>
+     */
+    public void commitLocalTransaction() {
+        endLocalTransaction(true);
+    }
+    
+    /**
+     * Rollback local transaction.
+     */
+    public void rollbackLocalTransaction() {
+        endLocalTransaction(false);
+    }
+    
+    private void endLocalTransaction(final boolean commit) {
+        SQLException failure = null;
+        for (Connection each : localConnections) {
+            try {
+                if (commit && null == failure) {
+                    each.commit();
+                } else {
+                    each.rollback();
+                }
+            } catch (final SQLException ex) {
+                failure = null == failure ? ex : failure;
+                rollbackQuietly(each);
+            }
+            restoreAutoCommitQuietly(each);
+        }
+        localConnections.clear();
+        if (null != failure) {
+            throw new ShardingException(String.format("%s local transaction failed", commit ? "Commit" : "Rollback"), failure);
+        }
+    }
+    
+    private void rollbackQuietly(final Connection connection) {
+        try {
+            connection.rollback();
+        } catch (final SQLException ignored) {
+            // uncommitted work is discarded when connection closed
+        }
+    }
+    
+    private void restoreAutoCommitQuietly(final Connection connection) {
+        try {
+            connection.setAutoCommit(true);
+        } catch (final SQLException ignored) {
+            // broken connection is discarded by connection pool
+        }
+    }
+    
+    /**
+     * Set savepoint at current logic SQL transaction, savepoint with same name is replaced.
+     *
+     * @param savepointName savepoint name
+     * @throws SQLException failed to set savepoint of local transaction, throw this exception
+     */
+    public void setSavepoint(final String savepointName) throws SQLException {
+        Map<Connection, Savepoint> localSavepoints = new HashMap<>(localConnections.size(), 1);
+        for (Connection each : localConnections) {
+            localSavepoints.put(each, each.setSavepoint(savepointName));
+        }
+        savepoints.remove(savepointName);
+        savepoints.put(savepointName, new TransactionSavepoint(logicSQLTransactions.size(), localSavepoints));
+    }
+    
+    /**
+     * Release savepoint and savepoints set after it.
+     *
+     * @param savepointName savepoint name
+     * @throws SQLException failed to release savepoint of local transaction, throw this exception
+     */
+    public void releaseSavepoint(final String savepointName) throws SQLException {
+        for (Entry<Connection, Savepoint> entry : getSavepoint(savepointName).getLocalSavepoints().entrySet()) {
+            entry.getKey().releaseSavepoint(entry.getValue());
+        }
+        removeSavepointsFrom(savepointName, true);
+    }
+    
+    /**
+     * Start rolling back to savepoint.
+     *
+     * <p>
+     * Status of logic SQL transactions before savepoint will not be changed until {@code finishRollbackToSavepoint} called.
+     * </p>
+     *
+     * @param savepointName savepoint name
+     * @return logic SQL transactions after savepoint to be compensated
+     */
+    public List<LogicSQLTransaction> startRollbackToSavepoint(final String savepointName) {
+        compensationStartIndex = getSavepoint(savepointName).getLogicSQLTransactionIndex();
+        return new LinkedList<>(logicSQLTransactions.subList(compensationStartIndex, logicSQLTransactions.size()));
+    }
+    
+    /**
+     * Finish rolling back to savepoint.
+     *
+     * <p>
+     * If logic SQL transactions after savepoint are compensated, they are discarded with their undo data and savepoints set after the savepoint,
+     * and local transaction is rolled back to the savepoint natively.
+     * </p>
+     *
+     * @param savepointName savepoint name
+     * @param compensated logic SQL transactions after savepoint are compensated or not
+     */
+    public void finishRollbackToSavepoint(final String savepointName, final boolean compensated) {
+        int savepointIndex = compensationStartIndex;
+        compensationStartIndex = 0;
+        operationType = TransactionOperationType.BEGIN;
+        if (!compensated) {
+            return;
+        }
+        List<LogicSQLTransaction> rolledBackLogicSQLTransactions = logicSQLTransactions.subList(savepointIndex, logicSQLTransactions.size());
+        for (LogicSQLTransaction each : rolledBackLogicSQLTransactions) {
+            for (BranchTransaction branchTransaction : each.getBranchTransactions()) {
+                unindexBranchTransaction(branchTransaction);
+            }
+            each.getSnapshotLoader().release();
+        }
+        rolledBackLogicSQLTransactions.clear();
+        currentLogicSQLTransaction = null;
+        try {
+            rollbackLocalTransactionToSavepoint(getSavepoint(savepointName).getLocalSavepoints());
+        } catch (final SQLException ex) {
+            throw new ShardingException("Rollback local transaction to savepoint failed", ex);
+        }
+        removeSavepointsFrom(savepointName, false);
+    }
+    
+    private void rollbackLocalTransactionToSavepoint(final Map<Connection, Savepoint> localSavepoints) throws SQLException {
+        for (Connection each : localConnections) {
+            Savepoint savepoint = localSavepoints.get(each);
+            if (null == savepoint) {
+                each.rollback();
+            } else {
+                each.rollback(savepoint);
+            }
+        }
+    }
+    
+    private TransactionSavepoint getSavepoint(final String savepointName) {
+        TransactionSavepoint result = savepoints.get(savepointName);
+        if (null == result) {
+            throw new ShardingException("Savepoint `%s` does not exist", savepointName);
+        }
+        return result;
+    }
+    
+    private void removeSavepointsFrom(final String savepointName, final boolean inclusive) {
+        boolean found = false;
+        Iterator<String> iterator = savepoints.keySet().iterator();
+        while (iterator.hasNext()) {
+            String each = iterator.next();
+            if (found || (inclusive && each.equals(savepointName))) {
+                iterator.remove();
+            }
+            found = found || each.equals(savepointName);
+        }
+    }
+    
+    /**
+     * Whether saga branch transactions exist or not.
+     *
+     * @return true or false
+     */
+    public boolean isContainsBranchTransaction() {
+        for (LogicSQLTransaction each : logicSQLTransactions) {
+            if (!each.getBranchTransactions().isEmpty()) {
+                return true;
+            }
+        }
+        return false;
     }
     
     /**
@@ -98,15 +483,20 @@ public final class TransactionContext {
      */
     public void addBranchTransaction(final BranchTransaction branchTransaction) {
         currentLogicSQLTransaction.getBranchTransactions().add(branchTransaction);
+        indexBranchTransaction(branchTransaction);
     }
     
     /**
      * Change all logic transactions status.
      *
+     * <p>
+     * Only logic transactions after savepoint are changed while rolling back to savepoint.
+     * </p>
+     *
      * @param executeStatus execute status
      */
     public void changeAllLogicTransactionStatus(final ExecuteStatus executeStatus) {
-        for (LogicSQLTransaction each : logicSQLTransactions) {
+        for (LogicSQLTransaction each : logicSQLTransactions.subList(compensationStartIndex, logicSQLTransactions.size())) {
             changeAllBranchTransactionStatus(each, executeStatus);
         }
     }
@@ -118,59 +508,44 @@ public final class TransactionContext {
     }
     
     /**
-     * Find branch transaction.
+     * Find logic SQL transaction which branch transaction belongs to.
      *
-     * @param dataSourceName data source name
-     * @param sql SQL
-     * @param sagaParameters saga parameters
-     * @return saga branch transaction
+     * @param branchTransaction branch transaction
+     * @return logic SQL transaction
      */
-    public Optional<BranchTransaction> findBranchTransaction(final String dataSourceName, final String sql, final List<List<String>> sagaParameters) {
-        Optional<BranchTransaction> result = Optional.absent();
+    public Optional<LogicSQLTransaction> findLogicSQLTransaction(final BranchTransaction branchTransaction) {
         for (LogicSQLTransaction each : logicSQLTransactions) {
-            result = doFindBranchTransaction(each, dataSourceName, sql, sagaParameters);
-            if (result.isPresent()) {
-                return result;
+            if (each.getBranchTransactions().contains(branchTransaction)) {
+                return Optional.of(each);
             }
         }
-        return result;
+        return Optional.absent();
     }
     
-    private Optional<BranchTransaction> doFindBranchTransaction(final LogicSQLTransaction logicSQLTransaction, final String dataSourceName,
-                                                                final String sql, final List<List<String>> sagaParameters) {
-        for (BranchTransaction each : logicSQLTransaction.getBranchTransactions()) {
-            if (dataSourceName.equals(each.getDataSourceName())) {
-                if (ExecuteStatus.COMPENSATING.equals(each.getExecuteStatus()) && sql.equals(each.getRevertSQLResult().getSql())
-                    && judgeRevertParameters(sagaParameters, each.getRevertSQLResult().getParameters())) {
-                    return Optional.of(each);
-                } else if (!ExecuteStatus.COMPENSATING.equals(each.getExecuteStatus()) && sql.equals(each.getSql())
-                    && judgeParameters(sagaParameters, each.getParameters())) {
-                    return Optional.of(each);
-                }
-            }
-        }
-        return Optional.absent();
+    /**
+     * Find branch transaction by branch id.
+     *
+     * @param branchId branch id
+     * @return saga branch transaction
+     */
+    public Optional<BranchTransaction> findBranchTransaction(final String branchId) {
+        return null == branchId ? Optional.<BranchTransaction>absent() : Optional.fromNullable(branchTransactionIdIndex.get(branchId));
     }
     
-    private boolean judgeParameters(List<List<String>> sagaParameters, List<Collection<Object>> sqlParameters) {
-        Iterator<List<String>> sagaParameterIterator = sagaParameters.iterator();
-        Iterator<Collection<Object>> sqlParameterIterator = sqlParameters.iterator();
-        while (sagaParameterIterator.hasNext()) {
-            if (!sagaParameterIterator.next().toString().equals(sqlParameterIterator.next().toString())) {
-                return false;
-            }
-        }
-        return true;
+    private void indexBranchTransaction(final BranchTransaction branchTransaction) {
+        branchTransactionIdIndex.put(branchTransaction.getBranchId(), branchTransaction);
     }
     
-    private boolean judgeRevertParameters(List<List<String>> sagaParameters, List<Collection<Object>> revertParameters) {
-        Iterator<List<String>> sagaParameterIterator = sagaParameters.iterator();
-        Iterator<Collection<Object>> revertParameterIterator = revertParameters.iterator();
-        while (sagaParameterIterator.hasNext()) {
-            if (!sagaParameterIterator.next().toString().equals(revertParameterIterator.next().toString())) {
-                return false;
-            }
-        }
-        return true;
+    private void unindexBranchTransaction(final BranchTransaction branchTransaction) {
+        branchTransactionIdIndex.remove(branchTransaction.getBranchId());
+    }
+    
+    @RequiredArgsConstructor
+    @Getter
+    private static final class TransactionSavepoint {
+        
+        private final int logicSQLTransactionIndex;
+        
+        private final Map<Connection, Savepoint> localSavepoints;
     }
 }
@@ -17,24 +17,105 @@
 
 package io.shardingsphere.transaction.base.context;
 
+import org.apache.shardingsphere.core.exception.ShardingException;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+
 /**
  * Transaction context holder.
  *
+ * <p>
+ * Transaction context is created at first DML statement after begin, read only transaction never creates it.
+ * Connections acquired before that are cached here and handed over to transaction context once created.
+ * </p>
+ *
  * @author zhaojun
  */
 public class TransactionContextHolder {
     
     private static final ThreadLocal<TransactionContext> TRANSACTION_CONTEXT = new ThreadLocal<>();
     
+    private static final ThreadLocal<TransactionContextFactory> TRANSACTION_CONTEXT_FACTORY = new ThreadLocal<>();
+    
+    private static final ThreadLocal<Map<Connection, String>> PENDING_CONNECTIONS = new ThreadLocal<>();
+    
+    /**
+     * Begin transaction, transaction context will be created lazily.
+     *
+     * @param transactionContextFactory transaction context factory
+     */
+    public static void begin(final TransactionContextFactory transactionContextFactory) {
+        TRANSACTION_CONTEXT_FACTORY.set(transactionContextFactory);
+    }
+    
     /**
      * Get transaction context of current thread.
      *
-     * @return transaction context
+     * @return transaction context, null if not in transaction or transaction context is not created yet
      */
     public static TransactionContext get() {
         return TRANSACTION_CONTEXT.get();
     }
     
+    /**
+     * Get transaction context of current thread, create it if not created yet.
+     *
+     * @return transaction context, null if not in transaction
+     */
+    public static TransactionContext getOrCreate() {
+        TransactionContext result = TRANSACTION_CONTEXT.get();
+        if (null != result) {
+            return result;
+        }
+        TransactionContextFactory transactionContextFactory = TRANSACTION_CONTEXT_FACTORY.get();
+        if (null == transactionContextFactory) {
+            return null;
+        }
+        result = transactionContextFactory.newInstance();
+        TRANSACTION_CONTEXT.set(result);
+        Map<Connection, String> pendingConnections = PENDING_CONNECTIONS.get();
+        if (null != pendingConnections) {
+            PENDING_CONNECTIONS.remove();
+            for (Entry<Connection, String> entry : pendingConnections.entrySet()) {
+                cacheConnection(result, entry.getValue(), entry.getKey());
+            }
+        }
+        return result;
+    }
+    
+    /**
+     * Cache connection of data source in transaction.
+     *
+     * @param dataSourceName data source name
+     * @param connection connection
+     */
+    public static void cacheConnection(final String dataSourceName, final Connection connection) {
+        TransactionContext transactionContext = TRANSACTION_CONTEXT.get();
+        if (null != transactionContext) {
+            cacheConnection(transactionContext, dataSourceName, connection);
+            return;
+        }
+        Map<Connection, String> pendingConnections = PENDING_CONNECTIONS.get();
+        if (null == pendingConnections) {
+            pendingConnections = new LinkedHashMap<>();
+            PENDING_CONNECTIONS.set(pendingConnections);
+        }
+        pendingConnections.put(connection, dataSourceName);
+    }
+    
+    private static void cacheConnection(final TransactionContext transactionContext, final String dataSourceName, final Connection connection) {
+        try {
+            transactionContext.joinLocalTransaction(dataSourceName, connection);
+        } catch (final SQLException ex) {
+            throw new ShardingException("Join local transaction failed", ex);
+        }
+        transactionContext.cacheConnection(dataSourceName, connection);
+    }
+    
     /**
      * Set transaction context.
      *
@@ -49,6 +130,8 @@ public class TransactionContextHolder {
      */
     public static void clear() {
         TRANSACTION_CONTEXT.remove();
+        TRANSACTION_CONTEXT_FACTORY.remove();
+        PENDING_CONNECTIONS.remove();
     }
     
     /**
@@ -57,6 +140,6 @@ public class TransactionContextHolder {
      * @return true or false
      */
     public static boolean isInTransaction() {
-        return null != get();
+        return null != TRANSACTION_CONTEXT.get() || null != TRANSACTION_CONTEXT_FACTORY.get();
     }
 }
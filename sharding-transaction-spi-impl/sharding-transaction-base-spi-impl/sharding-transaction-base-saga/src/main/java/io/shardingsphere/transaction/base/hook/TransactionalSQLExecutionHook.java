@@ -56,7 +56,11 @@ public final class TransactionalSQLExecutionHook implements SQLExecutionHook {
             return;
         }
         transactionContext = (TransactionContext) shardingExecuteDataMap.get(SagaShardingTransactionManager.SAGA_TRANSACTION_KEY);
-        if (!transactionContext.getCurrentLogicSQLTransaction().isDMLLogicSQL()) {
+        if (null == transactionContext.getCurrentLogicSQLTransaction()) {
+            return;
+        }
+        if (transactionContext.isLocalDataSource(routeUnit.getDataSourceName())) {
+            transactionContext.markLocalTransactionWritten();
             return;
         }
         branchTransaction = new BranchTransaction(routeUnit.getDataSourceName(), routeUnit.getSqlUnit().getSql(), splitParameters(routeUnit.getSqlUnit()), ExecuteStatus.EXECUTING);
@@ -79,14 +83,19 @@ public final class TransactionalSQLExecutionHook implements SQLExecutionHook {
     }
     
     private Optional<RevertSQLResult> doSQLRevert(final LogicSQLTransaction logicSQLTransaction, final RouteUnit routeUnit) {
-        Connection connection = transactionContext.getCachedConnections().get(routeUnit.getDataSourceName());
-        SQLRevertExecutorContext context = new SQLRevertExecutorContext(logicSQLTransaction.getSqlRouteResult(), routeUnit, logicSQLTransaction.getTableMetaData(), connection);
-        return new DMLSQLRevertEngine(SQLRevertExecutorFactory.newInstance(context)).revert();
+        Connection connection = transactionContext.acquireConnection(routeUnit);
+        try {
+            SQLRevertExecutorContext context = new SQLRevertExecutorContext(logicSQLTransaction.getSqlRouteResult(), routeUnit, logicSQLTransaction.getTableMetaData(), connection,
+                transactionContext.getSqlTemplateCache(), logicSQLTransaction.getSqlRouteResultIndex());
+            return new DMLSQLRevertEngine(SQLRevertExecutorFactory.newInstance(context, logicSQLTransaction.getSnapshotLoader()), transactionContext.getSetBasedRevertLimit()).revert();
+        } finally {
+            transactionContext.releaseConnection(routeUnit.getDataSourceName(), connection);
+        }
     }
     
     private List<Collection<Object>> splitParameters(final SQLUnit sqlUnit) {
         List<Collection<Object>> result = Lists.newArrayList();
-        int placeholderCount = countPlaceholder(sqlUnit.getSql());
+        int placeholderCount = transactionContext.getSqlTemplateCache().getPlaceholderCount(sqlUnit.getSql());
         if (placeholderCount == sqlUnit.getParameters().size()) {
             result.add(sqlUnit.getParameters());
         } else {
@@ -95,14 +104,4 @@ public final class TransactionalSQLExecutionHook implements SQLExecutionHook {
         return result;
     }
     
-    private int countPlaceholder(final String sql) {
-        int result = 0;
-        int currentIndex = 0;
-        while (-1 != (currentIndex = sql.indexOf("?", currentIndex))) {
-            result++;
-            currentIndex += 1;
-        }
-        return result;
-    }
-    
 }
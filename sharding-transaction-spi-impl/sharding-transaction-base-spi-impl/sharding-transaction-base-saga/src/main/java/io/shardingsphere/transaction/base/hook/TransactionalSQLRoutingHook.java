@@ -17,7 +17,9 @@
 
 package io.shardingsphere.transaction.base.hook;
 
+import io.shardingsphere.transaction.base.context.TransactionContext;
 import io.shardingsphere.transaction.base.context.TransactionContextHolder;
+import org.apache.shardingsphere.core.constant.SQLType;
 import org.apache.shardingsphere.core.metadata.table.ShardingTableMetaData;
 import org.apache.shardingsphere.core.route.SQLRouteResult;
 import org.apache.shardingsphere.core.route.hook.RoutingHook;
@@ -35,8 +37,12 @@ public final class TransactionalSQLRoutingHook implements RoutingHook {
     
     @Override
     public void finishSuccess(final SQLRouteResult sqlRouteResult, final ShardingTableMetaData shardingTableMetaData) {
-        if (TransactionContextHolder.isInTransaction()) {
-            TransactionContextHolder.get().nextLogicSQLTransaction(sqlRouteResult, shardingTableMetaData);
+        if (!TransactionContextHolder.isInTransaction()) {
+            return;
+        }
+        TransactionContext transactionContext = SQLType.DML.equals(sqlRouteResult.getSqlStatement().getType()) ? TransactionContextHolder.getOrCreate() : TransactionContextHolder.get();
+        if (null != transactionContext) {
+            transactionContext.nextLogicSQLTransaction(sqlRouteResult, shardingTableMetaData);
         }
     }
     
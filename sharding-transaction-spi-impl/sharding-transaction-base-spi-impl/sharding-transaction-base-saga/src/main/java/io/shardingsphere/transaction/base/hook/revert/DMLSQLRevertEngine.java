@@ -21,6 +21,8 @@ import com.google.common.base.Optional;
 import io.shardingsphere.transaction.base.hook.revert.executor.SQLRevertExecutor;
 import lombok.RequiredArgsConstructor;
 
+import java.util.Iterator;
+
 /**
  * DML SQL Revert engine.
  *
@@ -32,6 +34,8 @@ public class DMLSQLRevertEngine implements SQLRevertEngine {
     
     private final SQLRevertExecutor sqlRevertExecutor;
     
+    private final SetBasedRevertLimit setBasedRevertLimit;
+    
     /**
      * Execute revert.
      */
@@ -43,6 +47,14 @@ public class DMLSQLRevertEngine implements SQLRevertEngine {
         }
         RevertSQLResult result = new RevertSQLResult(sql.get());
         sqlRevertExecutor.fillParameters(result);
+        if (setBasedRevertLimit.getMaxRowCount() > 1 && result.getParameters().size() > 1) {
+            result.setSetBasedRevertSQLGenerator(new SetBasedRevertSQLGenerator() {
+                @Override
+                public Iterator<RevertSQLUnit> generate() {
+                    return sqlRevertExecutor.generateSetBasedSQLUnits(setBasedRevertLimit);
+                }
+            });
+        }
         return Optional.of(result);
     }
 }
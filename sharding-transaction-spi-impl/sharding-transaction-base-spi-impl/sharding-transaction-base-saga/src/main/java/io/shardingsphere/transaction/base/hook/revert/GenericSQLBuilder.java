@@ -90,21 +90,78 @@ public final class GenericSQLBuilder {
         }
     }
     
+    /**
+     * Append where condition matching any of rows.
+     *
+     * <p>
+     * Single column is matched with {@code IN} list, multiple columns are matched with {@code OR} of conditions.
+     * </p>
+     *
+     * @param columns columns
+     * @param rowCount row count
+     */
+    public void appendWhereInCondition(final Collection<String> columns, final int rowCount) {
+        if (columns.isEmpty() || rowCount < 1) {
+            return;
+        }
+        sqlBuilder.append(DefaultKeyword.WHERE).append(" ");
+        if (1 == columns.size()) {
+            sqlBuilder.append(columns.iterator().next()).append(" ").append(DefaultKeyword.IN).append(" (");
+            appendPlaceholders(rowCount, ", ");
+            sqlBuilder.append(")");
+            return;
+        }
+        for (int i = 0; i < rowCount; i++) {
+            if (i > 0) {
+                sqlBuilder.append(" ").append(DefaultKeyword.OR).append(" ");
+            }
+            sqlBuilder.append("(");
+            boolean firstItem = true;
+            for (String each : columns) {
+                if (!firstItem) {
+                    sqlBuilder.append(" ").append(DefaultKeyword.AND).append(" ");
+                }
+                firstItem = false;
+                sqlBuilder.append(each).append(" = ?");
+            }
+            sqlBuilder.append(")");
+        }
+    }
+    
     /**
      * Append insert values.
      *
      * @param placeholderCount placeholder count
      */
     public void appendInsertValues(final int placeholderCount) {
+        appendInsertValues(placeholderCount, 1);
+    }
+    
+    /**
+     * Append multiple rows of insert values.
+     *
+     * @param placeholderCount placeholder count of each row
+     * @param rowCount row count
+     */
+    public void appendInsertValues(final int placeholderCount, final int rowCount) {
         sqlBuilder.append(DefaultKeyword.VALUES).append(" ");
-        sqlBuilder.append("(");
+        for (int i = 0; i < rowCount; i++) {
+            if (i > 0) {
+                sqlBuilder.append(", ");
+            }
+            sqlBuilder.append("(");
+            appendPlaceholders(placeholderCount, ",");
+            sqlBuilder.append(")");
+        }
+    }
+    
+    private void appendPlaceholders(final int placeholderCount, final String delimiter) {
         for (int i = 0; i < placeholderCount; i++) {
             sqlBuilder.append("?");
             if (i < placeholderCount - 1) {
-                sqlBuilder.append(",");
+                sqlBuilder.append(delimiter);
             }
         }
-        sqlBuilder.append(")");
     }
     
     /**
@@ -17,16 +17,25 @@
 
 package io.shardingsphere.transaction.base.hook.revert;
 
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.RequiredArgsConstructor;
+import lombok.Setter;
 
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 
 /**
  * Revert SQL result.
  *
+ * <p>
+ * Row level parameters are kept for saga definition and recovery,
+ * set based revert SQL units are generated from undo data only when compensation runs and never kept.
+ * </p>
+ *
  * @author duhongjun
  * @author zhaojun
  */
@@ -37,4 +46,22 @@ public final class RevertSQLResult {
     private final String sql;
     
     private final List<Collection<Object>> parameters = new LinkedList<>();
+    
+    @Setter
+    @Getter(AccessLevel.NONE)
+    private SetBasedRevertSQLGenerator setBasedRevertSQLGenerator;
+    
+    /**
+     * Get set based revert SQL units.
+     *
+     * <p>
+     * Set based revert SQL units revert all rows of {@code parameters} with fewer statements,
+     * they are empty if revert SQL should be executed row by row.
+     * </p>
+     *
+     * @return set based revert SQL units
+     */
+    public Iterator<RevertSQLUnit> getSetBasedSQLUnits() {
+        return null == setBasedRevertSQLGenerator ? Collections.<RevertSQLUnit>emptyIterator() : setBasedRevertSQLGenerator.generate();
+    }
 }
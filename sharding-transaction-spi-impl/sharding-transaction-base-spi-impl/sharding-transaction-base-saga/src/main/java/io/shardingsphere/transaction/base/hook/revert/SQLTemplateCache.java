@@ -0,0 +1,176 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.shardingsphere.transaction.base.hook.revert;
+
+import com.google.common.base.Optional;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import org.apache.shardingsphere.core.metadata.table.TableMetaData;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * SQL template cache.
+ *
+ * <p>
+ * Caches snapshot SQL, revert SQL, column names, primary key columns and placeholder count of repeated statements,
+ * entries are evicted by least recently used order once maximum size reached.
+ * </p>
+ *
+ * @author zhaojun
+ */
+public final class SQLTemplateCache {
+    
+    public static final int DEFAULT_MAXIMUM_SIZE = 1024;
+    
+    private final Cache<SQLTemplateKey, String> sqlTemplates;
+    
+    private final Cache<TableMetaData, List<String>> columnNames;
+    
+    private final Cache<TableMetaData, List<String>> primaryKeyColumns;
+    
+    private final Cache<String, Integer> placeholderCounts;
+    
+    public SQLTemplateCache() {
+        this(DEFAULT_MAXIMUM_SIZE);
+    }
+    
+    public SQLTemplateCache(final long maximumSize) {
+        sqlTemplates = CacheBuilder.newBuilder().maximumSize(maximumSize).recordStats().build();
+        columnNames = CacheBuilder.newBuilder().weakKeys().maximumSize(maximumSize).recordStats().build();
+        primaryKeyColumns = CacheBuilder.newBuilder().weakKeys().maximumSize(maximumSize).recordStats().build();
+        placeholderCounts = CacheBuilder.newBuilder().maximumSize(maximumSize).recordStats().build();
+    }
+    
+    /**
+     * Find SQL template.
+     *
+     * @param key SQL template key
+     * @return SQL template
+     */
+    public Optional<String> findSQL(final SQLTemplateKey key) {
+        return Optional.fromNullable(sqlTemplates.getIfPresent(key));
+    }
+    
+    /**
+     * Put SQL template.
+     *
+     * @param key SQL template key
+     * @param sql SQL
+     * @return SQL
+     */
+    public String putSQL(final SQLTemplateKey key, final String sql) {
+        sqlTemplates.put(key, sql);
+        return sql;
+    }
+    
+    /**
+     * Find column names of table.
+     *
+     * @param tableMetaData table meta data
+     * @return column names in meta data order
+     */
+    public Optional<List<String>> findColumnNames(final TableMetaData tableMetaData) {
+        return Optional.fromNullable(columnNames.getIfPresent(tableMetaData));
+    }
+    
+    /**
+     * Put column names of table.
+     *
+     * @param tableMetaData table meta data
+     * @param columns column names in meta data order
+     * @return unmodifiable column names
+     */
+    public List<String> putColumnNames(final TableMetaData tableMetaData, final List<String> columns) {
+        List<String> result = Collections.unmodifiableList(columns);
+        columnNames.put(tableMetaData, result);
+        return result;
+    }
+    
+    /**
+     * Find primary key columns of table.
+     *
+     * <p>
+     * Table meta data is compared by identity, refreshed table meta data will not hit stale columns.
+     * </p>
+     *
+     * @param tableMetaData table meta data
+     * @return primary key columns
+     */
+    public Optional<List<String>> findPrimaryKeyColumns(final TableMetaData tableMetaData) {
+        return Optional.fromNullable(primaryKeyColumns.getIfPresent(tableMetaData));
+    }
+    
+    /**
+     * Put primary key columns of table.
+     *
+     * @param tableMetaData table meta data
+     * @param columns primary key columns
+     * @return unmodifiable primary key columns
+     */
+    public List<String> putPrimaryKeyColumns(final TableMetaData tableMetaData, final List<String> columns) {
+        List<String> result = Collections.unmodifiableList(columns);
+        primaryKeyColumns.put(tableMetaData, result);
+        return result;
+    }
+    
+    /**
+     * Get placeholder count of SQL.
+     *
+     * @param sql SQL
+     * @return placeholder count
+     */
+    public int getPlaceholderCount(final String sql) {
+        Integer result = placeholderCounts.getIfPresent(sql);
+        if (null == result) {
+            result = countPlaceholder(sql);
+            placeholderCounts.put(sql, result);
+        }
+        return result;
+    }
+    
+    private int countPlaceholder(final String sql) {
+        int result = 0;
+        int currentIndex = 0;
+        while (-1 != (currentIndex = sql.indexOf("?", currentIndex))) {
+            result++;
+            currentIndex += 1;
+        }
+        return result;
+    }
+    
+    /**
+     * Get statistics of all cached templates.
+     *
+     * @return hit and miss statistics
+     */
+    public CacheStats getStats() {
+        return sqlTemplates.stats().plus(columnNames.stats()).plus(primaryKeyColumns.stats()).plus(placeholderCounts.stats());
+    }
+    
+    /**
+     * Get count of cached entries.
+     *
+     * @return cached entries count
+     */
+    public long size() {
+        return sqlTemplates.size() + columnNames.size() + primaryKeyColumns.size() + placeholderCounts.size();
+    }
+}
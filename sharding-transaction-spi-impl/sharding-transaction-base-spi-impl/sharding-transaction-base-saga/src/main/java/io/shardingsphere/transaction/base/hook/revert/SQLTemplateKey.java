@@ -0,0 +1,53 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.shardingsphere.transaction.base.hook.revert;
+
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.ToString;
+
+/**
+ * SQL template key.
+ *
+ * <p>
+ * Snapshot and revert SQL are only decided by statement shape, so same logic SQL on same actual table can share one template.
+ * </p>
+ *
+ * @author zhaojun
+ */
+@RequiredArgsConstructor
+@Getter
+@EqualsAndHashCode
+@ToString
+public final class SQLTemplateKey {
+    
+    private final SQLTemplateType type;
+    
+    private final String actualTableName;
+    
+    private final String logicSQL;
+    
+    private final int columnCount;
+    
+    private final int rowCount;
+    
+    public SQLTemplateKey(final SQLTemplateType type, final String actualTableName, final String logicSQL) {
+        this(type, actualTableName, logicSQL, 0, 1);
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.shardingsphere.transaction.base.hook.revert;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.apache.shardingsphere.core.constant.DatabaseType;
+
+/**
+ * Set based revert limit.
+ *
+ * <p>
+ * Rows of one set based revert SQL are capped by compensation chunk size, and also by row and bind parameter limits of database,
+ * e.g. SQL Server accepts at most 2100 parameters and 1000 rows of values, Oracle accepts at most 1000 expressions in {@code IN} list.
+ * Multiple rows of {@code INSERT ... VALUES} are not supported by Oracle, deleted rows are reverted row by row there.
+ * </p>
+ *
+ * @author zhaojun
+ */
+@RequiredArgsConstructor
+@Getter
+public final class SetBasedRevertLimit {
+    
+    private final int maxRowCount;
+    
+    private final int maxParameterCount;
+    
+    private final boolean multiRowValuesSupported;
+    
+    /**
+     * Create set based revert limit of database type.
+     *
+     * @param databaseType database type
+     * @param compensationChunkSize max rows of one set based revert SQL configured
+     * @return set based revert limit
+     */
+    public static SetBasedRevertLimit newInstance(final DatabaseType databaseType, final int compensationChunkSize) {
+        if (null == databaseType) {
+            return new SetBasedRevertLimit(compensationChunkSize, Short.MAX_VALUE, true);
+        }
+        switch (databaseType) {
+            case MySQL:
+                return new SetBasedRevertLimit(compensationChunkSize, 65535, true);
+            case PostgreSQL:
+                return new SetBasedRevertLimit(compensationChunkSize, Short.MAX_VALUE, true);
+            case SQLServer:
+                return new SetBasedRevertLimit(Math.min(compensationChunkSize, 1000), 2100, true);
+            case Oracle:
+                return new SetBasedRevertLimit(Math.min(compensationChunkSize, 1000), 65535, false);
+            default:
+                return new SetBasedRevertLimit(compensationChunkSize, Integer.MAX_VALUE, true);
+        }
+    }
+    
+    /**
+     * Get max rows of one set based revert SQL.
+     *
+     * @param parameterCountPerRow bind parameter count of every row
+     * @param sharedParameterCount bind parameter count shared by all rows
+     * @return max rows, revert SQL should be executed row by row if less than 2
+     */
+    public int getChunkSize(final int parameterCountPerRow, final int sharedParameterCount) {
+        if (0 >= parameterCountPerRow) {
+            return maxRowCount;
+        }
+        return Math.min(maxRowCount, (maxParameterCount - sharedParameterCount) / parameterCountPerRow);
+    }
+}
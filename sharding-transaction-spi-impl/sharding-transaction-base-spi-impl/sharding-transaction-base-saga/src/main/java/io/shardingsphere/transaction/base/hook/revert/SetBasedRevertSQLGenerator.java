@@ -0,0 +1,39 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.shardingsphere.transaction.base.hook.revert;
+
+import java.util.Iterator;
+
+/**
+ * Set based revert SQL generator.
+ *
+ * @author zhaojun
+ */
+public interface SetBasedRevertSQLGenerator {
+    
+    /**
+     * Generate set based revert SQL units, which revert all rows of row level parameters with fewer statements.
+     *
+     * <p>
+     * Units are generated lazily while iterating, only rows of current unit are read from undo data.
+     * </p>
+     *
+     * @return set based revert SQL units
+     */
+    Iterator<RevertSQLUnit> generate();
+}
@@ -19,6 +19,10 @@ package io.shardingsphere.transaction.base.hook.revert.executor;
 
 import com.google.common.base.Optional;
 import io.shardingsphere.transaction.base.hook.revert.RevertSQLResult;
+import io.shardingsphere.transaction.base.hook.revert.RevertSQLUnit;
+import io.shardingsphere.transaction.base.hook.revert.SetBasedRevertLimit;
+
+import java.util.Iterator;
 
 /**
  * SQL revert executor.
@@ -34,11 +38,22 @@ public interface SQLRevertExecutor {
      */
     Optional<String> revertSQL();
     
-    
     /**
      * Fill revert parameters.
      *
      * @param revertSQLResult revert SQL result
      */
     void fillParameters(RevertSQLResult revertSQLResult);
+    
+    /**
+     * Generate set based revert SQL units, every unit reverts as many rows as set based revert limit allows in one statement.
+     *
+     * <p>
+     * Rows are streamed from undo data while iterating units, spilled rows are never materialized all at once.
+     * </p>
+     *
+     * @param setBasedRevertLimit set based revert limit
+     * @return set based revert SQL units, empty if revert SQL should be executed row by row
+     */
+    Iterator<RevertSQLUnit> generateSetBasedSQLUnits(SetBasedRevertLimit setBasedRevertLimit);
 }
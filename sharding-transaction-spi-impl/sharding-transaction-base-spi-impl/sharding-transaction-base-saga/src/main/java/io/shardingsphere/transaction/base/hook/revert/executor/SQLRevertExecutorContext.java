@@ -17,20 +17,18 @@
 
 package io.shardingsphere.transaction.base.hook.revert.executor;
 
+import com.google.common.base.Optional;
+import io.shardingsphere.transaction.base.hook.revert.SQLTemplateCache;
 import lombok.Getter;
-import org.apache.shardingsphere.core.exception.ShardingException;
 import org.apache.shardingsphere.core.metadata.table.ColumnMetaData;
 import org.apache.shardingsphere.core.metadata.table.TableMetaData;
 import org.apache.shardingsphere.core.optimize.result.OptimizeResult;
 import org.apache.shardingsphere.core.parse.antlr.sql.statement.SQLStatement;
 import org.apache.shardingsphere.core.route.RouteUnit;
 import org.apache.shardingsphere.core.route.SQLRouteResult;
-import org.apache.shardingsphere.core.route.type.RoutingUnit;
-import org.apache.shardingsphere.core.route.type.TableUnit;
 
 import java.sql.Connection;
 import java.util.ArrayList;
-import java.util.Collection;
 import java.util.List;
 
 /**
@@ -55,38 +53,49 @@ public class SQLRevertExecutorContext implements SQLRevertContext {
     
     private List<Object> parameters;
     
+    private List<String> columnNames;
+    
     private List<String> primaryKeyColumns;
     
-    public SQLRevertExecutorContext(final SQLRouteResult sqlRouteResult, final RouteUnit routeUnit, final TableMetaData tableMetaData, final Connection connection) {
+    private String logicSQL;
+    
+    private SQLTemplateCache sqlTemplateCache;
+    
+    private SQLRouteResultIndex sqlRouteResultIndex;
+    
+    public SQLRevertExecutorContext(final SQLRouteResult sqlRouteResult, final RouteUnit routeUnit, final TableMetaData tableMetaData, final Connection connection,
+                                    final SQLTemplateCache sqlTemplateCache, final SQLRouteResultIndex sqlRouteResultIndex) {
         this.sqlStatement = sqlRouteResult.getSqlStatement();
         this.optimizeResult = sqlRouteResult.getOptimizeResult();
         this.routeUnit = routeUnit;
         this.dataSourceName = routeUnit.getDataSourceName();
-        this.actualTableName = getActualTableName(sqlRouteResult.getSqlStatement(), sqlRouteResult.getRoutingResult().getRoutingUnits(), routeUnit);
+        this.sqlRouteResultIndex = sqlRouteResultIndex;
+        this.actualTableName = sqlRouteResultIndex.getActualTableName(routeUnit, sqlStatement.getTables().getSingleTableName());
         this.parameters = routeUnit.getSqlUnit().getParameters();
+        this.sqlTemplateCache = sqlTemplateCache;
+        this.columnNames = getColumnNames(tableMetaData);
         this.primaryKeyColumns = getPrimaryKeyColumns(tableMetaData);
+        this.logicSQL = sqlStatement.getLogicSQL();
         this.connection = connection;
     }
     
-    private String getActualTableName(final SQLStatement sqlStatement, final Collection<RoutingUnit> routingUnits, final RouteUnit routeUnit) {
-        for (RoutingUnit each : routingUnits) {
-            if (each.getDataSourceName().equalsIgnoreCase(routeUnit.getDataSourceName())) {
-                return getAvailableActualTableName(each, sqlStatement.getTables().getSingleTableName());
-            }
+    private List<String> getColumnNames(final TableMetaData tableMetaData) {
+        Optional<List<String>> cachedColumnNames = sqlTemplateCache.findColumnNames(tableMetaData);
+        if (cachedColumnNames.isPresent()) {
+            return cachedColumnNames.get();
         }
-        throw new ShardingException(String.format("Could not find actual table name of [%s]", routeUnit));
-    }
-    
-    private String getAvailableActualTableName(final RoutingUnit routingUnit, final String logicTableName) {
-        for (TableUnit each : routingUnit.getTableUnits()) {
-            if (each.getLogicTableName().equalsIgnoreCase(logicTableName)) {
-                return each.getActualTableName();
-            }
+        List<String> result = new ArrayList<>(tableMetaData.getColumns().size());
+        for (ColumnMetaData each : tableMetaData.getColumns().values()) {
+            result.add(each.getColumnName());
         }
-        throw new ShardingException(String.format("Could not get available actual table name of [%s]", routingUnit));
+        return sqlTemplateCache.putColumnNames(tableMetaData, result);
     }
     
     private List<String> getPrimaryKeyColumns(final TableMetaData tableMetaData) {
+        Optional<List<String>> cachedPrimaryKeyColumns = sqlTemplateCache.findPrimaryKeyColumns(tableMetaData);
+        if (cachedPrimaryKeyColumns.isPresent()) {
+            return cachedPrimaryKeyColumns.get();
+        }
         List<String> result = new ArrayList<>();
         for (ColumnMetaData each : tableMetaData.getColumns().values()) {
             if (each.isPrimaryKey()) {
@@ -96,6 +105,6 @@ public class SQLRevertExecutorContext implements SQLRevertContext {
         if (result.isEmpty()) {
             throw new RuntimeException("Not supported table without primary key");
         }
-        return result;
+        return sqlTemplateCache.putPrimaryKeyColumns(tableMetaData, result);
     }
 }
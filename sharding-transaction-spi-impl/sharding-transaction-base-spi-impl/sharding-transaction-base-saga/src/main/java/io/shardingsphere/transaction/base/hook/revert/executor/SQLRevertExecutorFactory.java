@@ -20,6 +20,8 @@ package io.shardingsphere.transaction.base.hook.revert.executor;
 import io.shardingsphere.transaction.base.hook.revert.executor.delete.DeleteSQLRevertExecutor;
 import io.shardingsphere.transaction.base.hook.revert.executor.insert.InsertSQLRevertExecutor;
 import io.shardingsphere.transaction.base.hook.revert.executor.update.UpdateSQLRevertExecutor;
+import io.shardingsphere.transaction.base.hook.revert.snapshot.BatchSnapshotAccessor;
+import io.shardingsphere.transaction.base.hook.revert.snapshot.BatchSnapshotLoader;
 import io.shardingsphere.transaction.base.hook.revert.snapshot.DeleteSnapshotAccessor;
 import io.shardingsphere.transaction.base.hook.revert.snapshot.UpdateSnapshotAccessor;
 import lombok.SneakyThrows;
@@ -57,4 +59,23 @@ public final class SQLRevertExecutorFactory {
         }
         return sqlRevertExecutor;
     }
+    
+    /**
+     * Create new revert SQL executor, undo data will be loaded by batch snapshot loader.
+     *
+     * @param context SQL revert executor context
+     * @param snapshotLoader batch snapshot loader
+     * @return revert SQL engine
+     */
+    @SneakyThrows
+    public static SQLRevertExecutor newInstance(final SQLRevertExecutorContext context, final BatchSnapshotLoader snapshotLoader) {
+        SQLStatement sqlStatement = context.getSqlStatement();
+        if (sqlStatement instanceof DeleteStatement) {
+            return new DeleteSQLRevertExecutor(context, new BatchSnapshotAccessor(snapshotLoader, new DeleteSnapshotAccessor(context)));
+        }
+        if (sqlStatement instanceof UpdateStatement) {
+            return new UpdateSQLRevertExecutor(context, new BatchSnapshotAccessor(snapshotLoader, new UpdateSnapshotAccessor(context)));
+        }
+        return newInstance(context);
+    }
 }
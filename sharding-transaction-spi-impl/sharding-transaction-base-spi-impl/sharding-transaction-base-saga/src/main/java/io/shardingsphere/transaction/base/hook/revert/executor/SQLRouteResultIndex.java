@@ -0,0 +1,144 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.shardingsphere.transaction.base.hook.revert.executor;
+
+import com.google.common.base.Optional;
+import com.google.common.base.Preconditions;
+import lombok.RequiredArgsConstructor;
+import org.apache.shardingsphere.core.exception.ShardingException;
+import org.apache.shardingsphere.core.optimize.result.insert.InsertOptimizeResult;
+import org.apache.shardingsphere.core.optimize.result.insert.InsertOptimizeResultUnit;
+import org.apache.shardingsphere.core.route.RouteUnit;
+import org.apache.shardingsphere.core.route.SQLRouteResult;
+import org.apache.shardingsphere.core.route.type.RoutingUnit;
+import org.apache.shardingsphere.core.route.type.TableUnit;
+import org.apache.shardingsphere.core.rule.DataNode;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * SQL route result index.
+ *
+ * <p>
+ * Indexes of routing units and routed insert units are built once for one logic SQL,
+ * and shared by revert context construction of all route units.
+ * </p>
+ *
+ * @author zhaojun
+ */
+@RequiredArgsConstructor
+public final class SQLRouteResultIndex {
+    
+    private final SQLRouteResult sqlRouteResult;
+    
+    private Map<RouteUnit, RoutingUnit> routeUnitIndex;
+    
+    private Map<String, RoutingUnit> dataSourceIndex;
+    
+    private Map<DataNode, List<InsertOptimizeResultUnit>> insertUnitIndex;
+    
+    /**
+     * Get actual table name of route unit.
+     *
+     * @param routeUnit route unit
+     * @param logicTableName logic table name
+     * @return actual table name
+     */
+    public String getActualTableName(final RouteUnit routeUnit, final String logicTableName) {
+        RoutingUnit routingUnit = getRoutingUnit(routeUnit);
+        for (TableUnit each : routingUnit.getTableUnits()) {
+            if (each.getLogicTableName().equalsIgnoreCase(logicTableName)) {
+                return each.getActualTableName();
+            }
+        }
+        throw new ShardingException(String.format("Could not get available actual table name of [%s]", routingUnit));
+    }
+    
+    private synchronized RoutingUnit getRoutingUnit(final RouteUnit routeUnit) {
+        if (null == routeUnitIndex) {
+            buildRoutingUnitIndex();
+        }
+        RoutingUnit result = routeUnitIndex.get(routeUnit);
+        if (null == result) {
+            result = dataSourceIndex.get(routeUnit.getDataSourceName().toLowerCase());
+        }
+        if (null == result) {
+            throw new ShardingException(String.format("Could not find actual table name of [%s]", routeUnit));
+        }
+        return result;
+    }
+    
+    private void buildRoutingUnitIndex() {
+        routeUnitIndex = new HashMap<>(sqlRouteResult.getRouteUnits().size(), 1);
+        dataSourceIndex = new HashMap<>();
+        Iterator<RoutingUnit> routingUnits = sqlRouteResult.getRoutingResult().getRoutingUnits().iterator();
+        for (RouteUnit each : sqlRouteResult.getRouteUnits()) {
+            if (!routingUnits.hasNext()) {
+                break;
+            }
+            RoutingUnit routingUnit = routingUnits.next();
+            if (routingUnit.getDataSourceName().equalsIgnoreCase(each.getDataSourceName()) && !routeUnitIndex.containsKey(each)) {
+                routeUnitIndex.put(each, routingUnit);
+            }
+        }
+        for (RoutingUnit each : sqlRouteResult.getRoutingResult().getRoutingUnits()) {
+            String dataSourceName = each.getDataSourceName().toLowerCase();
+            if (!dataSourceIndex.containsKey(dataSourceName)) {
+                dataSourceIndex.put(dataSourceName, each);
+            }
+        }
+    }
+    
+    /**
+     * Get insert optimize result units routed to data node.
+     *
+     * @param dataNode data node
+     * @return insert optimize result units
+     */
+    public synchronized List<InsertOptimizeResultUnit> getInsertOptimizeResultUnits(final DataNode dataNode) {
+        if (null == insertUnitIndex) {
+            buildInsertUnitIndex(dataNode);
+        }
+        List<InsertOptimizeResultUnit> result = insertUnitIndex.get(dataNode);
+        return null == result ? Collections.<InsertOptimizeResultUnit>emptyList() : result;
+    }
+    
+    private void buildInsertUnitIndex(final DataNode dataNode) {
+        Optional<InsertOptimizeResult> insertOptimizeResult = sqlRouteResult.getOptimizeResult().getInsertOptimizeResult();
+        Preconditions.checkState(insertOptimizeResult.isPresent(),
+            "Could not found insert optimize result. datasourceName:%s, actualTable:%s", dataNode.getDataSourceName(), dataNode.getTableName());
+        insertUnitIndex = new HashMap<>();
+        for (InsertOptimizeResultUnit each : insertOptimizeResult.get().getUnits()) {
+            for (DataNode routedDataNode : each.getDataNodes()) {
+                List<InsertOptimizeResultUnit> units = insertUnitIndex.get(routedDataNode);
+                if (null == units) {
+                    units = new ArrayList<>();
+                    insertUnitIndex.put(routedDataNode, units);
+                }
+                if (units.isEmpty() || each != units.get(units.size() - 1)) {
+                    units.add(each);
+                }
+            }
+        }
+    }
+}
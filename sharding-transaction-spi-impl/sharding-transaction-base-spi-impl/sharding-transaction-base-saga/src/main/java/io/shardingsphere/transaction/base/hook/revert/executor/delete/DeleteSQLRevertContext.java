@@ -20,7 +20,6 @@ package io.shardingsphere.transaction.base.hook.revert.executor.delete;
 import io.shardingsphere.transaction.base.hook.revert.executor.SQLRevertContext;
 import lombok.Getter;
 
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 
@@ -35,10 +34,10 @@ public class DeleteSQLRevertContext implements SQLRevertContext {
     
     private final String actualTable;
     
-    private final List<Map<String, Object>> undoData = new LinkedList<>();
+    private final List<Map<String, Object>> undoData;
     
     public DeleteSQLRevertContext(final String tableName, final List<Map<String, Object>> undoData) {
         this.actualTable = tableName;
-        this.undoData.addAll(undoData);
+        this.undoData = undoData;
     }
 }
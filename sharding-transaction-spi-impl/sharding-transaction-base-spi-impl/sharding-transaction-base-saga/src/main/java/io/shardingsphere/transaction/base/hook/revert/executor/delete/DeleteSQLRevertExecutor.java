@@ -17,16 +17,31 @@
 
 package io.shardingsphere.transaction.base.hook.revert.executor.delete;
 
+import com.google.common.base.Function;
 import com.google.common.base.Optional;
+import com.google.common.collect.Iterators;
+import com.google.common.collect.Lists;
 import io.shardingsphere.transaction.base.hook.revert.GenericSQLBuilder;
 import io.shardingsphere.transaction.base.hook.revert.RevertSQLResult;
+import io.shardingsphere.transaction.base.hook.revert.RevertSQLUnit;
+import io.shardingsphere.transaction.base.hook.revert.SQLTemplateCache;
+import io.shardingsphere.transaction.base.hook.revert.SQLTemplateKey;
+import io.shardingsphere.transaction.base.hook.revert.SQLTemplateType;
+import io.shardingsphere.transaction.base.hook.revert.SetBasedRevertLimit;
 import io.shardingsphere.transaction.base.hook.revert.executor.SQLRevertExecutor;
 import io.shardingsphere.transaction.base.hook.revert.executor.SQLRevertExecutorContext;
-import io.shardingsphere.transaction.base.hook.revert.snapshot.DeleteSnapshotAccessor;
+import io.shardingsphere.transaction.base.hook.revert.snapshot.SnapshotAccessor;
+import io.shardingsphere.transaction.base.hook.revert.snapshot.UndoData;
 import org.apache.shardingsphere.core.parse.old.lexer.token.DefaultKeyword;
 
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.Map.Entry;
 
 /**
  * Delete SQL revert executor.
@@ -40,8 +55,14 @@ public final class DeleteSQLRevertExecutor implements SQLRevertExecutor {
     
     private final GenericSQLBuilder sqlBuilder = new GenericSQLBuilder();
     
-    public DeleteSQLRevertExecutor(final SQLRevertExecutorContext context, final DeleteSnapshotAccessor snapshotAccessor) throws SQLException {
+    private final SQLTemplateCache sqlTemplateCache;
+    
+    private final String logicSQL;
+    
+    public DeleteSQLRevertExecutor(final SQLRevertExecutorContext context, final SnapshotAccessor snapshotAccessor) throws SQLException {
         sqlRevertContext = new DeleteSQLRevertContext(context.getActualTableName(), snapshotAccessor.queryUndoData());
+        sqlTemplateCache = context.getSqlTemplateCache();
+        logicSQL = context.getLogicSQL();
     }
     
     @Override
@@ -49,17 +70,74 @@ public final class DeleteSQLRevertExecutor implements SQLRevertExecutor {
         if (sqlRevertContext.getUndoData().isEmpty()) {
             return Optional.absent();
         }
+        int columnCount = sqlRevertContext.getUndoData().iterator().next().size();
+        SQLTemplateKey key = new SQLTemplateKey(SQLTemplateType.REVERT, sqlRevertContext.getActualTable(), logicSQL, columnCount, 1);
+        Optional<String> result = sqlTemplateCache.findSQL(key);
+        if (result.isPresent()) {
+            return result;
+        }
         sqlBuilder.appendLiterals(DefaultKeyword.INSERT);
         sqlBuilder.appendLiterals(DefaultKeyword.INTO);
         sqlBuilder.appendLiterals(sqlRevertContext.getActualTable());
-        sqlBuilder.appendInsertValues(sqlRevertContext.getUndoData().iterator().next().size());
-        return Optional.of(sqlBuilder.toSQL());
+        sqlBuilder.appendInsertValues(columnCount);
+        return Optional.of(sqlTemplateCache.putSQL(key, sqlBuilder.toSQL()));
     }
     
     @Override
     public void fillParameters(final RevertSQLResult revertSQLResult) {
-        for (Map<String, Object> each : sqlRevertContext.getUndoData()) {
+        List<Map<String, Object>> undoData = sqlRevertContext.getUndoData();
+        if (undoData instanceof UndoData) {
+            for (int i = 0; i < undoData.size(); i++) {
+                revertSQLResult.getParameters().add(((UndoData) undoData).getRowValues(i));
+            }
+            return;
+        }
+        for (Map<String, Object> each : undoData) {
             revertSQLResult.getParameters().add(each.values());
         }
     }
+    
+    @Override
+    public Iterator<RevertSQLUnit> generateSetBasedSQLUnits(final SetBasedRevertLimit setBasedRevertLimit) {
+        if (!setBasedRevertLimit.isMultiRowValuesSupported()) {
+            return Collections.<RevertSQLUnit>emptyIterator();
+        }
+        final int columnCount = sqlRevertContext.getUndoData().iterator().next().size();
+        int chunkSize = setBasedRevertLimit.getChunkSize(columnCount, 0);
+        if (chunkSize < 2) {
+            return Collections.<RevertSQLUnit>emptyIterator();
+        }
+        return Iterators.transform(Lists.partition(sqlRevertContext.getUndoData(), chunkSize).iterator(), new Function<List<Map<String, Object>>, RevertSQLUnit>() {
+            @Override
+            public RevertSQLUnit apply(final List<Map<String, Object>> input) {
+                RevertSQLUnit result = new RevertSQLUnit(getSetBasedRevertSQL(columnCount, input.size()));
+                result.getParameters().add(getSetBasedParameters(input));
+                return result;
+            }
+        });
+    }
+    
+    private String getSetBasedRevertSQL(final int columnCount, final int rowCount) {
+        SQLTemplateKey key = new SQLTemplateKey(SQLTemplateType.SET_BASED_REVERT, sqlRevertContext.getActualTable(), logicSQL, columnCount, rowCount);
+        Optional<String> cachedSQL = sqlTemplateCache.findSQL(key);
+        if (cachedSQL.isPresent()) {
+            return cachedSQL.get();
+        }
+        GenericSQLBuilder result = new GenericSQLBuilder();
+        result.appendLiterals(DefaultKeyword.INSERT);
+        result.appendLiterals(DefaultKeyword.INTO);
+        result.appendLiterals(sqlRevertContext.getActualTable());
+        result.appendInsertValues(columnCount, rowCount);
+        return sqlTemplateCache.putSQL(key, result.toSQL());
+    }
+    
+    private Collection<Object> getSetBasedParameters(final List<Map<String, Object>> undoData) {
+        Collection<Object> result = new ArrayList<>();
+        for (Map<String, Object> each : undoData) {
+            for (Entry<String, Object> entry : each.entrySet()) {
+                result.add(entry.getValue());
+            }
+        }
+        return result;
+    }
 }
@@ -29,7 +29,6 @@ import org.apache.shardingsphere.core.parse.old.parser.expression.SQLParameterMa
 import org.apache.shardingsphere.core.parse.old.parser.expression.SQLTextExpression;
 import org.apache.shardingsphere.core.rule.DataNode;
 
-import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.Iterator;
@@ -53,23 +52,23 @@ public final class InsertSQLRevertContext implements SQLRevertContext {
     private final Collection<Map<String, Object>> primaryKeyInsertValues = new LinkedList<>();
 
     public InsertSQLRevertContext(final String dataSourceName, final String actualTableName, final List<String> primaryKeys, final InsertOptimizeResult insertOptimizeResult) {
+        Preconditions.checkNotNull(insertOptimizeResult, "Could not found insert optimize result. datasourceName:%s, actualTable:%s", dataSourceName, actualTableName);
         this.dataSourceName = dataSourceName;
         this.actualTable = actualTableName;
-        loadPrimaryKeyInsertValues(dataSourceName, actualTableName, primaryKeys, insertOptimizeResult);
+        loadPrimaryKeyInsertValues(getRoutedInsertOptimizeResultUnits(insertOptimizeResult.getUnits(), new DataNode(dataSourceName, actualTableName)), primaryKeys);
     }
     
-    private void loadPrimaryKeyInsertValues(final String dataSourceName, final String actualTableName, final List<String> primaryKeys, final InsertOptimizeResult insertOptimizeResult) {
-        Preconditions.checkNotNull(insertOptimizeResult, "Could not found insert optimize result. datasourceName:%s, actualTable:%s", dataSourceName, actualTableName);
-        for (Map<String, Object> each : getRoutedInsertValues(insertOptimizeResult.getUnits(), new DataNode(dataSourceName, actualTableName))) {
-            addPrimaryKeyColumnValues(each, primaryKeys);
-        }
+    public InsertSQLRevertContext(final String dataSourceName, final String actualTableName, final List<String> primaryKeys, final Collection<InsertOptimizeResultUnit> routedInsertUnits) {
+        this.dataSourceName = dataSourceName;
+        this.actualTable = actualTableName;
+        loadPrimaryKeyInsertValues(routedInsertUnits, primaryKeys);
     }
     
-    private List<Map<String, Object>> getRoutedInsertValues(final List<InsertOptimizeResultUnit> units, final DataNode dataNode) {
-        List<Map<String, Object>> result = new LinkedList<>();
+    private Collection<InsertOptimizeResultUnit> getRoutedInsertOptimizeResultUnits(final List<InsertOptimizeResultUnit> units, final DataNode dataNode) {
+        Collection<InsertOptimizeResultUnit> result = new LinkedList<>();
         for (InsertOptimizeResultUnit each : units) {
             if (isRoutedDataNode(each.getDataNodes(), dataNode)) {
-                result.add(convertInsertOptimizeResultUnit(each));
+                result.add(each);
             }
         }
         return result;
@@ -84,33 +83,46 @@ public final class InsertSQLRevertContext implements SQLRevertContext {
         return false;
     }
     
-    private Map<String, Object> convertInsertOptimizeResultUnit(final InsertOptimizeResultUnit insertOptimizeResultUnit) {
-        Map<String, Object> result = new HashMap<>(insertOptimizeResultUnit.getColumnNames().size(), 1);
+    private void loadPrimaryKeyInsertValues(final Collection<InsertOptimizeResultUnit> routedInsertUnits, final List<String> primaryKeys) {
+        if (primaryKeys.isEmpty()) {
+            return;
+        }
+        for (InsertOptimizeResultUnit each : routedInsertUnits) {
+            Map<String, Object> primaryKeyInsertValue = getPrimaryKeyInsertValue(each, primaryKeys);
+            if (!primaryKeyInsertValue.isEmpty()) {
+                primaryKeyInsertValues.add(primaryKeyInsertValue);
+            }
+        }
+    }
+    
+    private Map<String, Object> getPrimaryKeyInsertValue(final InsertOptimizeResultUnit insertOptimizeResultUnit, final List<String> primaryKeys) {
+        Map<String, Object> routedPrimaryKeyValues = new HashMap<>(primaryKeys.size(), 1);
         Iterator<String> columnNamesIterator = insertOptimizeResultUnit.getColumnNames().iterator();
-        Iterator<Object> parametersIterator = Arrays.asList(insertOptimizeResultUnit.getParameters()).iterator();
+        Object[] parameters = insertOptimizeResultUnit.getParameters();
+        int parameterIndex = 0;
         for (SQLExpression each : insertOptimizeResultUnit.getValues()) {
             if (each instanceof SQLParameterMarkerExpression) {
-                result.put(columnNamesIterator.next(), parametersIterator.next());
+                putPrimaryKeyValue(routedPrimaryKeyValues, primaryKeys, columnNamesIterator.next(), parameters[parameterIndex++]);
             } else if (each instanceof SQLTextExpression) {
-                result.put(columnNamesIterator.next(), ((SQLTextExpression) each).getText());
+                putPrimaryKeyValue(routedPrimaryKeyValues, primaryKeys, columnNamesIterator.next(), ((SQLTextExpression) each).getText());
             } else if (each instanceof SQLNumberExpression) {
-                result.put(columnNamesIterator.next(), ((SQLNumberExpression) each).getNumber());
+                putPrimaryKeyValue(routedPrimaryKeyValues, primaryKeys, columnNamesIterator.next(), ((SQLNumberExpression) each).getNumber());
             } else if (each instanceof SQLIgnoreExpression) {
-                result.put(columnNamesIterator.next(), ((SQLIgnoreExpression) each).getExpression());
+                putPrimaryKeyValue(routedPrimaryKeyValues, primaryKeys, columnNamesIterator.next(), ((SQLIgnoreExpression) each).getExpression());
             }
         }
-        return result;
-    }
-    
-    private void addPrimaryKeyColumnValues(final Map<String, Object> routedInsertValue, final List<String> primaryKeys) {
-        Map<String, Object> primaryKeyInsertValue = new LinkedHashMap<>(primaryKeys.size(), 1);
+        Map<String, Object> result = new LinkedHashMap<>(primaryKeys.size(), 1);
         for (String each : primaryKeys) {
-            if (routedInsertValue.containsKey(each)) {
-                primaryKeyInsertValue.put(each, routedInsertValue.get(each));
+            if (routedPrimaryKeyValues.containsKey(each)) {
+                result.put(each, routedPrimaryKeyValues.get(each));
             }
         }
-        if (!primaryKeyInsertValue.isEmpty()) {
-            primaryKeyInsertValues.add(primaryKeyInsertValue);
+        return result;
+    }
+    
+    private void putPrimaryKeyValue(final Map<String, Object> routedPrimaryKeyValues, final List<String> primaryKeys, final String columnName, final Object value) {
+        if (primaryKeys.contains(columnName)) {
+            routedPrimaryKeyValues.put(columnName, value);
         }
     }
 }
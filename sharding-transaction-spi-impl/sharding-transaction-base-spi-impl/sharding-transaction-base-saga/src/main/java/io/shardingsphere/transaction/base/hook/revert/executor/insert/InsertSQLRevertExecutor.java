@@ -17,15 +17,28 @@
 
 package io.shardingsphere.transaction.base.hook.revert.executor.insert;
 
+import com.google.common.base.Function;
 import com.google.common.base.Optional;
 import com.google.common.base.Preconditions;
+import com.google.common.collect.Iterators;
 import io.shardingsphere.transaction.base.hook.revert.GenericSQLBuilder;
 import io.shardingsphere.transaction.base.hook.revert.RevertSQLResult;
+import io.shardingsphere.transaction.base.hook.revert.RevertSQLUnit;
+import io.shardingsphere.transaction.base.hook.revert.SQLTemplateCache;
+import io.shardingsphere.transaction.base.hook.revert.SQLTemplateKey;
+import io.shardingsphere.transaction.base.hook.revert.SQLTemplateType;
+import io.shardingsphere.transaction.base.hook.revert.SetBasedRevertLimit;
 import io.shardingsphere.transaction.base.hook.revert.executor.SQLRevertExecutor;
 import io.shardingsphere.transaction.base.hook.revert.executor.SQLRevertExecutorContext;
 import lombok.RequiredArgsConstructor;
 import org.apache.shardingsphere.core.parse.old.lexer.token.DefaultKeyword;
+import org.apache.shardingsphere.core.rule.DataNode;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -41,24 +54,37 @@ public final class InsertSQLRevertExecutor implements SQLRevertExecutor {
     
     private GenericSQLBuilder sqlBuilder = new GenericSQLBuilder();
     
-    public InsertSQLRevertExecutor(final InsertSQLRevertContext revertContext) {
+    private SQLTemplateCache sqlTemplateCache;
+    
+    private String logicSQL;
+    
+    public InsertSQLRevertExecutor(final InsertSQLRevertContext revertContext, final SQLTemplateCache sqlTemplateCache) {
         sqlRevertContext = revertContext;
+        this.sqlTemplateCache = sqlTemplateCache;
     }
     
     public InsertSQLRevertExecutor(final SQLRevertExecutorContext executorContext) {
+        DataNode dataNode = new DataNode(executorContext.getDataSourceName(), executorContext.getActualTableName());
         sqlRevertContext = new InsertSQLRevertContext(executorContext.getDataSourceName(), executorContext.getActualTableName(),
-            executorContext.getPrimaryKeyColumns(), executorContext.getOptimizeResult().getInsertOptimizeResult().orNull());
+            executorContext.getPrimaryKeyColumns(), executorContext.getSqlRouteResultIndex().getInsertOptimizeResultUnits(dataNode));
+        sqlTemplateCache = executorContext.getSqlTemplateCache();
+        logicSQL = executorContext.getLogicSQL();
     }
     
     @Override
     public Optional<String> revertSQL() {
         Preconditions.checkState(!sqlRevertContext.getPrimaryKeyInsertValues().isEmpty(),
             "Could not found primary key values. datasource:[%s], table:[%s]", sqlRevertContext.getDataSourceName(), sqlRevertContext.getActualTable());
+        SQLTemplateKey key = new SQLTemplateKey(SQLTemplateType.REVERT, sqlRevertContext.getActualTable(), logicSQL);
+        Optional<String> result = sqlTemplateCache.findSQL(key);
+        if (result.isPresent()) {
+            return result;
+        }
         sqlBuilder.appendLiterals(DefaultKeyword.DELETE);
         sqlBuilder.appendLiterals(DefaultKeyword.FROM);
         sqlBuilder.appendLiterals(sqlRevertContext.getActualTable());
         sqlBuilder.appendWhereCondition(sqlRevertContext.getPrimaryKeyInsertValues().iterator().next().keySet());
-        return Optional.of(sqlBuilder.toSQL());
+        return Optional.of(sqlTemplateCache.putSQL(key, sqlBuilder.toSQL()));
     }
     
     @Override
@@ -67,4 +93,43 @@ public final class InsertSQLRevertExecutor implements SQLRevertExecutor {
             revertSQLResult.getParameters().add(each.values());
         }
     }
+    
+    @Override
+    public Iterator<RevertSQLUnit> generateSetBasedSQLUnits(final SetBasedRevertLimit setBasedRevertLimit) {
+        final Collection<String> primaryKeyColumns = sqlRevertContext.getPrimaryKeyInsertValues().iterator().next().keySet();
+        int chunkSize = setBasedRevertLimit.getChunkSize(primaryKeyColumns.size(), 0);
+        if (chunkSize < 2) {
+            return Collections.<RevertSQLUnit>emptyIterator();
+        }
+        return Iterators.transform(Iterators.partition(sqlRevertContext.getPrimaryKeyInsertValues().iterator(), chunkSize), new Function<List<Map<String, Object>>, RevertSQLUnit>() {
+            @Override
+            public RevertSQLUnit apply(final List<Map<String, Object>> input) {
+                RevertSQLUnit result = new RevertSQLUnit(getSetBasedRevertSQL(primaryKeyColumns, input.size()));
+                result.getParameters().add(getSetBasedParameters(input));
+                return result;
+            }
+        });
+    }
+    
+    private String getSetBasedRevertSQL(final Collection<String> primaryKeyColumns, final int rowCount) {
+        SQLTemplateKey key = new SQLTemplateKey(SQLTemplateType.SET_BASED_REVERT, sqlRevertContext.getActualTable(), logicSQL, 0, rowCount);
+        Optional<String> cachedSQL = sqlTemplateCache.findSQL(key);
+        if (cachedSQL.isPresent()) {
+            return cachedSQL.get();
+        }
+        GenericSQLBuilder result = new GenericSQLBuilder();
+        result.appendLiterals(DefaultKeyword.DELETE);
+        result.appendLiterals(DefaultKeyword.FROM);
+        result.appendLiterals(sqlRevertContext.getActualTable());
+        result.appendWhereInCondition(primaryKeyColumns, rowCount);
+        return sqlTemplateCache.putSQL(key, result.toSQL());
+    }
+    
+    private Collection<Object> getSetBasedParameters(final List<Map<String, Object>> primaryKeyInsertValues) {
+        Collection<Object> result = new ArrayList<>();
+        for (Map<String, Object> each : primaryKeyInsertValues) {
+            result.addAll(each.values());
+        }
+        return result;
+    }
 }
@@ -36,7 +36,7 @@ public final class UpdateSQLRevertContext implements SQLRevertContext {
     
     private final String actualTable;
     
-    private final List<Map<String, Object>> undoData = new LinkedList<>();
+    private final List<Map<String, Object>> undoData;
     
     private final Map<String, Object> updateSetAssignments = new LinkedHashMap<>();
     
@@ -47,7 +47,7 @@ public final class UpdateSQLRevertContext implements SQLRevertContext {
     public UpdateSQLRevertContext(final String tableName, final List<Map<String, Object>> undoData, final Map<String, Object> updateSetAssignments, final List<String> primaryKeyColumns,
                                   final List<Object> parameters) {
         this.actualTable = tableName;
-        this.undoData.addAll(undoData);
+        this.undoData = undoData;
         this.updateSetAssignments.putAll(updateSetAssignments);
         this.primaryKeyColumns.addAll(primaryKeyColumns);
         this.parameters.addAll(parameters);
@@ -18,11 +18,17 @@
 package io.shardingsphere.transaction.base.hook.revert.executor.update;
 
 import com.google.common.base.Optional;
+import com.google.common.collect.AbstractIterator;
 import io.shardingsphere.transaction.base.hook.revert.GenericSQLBuilder;
 import io.shardingsphere.transaction.base.hook.revert.RevertSQLResult;
+import io.shardingsphere.transaction.base.hook.revert.RevertSQLUnit;
+import io.shardingsphere.transaction.base.hook.revert.SQLTemplateCache;
+import io.shardingsphere.transaction.base.hook.revert.SQLTemplateKey;
+import io.shardingsphere.transaction.base.hook.revert.SQLTemplateType;
+import io.shardingsphere.transaction.base.hook.revert.SetBasedRevertLimit;
 import io.shardingsphere.transaction.base.hook.revert.executor.SQLRevertExecutor;
 import io.shardingsphere.transaction.base.hook.revert.executor.SQLRevertExecutorContext;
-import io.shardingsphere.transaction.base.hook.revert.snapshot.UpdateSnapshotAccessor;
+import io.shardingsphere.transaction.base.hook.revert.snapshot.SnapshotAccessor;
 import org.apache.shardingsphere.core.parse.antlr.sql.statement.dml.UpdateStatement;
 import org.apache.shardingsphere.core.parse.old.lexer.token.DefaultKeyword;
 import org.apache.shardingsphere.core.parse.old.parser.context.condition.Column;
@@ -32,6 +38,10 @@ import org.apache.shardingsphere.core.parse.old.parser.expression.SQLParameterMa
 import org.apache.shardingsphere.core.parse.old.parser.expression.SQLTextExpression;
 
 import java.sql.SQLException;
+import java.util.AbstractCollection;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
@@ -41,20 +51,33 @@ import java.util.Map.Entry;
 /**
  * Update SQL revert executor.
  *
+ * <p>
+ * Set based revert SQL groups primary key values of rows with same before image, rows are read one by one from undo data.
+ * At most {@code MAX_PENDING_BEFORE_IMAGES} groups are pending at a time, the eldest group is flushed as a smaller statement if more distinct before images are met.
+ * </p>
+ *
  * @author duhongjun
  * @author zhaojun
  */
 public final class UpdateSQLRevertExecutor implements SQLRevertExecutor {
     
+    private static final int MAX_PENDING_BEFORE_IMAGES = 16;
+    
     private UpdateSQLRevertContext sqlRevertContext;
     
     private final GenericSQLBuilder sqlBuilder = new GenericSQLBuilder();
     
-    public UpdateSQLRevertExecutor(final SQLRevertExecutorContext context, final UpdateSnapshotAccessor snapshotAccessor) throws SQLException {
+    private final SQLTemplateCache sqlTemplateCache;
+    
+    private final String logicSQL;
+    
+    public UpdateSQLRevertExecutor(final SQLRevertExecutorContext context, final SnapshotAccessor snapshotAccessor) throws SQLException {
         sqlRevertContext = createRevertSQLContext(context, snapshotAccessor);
+        sqlTemplateCache = context.getSqlTemplateCache();
+        logicSQL = context.getLogicSQL();
     }
     
-    private UpdateSQLRevertContext createRevertSQLContext(final SQLRevertExecutorContext context, final UpdateSnapshotAccessor snapshotAccessor) throws SQLException {
+    private UpdateSQLRevertContext createRevertSQLContext(final SQLRevertExecutorContext context, final SnapshotAccessor snapshotAccessor) throws SQLException {
         Map<String, Object> updateSetAssignments = getUpdateSetAssignments((UpdateStatement) context.getSqlStatement(), context.getParameters());
         return new UpdateSQLRevertContext(context.getActualTableName(), snapshotAccessor.queryUndoData(), updateSetAssignments, context.getPrimaryKeyColumns(), context.getParameters());
     }
@@ -78,20 +101,49 @@ public final class UpdateSQLRevertExecutor implements SQLRevertExecutor {
         if (sqlRevertContext.getUndoData().isEmpty()) {
             return Optional.absent();
         }
+        SQLTemplateKey key = new SQLTemplateKey(SQLTemplateType.REVERT, sqlRevertContext.getActualTable(), logicSQL);
+        Optional<String> result = sqlTemplateCache.findSQL(key);
+        if (result.isPresent()) {
+            return result;
+        }
         sqlBuilder.appendLiterals(DefaultKeyword.UPDATE);
         sqlBuilder.appendLiterals(sqlRevertContext.getActualTable());
         sqlBuilder.appendUpdateSetAssignments(sqlRevertContext.getUpdateSetAssignments().keySet());
         sqlBuilder.appendWhereCondition(sqlRevertContext.getPrimaryKeyColumns());
-        return Optional.of(sqlBuilder.toSQL());
+        return Optional.of(sqlTemplateCache.putSQL(key, sqlBuilder.toSQL()));
     }
     
     @Override
     public void fillParameters(final RevertSQLResult revertSQLResult) {
-        for (Map<String, Object> each : sqlRevertContext.getUndoData()) {
-            revertSQLResult.getParameters().add(getParameters(each));
+        int parameterCount = sqlRevertContext.getUpdateSetAssignments().size() + sqlRevertContext.getPrimaryKeyColumns().size();
+        for (int i = 0; i < sqlRevertContext.getUndoData().size(); i++) {
+            revertSQLResult.getParameters().add(new RowLevelParameters(i, parameterCount));
         }
     }
     
+    @Override
+    public Iterator<RevertSQLUnit> generateSetBasedSQLUnits(final SetBasedRevertLimit setBasedRevertLimit) {
+        int chunkSize = setBasedRevertLimit.getChunkSize(sqlRevertContext.getPrimaryKeyColumns().size(), sqlRevertContext.getUpdateSetAssignments().size());
+        if (chunkSize < 2) {
+            return Collections.<RevertSQLUnit>emptyIterator();
+        }
+        return new SetBasedSQLUnitIterator(chunkSize);
+    }
+    
+    private String getSetBasedRevertSQL(final int rowCount) {
+        SQLTemplateKey key = new SQLTemplateKey(SQLTemplateType.SET_BASED_REVERT, sqlRevertContext.getActualTable(), logicSQL, 0, rowCount);
+        Optional<String> cachedSQL = sqlTemplateCache.findSQL(key);
+        if (cachedSQL.isPresent()) {
+            return cachedSQL.get();
+        }
+        GenericSQLBuilder result = new GenericSQLBuilder();
+        result.appendLiterals(DefaultKeyword.UPDATE);
+        result.appendLiterals(sqlRevertContext.getActualTable());
+        result.appendUpdateSetAssignments(sqlRevertContext.getUpdateSetAssignments().keySet());
+        result.appendWhereInCondition(sqlRevertContext.getPrimaryKeyColumns(), rowCount);
+        return sqlTemplateCache.putSQL(key, result.toSQL());
+    }
+    
     private List<Object> getParameters(final Map<String, Object> undoRecord) {
         List<Object> result = new LinkedList<>();
         for (String each : sqlRevertContext.getUpdateSetAssignments().keySet()) {
@@ -107,4 +159,80 @@ public final class UpdateSQLRevertExecutor implements SQLRevertExecutor {
         }
         return result;
     }
+    
+    private final class RowLevelParameters extends AbstractCollection<Object> {
+        
+        private final int index;
+        
+        private final int size;
+        
+        RowLevelParameters(final int index, final int size) {
+            this.index = index;
+            this.size = size;
+        }
+        
+        @Override
+        public Iterator<Object> iterator() {
+            return getParameters(sqlRevertContext.getUndoData().get(index)).iterator();
+        }
+        
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+    
+    private final class SetBasedSQLUnitIterator extends AbstractIterator<RevertSQLUnit> {
+        
+        private final Iterator<Map<String, Object>> undoRecords = sqlRevertContext.getUndoData().iterator();
+        
+        private final int chunkSize;
+        
+        private final int assignmentCount = sqlRevertContext.getUpdateSetAssignments().size();
+        
+        private final Map<List<Object>, List<List<Object>>> pendingPrimaryKeyValues = new LinkedHashMap<>();
+        
+        SetBasedSQLUnitIterator(final int chunkSize) {
+            this.chunkSize = chunkSize;
+        }
+        
+        @Override
+        protected RevertSQLUnit computeNext() {
+            while (undoRecords.hasNext()) {
+                List<Object> parameters = getParameters(undoRecords.next());
+                List<Object> beforeImage = new ArrayList<>(parameters.subList(0, assignmentCount));
+                List<List<Object>> primaryKeyValues = pendingPrimaryKeyValues.get(beforeImage);
+                if (null == primaryKeyValues) {
+                    primaryKeyValues = new LinkedList<>();
+                    pendingPrimaryKeyValues.put(beforeImage, primaryKeyValues);
+                }
+                primaryKeyValues.add(new ArrayList<>(parameters.subList(assignmentCount, parameters.size())));
+                if (chunkSize == primaryKeyValues.size()) {
+                    pendingPrimaryKeyValues.remove(beforeImage);
+                    return newSetBasedSQLUnit(beforeImage, primaryKeyValues);
+                }
+                if (MAX_PENDING_BEFORE_IMAGES < pendingPrimaryKeyValues.size()) {
+                    return flushEldest();
+                }
+            }
+            return pendingPrimaryKeyValues.isEmpty() ? endOfData() : flushEldest();
+        }
+        
+        private RevertSQLUnit flushEldest() {
+            Iterator<Entry<List<Object>, List<List<Object>>>> iterator = pendingPrimaryKeyValues.entrySet().iterator();
+            Entry<List<Object>, List<List<Object>>> eldest = iterator.next();
+            iterator.remove();
+            return newSetBasedSQLUnit(eldest.getKey(), eldest.getValue());
+        }
+        
+        private RevertSQLUnit newSetBasedSQLUnit(final List<Object> beforeImage, final List<List<Object>> primaryKeyValues) {
+            List<Object> parameters = new ArrayList<>(beforeImage);
+            for (List<Object> each : primaryKeyValues) {
+                parameters.addAll(each);
+            }
+            RevertSQLUnit result = new RevertSQLUnit(getSetBasedRevertSQL(primaryKeyValues.size()));
+            result.getParameters().add(parameters);
+            return result;
+        }
+    }
 }
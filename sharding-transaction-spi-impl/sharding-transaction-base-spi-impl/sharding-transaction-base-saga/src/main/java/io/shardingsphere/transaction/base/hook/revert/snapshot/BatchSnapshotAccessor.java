@@ -0,0 +1,42 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.shardingsphere.transaction.base.hook.revert.snapshot;
+
+import lombok.RequiredArgsConstructor;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Batch snapshot accessor, which query undo data through batch snapshot loader shared by all route units of logic SQL.
+ *
+ * @author zhaojun
+ */
+@RequiredArgsConstructor
+public final class BatchSnapshotAccessor implements SnapshotAccessor {
+    
+    private final BatchSnapshotLoader snapshotLoader;
+    
+    private final DMLSnapshotAccessor snapshotAccessor;
+    
+    @Override
+    public List<Map<String, Object>> queryUndoData() throws SQLException {
+        return snapshotLoader.load(snapshotAccessor);
+    }
+}
@@ -0,0 +1,251 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.shardingsphere.transaction.base.hook.revert.snapshot;
+
+import com.google.common.base.Joiner;
+import com.google.common.base.Optional;
+import io.shardingsphere.transaction.base.hook.revert.SQLTemplateCache;
+import io.shardingsphere.transaction.base.hook.revert.SQLTemplateKey;
+import io.shardingsphere.transaction.base.hook.revert.SQLTemplateType;
+import io.shardingsphere.transaction.base.hook.revert.executor.SQLRevertExecutorContext;
+import io.shardingsphere.transaction.base.utils.JDBCUtil;
+import org.apache.shardingsphere.core.exception.ShardingException;
+import org.apache.shardingsphere.core.metadata.table.TableMetaData;
+import org.apache.shardingsphere.core.parse.antlr.sql.statement.dml.DeleteStatement;
+import org.apache.shardingsphere.core.route.RouteUnit;
+import org.apache.shardingsphere.core.route.SQLRouteResult;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Batch snapshot loader.
+ *
+ * <p>
+ * Undo data of all route units which executed on same connection are queried by one {@code UNION ALL} SQL,
+ * and split back to each route unit by snapshot index column.
+ * Route units executed on different connections of one data source are never batched, so every snapshot is read in the transaction of its own DML.
+ * </p>
+ *
+ * @author zhaojun
+ */
+public final class BatchSnapshotLoader {
+    
+    private static final String SNAPSHOT_INDEX_COLUMN = "sharding_snapshot_index";
+    
+    private final SQLRouteResult sqlRouteResult;
+    
+    private final TableMetaData tableMetaData;
+    
+    private final UndoDataStore undoDataStore;
+    
+    private final RouteUnitConnectionFinder connectionFinder;
+    
+    private final Collection<Connection> loadedConnections = Collections.synchronizedSet(Collections.newSetFromMap(new IdentityHashMap<Connection, Boolean>()));
+    
+    private final Map<RouteUnit, UndoData> loadedUndoData = new ConcurrentHashMap<>();
+    
+    private final Collection<UndoData> allUndoData = new ConcurrentLinkedQueue<>();
+    
+    private final ConcurrentMap<String, Object> dataSourceLocks = new ConcurrentHashMap<>();
+    
+    public BatchSnapshotLoader(final SQLRouteResult sqlRouteResult, final TableMetaData tableMetaData) {
+        this(sqlRouteResult, tableMetaData, new UndoDataStore());
+    }
+    
+    public BatchSnapshotLoader(final SQLRouteResult sqlRouteResult, final TableMetaData tableMetaData, final UndoDataStore undoDataStore) {
+        this(sqlRouteResult, tableMetaData, undoDataStore, new RouteUnitConnectionFinder() {
+            @Override
+            public Optional<Connection> findExecutingConnection(final RouteUnit routeUnit) {
+                return Optional.absent();
+            }
+        });
+    }
+    
+    public BatchSnapshotLoader(final SQLRouteResult sqlRouteResult, final TableMetaData tableMetaData, final UndoDataStore undoDataStore, final RouteUnitConnectionFinder connectionFinder) {
+        this.sqlRouteResult = sqlRouteResult;
+        this.tableMetaData = tableMetaData;
+        this.undoDataStore = undoDataStore;
+        this.connectionFinder = connectionFinder;
+    }
+    
+    /**
+     * Load undo data of route unit.
+     *
+     * <p>
+     * Route units of different data sources are loaded in parallel, route units of same data source wait for the batch query of their data source,
+     * route unit is batched only with route units executed on the same connection.
+     * </p>
+     *
+     * @param snapshotAccessor DML snapshot accessor of route unit
+     * @return undo data
+     * @throws SQLException SQL exception
+     */
+    public List<Map<String, Object>> load(final DMLSnapshotAccessor snapshotAccessor) throws SQLException {
+        SQLRevertExecutorContext executorContext = snapshotAccessor.getExecutorContext();
+        synchronized (getDataSourceLock(executorContext.getDataSourceName())) {
+            if (loadedConnections.add(executorContext.getConnection())) {
+                loadDataSourceUndoData(snapshotAccessor);
+            }
+        }
+        UndoData result = loadedUndoData.remove(executorContext.getRouteUnit());
+        if (null == result) {
+            result = snapshotAccessor.queryUndoData(undoDataStore);
+            allUndoData.add(result);
+        }
+        return result;
+    }
+    
+    /**
+     * Release all undo data loaded by this loader.
+     */
+    public void release() {
+        for (UndoData each : allUndoData) {
+            each.release();
+        }
+        allUndoData.clear();
+        loadedUndoData.clear();
+    }
+    
+    private Object getDataSourceLock(final String dataSourceName) {
+        Object result = dataSourceLocks.get(dataSourceName);
+        if (null == result) {
+            Object newLock = new Object();
+            result = dataSourceLocks.putIfAbsent(dataSourceName, newLock);
+            if (null == result) {
+                result = newLock;
+            }
+        }
+        return result;
+    }
+    
+    private void loadDataSourceUndoData(final DMLSnapshotAccessor snapshotAccessor) throws SQLException {
+        List<DMLSnapshotAccessor> snapshotAccessors = getSnapshotAccessors(snapshotAccessor);
+        if (snapshotAccessors.size() <= 1) {
+            return;
+        }
+        List<SnapshotSQLContext> snapshotSQLContexts = new ArrayList<>(snapshotAccessors.size());
+        Collection<String> actualTableNames = new LinkedList<>();
+        Collection<Object> parameters = new LinkedList<>();
+        for (DMLSnapshotAccessor each : snapshotAccessors) {
+            SnapshotSQLContext snapshotSQLContext = each.getSnapshotSQLContext(each.getExecutorContext());
+            snapshotSQLContexts.add(snapshotSQLContext);
+            actualTableNames.add(snapshotSQLContext.getTableName());
+            parameters.addAll(snapshotSQLContext.getParameters());
+        }
+        SQLRevertExecutorContext executorContext = snapshotAccessor.getExecutorContext();
+        SQLTemplateCache sqlTemplateCache = executorContext.getSqlTemplateCache();
+        SQLTemplateKey key = new SQLTemplateKey(SQLTemplateType.BATCH_SNAPSHOT, Joiner.on(",").join(actualTableNames), executorContext.getLogicSQL(), 0, snapshotSQLContexts.size());
+        Optional<String> cachedSQL = sqlTemplateCache.findSQL(key);
+        String sql = cachedSQL.isPresent() ? cachedSQL.get() : sqlTemplateCache.putSQL(key, buildBatchSnapshotQuerySQL(snapshotSQLContexts));
+        try (PreparedStatement preparedStatement = executorContext.getConnection().prepareStatement(sql)) {
+            JDBCUtil.fillParameters(preparedStatement, parameters);
+            splitUndoData(preparedStatement.executeQuery(), snapshotAccessors);
+        }
+    }
+    
+    private String buildBatchSnapshotQuerySQL(final List<SnapshotSQLContext> snapshotSQLContexts) {
+        StringBuilder result = new StringBuilder();
+        for (int i = 0; i < snapshotSQLContexts.size(); i++) {
+            if (0 < i) {
+                result.append("UNION ALL ");
+            }
+            result.append(DMLSnapshotAccessor.buildSnapshotQuerySQL(snapshotSQLContexts.get(i), getQueryColumnNames(snapshotSQLContexts.get(i), i)));
+        }
+        return result.toString();
+    }
+    
+    private void splitUndoData(final ResultSet resultSet, final List<DMLSnapshotAccessor> snapshotAccessors) throws SQLException {
+        List<String> columnNames = UndoDataStore.getColumnNames(resultSet.getMetaData());
+        int snapshotIndexColumn = getSnapshotIndexColumn(columnNames);
+        List<String> undoColumnNames = new ArrayList<>(columnNames);
+        undoColumnNames.remove(snapshotIndexColumn);
+        List<UndoData> undoDataList = new ArrayList<>(snapshotAccessors.size());
+        for (DMLSnapshotAccessor each : snapshotAccessors) {
+            UndoData undoData = undoDataStore.newUndoData(undoColumnNames);
+            undoDataList.add(undoData);
+            allUndoData.add(undoData);
+            loadedUndoData.put(each.getExecutorContext().getRouteUnit(), undoData);
+        }
+        while (resultSet.next()) {
+            Object[] row = new Object[undoColumnNames.size()];
+            int snapshotIndex = 0;
+            for (int i = 0, rowIndex = 0; i < columnNames.size(); i++) {
+                if (i == snapshotIndexColumn) {
+                    snapshotIndex = ((Number) resultSet.getObject(i + 1)).intValue();
+                } else {
+                    row[rowIndex++] = resultSet.getObject(i + 1);
+                }
+            }
+            undoDataList.get(snapshotIndex).addRow(row);
+        }
+    }
+    
+    private List<DMLSnapshotAccessor> getSnapshotAccessors(final DMLSnapshotAccessor snapshotAccessor) {
+        List<DMLSnapshotAccessor> result = new ArrayList<>();
+        SQLRevertExecutorContext executorContext = snapshotAccessor.getExecutorContext();
+        for (RouteUnit each : sqlRouteResult.getRouteUnits()) {
+            if (!each.getDataSourceName().equals(executorContext.getDataSourceName())) {
+                continue;
+            }
+            if (each.equals(executorContext.getRouteUnit())) {
+                result.add(snapshotAccessor);
+            } else if (isExecutedOnConnection(each, executorContext.getConnection())) {
+                result.add(newSnapshotAccessor(new SQLRevertExecutorContext(
+                    sqlRouteResult, each, tableMetaData, executorContext.getConnection(), executorContext.getSqlTemplateCache(), executorContext.getSqlRouteResultIndex())));
+            }
+        }
+        return result;
+    }
+    
+    private boolean isExecutedOnConnection(final RouteUnit routeUnit, final Connection connection) {
+        Optional<Connection> executingConnection = connectionFinder.findExecutingConnection(routeUnit);
+        return executingConnection.isPresent() && executingConnection.get() == connection;
+    }
+    
+    private DMLSnapshotAccessor newSnapshotAccessor(final SQLRevertExecutorContext executorContext) {
+        return executorContext.getSqlStatement() instanceof DeleteStatement ? new DeleteSnapshotAccessor(executorContext) : new UpdateSnapshotAccessor(executorContext);
+    }
+    
+    private Collection<String> getQueryColumnNames(final SnapshotSQLContext snapshotSQLContext, final int snapshotIndex) {
+        Collection<String> result = new LinkedList<>(snapshotSQLContext.getQueryColumnNames());
+        result.add(snapshotIndex + " AS " + SNAPSHOT_INDEX_COLUMN);
+        return result;
+    }
+    
+    private int getSnapshotIndexColumn(final List<String> columnNames) {
+        for (int i = 0; i < columnNames.size(); i++) {
+            if (SNAPSHOT_INDEX_COLUMN.equalsIgnoreCase(columnNames.get(i))) {
+                return i;
+            }
+        }
+        throw new ShardingException("Could not find snapshot index column `%s` in undo data", SNAPSHOT_INDEX_COLUMN);
+    }
+}
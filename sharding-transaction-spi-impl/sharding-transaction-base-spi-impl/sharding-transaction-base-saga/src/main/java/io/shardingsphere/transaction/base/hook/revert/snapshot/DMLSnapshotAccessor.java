@@ -17,14 +17,18 @@
 
 package io.shardingsphere.transaction.base.hook.revert.snapshot;
 
+import com.google.common.base.Optional;
 import io.shardingsphere.transaction.base.hook.revert.GenericSQLBuilder;
+import io.shardingsphere.transaction.base.hook.revert.SQLTemplateCache;
+import io.shardingsphere.transaction.base.hook.revert.SQLTemplateKey;
+import io.shardingsphere.transaction.base.hook.revert.SQLTemplateType;
 import io.shardingsphere.transaction.base.hook.revert.executor.SQLRevertExecutorContext;
-import io.shardingsphere.transaction.base.utils.JDBCUtil;
 import lombok.Getter;
 import lombok.RequiredArgsConstructor;
 import org.apache.shardingsphere.core.parse.old.lexer.token.DefaultKeyword;
 
 import java.sql.SQLException;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 
@@ -36,20 +40,37 @@ import java.util.Map;
 @RequiredArgsConstructor
 public abstract class DMLSnapshotAccessor implements SnapshotAccessor {
     
-    private GenericSQLBuilder sqlBuilder = new GenericSQLBuilder();
-    
     @Getter
     private final SQLRevertExecutorContext executorContext;
     
     @Override
     public final List<Map<String, Object>> queryUndoData() throws SQLException {
+        return queryUndoData(new UndoDataStore());
+    }
+    
+    /**
+     * Query undo snapshot data from database into undo data store.
+     *
+     * @param undoDataStore undo data store
+     * @return undo data
+     * @throws SQLException SQL exception
+     */
+    public final UndoData queryUndoData(final UndoDataStore undoDataStore) throws SQLException {
         SnapshotSQLContext context = getSnapshotSQLContext(executorContext);
-        return JDBCUtil.executeQuery(context.getConnection(), buildSnapshotQuerySQL(context), context.getParameters());
+        return undoDataStore.query(context.getConnection(), getSnapshotQuerySQL(context), context.getParameters());
+    }
+    
+    private String getSnapshotQuerySQL(final SnapshotSQLContext context) {
+        SQLTemplateCache sqlTemplateCache = executorContext.getSqlTemplateCache();
+        SQLTemplateKey key = new SQLTemplateKey(SQLTemplateType.SNAPSHOT, context.getTableName(), executorContext.getLogicSQL());
+        Optional<String> result = sqlTemplateCache.findSQL(key);
+        return result.isPresent() ? result.get() : sqlTemplateCache.putSQL(key, buildSnapshotQuerySQL(context, context.getQueryColumnNames()));
     }
     
-    private String buildSnapshotQuerySQL(final SnapshotSQLContext context) {
+    static String buildSnapshotQuerySQL(final SnapshotSQLContext context, final Collection<String> queryColumnNames) {
+        GenericSQLBuilder sqlBuilder = new GenericSQLBuilder();
         sqlBuilder.appendLiterals(DefaultKeyword.SELECT);
-        sqlBuilder.appendColumns(context.getQueryColumnNames());
+        sqlBuilder.appendColumns(queryColumnNames);
         sqlBuilder.appendLiterals(DefaultKeyword.FROM);
         sqlBuilder.appendLiterals(context.getTableName());
         sqlBuilder.appendLiterals(context.getTableAlias());
@@ -20,9 +20,6 @@ package io.shardingsphere.transaction.base.hook.revert.snapshot;
 import io.shardingsphere.transaction.base.hook.revert.executor.SQLRevertExecutorContext;
 import org.apache.shardingsphere.core.parse.antlr.sql.statement.dml.DeleteStatement;
 
-import java.util.Collection;
-import java.util.Collections;
-
 /**
  * Delete snapshot accessor.
  *
@@ -39,11 +36,7 @@ public final class DeleteSnapshotAccessor extends DMLSnapshotAccessor {
     
     @Override
     public SnapshotSQLContext getSnapshotSQLContext(final SQLRevertExecutorContext context) {
-        return new SnapshotSQLContext(context.getConnection(), context.getActualTableName(), context.getParameters(), getQueryColumnNames(), "", getWhereClause());
-    }
-    
-    private Collection<String> getQueryColumnNames() {
-        return Collections.singleton("*");
+        return new SnapshotSQLContext(context.getConnection(), context.getActualTableName(), context.getParameters(), context.getColumnNames(), "", getWhereClause());
     }
     
     private String getWhereClause() {
@@ -0,0 +1,210 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.shardingsphere.transaction.base.hook.revert.snapshot;
+
+import lombok.Getter;
+import org.apache.shardingsphere.core.exception.ShardingException;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.AbstractCollection;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Undo data, which keeps column names once and every row as compact value array.
+ *
+ * <p>
+ * Rows are exposed as read only maps for revert executors, rows exceed memory budget of undo data store are kept in spill file.
+ * </p>
+ *
+ * @author zhaojun
+ */
+public final class UndoData extends AbstractList<Map<String, Object>> {
+    
+    private final UndoDataStore undoDataStore;
+    
+    @Getter
+    private final List<String> columnNames;
+    
+    private final Map<String, Integer> columnIndexes;
+    
+    private final List<Object[]> rows = new ArrayList<>();
+    
+    private long[] spilledOffsets = new long[0];
+    
+    private int[] spilledLengths = new int[0];
+    
+    private int spilledCount;
+    
+    private long memoryBytes;
+    
+    UndoData(final UndoDataStore undoDataStore, final List<String> columnNames) {
+        this.undoDataStore = undoDataStore;
+        this.columnNames = Collections.unmodifiableList(new ArrayList<>(columnNames));
+        columnIndexes = new HashMap<>(columnNames.size(), 1);
+        for (int i = 0; i < columnNames.size(); i++) {
+            columnIndexes.put(columnNames.get(i), i);
+        }
+    }
+    
+    /**
+     * Add row.
+     *
+     * @param values values of row in column order
+     */
+    public synchronized void addRow(final Object[] values) {
+        long size = estimateSize(values);
+        if (0 == spilledCount && undoDataStore.reserveMemory(size)) {
+            rows.add(values);
+            memoryBytes += size;
+        } else {
+            spillRow(values);
+        }
+    }
+    
+    private long estimateSize(final Object[] values) {
+        long result = 16 + 8 * values.length;
+        for (Object each : values) {
+            result += UndoValueCodec.estimateSize(each);
+        }
+        return result;
+    }
+    
+    private void spillRow(final Object[] values) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream output = new DataOutputStream(bytes);
+            for (Object each : values) {
+                UndoValueCodec.write(output, each);
+            }
+            output.flush();
+            byte[] data = bytes.toByteArray();
+            long offset = undoDataStore.spill(data);
+            if (spilledCount == spilledOffsets.length) {
+                int capacity = Math.max(16, spilledCount * 2);
+                spilledOffsets = Arrays.copyOf(spilledOffsets, capacity);
+                spilledLengths = Arrays.copyOf(spilledLengths, capacity);
+            }
+            spilledOffsets[spilledCount] = offset;
+            spilledLengths[spilledCount] = data.length;
+            spilledCount++;
+        } catch (final IOException ex) {
+            throw new ShardingException("Spill undo data failed", ex);
+        }
+    }
+    
+    /**
+     * Get values of row.
+     *
+     * @param index row index
+     * @return values of row in column order
+     */
+    public synchronized Object[] getRow(final int index) {
+        if (index < rows.size()) {
+            return rows.get(index);
+        }
+        int spilledIndex = index - rows.size();
+        if (spilledIndex >= spilledCount) {
+            throw new IndexOutOfBoundsException(String.format("Index: %s, Size: %s", index, size()));
+        }
+        return readSpilledRow(spilledIndex);
+    }
+    
+    private Object[] readSpilledRow(final int spilledIndex) {
+        try {
+            DataInputStream input = new DataInputStream(new ByteArrayInputStream(undoDataStore.read(spilledOffsets[spilledIndex], spilledLengths[spilledIndex])));
+            Object[] result = new Object[columnNames.size()];
+            for (int i = 0; i < result.length; i++) {
+                result[i] = UndoValueCodec.read(input);
+            }
+            return result;
+        } catch (final IOException ex) {
+            throw new ShardingException("Read spilled undo data failed", ex);
+        }
+    }
+    
+    /**
+     * Get values of row as parameters.
+     *
+     * <p>
+     * Values of spilled row are read from spill file on demand and not held by returned collection.
+     * </p>
+     *
+     * @param index row index
+     * @return values of row in column order
+     */
+    public synchronized Collection<Object> getRowValues(final int index) {
+        return index < rows.size() ? Arrays.asList(rows.get(index)) : new SpilledRowValues(index);
+    }
+    
+    /**
+     * Release undo data, memory reserved by rows is given back to undo data store.
+     */
+    public synchronized void release() {
+        undoDataStore.releaseMemory(memoryBytes);
+        rows.clear();
+        spilledOffsets = new long[0];
+        spilledLengths = new int[0];
+        spilledCount = 0;
+        memoryBytes = 0L;
+    }
+    
+    @Override
+    public Map<String, Object> get(final int index) {
+        return new UndoRecord(this, index, getRow(index));
+    }
+    
+    @Override
+    public synchronized int size() {
+        return rows.size() + spilledCount;
+    }
+    
+    Integer getColumnIndex(final String columnName) {
+        return columnIndexes.get(columnName);
+    }
+    
+    private final class SpilledRowValues extends AbstractCollection<Object> {
+        
+        private final int index;
+        
+        SpilledRowValues(final int index) {
+            this.index = index;
+        }
+        
+        @Override
+        public Iterator<Object> iterator() {
+            return Arrays.asList(getRow(index)).iterator();
+        }
+        
+        @Override
+        public int size() {
+            return columnNames.size();
+        }
+    }
+}
@@ -0,0 +1,191 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.shardingsphere.transaction.base.hook.revert.snapshot;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Undo data store of one transaction.
+ *
+ * <p>
+ * Undo rows are kept in memory until estimated bytes of transaction exceed max memory bytes,
+ * rows after that are spilled into a local temp file, which is deleted when the store is closed.
+ * Memory of released undo data is given back to the store.
+ * </p>
+ *
+ * @author zhaojun
+ */
+@Slf4j
+public final class UndoDataStore implements Closeable {
+    
+    private final long maxMemoryBytes;
+    
+    private final AtomicLong memoryBytes = new AtomicLong();
+    
+    private final AtomicLong spilledBytes = new AtomicLong();
+    
+    private File spillFile;
+    
+    private RandomAccessFile spillFileAccessor;
+    
+    public UndoDataStore() {
+        this(Long.MAX_VALUE);
+    }
+    
+    public UndoDataStore(final long maxMemoryBytes) {
+        this.maxMemoryBytes = maxMemoryBytes;
+    }
+    
+    /**
+     * Create new undo data.
+     *
+     * @param columnNames column names
+     * @return undo data
+     */
+    public UndoData newUndoData(final List<String> columnNames) {
+        return new UndoData(this, columnNames);
+    }
+    
+    /**
+     * Query undo data.
+     *
+     * @param connection connection
+     * @param sql snapshot query SQL
+     * @param parameters parameters
+     * @return undo data
+     * @throws SQLException SQL exception
+     */
+    public UndoData query(final Connection connection, final String sql, final Collection<Object> parameters) throws SQLException {
+        try (PreparedStatement preparedStatement = connection.prepareStatement(sql)) {
+            int parameterIndex = 0;
+            for (Object each : parameters) {
+                preparedStatement.setObject(++parameterIndex, each);
+            }
+            ResultSet resultSet = preparedStatement.executeQuery();
+            List<String> columnNames = getColumnNames(resultSet.getMetaData());
+            UndoData result = newUndoData(columnNames);
+            while (resultSet.next()) {
+                Object[] row = new Object[columnNames.size()];
+                for (int i = 0; i < row.length; i++) {
+                    row[i] = resultSet.getObject(i + 1);
+                }
+                result.addRow(row);
+            }
+            return result;
+        }
+    }
+    
+    /**
+     * Get column names of result set.
+     *
+     * @param resultSetMetaData result set meta data
+     * @return column names
+     * @throws SQLException SQL exception
+     */
+    public static List<String> getColumnNames(final ResultSetMetaData resultSetMetaData) throws SQLException {
+        int columnCount = resultSetMetaData.getColumnCount();
+        List<String> result = new ArrayList<>(columnCount);
+        for (int i = 1; i <= columnCount; i++) {
+            result.add(resultSetMetaData.getColumnName(i));
+        }
+        return result;
+    }
+    
+    /**
+     * Get estimated bytes of all undo data of transaction, including spilled ones.
+     *
+     * @return undo data bytes
+     */
+    public long getUndoDataBytes() {
+        return memoryBytes.get() + spilledBytes.get();
+    }
+    
+    /**
+     * Get bytes of undo data spilled into local file.
+     *
+     * @return spilled bytes
+     */
+    public long getSpilledBytes() {
+        return spilledBytes.get();
+    }
+    
+    boolean reserveMemory(final long bytes) {
+        long current;
+        do {
+            current = memoryBytes.get();
+            if (current + bytes > maxMemoryBytes) {
+                return false;
+            }
+        } while (!memoryBytes.compareAndSet(current, current + bytes));
+        return true;
+    }
+    
+    void releaseMemory(final long bytes) {
+        memoryBytes.addAndGet(-bytes);
+    }
+    
+    synchronized long spill(final byte[] data) throws IOException {
+        if (null == spillFileAccessor) {
+            spillFile = File.createTempFile("saga-undo-", ".data");
+            spillFileAccessor = new RandomAccessFile(spillFile, "rw");
+            log.info("Undo data exceeds {} bytes, spill into {}", maxMemoryBytes, spillFile.getAbsolutePath());
+        }
+        long result = spillFileAccessor.length();
+        spillFileAccessor.seek(result);
+        spillFileAccessor.write(data);
+        spilledBytes.addAndGet(data.length);
+        return result;
+    }
+    
+    synchronized byte[] read(final long offset, final int length) throws IOException {
+        byte[] result = new byte[length];
+        spillFileAccessor.seek(offset);
+        spillFileAccessor.readFully(result);
+        return result;
+    }
+    
+    @Override
+    public synchronized void close() {
+        if (null == spillFileAccessor) {
+            return;
+        }
+        try {
+            spillFileAccessor.close();
+        } catch (final IOException ex) {
+            log.warn("Close undo data spill file failed", ex);
+        }
+        if (!spillFile.delete()) {
+            log.warn("Delete undo data spill file {} failed", spillFile.getAbsolutePath());
+        }
+        spillFileAccessor = null;
+    }
+}
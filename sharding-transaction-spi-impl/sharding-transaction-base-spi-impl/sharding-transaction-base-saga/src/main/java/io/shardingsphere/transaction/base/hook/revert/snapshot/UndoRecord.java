@@ -0,0 +1,107 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.shardingsphere.transaction.base.hook.revert.snapshot;
+
+import lombok.RequiredArgsConstructor;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Undo record, which is a read only map view of one row of undo data.
+ *
+ * @author zhaojun
+ */
+@RequiredArgsConstructor
+public final class UndoRecord extends AbstractMap<String, Object> {
+    
+    private final UndoData undoData;
+    
+    private final int index;
+    
+    private final Object[] values;
+    
+    @Override
+    public Object get(final Object key) {
+        Integer columnIndex = getColumnIndex(key);
+        return null == columnIndex ? null : values[columnIndex];
+    }
+    
+    @Override
+    public boolean containsKey(final Object key) {
+        return null != getColumnIndex(key);
+    }
+    
+    private Integer getColumnIndex(final Object key) {
+        return key instanceof String ? undoData.getColumnIndex((String) key) : null;
+    }
+    
+    @Override
+    public int size() {
+        return values.length;
+    }
+    
+    @Override
+    public Collection<Object> values() {
+        return undoData.getRowValues(index);
+    }
+    
+    @Override
+    public Set<Entry<String, Object>> entrySet() {
+        return new AbstractSet<Entry<String, Object>>() {
+            
+            @Override
+            public Iterator<Entry<String, Object>> iterator() {
+                return new Iterator<Entry<String, Object>>() {
+                    
+                    private int columnIndex;
+                    
+                    @Override
+                    public boolean hasNext() {
+                        return columnIndex < values.length;
+                    }
+                    
+                    @Override
+                    public Entry<String, Object> next() {
+                        if (!hasNext()) {
+                            throw new NoSuchElementException();
+                        }
+                        Entry<String, Object> result = new SimpleImmutableEntry<>(undoData.getColumnNames().get(columnIndex), values[columnIndex]);
+                        columnIndex++;
+                        return result;
+                    }
+                    
+                    @Override
+                    public void remove() {
+                        throw new UnsupportedOperationException("Undo record is read only");
+                    }
+                };
+            }
+            
+            @Override
+            public int size() {
+                return values.length;
+            }
+        };
+    }
+}
@@ -0,0 +1,241 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.shardingsphere.transaction.base.hook.revert.snapshot;
+
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.sql.Date;
+import java.sql.Time;
+import java.sql.Timestamp;
+
+/**
+ * Undo value codec, which encodes JDBC values into compact binary with type tag.
+ *
+ * @author zhaojun
+ */
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+public final class UndoValueCodec {
+    
+    private static final byte NULL = 0;
+    
+    private static final byte LONG = 1;
+    
+    private static final byte INTEGER = 2;
+    
+    private static final byte SHORT = 3;
+    
+    private static final byte BYTE = 4;
+    
+    private static final byte BOOLEAN = 5;
+    
+    private static final byte DOUBLE = 6;
+    
+    private static final byte FLOAT = 7;
+    
+    private static final byte STRING = 8;
+    
+    private static final byte BIG_DECIMAL = 9;
+    
+    private static final byte BIG_INTEGER = 10;
+    
+    private static final byte TIMESTAMP = 11;
+    
+    private static final byte DATE = 12;
+    
+    private static final byte TIME = 13;
+    
+    private static final byte BYTES = 14;
+    
+    private static final byte SERIALIZABLE = 15;
+    
+    /**
+     * Write value.
+     *
+     * @param output data output
+     * @param value value
+     * @throws IOException IO exception
+     */
+    public static void write(final DataOutput output, final Object value) throws IOException {
+        if (null == value) {
+            output.writeByte(NULL);
+        } else if (value instanceof Long) {
+            output.writeByte(LONG);
+            output.writeLong((Long) value);
+        } else if (value instanceof Integer) {
+            output.writeByte(INTEGER);
+            output.writeInt((Integer) value);
+        } else if (value instanceof Short) {
+            output.writeByte(SHORT);
+            output.writeShort((Short) value);
+        } else if (value instanceof Byte) {
+            output.writeByte(BYTE);
+            output.writeByte((Byte) value);
+        } else if (value instanceof Boolean) {
+            output.writeByte(BOOLEAN);
+            output.writeBoolean((Boolean) value);
+        } else if (value instanceof Double) {
+            output.writeByte(DOUBLE);
+            output.writeDouble((Double) value);
+        } else if (value instanceof Float) {
+            output.writeByte(FLOAT);
+            output.writeFloat((Float) value);
+        } else if (value instanceof String) {
+            output.writeByte(STRING);
+            writeBytes(output, ((String) value).getBytes(StandardCharsets.UTF_8));
+        } else if (value instanceof BigDecimal) {
+            output.writeByte(BIG_DECIMAL);
+            output.writeInt(((BigDecimal) value).scale());
+            writeBytes(output, ((BigDecimal) value).unscaledValue().toByteArray());
+        } else if (value instanceof BigInteger) {
+            output.writeByte(BIG_INTEGER);
+            writeBytes(output, ((BigInteger) value).toByteArray());
+        } else if (value instanceof Timestamp) {
+            output.writeByte(TIMESTAMP);
+            output.writeLong(((Timestamp) value).getTime());
+            output.writeInt(((Timestamp) value).getNanos());
+        } else if (value instanceof Date) {
+            output.writeByte(DATE);
+            output.writeLong(((Date) value).getTime());
+        } else if (value instanceof Time) {
+            output.writeByte(TIME);
+            output.writeLong(((Time) value).getTime());
+        } else if (value instanceof byte[]) {
+            output.writeByte(BYTES);
+            writeBytes(output, (byte[]) value);
+        } else if (value instanceof Serializable) {
+            output.writeByte(SERIALIZABLE);
+            writeBytes(output, serialize(value));
+        } else {
+            throw new IOException(String.format("Could not encode undo value of type `%s`", value.getClass().getName()));
+        }
+    }
+    
+    /**
+     * Read value.
+     *
+     * @param input data input
+     * @return value
+     * @throws IOException IO exception
+     */
+    public static Object read(final DataInput input) throws IOException {
+        byte type = input.readByte();
+        switch (type) {
+            case NULL:
+                return null;
+            case LONG:
+                return input.readLong();
+            case INTEGER:
+                return input.readInt();
+            case SHORT:
+                return input.readShort();
+            case BYTE:
+                return input.readByte();
+            case BOOLEAN:
+                return input.readBoolean();
+            case DOUBLE:
+                return input.readDouble();
+            case FLOAT:
+                return input.readFloat();
+            case STRING:
+                return new String(readBytes(input), StandardCharsets.UTF_8);
+            case BIG_DECIMAL:
+                int scale = input.readInt();
+                return new BigDecimal(new BigInteger(readBytes(input)), scale);
+            case BIG_INTEGER:
+                return new BigInteger(readBytes(input));
+            case TIMESTAMP:
+                Timestamp result = new Timestamp(input.readLong());
+                result.setNanos(input.readInt());
+                return result;
+            case DATE:
+                return new Date(input.readLong());
+            case TIME:
+                return new Time(input.readLong());
+            case BYTES:
+                return readBytes(input);
+            case SERIALIZABLE:
+                return deserialize(readBytes(input));
+            default:
+                throw new IOException(String.format("Unknown undo value type `%s`", type));
+        }
+    }
+    
+    /**
+     * Estimate heap bytes of value.
+     *
+     * @param value value
+     * @return estimated heap bytes
+     */
+    public static long estimateSize(final Object value) {
+        if (null == value) {
+            return 0;
+        }
+        if (value instanceof String) {
+            return 40 + 2 * ((String) value).length();
+        }
+        if (value instanceof byte[]) {
+            return 16 + ((byte[]) value).length;
+        }
+        if (value instanceof BigDecimal || value instanceof BigInteger) {
+            return 48;
+        }
+        if (value instanceof java.util.Date) {
+            return 32;
+        }
+        return 16;
+    }
+    
+    private static void writeBytes(final DataOutput output, final byte[] value) throws IOException {
+        output.writeInt(value.length);
+        output.write(value);
+    }
+    
+    private static byte[] readBytes(final DataInput input) throws IOException {
+        byte[] result = new byte[input.readInt()];
+        input.readFully(result);
+        return result;
+    }
+    
+    private static byte[] serialize(final Object value) throws IOException {
+        ByteArrayOutputStream result = new ByteArrayOutputStream();
+        try (ObjectOutputStream objectOutputStream = new ObjectOutputStream(result)) {
+            objectOutputStream.writeObject(value);
+        }
+        return result.toByteArray();
+    }
+    
+    private static Object deserialize(final byte[] value) throws IOException {
+        try (ObjectInputStream objectInputStream = new ObjectInputStream(new ByteArrayInputStream(value))) {
+            return objectInputStream.readObject();
+        } catch (final ClassNotFoundException ex) {
+            throw new IOException(ex);
+        }
+    }
+}
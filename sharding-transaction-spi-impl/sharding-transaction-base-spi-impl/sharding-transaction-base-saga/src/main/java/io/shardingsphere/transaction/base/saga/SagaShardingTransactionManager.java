@@ -17,19 +17,35 @@
 
 package io.shardingsphere.transaction.base.saga;
 
+import io.shardingsphere.transaction.base.context.LogicSQLTransaction;
+import io.shardingsphere.transaction.base.context.StatementConnectionRecorder;
 import io.shardingsphere.transaction.base.context.TransactionContext;
+import io.shardingsphere.transaction.base.context.TransactionContextFactory;
 import io.shardingsphere.transaction.base.context.TransactionContextHolder;
+import io.shardingsphere.transaction.base.hook.revert.SQLTemplateCache;
+import io.shardingsphere.transaction.base.hook.revert.SetBasedRevertLimit;
+import io.shardingsphere.transaction.base.hook.revert.snapshot.UndoDataStore;
 import io.shardingsphere.transaction.base.saga.actuator.SagaActuatorFactory;
+import io.shardingsphere.transaction.base.saga.actuator.SagaBulkhead;
+import io.shardingsphere.transaction.base.saga.actuator.SagaCircuitBreaker;
+import io.shardingsphere.transaction.base.saga.actuator.SagaRecovery;
+import io.shardingsphere.transaction.base.saga.actuator.SagaRetryBackoff;
+import io.shardingsphere.transaction.base.saga.actuator.definition.SagaDefinition;
 import io.shardingsphere.transaction.base.saga.actuator.definition.SagaDefinitionFactory;
+import io.shardingsphere.transaction.base.saga.actuator.definition.SagaDefinitionHolder;
 import io.shardingsphere.transaction.base.saga.config.SagaConfiguration;
 import io.shardingsphere.transaction.base.saga.config.SagaConfigurationLoader;
+import io.shardingsphere.transaction.base.saga.persistence.RecoverablePersistentStore;
 import io.shardingsphere.transaction.base.saga.persistence.SagaPersistenceLoader;
+import lombok.extern.slf4j.Slf4j;
 import org.apache.servicecomb.saga.core.PersistentStore;
 import org.apache.servicecomb.saga.core.RecoveryPolicy;
 import org.apache.servicecomb.saga.core.application.SagaExecutionComponent;
+import org.apache.servicecomb.saga.core.dag.GraphBasedSagaFactory;
 import org.apache.shardingsphere.core.constant.DatabaseType;
 import org.apache.shardingsphere.core.exception.ShardingException;
 import org.apache.shardingsphere.core.execute.ShardingExecuteDataMap;
+import org.apache.shardingsphere.core.execute.ShardingThreadFactoryBuilder;
 import org.apache.shardingsphere.transaction.core.ResourceDataSource;
 import org.apache.shardingsphere.transaction.core.TransactionOperationType;
 import org.apache.shardingsphere.transaction.core.TransactionType;
@@ -40,14 +56,42 @@ import java.sql.Connection;
 import java.sql.SQLException;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Saga Sharding transaction manager.
  *
+ * <p>
+ * Saga persistence and actuator are initialized at first saga transaction with DML, so loading this manager by SPI is cheap
+ * for applications which never use BASE transaction.
+ * If persistence is enabled, they are warmed up in background once data sources are registered, so pending sagas are recovered without waiting for first transaction.
+ * Pending sagas are recovered by SQL persisted in saga definitions on registered data sources, because transaction contexts of crashed transactions are lost.
+ * Recovery runs in background after actuator is published, so transactions never wait for recovery of sagas left by the previous process.
+ * </p>
+ *
+ * <p>
+ * If local transaction is enabled, the first data source of transaction runs as native local transaction without snapshot,
+ * it is committed before saga branches of other data sources, which are compensated if local commit failed.
+ * Transaction which never touches a second data source commits or rolls back natively without saga.
+ * </p>
+ *
+ * <p>
+ * Transaction context is created at first DML statement, read only transaction commits or rolls back without any saga bookkeeping.
+ * </p>
+ *
+ * <p>
+ * Rolling back to savepoint compensates only branch transactions added after savepoint, the transaction goes on after that.
+ * </p>
+ *
  * @author yangyi
  * @author zhaojun
  */
+@Slf4j
 public final class SagaShardingTransactionManager implements ShardingTransactionManager {
     
     public static final String SAGA_TRANSACTION_KEY = "saga_transaction";
@@ -56,19 +100,189 @@ public final class SagaShardingTransactionManager implements ShardingTransaction
     
     private SagaConfiguration sagaConfiguration;
     
-    private SagaExecutionComponent sagaActuator;
+    private volatile SagaExecutionComponent sagaActuator;
+    
+    private PersistentStore sagaPersistence;
+    
+    private SQLTemplateCache sqlTemplateCache;
+    
+    private ThreadPoolExecutor sagaExecutor;
+    
+    private ExecutorService recoveryExecutor;
+    
+    private SagaBulkhead bulkhead;
+    
+    private SagaCircuitBreaker circuitBreaker;
+    
+    private SagaRetryBackoff retryBackoff;
+    
+    private SetBasedRevertLimit setBasedRevertLimit;
+    
+    private final AtomicLong undoDataBytes = new AtomicLong();
+    
+    private final AtomicLong spilledUndoDataBytes = new AtomicLong();
+    
+    private volatile long initTimeMillis;
+    
+    private volatile long readyMilliseconds = -1L;
+    
+    private volatile long recoveryMilliseconds = -1L;
+    
+    private final TransactionContextFactory transactionContextFactory = new TransactionContextFactory() {
+        @Override
+        public TransactionContext newInstance() {
+            return newTransactionContext();
+        }
+    };
     
     public SagaShardingTransactionManager() {
         sagaConfiguration = SagaConfigurationLoader.load();
-        PersistentStore sagaPersistence = SagaPersistenceLoader.load(sagaConfiguration.getSagaPersistenceConfiguration());
-        sagaActuator = SagaActuatorFactory.newInstance(sagaConfiguration, sagaPersistence);
+        sqlTemplateCache = new SQLTemplateCache(sagaConfiguration.getSqlTemplateCacheSize());
+        bulkhead = SagaActuatorFactory.newBulkhead(sagaConfiguration);
+        circuitBreaker = SagaActuatorFactory.newCircuitBreaker(sagaConfiguration);
+        retryBackoff = SagaActuatorFactory.newRetryBackoff(sagaConfiguration);
+        setBasedRevertLimit = SetBasedRevertLimit.newInstance(null, sagaConfiguration.getCompensationChunkSize());
+        initTimeMillis = System.currentTimeMillis();
+    }
+    
+    private void warmUp() {
+        ExecutorService warmUpExecutor = Executors.newSingleThreadExecutor(ShardingThreadFactoryBuilder.build("SagaWarmUp"));
+        warmUpExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    getSagaActuator();
+                } catch (final RuntimeException ex) {
+                    log.error("Warm up saga actuator failed, will retry at first saga transaction", ex);
+                }
+            }
+        });
+        warmUpExecutor.shutdown();
+    }
+    
+    /**
+     * Judge whether saga persistence and actuator are initialized.
+     *
+     * @return saga persistence and actuator are initialized or not
+     */
+    public boolean isReady() {
+        return null != sagaActuator;
+    }
+    
+    /**
+     * Get milliseconds from initialization to saga persistence and actuator ready.
+     *
+     * @return ready milliseconds, -1 if not ready
+     */
+    public long getReadyMilliseconds() {
+        return readyMilliseconds;
+    }
+    
+    /**
+     * Get milliseconds spent recovering pending sagas in background.
+     *
+     * @return recovery milliseconds, -1 if recovery not finished
+     */
+    public long getRecoveryMilliseconds() {
+        return recoveryMilliseconds;
+    }
+    
+    /**
+     * Get count of saga tasks waiting in saga executor queue.
+     *
+     * @return queue depth of saga executor
+     */
+    public int getExecutorQueueDepth() {
+        return isReady() ? sagaExecutor.getQueue().size() : 0;
+    }
+    
+    /**
+     * Get active saga branch executions of every data source.
+     *
+     * @return active execution count map, key is data source name
+     */
+    public Map<String, Integer> getActiveCountsPerDataSource() {
+        return bulkhead.getActiveCounts();
+    }
+    
+    /**
+     * Get saga circuit state of every data source.
+     *
+     * @return circuit state map, key is data source name
+     */
+    public Map<String, SagaCircuitBreaker.State> getCircuitStatesPerDataSource() {
+        return circuitBreaker.getStates();
+    }
+    
+    /**
+     * Get retried saga branch executions of every data source.
+     *
+     * @return retry count map, key is data source name
+     */
+    public Map<String, Long> getRetryCountsPerDataSource() {
+        return circuitBreaker.getRetryCounts();
+    }
+    
+    /**
+     * Get total bytes of undo data held by finished saga transactions, including spilled ones.
+     *
+     * @return undo data bytes
+     */
+    public long getUndoDataBytes() {
+        return undoDataBytes.get();
+    }
+    
+    /**
+     * Get total bytes of undo data spilled into local file by finished saga transactions.
+     *
+     * @return spilled undo data bytes
+     */
+    public long getSpilledUndoDataBytes() {
+        return spilledUndoDataBytes.get();
+    }
+    
+    private SagaExecutionComponent getSagaActuator() {
+        SagaExecutionComponent result = sagaActuator;
+        if (null != result) {
+            return result;
+        }
+        SagaRecovery sagaRecovery;
+        synchronized (this) {
+            if (null != sagaActuator) {
+                return sagaActuator;
+            }
+            long startTime = System.currentTimeMillis();
+            sagaRecovery = initSagaActuator();
+            log.info("Initialized saga actuator in {} ms", System.currentTimeMillis() - startTime);
+            result = sagaActuator;
+        }
+        if (null != sagaRecovery) {
+            recoverPendingSagasInBackground(sagaRecovery);
+        }
+        return result;
+    }
+    
+    private SagaRecovery initSagaActuator() {
+        sagaPersistence = SagaPersistenceLoader.load(sagaConfiguration.getSagaPersistenceConfiguration());
+        sagaExecutor = SagaActuatorFactory.newExecutorService(sagaConfiguration);
+        GraphBasedSagaFactory sagaFactory = SagaActuatorFactory.newSagaFactory(sagaConfiguration, sagaPersistence, sagaExecutor);
+        SagaExecutionComponent actuator = SagaActuatorFactory.newInstance(sagaFactory, sagaPersistence);
+        readyMilliseconds = System.currentTimeMillis() - initTimeMillis;
+        sagaActuator = actuator;
+        return sagaPersistence instanceof RecoverablePersistentStore
+            ? SagaActuatorFactory.newRecovery(sagaConfiguration, sagaFactory, (RecoverablePersistentStore) sagaPersistence, dataSourceMap) : null;
     }
     
     @Override
     public void init(final DatabaseType databaseType, final Collection<ResourceDataSource> resourceDataSources) {
+        initTimeMillis = System.currentTimeMillis();
+        setBasedRevertLimit = SetBasedRevertLimit.newInstance(databaseType, sagaConfiguration.getCompensationChunkSize());
         for (ResourceDataSource each : resourceDataSources) {
             registerDataSourceMap(each.getOriginalName(), each.getDataSource());
         }
+        if (sagaConfiguration.getSagaPersistenceConfiguration().isEnablePersistence()) {
+            warmUp();
+        }
     }
     
     @Override
@@ -85,7 +299,13 @@ public final class SagaShardingTransactionManager implements ShardingTransaction
     public Connection getConnection(final String dataSourceName) throws SQLException {
         Connection result = dataSourceMap.get(dataSourceName).getConnection();
         if (isInTransaction()) {
-            TransactionContextHolder.get().getCachedConnections().put(dataSourceName, result);
+            result = StatementConnectionRecorder.newInstance(dataSourceName, result);
+            try {
+                TransactionContextHolder.cacheConnection(dataSourceName, result);
+            } catch (final ShardingException ex) {
+                result.close();
+                throw ex;
+            }
         }
         return result;
     }
@@ -93,32 +313,148 @@ public final class SagaShardingTransactionManager implements ShardingTransaction
     @Override
     public void begin() {
         if (!TransactionContextHolder.isInTransaction()) {
-            TransactionContextHolder.set(new TransactionContext());
-            ShardingExecuteDataMap.getDataMap().put(SAGA_TRANSACTION_KEY, TransactionContextHolder.get());
+            TransactionContextHolder.begin(transactionContextFactory);
         }
     }
     
+    private TransactionContext newTransactionContext() {
+        getSagaActuator();
+        TransactionContext result = new TransactionContext(
+            setBasedRevertLimit, new UndoDataStore(sagaConfiguration.getUndoDataMaxMemoryBytes()), sqlTemplateCache, bulkhead, circuitBreaker, retryBackoff);
+        result.setLocalTransactionEnabled(sagaConfiguration.isLocalTransactionEnabled());
+        ShardingExecuteDataMap.getDataMap().put(SAGA_TRANSACTION_KEY, result);
+        return result;
+    }
+    
     @Override
     public void commit() {
-        if (TransactionContextHolder.isInTransaction() && TransactionContextHolder.get().isContainsException()) {
-            TransactionContextHolder.get().setOperationType(TransactionOperationType.COMMIT);
-            sagaActuator.run(SagaDefinitionFactory.newInstance(RecoveryPolicy.SAGA_FORWARD_RECOVERY_POLICY, sagaConfiguration, TransactionContextHolder.get()).toJson());
+        try {
+            TransactionContext transactionContext = TransactionContextHolder.get();
+            if (null != transactionContext) {
+                commitLocalTransaction(transactionContext);
+                if (transactionContext.isContainsException()) {
+                    transactionContext.setOperationType(TransactionOperationType.COMMIT);
+                    runSaga(SagaDefinitionFactory.newInstance(RecoveryPolicy.SAGA_FORWARD_RECOVERY_POLICY, sagaConfiguration, transactionContext));
+                }
+            }
+        } finally {
+            clearSagaTransaction();
         }
-        clearSagaTransaction();
     }
     
     @Override
     public void rollback() {
-        if (TransactionContextHolder.isInTransaction()) {
-            TransactionContextHolder.get().setOperationType(TransactionOperationType.ROLLBACK);
-            sagaActuator.run(SagaDefinitionFactory.newInstance(RecoveryPolicy.SAGA_BACKWARD_RECOVERY_POLICY, sagaConfiguration, TransactionContextHolder.get()).toJson());
+        try {
+            TransactionContext transactionContext = TransactionContextHolder.get();
+            if (null != transactionContext) {
+                compensate(transactionContext);
+                transactionContext.rollbackLocalTransaction();
+            }
+        } finally {
+            clearSagaTransaction();
+        }
+    }
+    
+    /**
+     * Set savepoint in current saga transaction.
+     *
+     * @param savepointName savepoint name
+     * @throws SQLException failed to set savepoint of local transaction, throw this exception
+     */
+    public void setSavepoint(final String savepointName) throws SQLException {
+        TransactionContext transactionContext = TransactionContextHolder.getOrCreate();
+        if (null == transactionContext) {
+            throw new ShardingException("Cannot set savepoint `%s` out of saga transaction", savepointName);
+        }
+        transactionContext.setSavepoint(savepointName);
+    }
+    
+    /**
+     * Release savepoint in current saga transaction.
+     *
+     * @param savepointName savepoint name
+     * @throws SQLException failed to release savepoint of local transaction, throw this exception
+     */
+    public void releaseSavepoint(final String savepointName) throws SQLException {
+        getSavepointTransactionContext(savepointName).releaseSavepoint(savepointName);
+    }
+    
+    /**
+     * Rollback current saga transaction to savepoint.
+     *
+     * <p>
+     * Only branch transactions added after savepoint are compensated, saga definition is built for them only.
+     * </p>
+     *
+     * @param savepointName savepoint name
+     */
+    public void rollbackToSavepoint(final String savepointName) {
+        TransactionContext transactionContext = getSavepointTransactionContext(savepointName);
+        List<LogicSQLTransaction> logicSQLTransactions = transactionContext.startRollbackToSavepoint(savepointName);
+        boolean compensated = false;
+        try {
+            if (isContainsBranchTransaction(logicSQLTransactions)) {
+                transactionContext.setOperationType(TransactionOperationType.ROLLBACK);
+                runSaga(SagaDefinitionFactory.newInstance(RecoveryPolicy.SAGA_BACKWARD_RECOVERY_POLICY, sagaConfiguration, logicSQLTransactions));
+            }
+            compensated = true;
+        } finally {
+            transactionContext.finishRollbackToSavepoint(savepointName, compensated);
+        }
+    }
+    
+    private TransactionContext getSavepointTransactionContext(final String savepointName) {
+        TransactionContext result = TransactionContextHolder.get();
+        if (null == result) {
+            throw new ShardingException("Savepoint `%s` does not exist", savepointName);
+        }
+        return result;
+    }
+    
+    private boolean isContainsBranchTransaction(final Collection<LogicSQLTransaction> logicSQLTransactions) {
+        for (LogicSQLTransaction each : logicSQLTransactions) {
+            if (!each.getBranchTransactions().isEmpty()) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    private void commitLocalTransaction(final TransactionContext transactionContext) {
+        try {
+            transactionContext.commitLocalTransaction();
+        } catch (final ShardingException ex) {
+            compensate(transactionContext);
+            throw ex;
+        }
+    }
+    
+    private void compensate(final TransactionContext transactionContext) {
+        if (transactionContext.isContainsBranchTransaction()) {
+            transactionContext.setOperationType(TransactionOperationType.ROLLBACK);
+            runSaga(SagaDefinitionFactory.newInstance(RecoveryPolicy.SAGA_BACKWARD_RECOVERY_POLICY, sagaConfiguration, transactionContext));
         }
-        clearSagaTransaction();
     }
     
     @Override
     public void close() {
+        log.debug("Saga SQL template cache {} entries, {}", sqlTemplateCache.size(), sqlTemplateCache.getStats());
         dataSourceMap.clear();
+        closeSagaPersistence();
+    }
+    
+    private synchronized void closeSagaPersistence() {
+        if (null != recoveryExecutor) {
+            recoveryExecutor.shutdownNow();
+        }
+        if (!(sagaPersistence instanceof AutoCloseable)) {
+            return;
+        }
+        try {
+            ((AutoCloseable) sagaPersistence).close();
+        } catch (final Exception ex) {
+            log.warn("Close saga persistence failed", ex);
+        }
     }
     
     private void registerDataSourceMap(final String datasourceName, final DataSource dataSource) {
@@ -132,8 +468,68 @@ public final class SagaShardingTransactionManager implements ShardingTransaction
         }
     }
     
+    private void runSaga(final SagaDefinition sagaDefinition) {
+        if (sagaConfiguration.getSagaPersistenceConfiguration().isEnablePersistence()) {
+            getSagaActuator().run(sagaDefinition.toJson());
+            return;
+        }
+        SagaDefinitionHolder.set(sagaDefinition);
+        try {
+            getSagaActuator().run(SagaDefinitionHolder.IN_MEMORY_REQUEST);
+        } finally {
+            SagaDefinitionHolder.clear();
+        }
+    }
+    
+    private synchronized void recoverPendingSagasInBackground(final SagaRecovery sagaRecovery) {
+        recoveryExecutor = Executors.newSingleThreadExecutor(ShardingThreadFactoryBuilder.build("SagaRecovery"));
+        recoveryExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                recoverPendingSagas(sagaRecovery);
+            }
+        });
+        recoveryExecutor.shutdown();
+    }
+    
+    private void recoverPendingSagas(final SagaRecovery sagaRecovery) {
+        long startTime = System.currentTimeMillis();
+        try {
+            int recoveredCount = sagaRecovery.recover();
+            recoveryMilliseconds = System.currentTimeMillis() - startTime;
+            log.info("Recovered {} pending sagas in {} ms", recoveredCount, recoveryMilliseconds);
+        } catch (final InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } catch (final ShardingException ex) {
+            log.error("Recover pending sagas failed", ex);
+        }
+    }
+    
     private void clearSagaTransaction() {
+        TransactionContext transactionContext = TransactionContextHolder.get();
+        if (null != transactionContext) {
+            rollbackLocalTransaction(transactionContext);
+            closeUndoDataStore(transactionContext);
+        }
         ShardingExecuteDataMap.getDataMap().remove(SAGA_TRANSACTION_KEY);
         TransactionContextHolder.clear();
     }
+    
+    private void rollbackLocalTransaction(final TransactionContext transactionContext) {
+        try {
+            transactionContext.rollbackLocalTransaction();
+        } catch (final ShardingException ex) {
+            log.warn("Rollback local transaction of saga transaction {} failed", transactionContext.getId(), ex);
+        }
+    }
+    
+    private void closeUndoDataStore(final TransactionContext transactionContext) {
+        UndoDataStore undoDataStore = transactionContext.getUndoDataStore();
+        if (null == undoDataStore) {
+            return;
+        }
+        undoDataBytes.addAndGet(undoDataStore.getUndoDataBytes());
+        spilledUndoDataBytes.addAndGet(undoDataStore.getSpilledBytes());
+        undoDataStore.close();
+    }
 }
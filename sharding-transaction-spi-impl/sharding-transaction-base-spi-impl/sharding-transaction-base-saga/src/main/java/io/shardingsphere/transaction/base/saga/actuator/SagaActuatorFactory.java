@@ -18,8 +18,11 @@
 package io.shardingsphere.transaction.base.saga.actuator;
 
 import com.google.common.util.concurrent.MoreExecutors;
+import io.shardingsphere.transaction.base.saga.actuator.definition.SagaDefinitionFormat;
+import io.shardingsphere.transaction.base.saga.actuator.transport.SagaRecoveryTransportFactory;
 import io.shardingsphere.transaction.base.saga.actuator.transport.SagaTransportFactory;
 import io.shardingsphere.transaction.base.saga.config.SagaConfiguration;
+import io.shardingsphere.transaction.base.saga.persistence.RecoverablePersistentStore;
 import lombok.AccessLevel;
 import lombok.NoArgsConstructor;
 import org.apache.servicecomb.saga.core.PersistentStore;
@@ -28,12 +31,14 @@ import org.apache.servicecomb.saga.core.application.SagaExecutionComponent;
 import org.apache.servicecomb.saga.core.application.interpreter.FromJsonFormat;
 import org.apache.servicecomb.saga.core.dag.GraphBasedSagaFactory;
 import org.apache.servicecomb.saga.format.ChildrenExtractor;
-import org.apache.servicecomb.saga.format.JacksonFromJsonFormat;
+import org.apache.servicecomb.saga.format.JacksonSagaEventFormat;
 import org.apache.shardingsphere.core.execute.ShardingThreadFactoryBuilder;
 
+import javax.sql.DataSource;
+import java.util.Map;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -52,16 +57,109 @@ public final class SagaActuatorFactory {
      * @return saga execution component
      */
     public static SagaExecutionComponent newInstance(final SagaConfiguration sagaConfiguration, final PersistentStore sagaPersistence) {
-        FromJsonFormat<SagaDefinition> fromJsonFormat = new JacksonFromJsonFormat(SagaTransportFactory.getInstance());
-        GraphBasedSagaFactory sagaFactory = new GraphBasedSagaFactory(sagaConfiguration.getCompensationRetryDelayMilliseconds(),
-            sagaPersistence, new ChildrenExtractor(), createExecutorService(sagaConfiguration.getExecutorSize()));
-        return new SagaExecutionComponent(sagaPersistence, fromJsonFormat, null, sagaFactory);
+        return newInstance(newSagaFactory(sagaConfiguration, sagaPersistence), sagaPersistence);
     }
     
-    private static ExecutorService createExecutorService(final int executorSize) {
-        ThreadFactory threadFactory = ShardingThreadFactoryBuilder.build("Saga-%d");
-        ExecutorService result = executorSize > 0 ? Executors.newFixedThreadPool(executorSize, threadFactory) : Executors.newCachedThreadPool(threadFactory);
+    /**
+     * Create new saga execution component with saga factory.
+     *
+     * @param sagaFactory saga factory
+     * @param sagaPersistence saga persistence
+     * @return saga execution component
+     */
+    public static SagaExecutionComponent newInstance(final GraphBasedSagaFactory sagaFactory, final PersistentStore sagaPersistence) {
+        return new SagaExecutionComponent(sagaPersistence, newSagaDefinitionFormat(), null, sagaFactory);
+    }
+    
+    /**
+     * Create new saga factory.
+     *
+     * @param sagaConfiguration saga configuration
+     * @param sagaPersistence saga persistence
+     * @return saga factory
+     */
+    public static GraphBasedSagaFactory newSagaFactory(final SagaConfiguration sagaConfiguration, final PersistentStore sagaPersistence) {
+        return newSagaFactory(sagaConfiguration, sagaPersistence, newExecutorService(sagaConfiguration));
+    }
+    
+    /**
+     * Create new saga factory with saga executor.
+     *
+     * @param sagaConfiguration saga configuration
+     * @param sagaPersistence saga persistence
+     * @param sagaExecutor saga executor
+     * @return saga factory
+     */
+    public static GraphBasedSagaFactory newSagaFactory(final SagaConfiguration sagaConfiguration, final PersistentStore sagaPersistence, final ExecutorService sagaExecutor) {
+        return new GraphBasedSagaFactory(sagaConfiguration.getCompensationRetryDelayMilliseconds(), sagaPersistence, new ChildrenExtractor(), sagaExecutor);
+    }
+    
+    /**
+     * Create new bounded saga executor.
+     *
+     * <p>
+     * Tasks exceeding executor queue size run in submitting thread, so {@code commit()} and {@code rollback()} are slowed down instead of piling up tasks.
+     * </p>
+     *
+     * @param sagaConfiguration saga configuration
+     * @return saga executor
+     */
+    public static ThreadPoolExecutor newExecutorService(final SagaConfiguration sagaConfiguration) {
+        int executorSize = sagaConfiguration.getExecutorSize() > 0 ? sagaConfiguration.getExecutorSize() : Runtime.getRuntime().availableProcessors();
+        ThreadPoolExecutor result = new ThreadPoolExecutor(executorSize, executorSize, 0L, TimeUnit.MILLISECONDS,
+            new LinkedBlockingQueue<Runnable>(sagaConfiguration.getExecutorQueueSize()), ShardingThreadFactoryBuilder.build("Saga-%d"), new ThreadPoolExecutor.CallerRunsPolicy());
         MoreExecutors.addDelayedShutdownHook(result, 60, TimeUnit.SECONDS);
         return result;
     }
+    
+    /**
+     * Create new saga data source bulkhead.
+     *
+     * @param sagaConfiguration saga configuration
+     * @return saga data source bulkhead
+     */
+    public static SagaBulkhead newBulkhead(final SagaConfiguration sagaConfiguration) {
+        return new SagaBulkhead(sagaConfiguration.getDataSourceMaxConcurrency(), sagaConfiguration.getDataSourceAcquireTimeoutMilliseconds());
+    }
+    
+    /**
+     * Create new saga circuit breaker of data sources.
+     *
+     * @param sagaConfiguration saga configuration
+     * @return saga circuit breaker
+     */
+    public static SagaCircuitBreaker newCircuitBreaker(final SagaConfiguration sagaConfiguration) {
+        return new SagaCircuitBreaker(sagaConfiguration.getCircuitBreakerFailureThreshold(), sagaConfiguration.getCircuitBreakerOpenMilliseconds());
+    }
+    
+    /**
+     * Create new saga retry backoff.
+     *
+     * @param sagaConfiguration saga configuration
+     * @return saga retry backoff
+     */
+    public static SagaRetryBackoff newRetryBackoff(final SagaConfiguration sagaConfiguration) {
+        return new SagaRetryBackoff(sagaConfiguration.getRetryBackoffBaseMilliseconds(), sagaConfiguration.getRetryBackoffMaxMilliseconds());
+    }
+    
+    /**
+     * Create new saga recovery.
+     *
+     * @param sagaConfiguration saga configuration
+     * @param sagaFactory saga factory
+     * @param sagaPersistence recoverable saga persistence
+     * @param dataSourceMap data source map to execute recovered SQL
+     * @return saga recovery
+     */
+    public static SagaRecovery newRecovery(final SagaConfiguration sagaConfiguration, final GraphBasedSagaFactory sagaFactory,
+                                           final RecoverablePersistentStore sagaPersistence, final Map<String, DataSource> dataSourceMap) {
+        int parallelism = sagaConfiguration.getExecutorSize() > 0 ? sagaConfiguration.getExecutorSize() : Runtime.getRuntime().availableProcessors();
+        SagaRecoveryTransportFactory transportFactory = new SagaRecoveryTransportFactory(dataSourceMap);
+        return new SagaRecovery(sagaPersistence, new SagaDefinitionFormat(transportFactory), new JacksonSagaEventFormat(transportFactory), sagaFactory,
+            sagaConfiguration.getRecoveryFetchSize(), sagaConfiguration.getRecoveryBatchSize(), parallelism);
+    }
+    
+    private static FromJsonFormat<SagaDefinition> newSagaDefinitionFormat() {
+        return new SagaDefinitionFormat(SagaTransportFactory.getInstance());
+    }
 }
@@ -0,0 +1,95 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.shardingsphere.transaction.base.saga.actuator;
+
+import lombok.Getter;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Saga data source bulkhead.
+ *
+ * <p>
+ * Limits concurrent saga branch executions of each data source,
+ * so sagas of one slow or broken data source can not take every saga executor thread.
+ * </p>
+ *
+ * @author zhaojun
+ */
+public final class SagaBulkhead {
+    
+    private final ConcurrentMap<String, Semaphore> permits = new ConcurrentHashMap<>();
+    
+    @Getter
+    private final int maxConcurrency;
+    
+    private final long acquireTimeoutMilliseconds;
+    
+    public SagaBulkhead(final int maxConcurrency, final long acquireTimeoutMilliseconds) {
+        this.maxConcurrency = 0 < maxConcurrency ? maxConcurrency : Integer.MAX_VALUE;
+        this.acquireTimeoutMilliseconds = acquireTimeoutMilliseconds;
+    }
+    
+    /**
+     * Try to acquire execution permit of data source.
+     *
+     * @param dataSourceName data source name
+     * @return acquired or not in acquire timeout
+     * @throws InterruptedException interrupted while waiting permit
+     */
+    public boolean tryAcquire(final String dataSourceName) throws InterruptedException {
+        return getPermits(dataSourceName).tryAcquire(acquireTimeoutMilliseconds, TimeUnit.MILLISECONDS);
+    }
+    
+    /**
+     * Release execution permit of data source.
+     *
+     * @param dataSourceName data source name
+     */
+    public void release(final String dataSourceName) {
+        getPermits(dataSourceName).release();
+    }
+    
+    private Semaphore getPermits(final String dataSourceName) {
+        Semaphore result = permits.get(dataSourceName);
+        if (null == result) {
+            permits.putIfAbsent(dataSourceName, new Semaphore(maxConcurrency));
+            result = permits.get(dataSourceName);
+        }
+        return result;
+    }
+    
+    /**
+     * Get active saga branch executions of every data source.
+     *
+     * @return active execution count map, key is data source name
+     */
+    public Map<String, Integer> getActiveCounts() {
+        Map<String, Integer> result = new LinkedHashMap<>(permits.size(), 1);
+        for (Entry<String, Semaphore> entry : permits.entrySet()) {
+            result.put(entry.getKey(), maxConcurrency - entry.getValue().availablePermits());
+        }
+        return result;
+    }
+}
@@ -0,0 +1,203 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.shardingsphere.transaction.base.saga.actuator;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Saga circuit breaker of data sources.
+ *
+ * <p>
+ * Circuit of data source opens after consecutive failures reach failure threshold.
+ * Saga branches of open data source are rejected at once without touching it, so no executor thread waits for circuit.
+ * After open time one branch probes it: success closes circuit, failure opens circuit again.
+ * Rejected branches are retried by saga.
+ * </p>
+ *
+ * @author zhaojun
+ */
+@Slf4j
+public final class SagaCircuitBreaker {
+    
+    private final ConcurrentMap<String, Circuit> circuits = new ConcurrentHashMap<>();
+    
+    private final int failureThreshold;
+    
+    private final long openMilliseconds;
+    
+    public SagaCircuitBreaker(final int failureThreshold, final long openMilliseconds) {
+        this.failureThreshold = failureThreshold;
+        this.openMilliseconds = openMilliseconds;
+    }
+    
+    /**
+     * Judge whether circuit of data source allows execution now.
+     *
+     * <p>
+     * Caller allowed by half open circuit is the probe, it must report result by {@code onSuccess} or {@code onFailure}.
+     * </p>
+     *
+     * @param dataSourceName data source name
+     * @return execution is allowed or not
+     */
+    public boolean tryPass(final String dataSourceName) {
+        return 0 >= failureThreshold || getCircuit(dataSourceName).tryPass();
+    }
+    
+    /**
+     * Record successful execution of data source.
+     *
+     * @param dataSourceName data source name
+     */
+    public void onSuccess(final String dataSourceName) {
+        if (0 < failureThreshold) {
+            getCircuit(dataSourceName).onSuccess();
+        }
+    }
+    
+    /**
+     * Record failed execution of data source.
+     *
+     * @param dataSourceName data source name
+     */
+    public void onFailure(final String dataSourceName) {
+        if (0 < failureThreshold) {
+            getCircuit(dataSourceName).onFailure();
+        }
+    }
+    
+    /**
+     * Record retried execution of data source.
+     *
+     * @param dataSourceName data source name
+     */
+    public void onRetry(final String dataSourceName) {
+        getCircuit(dataSourceName).getRetryCount().incrementAndGet();
+    }
+    
+    private Circuit getCircuit(final String dataSourceName) {
+        Circuit result = circuits.get(dataSourceName);
+        if (null == result) {
+            circuits.putIfAbsent(dataSourceName, new Circuit(dataSourceName));
+            result = circuits.get(dataSourceName);
+        }
+        return result;
+    }
+    
+    /**
+     * Get circuit state of every data source.
+     *
+     * @return circuit state map, key is data source name
+     */
+    public Map<String, State> getStates() {
+        Map<String, State> result = new LinkedHashMap<>(circuits.size(), 1);
+        for (Entry<String, Circuit> entry : circuits.entrySet()) {
+            result.put(entry.getKey(), entry.getValue().getState());
+        }
+        return result;
+    }
+    
+    /**
+     * Get retried executions of every data source.
+     *
+     * @return retry count map, key is data source name
+     */
+    public Map<String, Long> getRetryCounts() {
+        Map<String, Long> result = new LinkedHashMap<>(circuits.size(), 1);
+        for (Entry<String, Circuit> entry : circuits.entrySet()) {
+            result.put(entry.getKey(), entry.getValue().getRetryCount().get());
+        }
+        return result;
+    }
+    
+    /**
+     * Circuit state.
+     */
+    public enum State {
+        
+        CLOSED, OPEN, HALF_OPEN
+    }
+    
+    private final class Circuit {
+        
+        private final String dataSourceName;
+        
+        private final AtomicLong retryCount = new AtomicLong();
+        
+        private State state = State.CLOSED;
+        
+        private int consecutiveFailures;
+        
+        private long openUntil;
+        
+        private boolean probing;
+        
+        Circuit(final String dataSourceName) {
+            this.dataSourceName = dataSourceName;
+        }
+        
+        AtomicLong getRetryCount() {
+            return retryCount;
+        }
+        
+        synchronized State getState() {
+            return state;
+        }
+        
+        synchronized boolean tryPass() {
+            if (State.OPEN == state && System.currentTimeMillis() >= openUntil) {
+                state = State.HALF_OPEN;
+                probing = false;
+            }
+            if (State.CLOSED == state) {
+                return true;
+            }
+            if (State.HALF_OPEN == state && !probing) {
+                probing = true;
+                return true;
+            }
+            return false;
+        }
+        
+        synchronized void onSuccess() {
+            consecutiveFailures = 0;
+            if (State.CLOSED != state) {
+                log.info("Saga circuit of data source `{}` closed", dataSourceName);
+                state = State.CLOSED;
+                probing = false;
+            }
+        }
+        
+        synchronized void onFailure() {
+            consecutiveFailures++;
+            if (State.HALF_OPEN == state || (State.CLOSED == state && consecutiveFailures >= failureThreshold)) {
+                log.warn("Saga circuit of data source `{}` opened for {} ms after {} consecutive failures", dataSourceName, openMilliseconds, consecutiveFailures);
+                state = State.OPEN;
+                openUntil = System.currentTimeMillis() + openMilliseconds;
+                probing = false;
+            }
+        }
+    }
+}
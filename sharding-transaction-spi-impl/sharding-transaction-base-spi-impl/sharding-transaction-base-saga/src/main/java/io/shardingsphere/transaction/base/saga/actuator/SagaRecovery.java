@@ -0,0 +1,155 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.shardingsphere.transaction.base.saga.actuator;
+
+import io.shardingsphere.transaction.base.saga.persistence.PendingSagaHandler;
+import io.shardingsphere.transaction.base.saga.persistence.RecoverablePersistentStore;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.servicecomb.saga.core.EventEnvelope;
+import org.apache.servicecomb.saga.core.JacksonToJsonFormat;
+import org.apache.servicecomb.saga.core.PersistentStore;
+import org.apache.servicecomb.saga.core.SagaDefinition;
+import org.apache.servicecomb.saga.core.SagaEvent;
+import org.apache.servicecomb.saga.core.application.SagaExecutionComponent;
+import org.apache.servicecomb.saga.core.application.interpreter.FromJsonFormat;
+import org.apache.servicecomb.saga.core.dag.GraphBasedSagaFactory;
+import org.apache.servicecomb.saga.format.SagaEventFormat;
+import org.apache.shardingsphere.core.execute.ShardingThreadFactoryBuilder;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Saga recovery.
+ *
+ * <p>
+ * Pending sagas are streamed from persistence and replayed in batches, batches are replayed in parallel.
+ * At most {@code parallelism + 1} batches are held in memory, so cold start does not depend on count of persisted sagas.
+ * </p>
+ *
+ * @author zhaojun
+ */
+@RequiredArgsConstructor
+@Slf4j
+public final class SagaRecovery {
+    
+    private final RecoverablePersistentStore sagaPersistence;
+    
+    private final FromJsonFormat<SagaDefinition> fromJsonFormat;
+    
+    private final SagaEventFormat sagaEventFormat;
+    
+    private final GraphBasedSagaFactory sagaFactory;
+    
+    private final int fetchSize;
+    
+    private final int batchSize;
+    
+    private final int parallelism;
+    
+    /**
+     * Recover pending sagas.
+     *
+     * @return count of pending sagas
+     * @throws InterruptedException interrupted while waiting replay
+     */
+    public int recover() throws InterruptedException {
+        ExecutorService replayExecutor = Executors.newFixedThreadPool(parallelism, ShardingThreadFactoryBuilder.build("SagaRecovery-%d"));
+        ReplayBatchHandler handler = new ReplayBatchHandler(replayExecutor, new Semaphore(parallelism));
+        try {
+            sagaPersistence.streamPendingSagaEvents(fetchSize, sagaEventFormat, handler);
+            handler.flush();
+        } finally {
+            replayExecutor.shutdown();
+        }
+        replayExecutor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        return handler.sagaCount;
+    }
+    
+    private void replay(final Map<String, List<EventEnvelope>> pendingSagaEvents) {
+        try {
+            new SagaExecutionComponent(new ReplayPersistentStore(pendingSagaEvents, sagaPersistence), fromJsonFormat, new JacksonToJsonFormat(), sagaFactory).reanimate();
+        } catch (final RuntimeException ex) {
+            log.warn("Replay sagas {} failed", pendingSagaEvents.keySet(), ex);
+        }
+    }
+    
+    @RequiredArgsConstructor
+    private final class ReplayBatchHandler implements PendingSagaHandler {
+        
+        private final ExecutorService replayExecutor;
+        
+        private final Semaphore permits;
+        
+        private Map<String, List<EventEnvelope>> batch = new LinkedHashMap<>();
+        
+        private int sagaCount;
+        
+        @Override
+        public void handle(final String sagaId, final List<EventEnvelope> sagaEvents) {
+            batch.put(sagaId, sagaEvents);
+            sagaCount++;
+            if (batch.size() >= batchSize) {
+                flush();
+            }
+        }
+        
+        private void flush() {
+            if (batch.isEmpty()) {
+                return;
+            }
+            final Map<String, List<EventEnvelope>> pendingSagaEvents = batch;
+            batch = new LinkedHashMap<>();
+            permits.acquireUninterruptibly();
+            replayExecutor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        replay(pendingSagaEvents);
+                    } finally {
+                        permits.release();
+                    }
+                }
+            });
+        }
+    }
+    
+    @RequiredArgsConstructor
+    private static final class ReplayPersistentStore implements PersistentStore {
+        
+        private final Map<String, List<EventEnvelope>> pendingSagaEvents;
+        
+        private final PersistentStore sagaPersistence;
+        
+        @Override
+        public Map<String, List<EventEnvelope>> findPendingSagaEvents() {
+            return pendingSagaEvents;
+        }
+        
+        @Override
+        public void offer(final SagaEvent sagaEvent) {
+            sagaPersistence.offer(sagaEvent);
+        }
+    }
+}
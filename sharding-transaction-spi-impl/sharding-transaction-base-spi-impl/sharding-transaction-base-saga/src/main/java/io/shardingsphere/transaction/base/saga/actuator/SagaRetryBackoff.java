@@ -0,0 +1,55 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.shardingsphere.transaction.base.saga.actuator;
+
+import lombok.RequiredArgsConstructor;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Saga retry backoff.
+ *
+ * <p>
+ * Exponential backoff with decorrelated jitter, next delay is random between base delay and three times of previous delay, capped by max delay.
+ * Retries of sagas failed together are spread out instead of hitting recovering data source in lockstep.
+ * </p>
+ *
+ * @author zhaojun
+ */
+@RequiredArgsConstructor
+public final class SagaRetryBackoff {
+    
+    private final long baseDelayMilliseconds;
+    
+    private final long maxDelayMilliseconds;
+    
+    /**
+     * Calculate next retry delay.
+     *
+     * @param previousDelayMilliseconds previous retry delay milliseconds, 0 for first retry
+     * @return next retry delay milliseconds, 0 if backoff is disabled
+     */
+    public long nextDelay(final long previousDelayMilliseconds) {
+        if (0 >= baseDelayMilliseconds) {
+            return 0L;
+        }
+        long upperBound = Math.max(baseDelayMilliseconds, previousDelayMilliseconds) * 3;
+        long result = baseDelayMilliseconds + (long) (ThreadLocalRandom.current().nextDouble() * (upperBound - baseDelayMilliseconds));
+        return Math.min(maxDelayMilliseconds, result);
+    }
+}
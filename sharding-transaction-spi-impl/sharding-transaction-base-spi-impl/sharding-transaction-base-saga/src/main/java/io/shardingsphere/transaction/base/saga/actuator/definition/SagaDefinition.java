@@ -33,6 +33,8 @@ import java.util.Collection;
 @RequiredArgsConstructor
 public class SagaDefinition {
     
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+    
     private final String policy;
     
     private final Collection<SagaRequest> requests;
@@ -44,6 +46,6 @@ public class SagaDefinition {
      */
     @SneakyThrows
     public String toJson() {
-        return new ObjectMapper().writeValueAsString(this);
+        return OBJECT_MAPPER.writeValueAsString(this);
     }
 }
@@ -19,15 +19,21 @@ package io.shardingsphere.transaction.base.saga.actuator.definition;
 
 import com.google.common.collect.Lists;
 import io.shardingsphere.transaction.base.context.BranchTransaction;
+import io.shardingsphere.transaction.base.context.ExecuteStatus;
 import io.shardingsphere.transaction.base.context.LogicSQLTransaction;
 import io.shardingsphere.transaction.base.context.TransactionContext;
 import io.shardingsphere.transaction.base.saga.config.SagaConfiguration;
 import lombok.AccessLevel;
+import lombok.EqualsAndHashCode;
 import lombok.RequiredArgsConstructor;
 import org.apache.servicecomb.saga.core.RecoveryPolicy;
 
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.LinkedList;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * Saga definition factory.
@@ -44,35 +50,70 @@ public final class SagaDefinitionFactory {
     /**
      * New instance of saga definition.
      *
+     * <p>
+     * Branch transaction depends only on branch transactions of the latest previous logic SQL which touched the same logic table in the same data source,
+     * so branch transactions of independent logic SQLs are executed and compensated in parallel.
+     * SQL of branch transaction is kept only if it should be executed again, which is failed branch transaction of forward recovery,
+     * so saga recovered after crash never executes SQL already executed by application.
+     * </p>
+     *
      * @param recoveryPolicy recovery policy
      * @param configuration configuration
      * @param transactionContext transaction context
      * @return saga definition
      */
     public static SagaDefinition newInstance(final String recoveryPolicy, final SagaConfiguration configuration, final TransactionContext transactionContext) {
+        return newInstance(recoveryPolicy, configuration, transactionContext.getLogicSQLTransactions());
+    }
+    
+    /**
+     * New instance of saga definition with part of logic SQL transactions, such as logic SQL transactions after savepoint.
+     *
+     * @param recoveryPolicy recovery policy
+     * @param configuration configuration
+     * @param logicSQLTransactions logic SQL transactions
+     * @return saga definition
+     */
+    public static SagaDefinition newInstance(final String recoveryPolicy, final SagaConfiguration configuration, final Collection<LogicSQLTransaction> logicSQLTransactions) {
         Collection<SagaRequest> sagaRequests = new LinkedList<>();
-        Collection<String> requestIds = new LinkedList<>();
-        for (LogicSQLTransaction each : transactionContext.getLogicSQLTransactions()) {
-            requestIds = addLogicSQLTransactionRequest(new LinkedList<>(requestIds), sagaRequests, each, configuration);
+        Map<ConflictKey, Collection<String>> latestRequestIds = new HashMap<>();
+        Set<String> leafRequestIds = new LinkedHashSet<>();
+        for (LogicSQLTransaction each : logicSQLTransactions) {
+            addLogicSQLTransactionRequest(sagaRequests, each, latestRequestIds, leafRequestIds, recoveryPolicy, configuration);
         }
         if (RecoveryPolicy.SAGA_BACKWARD_RECOVERY_POLICY.equals(recoveryPolicy)) {
-            sagaRequests.add(newRollbackRequest(new LinkedList<>(requestIds), configuration));
+            sagaRequests.add(newRollbackRequest(new LinkedList<>(leafRequestIds), configuration));
         }
         return new SagaDefinition(recoveryPolicy, sagaRequests);
     }
     
-    private static Collection<String> addLogicSQLTransactionRequest(final Collection<String> parentsIds, final Collection<SagaRequest> sagaRequests,
-                                                                    final LogicSQLTransaction logicSQLTransaction, final SagaConfiguration configuration) {
-        Collection<String> result = new LinkedList<>();
+    private static void addLogicSQLTransactionRequest(final Collection<SagaRequest> sagaRequests, final LogicSQLTransaction logicSQLTransaction,
+                                                      final Map<ConflictKey, Collection<String>> latestRequestIds, final Set<String> leafRequestIds,
+                                                      final String recoveryPolicy, final SagaConfiguration configuration) {
+        Map<ConflictKey, Collection<String>> currentRequestIds = new HashMap<>();
         for (BranchTransaction each : logicSQLTransaction.getBranchTransactions()) {
-            sagaRequests.add(newSagaRequest(parentsIds, each, configuration));
-            result.add(each.getBranchId());
+            ConflictKey conflictKey = new ConflictKey(each.getDataSourceName(), logicSQLTransaction.getLogicTableName());
+            Collection<String> parentsIds = latestRequestIds.containsKey(conflictKey) ? new LinkedList<>(latestRequestIds.get(conflictKey)) : new LinkedList<String>();
+            sagaRequests.add(newSagaRequest(parentsIds, each, isExecuteTransaction(recoveryPolicy, each), configuration));
+            leafRequestIds.removeAll(parentsIds);
+            leafRequestIds.add(each.getBranchId());
+            Collection<String> requestIds = currentRequestIds.get(conflictKey);
+            if (null == requestIds) {
+                requestIds = new LinkedList<>();
+                currentRequestIds.put(conflictKey, requestIds);
+            }
+            requestIds.add(each.getBranchId());
         }
-        return result;
+        latestRequestIds.putAll(currentRequestIds);
+    }
+    
+    private static boolean isExecuteTransaction(final String recoveryPolicy, final BranchTransaction branch) {
+        return RecoveryPolicy.SAGA_FORWARD_RECOVERY_POLICY.equals(recoveryPolicy) && ExecuteStatus.FAILURE.equals(branch.getExecuteStatus());
     }
     
-    private static SagaRequest newSagaRequest(final Collection<String> parentsIds, final BranchTransaction branch, final SagaConfiguration configuration) {
-        SagaSQLUnit transaction = new SagaSQLUnit(branch.getSql(), branch.getParameters(), configuration.getTransactionMaxRetries());
+    private static SagaRequest newSagaRequest(final Collection<String> parentsIds, final BranchTransaction branch, final boolean executeTransaction, final SagaConfiguration configuration) {
+        SagaSQLUnit transaction = executeTransaction ? new SagaSQLUnit(branch.getSql(), branch.getParameters(), configuration.getTransactionMaxRetries())
+            : new SagaSQLUnit("", Lists.<Collection<Object>>newLinkedList(), configuration.getTransactionMaxRetries());
         SagaSQLUnit compensation = new SagaSQLUnit(branch.getRevertSQLResult().getSql(), branch.getRevertSQLResult().getParameters(), configuration.getCompensationMaxRetries());
         return new SagaRequest(branch.getBranchId(), branch.getDataSourceName(), TYPE, transaction, compensation, parentsIds, configuration.getTransactionRetryDelayMilliseconds());
     }
@@ -82,4 +123,13 @@ public final class SagaDefinitionFactory {
         SagaSQLUnit compensation = new SagaSQLUnit(ROLLBACK_TAG, Lists.<Collection<Object>>newLinkedList(), configuration.getCompensationMaxRetries());
         return new SagaRequest(ROLLBACK_TAG, ROLLBACK_TAG, TYPE, transaction, compensation, parentsIds, configuration.getTransactionRetryDelayMilliseconds());
     }
+    
+    @RequiredArgsConstructor
+    @EqualsAndHashCode
+    private static final class ConflictKey {
+        
+        private final String dataSourceName;
+        
+        private final String logicTableName;
+    }
 }
@@ -0,0 +1,111 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.shardingsphere.transaction.base.saga.actuator.definition;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.base.Preconditions;
+import io.shardingsphere.transaction.base.saga.actuator.transport.SagaTransportFactory;
+import org.apache.servicecomb.saga.core.application.interpreter.FromJsonFormat;
+import org.apache.servicecomb.saga.format.JacksonFromJsonFormat;
+import org.apache.servicecomb.saga.format.JacksonSqlCompensation;
+import org.apache.servicecomb.saga.format.JacksonSqlSagaRequest;
+import org.apache.servicecomb.saga.format.JacksonSqlTransaction;
+import org.apache.servicecomb.saga.format.JsonSagaDefinition;
+import org.apache.servicecomb.saga.format.JsonSagaRequest;
+import org.apache.servicecomb.saga.transports.TransportFactory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Saga definition format.
+ *
+ * <p>
+ * Saga definition handed over by {@code SagaDefinitionHolder} is built into saga request graph directly without JSON tokens,
+ * other saga requests, such as the ones loaded from persistence during recovery, are parsed from JSON.
+ * Saga request built in memory is bound to transport of its branch transaction, which is found by id of saga request.
+ * </p>
+ *
+ * @author zhaojun
+ */
+public final class SagaDefinitionFormat implements FromJsonFormat<org.apache.servicecomb.saga.core.SagaDefinition> {
+    
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+    
+    private final TransportFactory transportFactory;
+    
+    private final FromJsonFormat<org.apache.servicecomb.saga.core.SagaDefinition> jsonFormat;
+    
+    public SagaDefinitionFormat(final TransportFactory transportFactory) {
+        this.transportFactory = transportFactory;
+        jsonFormat = new JacksonFromJsonFormat(transportFactory);
+    }
+    
+    @Override
+    public org.apache.servicecomb.saga.core.SagaDefinition fromJson(final String requestJson) {
+        if (!SagaDefinitionHolder.IN_MEMORY_REQUEST.equals(requestJson)) {
+            return jsonFormat.fromJson(requestJson);
+        }
+        SagaDefinition sagaDefinition = SagaDefinitionHolder.get();
+        Preconditions.checkState(null != sagaDefinition, "Could not find in-memory saga definition of current thread.");
+        JsonSagaRequest[] requests = new JsonSagaRequest[sagaDefinition.getRequests().size()];
+        int index = 0;
+        for (SagaRequest each : sagaDefinition.getRequests()) {
+            requests[index++] = newJsonSagaRequest(each);
+        }
+        return new JsonSagaDefinition(sagaDefinition.getPolicy(), requests);
+    }
+    
+    private JsonSagaRequest newJsonSagaRequest(final SagaRequest sagaRequest) {
+        SagaSQLUnit transaction = sagaRequest.getTransaction();
+        SagaSQLUnit compensation = sagaRequest.getCompensation();
+        JsonSagaRequest result = new JacksonSqlSagaRequest(sagaRequest.getId(), sagaRequest.getDatasource(), sagaRequest.getType(),
+            new JacksonSqlTransaction(transaction.getSql(), toJsonParameters(transaction.getParams()), transaction.getRetries()),
+            new JacksonSqlCompensation(compensation.getSql(), toJsonParameters(compensation.getParams()), compensation.getRetries()),
+            null, sagaRequest.getParents().toArray(new String[sagaRequest.getParents().size()]), sagaRequest.getFailRetryDelayMilliseconds());
+        result.with(getTransportFactory(sagaRequest.getId()));
+        return result;
+    }
+    
+    private TransportFactory getTransportFactory(final String branchId) {
+        return transportFactory instanceof SagaTransportFactory ? ((SagaTransportFactory) transportFactory).getBranchTransportFactory(branchId) : transportFactory;
+    }
+    
+    private List<List<String>> toJsonParameters(final List<Collection<Object>> params) {
+        List<List<String>> result = new ArrayList<>(params.size());
+        for (Collection<Object> each : params) {
+            List<String> parameters = new ArrayList<>(each.size());
+            for (Object parameter : each) {
+                parameters.add(toJsonParameter(parameter));
+            }
+            result.add(parameters);
+        }
+        return result;
+    }
+    
+    private String toJsonParameter(final Object parameter) {
+        if (null == parameter || parameter instanceof String) {
+            return (String) parameter;
+        }
+        if (parameter instanceof Number || parameter instanceof Boolean || parameter instanceof Character) {
+            return String.valueOf(parameter);
+        }
+        return OBJECT_MAPPER.convertValue(parameter, String.class);
+    }
+}
@@ -0,0 +1,55 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.shardingsphere.transaction.base.saga.actuator.definition;
+
+/**
+ * Saga definition holder, which hands saga definition over to saga actuator of current thread without JSON.
+ *
+ * @author zhaojun
+ */
+public final class SagaDefinitionHolder {
+    
+    public static final String IN_MEMORY_REQUEST = "in-memory-saga-definition";
+    
+    private static final ThreadLocal<SagaDefinition> SAGA_DEFINITION = new ThreadLocal<>();
+    
+    /**
+     * Get saga definition of current thread.
+     *
+     * @return saga definition
+     */
+    public static SagaDefinition get() {
+        return SAGA_DEFINITION.get();
+    }
+    
+    /**
+     * Set saga definition.
+     *
+     * @param sagaDefinition saga definition
+     */
+    public static void set(final SagaDefinition sagaDefinition) {
+        SAGA_DEFINITION.set(sagaDefinition);
+    }
+    
+    /**
+     * Clear saga definition.
+     */
+    public static void clear() {
+        SAGA_DEFINITION.remove();
+    }
+}
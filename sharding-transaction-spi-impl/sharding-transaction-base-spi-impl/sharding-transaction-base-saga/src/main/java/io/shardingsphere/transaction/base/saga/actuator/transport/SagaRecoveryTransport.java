@@ -0,0 +1,88 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.shardingsphere.transaction.base.saga.actuator.transport;
+
+import com.google.common.base.Strings;
+import io.shardingsphere.transaction.base.saga.actuator.definition.SagaDefinitionFactory;
+import lombok.RequiredArgsConstructor;
+import org.apache.servicecomb.saga.core.SagaResponse;
+import org.apache.servicecomb.saga.core.SuccessfulSagaResponse;
+import org.apache.servicecomb.saga.core.TransportFailedException;
+import org.apache.servicecomb.saga.format.JsonSuccessfulSagaResponse;
+import org.apache.servicecomb.saga.transports.SQLTransport;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Saga recovery transport.
+ *
+ * <p>
+ * Transaction context of crashed transaction is lost, so SQL and parameters persisted in saga definition are executed
+ * on connection of data source found by name.
+ * Only SQLs which are not executed yet are persisted, such as compensation SQL and SQL of failed branch to be retried.
+ * </p>
+ *
+ * @author zhaojun
+ */
+@RequiredArgsConstructor
+public final class SagaRecoveryTransport implements SQLTransport {
+    
+    private final Map<String, DataSource> dataSourceMap;
+    
+    @Override
+    public SagaResponse with(final String datasourceName, final String sql, final List<List<String>> sagaParameters) {
+        if (Strings.isNullOrEmpty(sql)) {
+            return new SuccessfulSagaResponse("Skip empty transaction/compensation");
+        }
+        if (SagaDefinitionFactory.ROLLBACK_TAG.equals(sql)) {
+            throw new TransportFailedException("Forced Rollback tag has been checked, saga will rollback this transaction");
+        }
+        DataSource dataSource = dataSourceMap.get(datasourceName);
+        if (null == dataSource) {
+            throw new TransportFailedException(String.format("Could not find data source `%s` to recover saga", datasourceName));
+        }
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(true);
+            executeSQL(connection, sql, sagaParameters);
+        } catch (final SQLException ex) {
+            throw new TransportFailedException(String.format("Recover SQL `%s` occur exception. dataSourceName:[%s], parameters:[%s]", sql, datasourceName, sagaParameters), ex);
+        }
+        return new JsonSuccessfulSagaResponse("{}");
+    }
+    
+    private void executeSQL(final Connection connection, final String sql, final List<List<String>> sagaParameters) throws SQLException {
+        try (PreparedStatement preparedStatement = connection.prepareStatement(sql)) {
+            if (sagaParameters.isEmpty()) {
+                preparedStatement.executeUpdate();
+                return;
+            }
+            for (List<String> each : sagaParameters) {
+                for (int i = 0; i < each.size(); i++) {
+                    preparedStatement.setObject(i + 1, each.get(i));
+                }
+                preparedStatement.addBatch();
+            }
+            preparedStatement.executeBatch();
+        }
+    }
+}
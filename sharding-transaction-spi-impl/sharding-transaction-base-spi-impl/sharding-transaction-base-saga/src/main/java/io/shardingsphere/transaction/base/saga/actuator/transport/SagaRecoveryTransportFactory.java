@@ -0,0 +1,43 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.shardingsphere.transaction.base.saga.actuator.transport;
+
+import org.apache.servicecomb.saga.transports.SQLTransport;
+import org.apache.servicecomb.saga.transports.TransportFactory;
+
+import javax.sql.DataSource;
+import java.util.Map;
+
+/**
+ * Saga recovery transport factory.
+ *
+ * @author zhaojun
+ */
+public final class SagaRecoveryTransportFactory implements TransportFactory<SQLTransport> {
+    
+    private final SagaRecoveryTransport transport;
+    
+    public SagaRecoveryTransportFactory(final Map<String, DataSource> dataSourceMap) {
+        transport = new SagaRecoveryTransport(dataSourceMap);
+    }
+    
+    @Override
+    public SQLTransport getTransport() {
+        return transport;
+    }
+}
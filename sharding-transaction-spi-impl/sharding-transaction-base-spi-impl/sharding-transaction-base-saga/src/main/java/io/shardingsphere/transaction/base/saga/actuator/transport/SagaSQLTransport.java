@@ -19,27 +19,54 @@ package io.shardingsphere.transaction.base.saga.actuator.transport;
 
 import com.google.common.base.Optional;
 import com.google.common.base.Strings;
-import com.google.common.collect.Lists;
 import io.shardingsphere.transaction.base.saga.actuator.definition.SagaDefinitionFactory;
 import io.shardingsphere.transaction.base.context.ExecuteStatus;
 import io.shardingsphere.transaction.base.context.BranchTransaction;
+import io.shardingsphere.transaction.base.context.LogicSQLTransaction;
 import io.shardingsphere.transaction.base.context.TransactionContext;
+import io.shardingsphere.transaction.base.hook.revert.RevertSQLResult;
+import io.shardingsphere.transaction.base.hook.revert.RevertSQLUnit;
+import io.shardingsphere.transaction.base.saga.actuator.SagaCircuitBreaker;
 import lombok.RequiredArgsConstructor;
 import org.apache.servicecomb.saga.core.SagaResponse;
 import org.apache.servicecomb.saga.core.SuccessfulSagaResponse;
 import org.apache.servicecomb.saga.core.TransportFailedException;
 import org.apache.servicecomb.saga.format.JsonSuccessfulSagaResponse;
 import org.apache.servicecomb.saga.transports.SQLTransport;
+import org.apache.shardingsphere.core.exception.ShardingException;
 import org.apache.shardingsphere.transaction.core.TransactionOperationType;
 
+import java.math.BigDecimal;
 import java.sql.Connection;
+import java.sql.Date;
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
 
 /**
  * Saga SQL transport.
  *
+ * <p>
+ * Transport is bound to the branch transaction of its saga request by branch id, which is also id of saga request.
+ * Parameters passed by saga are not used, SQL is executed with original typed parameters of branch transaction and bound with typed setters.
+ * Branch transaction which could not be found fails the saga request, so SQL never succeeds without being executed.
+ * Compensations of sibling branch transactions with same data source and revert SQL are coalesced into one batch,
+ * set based revert SQL is executed statement by statement while it is generated from undo data.
+ * Revert SQLs of one compensation are executed in one local transaction of the data source, so a failed compensation leaves nothing reverted partially.
+ * SQL of one data source is executed only in permits of saga bulkhead, saturated data source fails the branch to be retried later.
+ * Executor threads never wait for circuit or backoff: branches of data source with open circuit fail fast,
+ * failed branches are not executed again until jittered backoff elapsed, retries before that fail fast and are left to saga.
+ * </p>
+ *
  * @author yangyi
  */
 @RequiredArgsConstructor
@@ -47,6 +74,8 @@ public final class SagaSQLTransport implements SQLTransport {
     
     private final TransactionContext transactionContext;
     
+    private final String branchId;
+    
     @Override
     public SagaResponse with(final String datasourceName, final String sql, final List<List<String>> sagaParameters) {
         if (Strings.isNullOrEmpty(sql)) {
@@ -56,56 +85,254 @@ public final class SagaSQLTransport implements SQLTransport {
             transactionContext.changeAllLogicTransactionStatus(ExecuteStatus.COMPENSATING);
             throw new TransportFailedException("Forced Rollback tag has been checked, saga will rollback this transaction");
         }
-        Optional<BranchTransaction> branchTransaction = transactionContext.findBranchTransaction(datasourceName, sql, sagaParameters);
-        return branchTransaction.isPresent() && isExecuteSQL(branchTransaction.get().getExecuteStatus()) ? executeSQL(datasourceName, sql, sagaParameters) : new JsonSuccessfulSagaResponse("{}");
+        Optional<BranchTransaction> branchTransaction = transactionContext.findBranchTransaction(branchId);
+        if (!branchTransaction.isPresent()) {
+            throw new TransportFailedException(String.format("Could not find branch transaction `%s` of SQL `%s` in data source `%s`", branchId, sql, datasourceName));
+        }
+        if (!isExecuteSQL(branchTransaction.get(), sql)) {
+            return new JsonSuccessfulSagaResponse("{}");
+        }
+        return executeBranch(datasourceName, sql, branchTransaction.get());
+    }
+    
+    private boolean isExecuteSQL(final BranchTransaction branchTransaction, final String sql) {
+        ExecuteStatus executeStatus = branchTransaction.getExecuteStatus();
+        if (ExecuteStatus.COMPENSATING.equals(executeStatus)) {
+            return sql.equals(branchTransaction.getRevertSQLResult().getSql());
+        }
+        return TransactionOperationType.COMMIT.equals(transactionContext.getOperationType()) && ExecuteStatus.FAILURE.equals(executeStatus) && sql.equals(branchTransaction.getSql());
+    }
+    
+    private SagaResponse executeBranch(final String datasourceName, final String sql, final BranchTransaction branchTransaction) {
+        if (System.currentTimeMillis() < branchTransaction.getNextRetryTimeMillis()) {
+            throw new TransportFailedException(String.format("Saga branch of data source `%s` is backing off, retry later", datasourceName));
+        }
+        try {
+            SagaResponse result = executeBranchInBulkhead(datasourceName, sql, branchTransaction);
+            branchTransaction.setRetryCount(0);
+            branchTransaction.setRetryDelayMilliseconds(0L);
+            branchTransaction.setNextRetryTimeMillis(0L);
+            return result;
+        } catch (final TransportFailedException ex) {
+            backOff(branchTransaction);
+            throw ex;
+        }
+    }
+    
+    private void backOff(final BranchTransaction branchTransaction) {
+        long retryDelayMilliseconds = transactionContext.getRetryBackoff().nextDelay(branchTransaction.getRetryDelayMilliseconds());
+        branchTransaction.setRetryCount(branchTransaction.getRetryCount() + 1);
+        branchTransaction.setRetryDelayMilliseconds(retryDelayMilliseconds);
+        branchTransaction.setNextRetryTimeMillis(0 < retryDelayMilliseconds ? System.currentTimeMillis() + retryDelayMilliseconds : 0L);
+    }
+    
+    private SagaResponse executeBranchInBulkhead(final String datasourceName, final String sql, final BranchTransaction branchTransaction) {
+        acquireBulkhead(datasourceName);
+        try {
+            if (!transactionContext.getCircuitBreaker().tryPass(datasourceName)) {
+                throw new TransportFailedException(String.format("Saga circuit of data source `%s` is open, retry later", datasourceName));
+            }
+            return executeBranchInCircuit(datasourceName, sql, branchTransaction);
+        } finally {
+            transactionContext.getBulkhead().release(datasourceName);
+        }
+    }
+    
+    private void acquireBulkhead(final String datasourceName) {
+        try {
+            if (!transactionContext.getBulkhead().tryAcquire(datasourceName)) {
+                throw new TransportFailedException(String.format("Data source `%s` is saturated by saga executions, retry later", datasourceName));
+            }
+        } catch (final InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new TransportFailedException(String.format("Interrupted while waiting for data source `%s`", datasourceName), ex);
+        }
+    }
+    
+    private SagaResponse executeBranchInCircuit(final String datasourceName, final String sql, final BranchTransaction branchTransaction) {
+        SagaCircuitBreaker circuitBreaker = transactionContext.getCircuitBreaker();
+        if (0 < branchTransaction.getRetryCount()) {
+            circuitBreaker.onRetry(datasourceName);
+        }
+        try {
+            SagaResponse result = ExecuteStatus.COMPENSATING.equals(branchTransaction.getExecuteStatus())
+                ? executeRevertSQL(datasourceName, branchTransaction) : executeSQL(datasourceName, sql, branchTransaction.getParameters());
+            circuitBreaker.onSuccess(datasourceName);
+            return result;
+        } catch (final RuntimeException ex) {
+            circuitBreaker.onFailure(datasourceName);
+            throw ex;
+        }
+    }
+    
+    private SagaResponse executeRevertSQL(final String datasourceName, final BranchTransaction branchTransaction) {
+        Optional<LogicSQLTransaction> logicSQLTransaction = transactionContext.findLogicSQLTransaction(branchTransaction);
+        Object lock = logicSQLTransaction.isPresent() ? logicSQLTransaction.get().getCompensationLock(datasourceName, branchTransaction.getRevertSQLResult().getSql()) : branchTransaction;
+        synchronized (lock) {
+            if (ExecuteStatus.COMPENSATED.equals(branchTransaction.getExecuteStatus())) {
+                return new JsonSuccessfulSagaResponse("{}");
+            }
+            Collection<BranchTransaction> branchTransactions = logicSQLTransaction.isPresent()
+                ? findCoalescingBranchTransactions(logicSQLTransaction.get(), datasourceName, branchTransaction) : Collections.singletonList(branchTransaction);
+            executeRevertSQLInLocalTransaction(datasourceName, branchTransactions);
+            for (BranchTransaction each : branchTransactions) {
+                each.setExecuteStatus(ExecuteStatus.COMPENSATED);
+            }
+        }
+        return new JsonSuccessfulSagaResponse("{}");
+    }
+    
+    private Collection<BranchTransaction> findCoalescingBranchTransactions(final LogicSQLTransaction logicSQLTransaction, final String datasourceName, final BranchTransaction branchTransaction) {
+        Collection<BranchTransaction> result = new LinkedList<>();
+        result.add(branchTransaction);
+        String revertSQL = branchTransaction.getRevertSQLResult().getSql();
+        for (BranchTransaction each : logicSQLTransaction.getBranchTransactions()) {
+            if (each != branchTransaction && ExecuteStatus.COMPENSATING.equals(each.getExecuteStatus()) && datasourceName.equals(each.getDataSourceName())
+                && null != each.getRevertSQLResult() && revertSQL.equals(each.getRevertSQLResult().getSql())) {
+                result.add(each);
+            }
+        }
+        return result;
+    }
+    
+    private void executeRevertSQLInLocalTransaction(final String datasourceName, final Collection<BranchTransaction> branchTransactions) {
+        Connection connection = getConnection(datasourceName, false);
+        try {
+            for (Entry<String, List<Collection<Object>>> entry : executeSetBasedRevertSQL(connection, datasourceName, branchTransactions).entrySet()) {
+                executeSQL(connection, datasourceName, entry.getKey(), entry.getValue());
+            }
+            connection.commit();
+        } catch (final SQLException ex) {
+            rollbackQuietly(connection);
+            throw new TransportFailedException(String.format("Commit revert SQL of data source `%s` occur exception", datasourceName), ex);
+        } catch (final TransportFailedException ex) {
+            rollbackQuietly(connection);
+            throw ex;
+        } finally {
+            restoreAutoCommitQuietly(connection);
+            transactionContext.releaseConnection(datasourceName, connection);
+        }
+    }
+    
+    private Map<String, List<Collection<Object>>> executeSetBasedRevertSQL(final Connection connection, final String datasourceName, final Collection<BranchTransaction> branchTransactions) {
+        Map<String, List<Collection<Object>>> result = new LinkedHashMap<>();
+        for (BranchTransaction each : branchTransactions) {
+            RevertSQLResult revertSQLResult = each.getRevertSQLResult();
+            Iterator<RevertSQLUnit> setBasedSQLUnits = revertSQLResult.getSetBasedSQLUnits();
+            if (!setBasedSQLUnits.hasNext()) {
+                addRevertSQL(result, revertSQLResult.getSql(), revertSQLResult.getParameters());
+            }
+            while (setBasedSQLUnits.hasNext()) {
+                RevertSQLUnit revertSQLUnit = setBasedSQLUnits.next();
+                executeSQL(connection, datasourceName, revertSQLUnit.getSql(), revertSQLUnit.getParameters());
+            }
+        }
+        return result;
     }
     
-    private boolean isExecuteSQL(final ExecuteStatus executeStatus) {
-        return ExecuteStatus.COMPENSATING.equals(executeStatus) ||
-            (TransactionOperationType.COMMIT.equals(transactionContext.getOperationType()) && ExecuteStatus.FAILURE.equals(executeStatus));
+    private void addRevertSQL(final Map<String, List<Collection<Object>>> revertSQLs, final String sql, final List<Collection<Object>> parameters) {
+        List<Collection<Object>> parameterSets = revertSQLs.get(sql);
+        if (null == parameterSets) {
+            parameterSets = new LinkedList<>();
+            revertSQLs.put(sql, parameterSets);
+        }
+        parameterSets.addAll(parameters);
     }
     
-    private SagaResponse executeSQL(final String datasourceName, final String sql, final List<List<String>> sagaParameters) {
-        List<List<Object>> sqlParameters = convertSagaParameters(sagaParameters);
-        try (PreparedStatement preparedStatement = getConnection(datasourceName).prepareStatement(sql)) {
+    private SagaResponse executeSQL(final String datasourceName, final String sql, final List<Collection<Object>> sqlParameters) {
+        Connection connection = getConnection(datasourceName, true);
+        try {
+            executeSQL(connection, datasourceName, sql, sqlParameters);
+        } finally {
+            transactionContext.releaseConnection(datasourceName, connection);
+        }
+        return new JsonSuccessfulSagaResponse("{}");
+    }
+    
+    private void executeSQL(final Connection connection, final String datasourceName, final String sql, final List<Collection<Object>> sqlParameters) {
+        try (PreparedStatement preparedStatement = connection.prepareStatement(sql)) {
             if (sqlParameters.isEmpty()) {
                 preparedStatement.executeUpdate();
             } else {
                 executeBatch(preparedStatement, sqlParameters);
             }
         } catch (SQLException ex) {
-            throw new TransportFailedException(String.format("Execute SQL `%s` occur exception. dataSourceName:[%s], parameters:[%s]", sql, datasourceName, sagaParameters), ex);
+            throw new TransportFailedException(String.format("Execute SQL `%s` occur exception. dataSourceName:[%s], parameters:[%s]", sql, datasourceName, sqlParameters), ex);
         }
-        return new JsonSuccessfulSagaResponse("{}");
     }
     
-    private Connection getConnection(final String datasourceName) {
+    private Connection getConnection(final String datasourceName, final boolean autoCommit) {
+        Connection result;
+        try {
+            result = transactionContext.acquireConnection(datasourceName);
+        } catch (final ShardingException ex) {
+            throw new TransportFailedException(String.format("Acquire connection of data source name `%s` occur exception: ", datasourceName), ex);
+        }
         try {
-            Connection result = transactionContext.getCachedConnections().get(datasourceName);
-            if (!result.getAutoCommit()) {
-                result.setAutoCommit(true);
+            if (autoCommit != result.getAutoCommit()) {
+                result.setAutoCommit(autoCommit);
             }
             return result;
         } catch (final SQLException ex) {
+            transactionContext.releaseConnection(datasourceName, result);
             throw new TransportFailedException(String.format("Get connection of data source name `%s` occur exception: ", datasourceName), ex);
         }
     }
     
-    private List<List<Object>> convertSagaParameters(final List<List<String>> sagaParameters) {
-        List<List<Object>> result = Lists.newArrayList();
-        for (List<String> each : sagaParameters) {
-            result.add(Lists.<Object>newArrayList(each));
+    private void rollbackQuietly(final Connection connection) {
+        try {
+            connection.rollback();
+        } catch (final SQLException ignored) {
+            // uncommitted revert SQL is discarded when connection closed
         }
-        return result;
     }
     
-    private void executeBatch(final PreparedStatement preparedStatement, final List<List<Object>> parameterSets) throws SQLException {
-        for (List<Object> each : parameterSets) {
-            for (int parameterIndex = 0; parameterIndex < each.size(); parameterIndex++) {
-                preparedStatement.setObject(parameterIndex + 1, each.get(parameterIndex));
+    private void restoreAutoCommitQuietly(final Connection connection) {
+        try {
+            connection.setAutoCommit(true);
+        } catch (final SQLException ignored) {
+            // broken connection is discarded by connection pool
+        }
+    }
+    
+    private void executeBatch(final PreparedStatement preparedStatement, final List<Collection<Object>> parameterSets) throws SQLException {
+        for (Collection<Object> each : parameterSets) {
+            int parameterIndex = 1;
+            for (Object parameter : each) {
+                setParameter(preparedStatement, parameterIndex++, parameter);
             }
             preparedStatement.addBatch();
         }
         preparedStatement.executeBatch();
     }
+    
+    private void setParameter(final PreparedStatement preparedStatement, final int parameterIndex, final Object parameter) throws SQLException {
+        if (parameter instanceof Long) {
+            preparedStatement.setLong(parameterIndex, (Long) parameter);
+        } else if (parameter instanceof Integer) {
+            preparedStatement.setInt(parameterIndex, (Integer) parameter);
+        } else if (parameter instanceof Short) {
+            preparedStatement.setShort(parameterIndex, (Short) parameter);
+        } else if (parameter instanceof String) {
+            preparedStatement.setString(parameterIndex, (String) parameter);
+        } else if (parameter instanceof BigDecimal) {
+            preparedStatement.setBigDecimal(parameterIndex, (BigDecimal) parameter);
+        } else if (parameter instanceof Double) {
+            preparedStatement.setDouble(parameterIndex, (Double) parameter);
+        } else if (parameter instanceof Float) {
+            preparedStatement.setFloat(parameterIndex, (Float) parameter);
+        } else if (parameter instanceof Boolean) {
+            preparedStatement.setBoolean(parameterIndex, (Boolean) parameter);
+        } else if (parameter instanceof Timestamp) {
+            preparedStatement.setTimestamp(parameterIndex, (Timestamp) parameter);
+        } else if (parameter instanceof Date) {
+            preparedStatement.setDate(parameterIndex, (Date) parameter);
+        } else if (parameter instanceof Time) {
+            preparedStatement.setTime(parameterIndex, (Time) parameter);
+        } else if (parameter instanceof byte[]) {
+            preparedStatement.setBytes(parameterIndex, (byte[]) parameter);
+        } else {
+            preparedStatement.setObject(parameterIndex, parameter);
+        }
+    }
 }
@@ -44,6 +44,22 @@ public final class SagaTransportFactory implements TransportFactory<SQLTransport
     
     @Override
     public SQLTransport getTransport() {
-        return new SagaSQLTransport(TransactionContextHolder.get());
+        return new SagaSQLTransport(TransactionContextHolder.get(), null);
+    }
+    
+    /**
+     * Get transport factory of branch transaction.
+     *
+     * @param branchId branch id
+     * @return transport factory of branch transaction
+     */
+    public TransportFactory<SQLTransport> getBranchTransportFactory(final String branchId) {
+        final SQLTransport transport = new SagaSQLTransport(TransactionContextHolder.get(), branchId);
+        return new TransportFactory<SQLTransport>() {
+            @Override
+            public SQLTransport getTransport() {
+                return transport;
+            }
+        };
     }
 }
@@ -31,6 +31,12 @@ public final class SagaConfiguration {
     
     private int executorSize = 5;
     
+    private int executorQueueSize = 1024;
+    
+    private int dataSourceMaxConcurrency;
+    
+    private long dataSourceAcquireTimeoutMilliseconds = 3000;
+    
     private int transactionMaxRetries = 5;
     
     private int compensationMaxRetries = 3;
@@ -39,5 +45,25 @@ public final class SagaConfiguration {
     
     private int compensationRetryDelayMilliseconds = 3000;
     
+    private long retryBackoffBaseMilliseconds = 100;
+    
+    private long retryBackoffMaxMilliseconds = 30000;
+    
+    private int circuitBreakerFailureThreshold = 5;
+    
+    private long circuitBreakerOpenMilliseconds = 10000;
+    
+    private boolean localTransactionEnabled;
+    
+    private int compensationChunkSize = 1000;
+    
+    private long undoDataMaxMemoryBytes = 64 * 1024 * 1024;
+    
+    private int sqlTemplateCacheSize = 1024;
+    
+    private int recoveryFetchSize = 500;
+    
+    private int recoveryBatchSize = 64;
+    
     private SagaPersistenceConfiguration sagaPersistenceConfiguration = new SagaPersistenceConfiguration();
 }
@@ -17,6 +17,7 @@
 
 package io.shardingsphere.transaction.base.saga.config;
 
+import com.google.common.base.Splitter;
 import com.google.common.base.Strings;
 import lombok.SneakyThrows;
 import lombok.extern.slf4j.Slf4j;
@@ -40,6 +41,12 @@ public final class SagaConfigurationLoader {
     
     private static final String EXECUTOR_SIZE = ACTUATOR_PREFIX + "executor.size";
     
+    private static final String EXECUTOR_QUEUE_SIZE = ACTUATOR_PREFIX + "executor.queue.size";
+    
+    private static final String DATASOURCE_MAX_CONCURRENCY = ACTUATOR_PREFIX + "datasource.max.concurrency";
+    
+    private static final String DATASOURCE_ACQUIRE_TIMEOUT_MILLISECONDS = ACTUATOR_PREFIX + "datasource.acquire.timeout.milliseconds";
+    
     private static final String TRANSACTION_MAX_RETRIES = ACTUATOR_PREFIX + "transaction.max.retries";
     
     private static final String COMPENSATION_MAX_RETRIES = ACTUATOR_PREFIX + "compensation.max.retries";
@@ -48,12 +55,66 @@ public final class SagaConfigurationLoader {
     
     private static final String COMPENSATION_RETRY_DELAY_MILLISECONDS = ACTUATOR_PREFIX + "compensation.retry.delay.milliseconds";
     
+    private static final String RETRY_BACKOFF_BASE_MILLISECONDS = ACTUATOR_PREFIX + "retry.backoff.base.milliseconds";
+    
+    private static final String RETRY_BACKOFF_MAX_MILLISECONDS = ACTUATOR_PREFIX + "retry.backoff.max.milliseconds";
+    
+    private static final String CIRCUIT_BREAKER_FAILURE_THRESHOLD = ACTUATOR_PREFIX + "circuit.breaker.failure.threshold";
+    
+    private static final String CIRCUIT_BREAKER_OPEN_MILLISECONDS = ACTUATOR_PREFIX + "circuit.breaker.open.milliseconds";
+    
+    private static final String LOCAL_TRANSACTION_ENABLED = ACTUATOR_PREFIX + "local.transaction.enabled";
+    
+    private static final String COMPENSATION_CHUNK_SIZE = ACTUATOR_PREFIX + "compensation.chunk.size";
+    
+    private static final String UNDO_DATA_MAX_MEMORY_BYTES = ACTUATOR_PREFIX + "undo.data.max.memory.bytes";
+    
+    private static final String SQL_TEMPLATE_CACHE_SIZE = ACTUATOR_PREFIX + "sql.template.cache.size";
+    
+    private static final String RECOVERY_FETCH_SIZE = ACTUATOR_PREFIX + "recovery.fetch.size";
+    
+    private static final String RECOVERY_BATCH_SIZE = ACTUATOR_PREFIX + "recovery.batch.size";
+    
     private static final String ENABLED_PERSISTENCE = "saga.persistence.enabled";
     
+    private static final String PERSISTENCE_EVENT_PREFIX = "saga.persistence.event.";
+    
+    private static final String EVENT_BUFFER_SIZE = PERSISTENCE_EVENT_PREFIX + "buffer.size";
+    
+    private static final String EVENT_BATCH_SIZE = PERSISTENCE_EVENT_PREFIX + "batch.size";
+    
+    private static final String EVENT_FLUSH_INTERVAL_MILLISECONDS = PERSISTENCE_EVENT_PREFIX + "flush.interval.milliseconds";
+    
+    private static final String EVENT_ASYNC = PERSISTENCE_EVENT_PREFIX + "async";
+    
+    private static final String EVENT_COMPACT = PERSISTENCE_EVENT_PREFIX + "compact";
+    
+    private static final String PERSISTENCE_FILE_PREFIX = "saga.persistence.file.";
+    
+    private static final String FILE_DIRECTORY = PERSISTENCE_FILE_PREFIX + "directory";
+    
+    private static final String FILE_SEGMENT_SIZE = PERSISTENCE_FILE_PREFIX + "segment.size";
+    
+    private static final String FILE_FSYNC_POLICY = PERSISTENCE_FILE_PREFIX + "fsync.policy";
+    
+    private static final String FILE_FSYNC_INTERVAL_MILLISECONDS = PERSISTENCE_FILE_PREFIX + "fsync.interval.milliseconds";
+    
+    private static final String PERSISTENCE_RETENTION_PREFIX = "saga.persistence.retention.";
+    
+    private static final String RETENTION_MILLISECONDS = PERSISTENCE_RETENTION_PREFIX + "milliseconds";
+    
+    private static final String RETENTION_BATCH_SIZE = PERSISTENCE_RETENTION_PREFIX + "batch.size";
+    
+    private static final String RETENTION_BATCHES_PER_SECOND = PERSISTENCE_RETENTION_PREFIX + "batches.per.second";
+    
+    private static final String RETENTION_INTERVAL_MILLISECONDS = PERSISTENCE_RETENTION_PREFIX + "interval.milliseconds";
+    
     private static final String PERSISTENCE_DS_PREFIX = "saga.persistence.ds.";
     
     private static final String URL = PERSISTENCE_DS_PREFIX + "url";
     
+    private static final String URLS = PERSISTENCE_DS_PREFIX + "urls";
+    
     private static final String USERNAME = PERSISTENCE_DS_PREFIX + "username";
     
     private static final String PASSWORD = PERSISTENCE_DS_PREFIX + "password";
@@ -97,6 +158,18 @@ public final class SagaConfigurationLoader {
         if (!Strings.isNullOrEmpty(executorSize)) {
             result.setExecutorSize(Integer.parseInt(executorSize));
         }
+        String executorQueueSize = sagaProperties.getProperty(EXECUTOR_QUEUE_SIZE);
+        if (!Strings.isNullOrEmpty(executorQueueSize)) {
+            result.setExecutorQueueSize(Integer.parseInt(executorQueueSize));
+        }
+        String dataSourceMaxConcurrency = sagaProperties.getProperty(DATASOURCE_MAX_CONCURRENCY);
+        if (!Strings.isNullOrEmpty(dataSourceMaxConcurrency)) {
+            result.setDataSourceMaxConcurrency(Integer.parseInt(dataSourceMaxConcurrency));
+        }
+        String dataSourceAcquireTimeoutMilliseconds = sagaProperties.getProperty(DATASOURCE_ACQUIRE_TIMEOUT_MILLISECONDS);
+        if (!Strings.isNullOrEmpty(dataSourceAcquireTimeoutMilliseconds)) {
+            result.setDataSourceAcquireTimeoutMilliseconds(Long.parseLong(dataSourceAcquireTimeoutMilliseconds));
+        }
         String transactionMaxRetries = sagaProperties.getProperty(TRANSACTION_MAX_RETRIES);
         if (!Strings.isNullOrEmpty(transactionMaxRetries)) {
             result.setTransactionMaxRetries(Integer.parseInt(transactionMaxRetries));
@@ -113,6 +186,46 @@ public final class SagaConfigurationLoader {
         if (!Strings.isNullOrEmpty(transactionMaxRetries)) {
             result.setCompensationRetryDelayMilliseconds(Integer.parseInt(compensationRetryDelayMilliseconds));
         }
+        String retryBackoffBaseMilliseconds = sagaProperties.getProperty(RETRY_BACKOFF_BASE_MILLISECONDS);
+        if (!Strings.isNullOrEmpty(retryBackoffBaseMilliseconds)) {
+            result.setRetryBackoffBaseMilliseconds(Long.parseLong(retryBackoffBaseMilliseconds));
+        }
+        String retryBackoffMaxMilliseconds = sagaProperties.getProperty(RETRY_BACKOFF_MAX_MILLISECONDS);
+        if (!Strings.isNullOrEmpty(retryBackoffMaxMilliseconds)) {
+            result.setRetryBackoffMaxMilliseconds(Long.parseLong(retryBackoffMaxMilliseconds));
+        }
+        String circuitBreakerFailureThreshold = sagaProperties.getProperty(CIRCUIT_BREAKER_FAILURE_THRESHOLD);
+        if (!Strings.isNullOrEmpty(circuitBreakerFailureThreshold)) {
+            result.setCircuitBreakerFailureThreshold(Integer.parseInt(circuitBreakerFailureThreshold));
+        }
+        String circuitBreakerOpenMilliseconds = sagaProperties.getProperty(CIRCUIT_BREAKER_OPEN_MILLISECONDS);
+        if (!Strings.isNullOrEmpty(circuitBreakerOpenMilliseconds)) {
+            result.setCircuitBreakerOpenMilliseconds(Long.parseLong(circuitBreakerOpenMilliseconds));
+        }
+        String localTransactionEnabled = sagaProperties.getProperty(LOCAL_TRANSACTION_ENABLED);
+        if (!Strings.isNullOrEmpty(localTransactionEnabled)) {
+            result.setLocalTransactionEnabled(Boolean.parseBoolean(localTransactionEnabled));
+        }
+        String compensationChunkSize = sagaProperties.getProperty(COMPENSATION_CHUNK_SIZE);
+        if (!Strings.isNullOrEmpty(compensationChunkSize)) {
+            result.setCompensationChunkSize(Integer.parseInt(compensationChunkSize));
+        }
+        String undoDataMaxMemoryBytes = sagaProperties.getProperty(UNDO_DATA_MAX_MEMORY_BYTES);
+        if (!Strings.isNullOrEmpty(undoDataMaxMemoryBytes)) {
+            result.setUndoDataMaxMemoryBytes(Long.parseLong(undoDataMaxMemoryBytes));
+        }
+        String sqlTemplateCacheSize = sagaProperties.getProperty(SQL_TEMPLATE_CACHE_SIZE);
+        if (!Strings.isNullOrEmpty(sqlTemplateCacheSize)) {
+            result.setSqlTemplateCacheSize(Integer.parseInt(sqlTemplateCacheSize));
+        }
+        String recoveryFetchSize = sagaProperties.getProperty(RECOVERY_FETCH_SIZE);
+        if (!Strings.isNullOrEmpty(recoveryFetchSize)) {
+            result.setRecoveryFetchSize(Integer.parseInt(recoveryFetchSize));
+        }
+        String recoveryBatchSize = sagaProperties.getProperty(RECOVERY_BATCH_SIZE);
+        if (!Strings.isNullOrEmpty(recoveryBatchSize)) {
+            result.setRecoveryBatchSize(Integer.parseInt(recoveryBatchSize));
+        }
         result.setSagaPersistenceConfiguration(createSagaPersistenceConfiguration(sagaProperties));
         return result;
     }
@@ -124,9 +237,73 @@ public final class SagaConfigurationLoader {
             result.setEnablePersistence(Boolean.parseBoolean(enabledPersistence));
         }
         initPersistenceDataSourceProperties(result, sagaProperties);
+        initEventWriterProperties(result, sagaProperties);
+        initEventLogFileProperties(result, sagaProperties);
+        initRetentionProperties(result, sagaProperties);
         return result;
     }
     
+    private static void initRetentionProperties(final SagaPersistenceConfiguration result, final Properties sagaProperties) {
+        String retentionMilliseconds = sagaProperties.getProperty(RETENTION_MILLISECONDS);
+        if (!Strings.isNullOrEmpty(retentionMilliseconds)) {
+            result.setRetentionMilliseconds(Long.parseLong(retentionMilliseconds));
+        }
+        String retentionBatchSize = sagaProperties.getProperty(RETENTION_BATCH_SIZE);
+        if (!Strings.isNullOrEmpty(retentionBatchSize)) {
+            result.setRetentionBatchSize(Integer.parseInt(retentionBatchSize));
+        }
+        String retentionBatchesPerSecond = sagaProperties.getProperty(RETENTION_BATCHES_PER_SECOND);
+        if (!Strings.isNullOrEmpty(retentionBatchesPerSecond)) {
+            result.setRetentionBatchesPerSecond(Double.parseDouble(retentionBatchesPerSecond));
+        }
+        String retentionIntervalMilliseconds = sagaProperties.getProperty(RETENTION_INTERVAL_MILLISECONDS);
+        if (!Strings.isNullOrEmpty(retentionIntervalMilliseconds)) {
+            result.setRetentionIntervalMilliseconds(Long.parseLong(retentionIntervalMilliseconds));
+        }
+    }
+    
+    private static void initEventLogFileProperties(final SagaPersistenceConfiguration result, final Properties sagaProperties) {
+        String fileDirectory = sagaProperties.getProperty(FILE_DIRECTORY);
+        if (!Strings.isNullOrEmpty(fileDirectory)) {
+            result.setFileDirectory(fileDirectory);
+        }
+        String fileSegmentSize = sagaProperties.getProperty(FILE_SEGMENT_SIZE);
+        if (!Strings.isNullOrEmpty(fileSegmentSize)) {
+            result.setFileSegmentSize(Integer.parseInt(fileSegmentSize));
+        }
+        String fileFsyncPolicy = sagaProperties.getProperty(FILE_FSYNC_POLICY);
+        if (!Strings.isNullOrEmpty(fileFsyncPolicy)) {
+            result.setFileFsyncPolicy(fileFsyncPolicy.toUpperCase());
+        }
+        String fileFsyncIntervalMilliseconds = sagaProperties.getProperty(FILE_FSYNC_INTERVAL_MILLISECONDS);
+        if (!Strings.isNullOrEmpty(fileFsyncIntervalMilliseconds)) {
+            result.setFileFsyncIntervalMilliseconds(Long.parseLong(fileFsyncIntervalMilliseconds));
+        }
+    }
+    
+    private static void initEventWriterProperties(final SagaPersistenceConfiguration result, final Properties sagaProperties) {
+        String eventBufferSize = sagaProperties.getProperty(EVENT_BUFFER_SIZE);
+        if (!Strings.isNullOrEmpty(eventBufferSize)) {
+            result.setEventBufferSize(Integer.parseInt(eventBufferSize));
+        }
+        String eventBatchSize = sagaProperties.getProperty(EVENT_BATCH_SIZE);
+        if (!Strings.isNullOrEmpty(eventBatchSize)) {
+            result.setEventBatchSize(Integer.parseInt(eventBatchSize));
+        }
+        String eventFlushIntervalMilliseconds = sagaProperties.getProperty(EVENT_FLUSH_INTERVAL_MILLISECONDS);
+        if (!Strings.isNullOrEmpty(eventFlushIntervalMilliseconds)) {
+            result.setEventFlushIntervalMilliseconds(Long.parseLong(eventFlushIntervalMilliseconds));
+        }
+        String eventAsync = sagaProperties.getProperty(EVENT_ASYNC);
+        if (!Strings.isNullOrEmpty(eventAsync)) {
+            result.setEventAsync(Boolean.parseBoolean(eventAsync));
+        }
+        String eventCompact = sagaProperties.getProperty(EVENT_COMPACT);
+        if (!Strings.isNullOrEmpty(eventCompact)) {
+            result.setEventCompact(Boolean.parseBoolean(eventCompact));
+        }
+    }
+    
     private static void initPersistenceDataSourceProperties(final SagaPersistenceConfiguration result, final Properties sagaProperties) {
         initCommonDataSourceProperties(result, sagaProperties);
         initHikariPoolProperties(result, sagaProperties);
@@ -137,6 +314,10 @@ public final class SagaConfigurationLoader {
         if (null != url) {
             result.setUrl(url);
         }
+        String urls = sagaProperties.getProperty(URLS);
+        if (!Strings.isNullOrEmpty(urls)) {
+            result.setUrls(Splitter.on(',').trimResults().omitEmptyStrings().splitToList(urls));
+        }
         String username = sagaProperties.getProperty(USERNAME);
         if (null != username) {
             result.setUsername(username);
@@ -20,6 +20,9 @@ package io.shardingsphere.transaction.base.saga.config;
 import lombok.Getter;
 import lombok.Setter;
 
+import java.util.Collections;
+import java.util.List;
+
 /**
  * Saga persistence configuration.
  *
@@ -41,10 +44,34 @@ public class SagaPersistenceConfiguration {
     
     private static final int DEFAULT_MIN_POOL_SIZE = 1;
     
+    private static final int DEFAULT_EVENT_BUFFER_SIZE = 4096;
+    
+    private static final int DEFAULT_EVENT_BATCH_SIZE = 100;
+    
+    private static final long DEFAULT_EVENT_FLUSH_INTERVAL_MILLISECONDS = 0;
+    
+    private static final String DEFAULT_FILE_DIRECTORY = "saga-event-log";
+    
+    private static final int DEFAULT_FILE_SEGMENT_SIZE = 64 * 1024 * 1024;
+    
+    private static final String DEFAULT_FILE_FSYNC_POLICY = "INTERVAL";
+    
+    private static final long DEFAULT_FILE_FSYNC_INTERVAL_MILLISECONDS = 50;
+    
+    private static final long DEFAULT_RETENTION_MILLISECONDS = 0;
+    
+    private static final int DEFAULT_RETENTION_BATCH_SIZE = 500;
+    
+    private static final double DEFAULT_RETENTION_BATCHES_PER_SECOND = 10;
+    
+    private static final long DEFAULT_RETENTION_INTERVAL_MILLISECONDS = 60 * 1000;
+    
     private boolean enablePersistence;
     
     private String url;
     
+    private List<String> urls = Collections.emptyList();
+    
     private String username;
     
     private String password;
@@ -60,4 +87,30 @@ public class SagaPersistenceConfiguration {
     private int minPoolSize = DEFAULT_MIN_POOL_SIZE;
     
     private long maintenanceIntervalMilliseconds = DEFAULT_MAINTENANCE_INTERVAL_MILLISECONDS;
+    
+    private int eventBufferSize = DEFAULT_EVENT_BUFFER_SIZE;
+    
+    private int eventBatchSize = DEFAULT_EVENT_BATCH_SIZE;
+    
+    private long eventFlushIntervalMilliseconds = DEFAULT_EVENT_FLUSH_INTERVAL_MILLISECONDS;
+    
+    private boolean eventAsync;
+    
+    private boolean eventCompact;
+    
+    private String fileDirectory = DEFAULT_FILE_DIRECTORY;
+    
+    private int fileSegmentSize = DEFAULT_FILE_SEGMENT_SIZE;
+    
+    private String fileFsyncPolicy = DEFAULT_FILE_FSYNC_POLICY;
+    
+    private long fileFsyncIntervalMilliseconds = DEFAULT_FILE_FSYNC_INTERVAL_MILLISECONDS;
+    
+    private long retentionMilliseconds = DEFAULT_RETENTION_MILLISECONDS;
+    
+    private int retentionBatchSize = DEFAULT_RETENTION_BATCH_SIZE;
+    
+    private double retentionBatchesPerSecond = DEFAULT_RETENTION_BATCHES_PER_SECOND;
+    
+    private long retentionIntervalMilliseconds = DEFAULT_RETENTION_INTERVAL_MILLISECONDS;
 }
@@ -0,0 +1,218 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.shardingsphere.transaction.base.saga.persistence;
+
+import com.google.common.base.Preconditions;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.SettableFuture;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.servicecomb.saga.core.SagaEvent;
+import org.apache.shardingsphere.core.exception.ShardingException;
+import org.apache.shardingsphere.core.execute.ShardingThreadFactoryBuilder;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Group commit saga event writer.
+ *
+ * <p>
+ * Saga events are buffered in a bounded queue and written by one writer thread, events of one batch are inserted in one transaction.
+ * A batch is flushed when it reaches batch size, or flush interval elapsed since its first event.
+ * If flush interval is 0, batch is flushed as soon as no more event is waiting, so batches only grow while previous batch is writing.
+ * </p>
+ *
+ * <p>
+ * In synchronous mode, {@code offer} returns after the batch of event committed. In asynchronous mode, {@code offer} returns after event buffered.
+ * </p>
+ *
+ * @author zhaojun
+ */
+@Slf4j
+public final class GroupCommitSagaEventWriter implements AutoCloseable {
+    
+    private static final long IDLE_POLL_MILLISECONDS = 100L;
+    
+    private final BatchSagaEventRepository eventRepository;
+    
+    private final BlockingQueue<PendingSagaEvent> pendingEvents;
+    
+    private final int batchSize;
+    
+    private final long flushIntervalNanos;
+    
+    private final boolean async;
+    
+    private final ExecutorService writerExecutor;
+    
+    private volatile boolean closed;
+    
+    public GroupCommitSagaEventWriter(final BatchSagaEventRepository eventRepository, final int bufferSize, final int batchSize, final long flushIntervalMilliseconds, final boolean async) {
+        Preconditions.checkArgument(0 < bufferSize, "Saga event buffer size must be positive.");
+        Preconditions.checkArgument(0 < batchSize, "Saga event batch size must be positive.");
+        Preconditions.checkArgument(0 <= flushIntervalMilliseconds, "Saga event flush interval can not be negative.");
+        this.eventRepository = eventRepository;
+        this.batchSize = batchSize;
+        this.async = async;
+        pendingEvents = new ArrayBlockingQueue<>(bufferSize);
+        flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(flushIntervalMilliseconds);
+        writerExecutor = Executors.newSingleThreadExecutor(ShardingThreadFactoryBuilder.build("SagaEventWriter"));
+        MoreExecutors.addDelayedShutdownHook(writerExecutor, 30, TimeUnit.SECONDS);
+        writerExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                write();
+            }
+        });
+    }
+    
+    /**
+     * Offer saga event.
+     *
+     * <p>
+     * Caller is blocked if buffer is full.
+     * </p>
+     *
+     * @param sagaEvent saga event
+     * @throws ShardingException batch of saga event failed to commit in synchronous mode, throw this exception
+     */
+    public void offer(final SagaEvent sagaEvent) {
+        if (closed) {
+            eventRepository.insert(sagaEvent);
+            return;
+        }
+        PendingSagaEvent pendingEvent = new PendingSagaEvent(sagaEvent);
+        try {
+            pendingEvents.put(pendingEvent);
+            if (closed && pendingEvents.remove(pendingEvent)) {
+                eventRepository.insert(sagaEvent);
+                return;
+            }
+            if (!async) {
+                pendingEvent.getFuture().get();
+            }
+        } catch (final InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            log.warn("Interrupted while persisting saga event", ex);
+        } catch (final ExecutionException ex) {
+            throw new ShardingException("Persist saga event failed", ex);
+        }
+    }
+    
+    private void write() {
+        List<PendingSagaEvent> batch = new ArrayList<>(batchSize);
+        try {
+            while (!closed || !pendingEvents.isEmpty()) {
+                collectBatch(batch);
+                flush(batch);
+                batch.clear();
+            }
+        } catch (final InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            flush(batch);
+        }
+    }
+    
+    private void collectBatch(final List<PendingSagaEvent> batch) throws InterruptedException {
+        PendingSagaEvent first = pendingEvents.poll(IDLE_POLL_MILLISECONDS, TimeUnit.MILLISECONDS);
+        if (null == first) {
+            return;
+        }
+        batch.add(first);
+        long deadline = System.nanoTime() + flushIntervalNanos;
+        while (batch.size() < batchSize) {
+            if (0 < pendingEvents.drainTo(batch, batchSize - batch.size())) {
+                continue;
+            }
+            long remainingNanos = deadline - System.nanoTime();
+            if (0 >= remainingNanos) {
+                return;
+            }
+            PendingSagaEvent next = pendingEvents.poll(remainingNanos, TimeUnit.NANOSECONDS);
+            if (null == next) {
+                return;
+            }
+            batch.add(next);
+        }
+    }
+    
+    private void flush(final List<PendingSagaEvent> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        List<SagaEvent> sagaEvents = new ArrayList<>(batch.size());
+        for (PendingSagaEvent each : batch) {
+            sagaEvents.add(each.getSagaEvent());
+        }
+        try {
+            eventRepository.insert(sagaEvents);
+            for (PendingSagaEvent each : batch) {
+                each.getFuture().set(null);
+            }
+        } catch (final SQLException | RuntimeException ex) {
+            log.warn("Persist {} saga events failed", batch.size(), ex);
+            for (PendingSagaEvent each : batch) {
+                each.getFuture().setException(ex);
+            }
+        }
+    }
+    
+    /**
+     * Flush buffered saga events and stop writer thread.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        writerExecutor.shutdown();
+        try {
+            writerExecutor.awaitTermination(30, TimeUnit.SECONDS);
+        } catch (final InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        List<PendingSagaEvent> remainingEvents = new ArrayList<>();
+        pendingEvents.drainTo(remainingEvents);
+        flush(remainingEvents);
+    }
+    
+    /**
+     * Get count of buffered saga events.
+     *
+     * @return count of buffered saga events
+     */
+    public int getPendingEventCount() {
+        return pendingEvents.size();
+    }
+    
+    @RequiredArgsConstructor
+    @Getter
+    private static final class PendingSagaEvent {
+        
+        private final SagaEvent sagaEvent;
+        
+        private final SettableFuture<Void> future = SettableFuture.create();
+    }
+}
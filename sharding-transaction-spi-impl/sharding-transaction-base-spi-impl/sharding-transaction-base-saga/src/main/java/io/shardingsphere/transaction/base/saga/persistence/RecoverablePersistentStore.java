@@ -0,0 +1,43 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.shardingsphere.transaction.base.saga.persistence;
+
+import org.apache.servicecomb.saga.core.PersistentStore;
+import org.apache.servicecomb.saga.format.SagaEventFormat;
+
+/**
+ * Persistent store which could stream pending saga events for recovery.
+ *
+ * @author zhaojun
+ */
+public interface RecoverablePersistentStore extends PersistentStore {
+    
+    /**
+     * Stream events of pending sagas in saga id order of each store shard.
+     *
+     * <p>
+     * Events of one saga are passed to handler together, events of different sagas are never held in memory at same time by store.
+     * Handler is never called concurrently, but stores with several shards may call it from different threads.
+     * </p>
+     *
+     * @param fetchSize fetch size of pending saga events
+     * @param sagaEventFormat saga event format to bind transport of recovered saga requests
+     * @param handler pending saga handler
+     */
+    void streamPendingSagaEvents(int fetchSize, SagaEventFormat sagaEventFormat, PendingSagaHandler handler);
+}
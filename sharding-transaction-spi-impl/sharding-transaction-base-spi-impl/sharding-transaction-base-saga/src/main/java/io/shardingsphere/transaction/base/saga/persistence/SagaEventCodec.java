@@ -0,0 +1,207 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.shardingsphere.transaction.base.saga.persistence;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.io.BaseEncoding;
+import lombok.RequiredArgsConstructor;
+import org.apache.servicecomb.saga.core.SagaEndedEvent;
+import org.apache.servicecomb.saga.core.SagaStartedEvent;
+import org.apache.shardingsphere.core.exception.ShardingException;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Saga event codec.
+ *
+ * <p>
+ * Compact content is deflated and stored as Base64 with {@code COMPACT_PREFIX}, so it fits the same text column as JSON content.
+ * Content of saga started event contains SQL and parameters of all branch transactions,
+ * it is used as preset dictionary of following events of the same saga, so repeated SQL templates only cost back references.
+ * Content without prefix is decoded as JSON, so plain and compact events could be mixed in one table.
+ * Dictionaries of sagas which never end are evicted by size and idle time, following events of them fall back to preset dictionary.
+ * </p>
+ *
+ * @author zhaojun
+ */
+@RequiredArgsConstructor
+public final class SagaEventCodec {
+    
+    private static final String COMPACT_PREFIX = "~z";
+    
+    private static final byte PRESET_DICTIONARY = 0;
+    
+    private static final byte SAGA_DICTIONARY = 1;
+    
+    private static final int MAX_DICTIONARY_LENGTH = 32 * 1024;
+    
+    private static final int MAX_CACHED_DICTIONARIES = 1024;
+    
+    private static final long DICTIONARY_EXPIRE_MINUTES = 10L;
+    
+    private static final String SAGA_STARTED_EVENT = SagaStartedEvent.class.getSimpleName();
+    
+    private static final String SAGA_ENDED_EVENT = SagaEndedEvent.class.getSimpleName();
+    
+    private static final byte[] PRESET_DICTIONARY_BYTES = ("{\"policy\":\"BackwardRecovery\",\"requests\":[{\"id\":\"\",\"datasource\":\"\",\"type\":\"sql\","
+        + "\"transaction\":{\"sql\":\"\",\"params\":[[]],\"retries\":0},\"compensation\":{\"sql\":\"\",\"params\":[[]],\"retries\":0},"
+        + "\"parents\":[],\"failRetryDelayMilliseconds\":0}]} INSERT INTO  VALUES (?, ?) UPDATE  SET  = ? WHERE  = ? AND  IN (?, ?) DELETE FROM ")
+        .getBytes(StandardCharsets.UTF_8);
+    
+    private static final BaseEncoding BASE64 = BaseEncoding.base64();
+    
+    private final boolean compact;
+    
+    private final Cache<String, byte[]> sagaDictionaries = CacheBuilder.newBuilder()
+        .maximumSize(MAX_CACHED_DICTIONARIES).expireAfterAccess(DICTIONARY_EXPIRE_MINUTES, TimeUnit.MINUTES).build();
+    
+    private final AtomicLong rawBytes = new AtomicLong();
+    
+    private final AtomicLong encodedBytes = new AtomicLong();
+    
+    /**
+     * Encode content of saga event.
+     *
+     * <p>
+     * Events of one saga should be encoded in event order.
+     * </p>
+     *
+     * @param sagaId saga id
+     * @param type type of saga event
+     * @param contentJson content JSON of saga event
+     * @return encoded content
+     */
+    public String encode(final String sagaId, final String type, final String contentJson) {
+        byte[] raw = contentJson.getBytes(StandardCharsets.UTF_8);
+        rawBytes.addAndGet(raw.length);
+        if (!compact) {
+            encodedBytes.addAndGet(raw.length);
+            return contentJson;
+        }
+        byte[] sagaDictionary = null == sagaId ? null : sagaDictionaries.getIfPresent(sagaId);
+        String result = COMPACT_PREFIX + BASE64.encode(deflate(raw, sagaDictionary));
+        encodedBytes.addAndGet(result.length());
+        updateDictionary(sagaDictionaries.asMap(), sagaId, type, raw);
+        return result;
+    }
+    
+    /**
+     * Decode content of saga event.
+     *
+     * <p>
+     * Events of one saga should be decoded in event order with same dictionaries.
+     * </p>
+     *
+     * @param sagaId saga id
+     * @param type type of saga event
+     * @param content encoded content
+     * @param dictionaries saga dictionaries used while decoding
+     * @return content JSON
+     */
+    public String decode(final String sagaId, final String type, final String content, final Map<String, byte[]> dictionaries) {
+        if (null == content || !content.startsWith(COMPACT_PREFIX)) {
+            return content;
+        }
+        byte[] raw = inflate(BASE64.decode(content.substring(COMPACT_PREFIX.length())), null == sagaId ? null : dictionaries.get(sagaId));
+        updateDictionary(dictionaries, sagaId, type, raw);
+        return new String(raw, StandardCharsets.UTF_8);
+    }
+    
+    private void updateDictionary(final Map<String, byte[]> dictionaries, final String sagaId, final String type, final byte[] raw) {
+        if (null == sagaId) {
+            return;
+        }
+        if (SAGA_STARTED_EVENT.equals(type)) {
+            dictionaries.put(sagaId, raw.length > MAX_DICTIONARY_LENGTH ? Arrays.copyOfRange(raw, raw.length - MAX_DICTIONARY_LENGTH, raw.length) : raw);
+        } else if (SAGA_ENDED_EVENT.equals(type)) {
+            dictionaries.remove(sagaId);
+        }
+    }
+    
+    private byte[] deflate(final byte[] raw, final byte[] sagaDictionary) {
+        ByteArrayOutputStream result = new ByteArrayOutputStream(raw.length / 4 + 16);
+        result.write(null == sagaDictionary ? PRESET_DICTIONARY : SAGA_DICTIONARY);
+        Deflater deflater = new Deflater();
+        try {
+            deflater.setDictionary(null == sagaDictionary ? PRESET_DICTIONARY_BYTES : sagaDictionary);
+            deflater.setInput(raw);
+            deflater.finish();
+            byte[] buffer = new byte[4096];
+            while (!deflater.finished()) {
+                result.write(buffer, 0, deflater.deflate(buffer));
+            }
+        } finally {
+            deflater.end();
+        }
+        return result.toByteArray();
+    }
+    
+    private byte[] inflate(final byte[] compressed, final byte[] sagaDictionary) {
+        byte[] dictionary = PRESET_DICTIONARY == compressed[0] ? PRESET_DICTIONARY_BYTES : sagaDictionary;
+        ByteArrayOutputStream result = new ByteArrayOutputStream(compressed.length * 4);
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(compressed, 1, compressed.length - 1);
+            byte[] buffer = new byte[4096];
+            while (!inflater.finished()) {
+                int length = inflater.inflate(buffer);
+                if (0 == length && inflater.needsDictionary()) {
+                    if (null == dictionary) {
+                        throw new ShardingException("Could not decode saga event without saga started event");
+                    }
+                    inflater.setDictionary(dictionary);
+                } else if (0 == length && inflater.needsInput()) {
+                    throw new ShardingException("Saga event content is truncated");
+                }
+                result.write(buffer, 0, length);
+            }
+        } catch (final DataFormatException ex) {
+            throw new ShardingException("Decode saga event failed", ex);
+        } finally {
+            inflater.end();
+        }
+        return result.toByteArray();
+    }
+    
+    /**
+     * Get bytes of content JSON before encoding.
+     *
+     * @return raw bytes
+     */
+    public long getRawBytes() {
+        return rawBytes.get();
+    }
+    
+    /**
+     * Get bytes of encoded content.
+     *
+     * @return encoded bytes
+     */
+    public long getEncodedBytes() {
+        return encodedBytes.get();
+    }
+}
@@ -22,11 +22,14 @@ import com.zaxxer.hikari.HikariDataSource;
 import io.shardingsphere.transaction.base.saga.config.SagaPersistenceConfiguration;
 import io.shardingsphere.transaction.base.saga.persistence.impl.EmptySagaPersistence;
 import io.shardingsphere.transaction.base.saga.persistence.impl.jdbc.JDBCSagaPersistence;
+import io.shardingsphere.transaction.base.saga.persistence.impl.jdbc.ShardingJDBCSagaPersistence;
 import org.apache.servicecomb.saga.core.PersistentStore;
 import org.apache.shardingsphere.core.constant.DatabaseType;
 import org.apache.shardingsphere.core.exception.ShardingException;
 
 import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.ServiceLoader;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -61,9 +64,24 @@ public final class SagaPersistenceLoader {
     }
     
     private static PersistentStore loadDefaultPersistence(final SagaPersistenceConfiguration persistenceConfiguration) {
-        String driverClassName = getJDBCDriverClassName(judgeDatabaseType(persistenceConfiguration.getUrl()));
-        JDBCSagaPersistence result = new JDBCSagaPersistence(initDataSource(driverClassName, persistenceConfiguration));
+        if (persistenceConfiguration.getUrls().isEmpty()) {
+            return loadJDBCPersistence(persistenceConfiguration.getUrl(), persistenceConfiguration);
+        }
+        List<JDBCSagaPersistence> shards = new ArrayList<>(persistenceConfiguration.getUrls().size());
+        for (String each : persistenceConfiguration.getUrls()) {
+            shards.add(loadJDBCPersistence(each, persistenceConfiguration));
+        }
+        if (1 == shards.size()) {
+            return shards.get(0);
+        }
+        return new ShardingJDBCSagaPersistence(shards);
+    }
+    
+    private static JDBCSagaPersistence loadJDBCPersistence(final String url, final SagaPersistenceConfiguration persistenceConfiguration) {
+        String driverClassName = getJDBCDriverClassName(judgeDatabaseType(url));
+        JDBCSagaPersistence result = new JDBCSagaPersistence(initDataSource(driverClassName, url, persistenceConfiguration), persistenceConfiguration);
         result.createTableIfNotExists();
+        result.startRetention(persistenceConfiguration.getRetentionIntervalMilliseconds());
         return result;
     }
     
@@ -97,11 +115,11 @@ public final class SagaPersistenceLoader {
         }
     }
     
-    private static DataSource initDataSource(final String driverClassName, final SagaPersistenceConfiguration persistenceConfiguration) {
+    private static DataSource initDataSource(final String driverClassName, final String url, final SagaPersistenceConfiguration persistenceConfiguration) {
         HikariConfig config = new HikariConfig();
         validateDriverClassName(driverClassName);
         config.setDriverClassName(driverClassName);
-        config.setJdbcUrl(persistenceConfiguration.getUrl());
+        config.setJdbcUrl(url);
         config.setUsername(persistenceConfiguration.getUsername());
         config.setPassword(persistenceConfiguration.getPassword());
         config.setConnectionTimeout(persistenceConfiguration.getConnectionTimeoutMilliseconds());
@@ -120,6 +138,7 @@ public final class SagaPersistenceLoader {
         config.addDataSourceProperty("elideSetAutoCommits", Boolean.TRUE.toString());
         config.addDataSourceProperty("maintainTimeStats", Boolean.FALSE.toString());
         config.addDataSourceProperty("netTimeoutForStreamingResults", 0);
+        config.addDataSourceProperty("useCursorFetch", Boolean.TRUE.toString());
         return new HikariDataSource(config);
     }
     
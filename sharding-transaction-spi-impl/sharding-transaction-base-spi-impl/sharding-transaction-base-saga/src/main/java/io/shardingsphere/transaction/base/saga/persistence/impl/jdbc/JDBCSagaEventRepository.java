@@ -17,52 +17,183 @@
 
 package io.shardingsphere.transaction.base.saga.persistence.impl.jdbc;
 
+import com.google.common.base.Optional;
 import com.google.common.collect.Lists;
+import io.shardingsphere.transaction.base.saga.persistence.BatchSagaEventRepository;
+import io.shardingsphere.transaction.base.saga.persistence.PendingSagaHandler;
+import io.shardingsphere.transaction.base.saga.persistence.SagaEventCodec;
 import io.shardingsphere.transaction.base.utils.JDBCUtil;
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.servicecomb.saga.core.EventEnvelope;
 import org.apache.servicecomb.saga.core.JacksonToJsonFormat;
+import org.apache.servicecomb.saga.core.SagaEndedEvent;
 import org.apache.servicecomb.saga.core.SagaEvent;
+import org.apache.servicecomb.saga.core.SagaStartedEvent;
 import org.apache.servicecomb.saga.core.ToJsonFormat;
+import org.apache.servicecomb.saga.format.SagaEventFormat;
 
 import javax.sql.DataSource;
 import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 
 /**
  * JDBC saga event repository.
  *
  * @author yangyi
  */
-@RequiredArgsConstructor
 @Slf4j
-public final class JDBCSagaEventRepository {
+public final class JDBCSagaEventRepository implements BatchSagaEventRepository {
     
     private static final String INSERT_SQL = "INSERT INTO saga_event (saga_id, type, content_json) values (?, ?, ?)";
+    
+    private static final String INSERT_PENDING_SQL = "INSERT INTO saga_pending (saga_id) values (?)";
+    
+    private static final String DELETE_PENDING_SQL = "DELETE FROM saga_pending WHERE saga_id = ?";
+    
+    private static final String SELECT_PENDING_EVENTS_SQL = "SELECT e.id, e.saga_id, e.type, e.content_json, e.create_time FROM saga_pending p "
+        + "INNER JOIN saga_event e ON p.saga_id = e.saga_id ORDER BY e.saga_id, e.id";
 
     private final DataSource dataSource;
     
+    private final SagaEventCodec eventCodec;
+    
     private final ToJsonFormat toJsonFormat = new JacksonToJsonFormat();
     
-    /**
-     * Insert new saga event.
-     *
-     * @param sagaEvent saga event
-     */
+    public JDBCSagaEventRepository(final DataSource dataSource) {
+        this(dataSource, new SagaEventCodec(false));
+    }
+    
+    public JDBCSagaEventRepository(final DataSource dataSource, final SagaEventCodec eventCodec) {
+        this.dataSource = dataSource;
+        this.eventCodec = eventCodec;
+    }
+    
+    @Override
     public void insert(final SagaEvent sagaEvent) {
         try (Connection connection = dataSource.getConnection()) {
-            JDBCUtil.executeUpdate(connection, INSERT_SQL, generateParams(sagaEvent));
+            Optional<String> pendingMarkerSQL = getPendingMarkerSQL(sagaEvent);
+            if (!pendingMarkerSQL.isPresent()) {
+                JDBCUtil.executeUpdate(connection, INSERT_SQL, generateParams(sagaEvent));
+                return;
+            }
+            connection.setAutoCommit(false);
+            try {
+                JDBCUtil.executeUpdate(connection, INSERT_SQL, generateParams(sagaEvent));
+                JDBCUtil.executeUpdate(connection, pendingMarkerSQL.get(), Lists.<Object>newArrayList(sagaEvent.sagaId));
+                connection.commit();
+            } catch (final SQLException ex) {
+                connection.rollback();
+                throw ex;
+            }
         } catch (SQLException ex) {
             log.warn("Persist saga event failed", ex);
         }
     }
     
+    @Override
+    public void insert(final Collection<SagaEvent> sagaEvents) throws SQLException {
+        Collection<Collection<Object>> params = new ArrayList<>(sagaEvents.size());
+        Collection<Collection<Object>> startedSagaIds = new LinkedList<>();
+        Collection<Collection<Object>> endedSagaIds = new LinkedList<>();
+        for (SagaEvent each : sagaEvents) {
+            params.add(generateParams(each));
+            if (each instanceof SagaStartedEvent) {
+                startedSagaIds.add(Lists.<Object>newArrayList(each.sagaId));
+            } else if (each instanceof SagaEndedEvent) {
+                endedSagaIds.add(Lists.<Object>newArrayList(each.sagaId));
+            }
+        }
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(false);
+            try {
+                JDBCUtil.executeBatch(connection, INSERT_SQL, params);
+                if (!startedSagaIds.isEmpty()) {
+                    JDBCUtil.executeBatch(connection, INSERT_PENDING_SQL, startedSagaIds);
+                }
+                if (!endedSagaIds.isEmpty()) {
+                    JDBCUtil.executeBatch(connection, DELETE_PENDING_SQL, endedSagaIds);
+                }
+                connection.commit();
+            } catch (final SQLException ex) {
+                connection.rollback();
+                throw ex;
+            }
+        }
+    }
+    
+    /**
+     * Stream events of pending sagas in saga id order.
+     *
+     * <p>
+     * Only sagas marked in {@code saga_pending} are scanned, so cost of recovery does not grow with ended sagas.
+     * </p>
+     *
+     * @param fetchSize fetch size of pending saga events
+     * @param sagaEventFormat saga event format
+     * @param handler pending saga handler
+     * @throws SQLException SQL exception
+     */
+    public void streamPendingSagaEvents(final int fetchSize, final SagaEventFormat sagaEventFormat, final PendingSagaHandler handler) throws SQLException {
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(false);
+            try (PreparedStatement preparedStatement = connection.prepareStatement(SELECT_PENDING_EVENTS_SQL, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+                preparedStatement.setFetchSize(fetchSize);
+                try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                    streamPendingSagaEvents(resultSet, sagaEventFormat, handler);
+                }
+            } finally {
+                connection.commit();
+            }
+        }
+    }
+    
+    private void streamPendingSagaEvents(final ResultSet resultSet, final SagaEventFormat sagaEventFormat, final PendingSagaHandler handler) throws SQLException {
+        String currentSagaId = null;
+        List<EventEnvelope> sagaEvents = new LinkedList<>();
+        Map<String, byte[]> dictionaries = new HashMap<>(2, 1);
+        while (resultSet.next()) {
+            String sagaId = resultSet.getString("saga_id");
+            if (null != currentSagaId && !currentSagaId.equals(sagaId)) {
+                handler.handle(currentSagaId, sagaEvents);
+                sagaEvents = new LinkedList<>();
+                dictionaries.clear();
+            }
+            currentSagaId = sagaId;
+            String type = resultSet.getString("type");
+            Timestamp createTime = resultSet.getTimestamp("create_time");
+            sagaEvents.add(new EventEnvelope(resultSet.getLong("id"), null == createTime ? 0L : createTime.getTime(),
+                sagaEventFormat.toSagaEvent(sagaId, type, eventCodec.decode(sagaId, type, resultSet.getString("content_json"), dictionaries))));
+        }
+        if (null != currentSagaId) {
+            handler.handle(currentSagaId, sagaEvents);
+        }
+    }
+    
+    private Optional<String> getPendingMarkerSQL(final SagaEvent sagaEvent) {
+        if (sagaEvent instanceof SagaStartedEvent) {
+            return Optional.of(INSERT_PENDING_SQL);
+        }
+        if (sagaEvent instanceof SagaEndedEvent) {
+            return Optional.of(DELETE_PENDING_SQL);
+        }
+        return Optional.absent();
+    }
+    
     private List<Object> generateParams(final SagaEvent sagaEvent) {
         List<Object> result = Lists.newArrayList();
+        String type = sagaEvent.getClass().getSimpleName();
         result.add(sagaEvent.sagaId);
-        result.add(sagaEvent.getClass().getSimpleName());
-        result.add(sagaEvent.json(toJsonFormat));
+        result.add(type);
+        result.add(eventCodec.encode(sagaEvent.sagaId, type, sagaEvent.json(toJsonFormat)));
         return result;
     }
 }
@@ -18,17 +18,25 @@
 package io.shardingsphere.transaction.base.saga.persistence.impl.jdbc;
 
 import com.google.common.collect.Lists;
+import io.shardingsphere.transaction.base.saga.actuator.transport.SagaTransportFactory;
+import io.shardingsphere.transaction.base.saga.config.SagaPersistenceConfiguration;
+import io.shardingsphere.transaction.base.saga.persistence.GroupCommitSagaEventWriter;
+import io.shardingsphere.transaction.base.saga.persistence.PendingSagaHandler;
+import io.shardingsphere.transaction.base.saga.persistence.RecoverablePersistentStore;
+import io.shardingsphere.transaction.base.saga.persistence.SagaEventCodec;
 import io.shardingsphere.transaction.base.utils.JDBCUtil;
+import lombok.extern.slf4j.Slf4j;
 import org.apache.servicecomb.saga.core.EventEnvelope;
-import org.apache.servicecomb.saga.core.PersistentStore;
 import org.apache.servicecomb.saga.core.SagaEvent;
+import org.apache.servicecomb.saga.format.JacksonSagaEventFormat;
+import org.apache.servicecomb.saga.format.SagaEventFormat;
 import org.apache.shardingsphere.core.exception.ShardingException;
 
 import javax.sql.DataSource;
 import java.sql.Connection;
 import java.sql.SQLException;
 import java.util.Collection;
-import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -37,26 +45,54 @@ import java.util.Map;
  *
  * @author yangyi
  */
-public final class JDBCSagaPersistence implements PersistentStore {
+@Slf4j
+public final class JDBCSagaPersistence implements RecoverablePersistentStore, AutoCloseable {
+    
+    private static final int DEFAULT_FETCH_SIZE = 500;
+    
+    private static final String SCHEMA_FILE = "saga/sql/schema/%s.sql";
     
     private final DataSource dataSource;
     
     private final JDBCSagaEventRepository eventRepository;
     
+    private final GroupCommitSagaEventWriter eventWriter;
+    
+    private final SagaEventRetention eventRetention;
+    
+    private final SagaEventFormat sagaEventFormat = new JacksonSagaEventFormat(SagaTransportFactory.getInstance());
+    
     public JDBCSagaPersistence(final DataSource dataSource) {
         this.dataSource = dataSource;
         eventRepository = new JDBCSagaEventRepository(dataSource);
+        eventWriter = null;
+        eventRetention = null;
+    }
+    
+    public JDBCSagaPersistence(final DataSource dataSource, final SagaPersistenceConfiguration persistenceConfiguration) {
+        this.dataSource = dataSource;
+        eventRepository = new JDBCSagaEventRepository(dataSource, new SagaEventCodec(persistenceConfiguration.isEventCompact()));
+        eventWriter = 1 < persistenceConfiguration.getEventBatchSize() ? new GroupCommitSagaEventWriter(eventRepository, persistenceConfiguration.getEventBufferSize(),
+            persistenceConfiguration.getEventBatchSize(), persistenceConfiguration.getEventFlushIntervalMilliseconds(), persistenceConfiguration.isEventAsync()) : null;
+        eventRetention = 0 < persistenceConfiguration.getRetentionMilliseconds() ? new SagaEventRetention(dataSource, persistenceConfiguration.getRetentionMilliseconds(),
+            persistenceConfiguration.getRetentionBatchSize(), persistenceConfiguration.getRetentionBatchesPerSecond()) : null;
     }
     
     /**
      * Create table if not exists.
+     *
+     * <p>
+     * {@code schema-init.sql} in class path is preferred, otherwise the schema shipped for database of data source is used,
+     * tables of other databases should be created manually.
+     * Schema created before {@code saga_pending} table should be upgraded by the script in {@code saga/sql/upgrade} once before start.
+     * </p>
      */
     public void createTableIfNotExists() {
-        Collection<String> sqls = SQLFileReader.readSQLs();
-        if (0 == sqls.size()) {
-            return;
-        }
         try (Connection connection = dataSource.getConnection()) {
+            Collection<String> sqls = SQLFileReader.readSQLs();
+            if (sqls.isEmpty()) {
+                sqls = SQLFileReader.readSQLs(String.format(SCHEMA_FILE, connection.getMetaData().getDatabaseProductName().toLowerCase()));
+            }
             for (String each : sqls) {
                 JDBCUtil.executeUpdate(connection, each, Lists.newArrayList());
             }
@@ -65,13 +101,64 @@ public final class JDBCSagaPersistence implements PersistentStore {
         }
     }
     
+    /**
+     * Start purging ended sagas if retention is configured.
+     *
+     * @param intervalMilliseconds interval milliseconds between two purges
+     */
+    public void startRetention(final long intervalMilliseconds) {
+        if (null != eventRetention) {
+            eventRetention.start(intervalMilliseconds);
+        }
+    }
+    
     @Override
     public Map<String, List<EventEnvelope>> findPendingSagaEvents() {
-        return new HashMap<>(1);
+        final Map<String, List<EventEnvelope>> result = new LinkedHashMap<>();
+        streamPendingSagaEvents(DEFAULT_FETCH_SIZE, sagaEventFormat, new PendingSagaHandler() {
+            @Override
+            public void handle(final String sagaId, final List<EventEnvelope> sagaEvents) {
+                result.put(sagaId, sagaEvents);
+            }
+        });
+        return result;
+    }
+    
+    @Override
+    public void streamPendingSagaEvents(final int fetchSize, final SagaEventFormat sagaEventFormat, final PendingSagaHandler handler) {
+        try {
+            eventRepository.streamPendingSagaEvents(fetchSize, sagaEventFormat, handler);
+        } catch (final SQLException ex) {
+            throw new ShardingException("Find pending saga events failed", ex);
+        }
     }
     
     @Override
     public void offer(final SagaEvent sagaEvent) {
-        eventRepository.insert(sagaEvent);
+        if (null == eventWriter) {
+            eventRepository.insert(sagaEvent);
+        } else {
+            eventWriter.offer(sagaEvent);
+        }
+    }
+    
+    /**
+     * Stop retention, flush buffered saga events and close data source.
+     */
+    @Override
+    public void close() {
+        if (null != eventRetention) {
+            eventRetention.close();
+        }
+        if (null != eventWriter) {
+            eventWriter.close();
+        }
+        if (dataSource instanceof AutoCloseable) {
+            try {
+                ((AutoCloseable) dataSource).close();
+            } catch (final Exception ex) {
+                log.warn("Close saga persistence data source failed", ex);
+            }
+        }
     }
 }
@@ -17,15 +17,15 @@
 
 package io.shardingsphere.transaction.base.saga.persistence.impl.jdbc;
 
+import com.google.common.base.Charsets;
 import com.google.common.base.Optional;
 import com.google.common.collect.Lists;
 import org.apache.shardingsphere.core.exception.ShardingException;
 
 import java.io.BufferedReader;
-import java.io.FileNotFoundException;
-import java.io.FileReader;
 import java.io.IOException;
-import java.net.URL;
+import java.io.InputStream;
+import java.io.InputStreamReader;
 import java.util.Collection;
 import java.util.List;
 
@@ -46,20 +46,23 @@ public class SQLFileReader {
      * @return collection of sql
      */
     public static Collection<String> readSQLs() {
-        Optional<BufferedReader> lineReader = getLineReader();
+        return readSQLs(SQL_FILE);
+    }
+    
+    /**
+     * read SQLs from SQL file in class path.
+     *
+     * @param sqlFile SQL file in class path
+     * @return collection of sql, empty if SQL file does not exist
+     */
+    public static Collection<String> readSQLs(final String sqlFile) {
+        Optional<BufferedReader> lineReader = getLineReader(sqlFile);
         return lineReader.isPresent() ? readSQLsFromFile(lineReader.get()) : Lists.<String>newArrayList();
     }
     
-    private static Optional<BufferedReader> getLineReader() {
-        URL sqlFile = SQLFileReader.class.getClassLoader().getResource(SQL_FILE);
-        if (null == sqlFile) {
-            return Optional.absent();
-        }
-        try {
-            return Optional.of(new BufferedReader(new FileReader(sqlFile.getFile())));
-        } catch (final FileNotFoundException ex) {
-            return Optional.absent();
-        }
+    private static Optional<BufferedReader> getLineReader(final String sqlFile) {
+        InputStream inputStream = SQLFileReader.class.getClassLoader().getResourceAsStream(sqlFile);
+        return null == inputStream ? Optional.<BufferedReader>absent() : Optional.of(new BufferedReader(new InputStreamReader(inputStream, Charsets.UTF_8)));
     }
     
     private static Collection<String> readSQLsFromFile(final BufferedReader lineReader) {
@@ -0,0 +1,163 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.shardingsphere.transaction.base.saga.persistence.impl.jdbc;
+
+import com.google.common.base.Joiner;
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.RateLimiter;
+import io.shardingsphere.transaction.base.utils.JDBCUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.shardingsphere.core.execute.ShardingThreadFactoryBuilder;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Saga event retention.
+ *
+ * <p>
+ * Events of sagas ended before retention time are purged by timer.
+ * Each batch deletes events of at most batch size sagas in one transaction, and batches are throttled by rate,
+ * so purge never holds long locks nor saturates persistence data source.
+ * </p>
+ *
+ * @author zhaojun
+ */
+@Slf4j
+public final class SagaEventRetention implements AutoCloseable {
+    
+    private static final String SELECT_ENDED_SAGA_SQL = "SELECT saga_id FROM saga_event WHERE type = 'SagaEndedEvent' AND create_time < ?";
+    
+    private static final String DELETE_EVENT_SQL = "DELETE FROM saga_event WHERE saga_id IN (%s)";
+    
+    private final DataSource dataSource;
+    
+    private final long retentionMilliseconds;
+    
+    private final int batchSize;
+    
+    private final RateLimiter batchRateLimiter;
+    
+    private ScheduledExecutorService purgeExecutor;
+    
+    public SagaEventRetention(final DataSource dataSource, final long retentionMilliseconds, final int batchSize, final double batchesPerSecond) {
+        this.dataSource = dataSource;
+        this.retentionMilliseconds = retentionMilliseconds;
+        this.batchSize = batchSize;
+        batchRateLimiter = RateLimiter.create(batchesPerSecond);
+    }
+    
+    /**
+     * Start purging ended sagas by timer.
+     *
+     * @param intervalMilliseconds interval milliseconds between two purges
+     */
+    public synchronized void start(final long intervalMilliseconds) {
+        if (null != purgeExecutor) {
+            return;
+        }
+        purgeExecutor = Executors.newSingleThreadScheduledExecutor(ShardingThreadFactoryBuilder.build("SagaEventRetention"));
+        MoreExecutors.addDelayedShutdownHook(purgeExecutor, 30, TimeUnit.SECONDS);
+        purgeExecutor.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                purge();
+            }
+        }, intervalMilliseconds, intervalMilliseconds, TimeUnit.MILLISECONDS);
+    }
+    
+    /**
+     * Purge events of sagas ended before retention time.
+     *
+     * @return count of purged sagas
+     */
+    public int purge() {
+        Timestamp endedBefore = new Timestamp(System.currentTimeMillis() - retentionMilliseconds);
+        int result = 0;
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                batchRateLimiter.acquire();
+                List<Object> sagaIds = findEndedSagaIds(endedBefore);
+                if (sagaIds.isEmpty()) {
+                    break;
+                }
+                deleteEvents(sagaIds);
+                result += sagaIds.size();
+                if (sagaIds.size() < batchSize) {
+                    break;
+                }
+            }
+        } catch (final SQLException ex) {
+            log.warn("Purge ended saga events failed", ex);
+        }
+        if (0 < result) {
+            log.info("Purged events of {} ended sagas", result);
+        }
+        return result;
+    }
+    
+    private List<Object> findEndedSagaIds(final Timestamp endedBefore) throws SQLException {
+        List<Object> result = new ArrayList<>(batchSize);
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement preparedStatement = connection.prepareStatement(SELECT_ENDED_SAGA_SQL)) {
+            preparedStatement.setMaxRows(batchSize);
+            preparedStatement.setTimestamp(1, endedBefore);
+            try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                while (resultSet.next()) {
+                    result.add(resultSet.getString(1));
+                }
+            }
+        }
+        return result;
+    }
+    
+    private void deleteEvents(final List<Object> sagaIds) throws SQLException {
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(false);
+            try {
+                JDBCUtil.executeUpdate(connection, String.format(DELETE_EVENT_SQL, Joiner.on(", ").join(Collections.nCopies(sagaIds.size(), "?"))), Lists.newArrayList(sagaIds));
+                connection.commit();
+            } catch (final SQLException ex) {
+                connection.rollback();
+                throw ex;
+            }
+        }
+    }
+    
+    /**
+     * Stop purging ended sagas.
+     */
+    @Override
+    public synchronized void close() {
+        if (null != purgeExecutor) {
+            purgeExecutor.shutdownNow();
+            purgeExecutor = null;
+        }
+    }
+}
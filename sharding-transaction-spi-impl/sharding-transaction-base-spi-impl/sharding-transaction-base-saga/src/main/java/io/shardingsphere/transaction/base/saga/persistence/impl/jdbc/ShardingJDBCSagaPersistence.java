@@ -0,0 +1,133 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.shardingsphere.transaction.base.saga.persistence.impl.jdbc;
+
+import com.google.common.base.Preconditions;
+import com.google.common.util.concurrent.MoreExecutors;
+import io.shardingsphere.transaction.base.saga.actuator.transport.SagaTransportFactory;
+import io.shardingsphere.transaction.base.saga.persistence.PendingSagaHandler;
+import io.shardingsphere.transaction.base.saga.persistence.RecoverablePersistentStore;
+import org.apache.servicecomb.saga.core.EventEnvelope;
+import org.apache.servicecomb.saga.core.SagaEvent;
+import org.apache.servicecomb.saga.format.JacksonSagaEventFormat;
+import org.apache.servicecomb.saga.format.SagaEventFormat;
+import org.apache.shardingsphere.core.exception.ShardingException;
+import org.apache.shardingsphere.core.execute.ShardingThreadFactoryBuilder;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sharding JDBC saga persistence.
+ *
+ * <p>
+ * Saga events are routed to persistence shard by hash of saga id.
+ * Pending sagas are scanned from all shards in parallel by one shared scan executor, handler is called by one shard at a time.
+ * </p>
+ *
+ * @author zhaojun
+ */
+public final class ShardingJDBCSagaPersistence implements RecoverablePersistentStore, AutoCloseable {
+    
+    private static final int DEFAULT_FETCH_SIZE = 500;
+    
+    private final List<JDBCSagaPersistence> shards;
+    
+    private final SagaEventFormat sagaEventFormat = new JacksonSagaEventFormat(SagaTransportFactory.getInstance());
+    
+    private final ExecutorService scanExecutor;
+    
+    public ShardingJDBCSagaPersistence(final List<JDBCSagaPersistence> shards) {
+        Preconditions.checkArgument(!shards.isEmpty(), "Saga persistence shards can not be empty.");
+        this.shards = shards;
+        scanExecutor = Executors.newFixedThreadPool(shards.size(), ShardingThreadFactoryBuilder.build("SagaPersistenceScan-%d"));
+        MoreExecutors.addDelayedShutdownHook(scanExecutor, 30, TimeUnit.SECONDS);
+    }
+    
+    @Override
+    public Map<String, List<EventEnvelope>> findPendingSagaEvents() {
+        final Map<String, List<EventEnvelope>> result = new LinkedHashMap<>();
+        streamPendingSagaEvents(DEFAULT_FETCH_SIZE, sagaEventFormat, new PendingSagaHandler() {
+            @Override
+            public void handle(final String sagaId, final List<EventEnvelope> sagaEvents) {
+                result.put(sagaId, sagaEvents);
+            }
+        });
+        return result;
+    }
+    
+    @Override
+    public void streamPendingSagaEvents(final int fetchSize, final SagaEventFormat sagaEventFormat, final PendingSagaHandler handler) {
+        final PendingSagaHandler synchronizedHandler = new PendingSagaHandler() {
+            @Override
+            public synchronized void handle(final String sagaId, final List<EventEnvelope> sagaEvents) {
+                handler.handle(sagaId, sagaEvents);
+            }
+        };
+        List<Future<?>> futures = new ArrayList<>(shards.size());
+        try {
+            for (final JDBCSagaPersistence each : shards) {
+                futures.add(scanExecutor.submit(new Runnable() {
+                    @Override
+                    public void run() {
+                        each.streamPendingSagaEvents(fetchSize, sagaEventFormat, synchronizedHandler);
+                    }
+                }));
+            }
+            for (Future<?> each : futures) {
+                each.get();
+            }
+        } catch (final InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new ShardingException("Interrupted while finding pending saga events", ex);
+        } catch (final ExecutionException ex) {
+            throw new ShardingException("Find pending saga events failed", ex);
+        } finally {
+            for (Future<?> each : futures) {
+                each.cancel(true);
+            }
+        }
+    }
+    
+    @Override
+    public void offer(final SagaEvent sagaEvent) {
+        getShard(sagaEvent.sagaId).offer(sagaEvent);
+    }
+    
+    private JDBCSagaPersistence getShard(final String shardingKey) {
+        return shards.get((String.valueOf(shardingKey).hashCode() & Integer.MAX_VALUE) % shards.size());
+    }
+    
+    /**
+     * Stop scan executor and close all persistence shards.
+     */
+    @Override
+    public void close() {
+        scanExecutor.shutdownNow();
+        for (JDBCSagaPersistence each : shards) {
+            each.close();
+        }
+    }
+}
@@ -96,7 +96,14 @@ public class JDBCUtil {
         }
     }
     
-    private static void fillParameters(final PreparedStatement preparedStatement, final Collection<Object> params) throws SQLException {
+    /**
+     * Fill parameters of prepared statement.
+     *
+     * @param preparedStatement prepared statement
+     * @param params sql parameters
+     * @throws SQLException failed to set parameter, throw this exception
+     */
+    public static void fillParameters(final PreparedStatement preparedStatement, final Collection<Object> params) throws SQLException {
         Iterator<Object> iterator = params.iterator();
         int index = 0;
         while (iterator.hasNext()) {
@@ -0,0 +1,16 @@
+-- H2 init table SQL of saga persistence
+
+CREATE TABLE IF NOT EXISTS saga_event(
+  id BIGINT AUTO_INCREMENT PRIMARY KEY,
+  saga_id VARCHAR(255) null,
+  type VARCHAR(255) null,
+  content_json TEXT null,
+  create_time TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+);
+CREATE INDEX IF NOT EXISTS running_sagas_index ON saga_event (saga_id, type);
+CREATE INDEX IF NOT EXISTS saga_end_time_index ON saga_event (type, create_time);
+
+CREATE TABLE IF NOT EXISTS saga_pending(
+  saga_id VARCHAR(255) PRIMARY KEY,
+  create_time TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+);
@@ -0,0 +1,16 @@
+-- MySQL init table SQL of saga persistence
+
+CREATE TABLE IF NOT EXISTS saga_event(
+  id BIGINT AUTO_INCREMENT PRIMARY KEY,
+  saga_id VARCHAR(255) null,
+  type VARCHAR(255) null,
+  content_json TEXT null,
+  create_time TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+  INDEX running_sagas_index(saga_id, type),
+  INDEX saga_end_time_index(type, create_time)
+)ENGINE=InnoDB DEFAULT CHARSET=utf8;
+
+CREATE TABLE IF NOT EXISTS saga_pending(
+  saga_id VARCHAR(255) PRIMARY KEY,
+  create_time TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+)ENGINE=InnoDB DEFAULT CHARSET=utf8;
@@ -0,0 +1,14 @@
+-- PostgreSQL upgrade SQL of saga persistence created before saga_pending table
+-- Run once with applications stopped, sagas not ended yet are marked pending so that they are still recovered
+
+CREATE TABLE IF NOT EXISTS saga_pending(
+  saga_id VARCHAR(255) PRIMARY KEY,
+  create_time TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+);
+
+INSERT INTO saga_pending (saga_id)
+  SELECT DISTINCT e.saga_id FROM saga_event e
+  WHERE NOT EXISTS (SELECT 1 FROM saga_event ended WHERE ended.saga_id = e.saga_id AND ended.type = 'SagaEndedEvent')
+  AND NOT EXISTS (SELECT 1 FROM saga_pending p WHERE p.saga_id = e.saga_id);
+
+CREATE INDEX IF NOT EXISTS saga_end_time_index ON saga_event (type, create_time);
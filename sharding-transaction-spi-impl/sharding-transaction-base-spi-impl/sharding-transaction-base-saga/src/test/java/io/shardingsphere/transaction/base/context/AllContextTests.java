@@ -24,7 +24,8 @@ import org.junit.runners.Suite.SuiteClasses;
 @RunWith(Suite.class)
 @SuiteClasses({
         SagaBranchTransactionTest.class,
-        SagaTransactionTest.class
+        SagaTransactionTest.class,
+        StatementConnectionRecorderTest.class
 })
 public class AllContextTests {
 }
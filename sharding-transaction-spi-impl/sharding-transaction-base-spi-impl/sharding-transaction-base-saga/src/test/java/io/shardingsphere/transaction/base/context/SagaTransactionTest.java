@@ -17,10 +17,15 @@
 
 package io.shardingsphere.transaction.base.context;
 
+import com.google.common.base.Optional;
+import io.shardingsphere.transaction.base.hook.revert.RevertSQLResult;
+import io.shardingsphere.transaction.base.hook.revert.utils.MockTestUtil;
 import org.apache.shardingsphere.core.constant.SQLType;
+import org.apache.shardingsphere.core.exception.ShardingException;
 import org.apache.shardingsphere.core.metadata.table.ShardingTableMetaData;
 import org.apache.shardingsphere.core.parse.antlr.sql.statement.dml.DMLStatement;
 import org.apache.shardingsphere.core.parse.old.parser.context.table.Tables;
+import org.apache.shardingsphere.core.route.RouteUnit;
 import org.apache.shardingsphere.core.route.SQLRouteResult;
 import org.junit.Before;
 import org.junit.Test;
@@ -28,11 +33,26 @@ import org.junit.runner.RunWith;
 import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnitRunner;
 
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.List;
+
 import static org.hamcrest.CoreMatchers.instanceOf;
 import static org.hamcrest.CoreMatchers.is;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @RunWith(MockitoJUnitRunner.class)
@@ -52,11 +72,17 @@ public final class SagaTransactionTest {
     @Mock
     private ShardingTableMetaData shardingTableMetaData;
     
+    @Mock
+    private Connection connection;
+    
+    @Mock
+    private Connection anotherConnection;
+    
     private final String actualSQL = "UPDATE";
     
     @Before
     public void setUp() {
-        sagaTransaction = new TransactionContext();
+        sagaTransaction = MockTestUtil.newTransactionContext();
         when(sqlStatement.getType()).thenReturn(SQLType.DML);
         when(sqlRouteResult.getSqlStatement()).thenReturn(sqlStatement);
         when(sqlStatement.getTables()).thenReturn(tables);
@@ -87,4 +113,166 @@ public final class SagaTransactionTest {
         assertThat(sagaTransaction.getCurrentLogicSQLTransaction().getBranchTransactions().size(), is(1));
         assertFalse(sagaTransaction.isContainsException());
     }
+    
+    @Test
+    public void assertFindBranchTransaction() {
+        sagaTransaction.nextLogicSQLTransaction(sqlRouteResult, shardingTableMetaData);
+        BranchTransaction expected = newBranchTransaction(1);
+        sagaTransaction.addBranchTransaction(expected);
+        Optional<BranchTransaction> actual = sagaTransaction.findBranchTransaction(expected.getBranchId());
+        assertTrue(actual.isPresent());
+        assertThat(actual.get(), is(expected));
+        assertFalse(sagaTransaction.findBranchTransaction(newBranchTransaction(1).getBranchId()).isPresent());
+        assertFalse(sagaTransaction.findBranchTransaction(null).isPresent());
+    }
+    
+    @Test
+    public void assertFindLogicSQLTransaction() {
+        sagaTransaction.nextLogicSQLTransaction(sqlRouteResult, shardingTableMetaData);
+        LogicSQLTransaction expected = sagaTransaction.getCurrentLogicSQLTransaction();
+        BranchTransaction branchTransaction = newBranchTransaction(1);
+        sagaTransaction.addBranchTransaction(branchTransaction);
+        sagaTransaction.nextLogicSQLTransaction(sqlRouteResult, shardingTableMetaData);
+        sagaTransaction.addBranchTransaction(newBranchTransaction(2));
+        Optional<LogicSQLTransaction> actual = sagaTransaction.findLogicSQLTransaction(branchTransaction);
+        assertTrue(actual.isPresent());
+        assertThat(actual.get(), is(expected));
+        assertFalse(sagaTransaction.findLogicSQLTransaction(newBranchTransaction(3)).isPresent());
+    }
+    
+    @Test(timeout = 10000)
+    public void assertFindBranchTransactionOfBatchImport() {
+        int branchCount = 5000;
+        sagaTransaction.nextLogicSQLTransaction(sqlRouteResult, shardingTableMetaData);
+        List<String> branchIds = new LinkedList<>();
+        for (int i = 0; i < branchCount; i++) {
+            BranchTransaction branchTransaction = newBranchTransaction(i);
+            sagaTransaction.addBranchTransaction(branchTransaction);
+            branchIds.add(branchTransaction.getBranchId());
+        }
+        int index = 0;
+        for (String each : branchIds) {
+            Optional<BranchTransaction> actual = sagaTransaction.findBranchTransaction(each);
+            assertTrue(actual.isPresent());
+            assertThat(actual.get().getRevertSQLResult().getParameters().get(0).iterator().next(), is((Object) index++));
+        }
+    }
+    
+    @Test
+    public void assertAcquireConnectionOfSameDataSource() {
+        sagaTransaction.cacheConnection("ds", connection);
+        sagaTransaction.cacheConnection("ds", anotherConnection);
+        Connection actual = sagaTransaction.acquireConnection("ds");
+        assertThat(actual, is(connection));
+        assertThat(sagaTransaction.acquireConnection("ds"), is(anotherConnection));
+        sagaTransaction.releaseConnection("ds", actual);
+        assertThat(sagaTransaction.acquireConnection("ds"), is(connection));
+        assertThat(sagaTransaction.getCachedConnections().get("ds"), is(anotherConnection));
+    }
+    
+    @Test(expected = ShardingException.class)
+    public void assertAcquireConnectionWithoutIdleConnection() {
+        sagaTransaction.cacheConnection("ds", connection);
+        assertThat(sagaTransaction.acquireConnection("ds"), is(connection));
+        sagaTransaction.acquireConnection("ds");
+    }
+    
+    @Test(expected = ShardingException.class)
+    public void assertAcquireConnectionOfUnknownDataSource() {
+        sagaTransaction.acquireConnection("ds_other");
+    }
+    
+    @Test
+    public void assertReleaseConnectionTwice() {
+        sagaTransaction.cacheConnection("ds", connection);
+        Connection actual = sagaTransaction.acquireConnection("ds");
+        sagaTransaction.releaseConnection("ds", actual);
+        sagaTransaction.releaseConnection("ds", actual);
+        assertThat(sagaTransaction.acquireConnection("ds"), is(connection));
+        try {
+            sagaTransaction.acquireConnection("ds");
+            fail("Released connection should be idle only once");
+        } catch (final ShardingException ignored) {
+        }
+    }
+    
+    @Test
+    public void assertAcquireExecutingConnectionOfRouteUnit() {
+        RouteUnit firstRouteUnit = MockTestUtil.mockRouteUnit("ds", "UPDATE t_order_0 SET status = ?", Collections.<Object>singletonList(1));
+        RouteUnit secondRouteUnit = MockTestUtil.mockRouteUnit("ds", "UPDATE t_order_1 SET status = ?", Collections.<Object>singletonList(1));
+        when(sqlRouteResult.getRouteUnits()).thenReturn(Arrays.asList(firstRouteUnit, secondRouteUnit));
+        sagaTransaction.cacheConnection("ds", connection);
+        sagaTransaction.cacheConnection("ds", anotherConnection);
+        sagaTransaction.nextLogicSQLTransaction(sqlRouteResult, shardingTableMetaData);
+        sagaTransaction.addStatementConnection("ds", "UPDATE t_order_1 SET status = ?", anotherConnection);
+        sagaTransaction.addStatementConnection("ds", "UPDATE t_order_0 SET status = ?", connection);
+        assertThat(sagaTransaction.acquireConnection(secondRouteUnit), is(anotherConnection));
+        assertThat(sagaTransaction.acquireConnection(firstRouteUnit), is(connection));
+        sagaTransaction.addStatementConnection("ds", "UPDATE t_order_0 SET status = ?", anotherConnection);
+        assertThat(sagaTransaction.acquireConnection(firstRouteUnit), is(connection));
+    }
+    
+    @Test
+    public void assertAcquireExecutingConnectionOfRouteUnitsWithSameSQL() {
+        RouteUnit firstRouteUnit = MockTestUtil.mockRouteUnit("ds", "UPDATE t_order SET status = ?", Collections.<Object>singletonList(1));
+        RouteUnit secondRouteUnit = MockTestUtil.mockRouteUnit("ds", "UPDATE t_order SET status = ?", Collections.<Object>singletonList(2));
+        when(sqlRouteResult.getRouteUnits()).thenReturn(Arrays.asList(firstRouteUnit, secondRouteUnit));
+        sagaTransaction.nextLogicSQLTransaction(sqlRouteResult, shardingTableMetaData);
+        sagaTransaction.addStatementConnection("ds", "UPDATE t_order SET status = ?", connection);
+        sagaTransaction.addStatementConnection("ds", "UPDATE t_order SET status = ?", anotherConnection);
+        assertThat(sagaTransaction.acquireConnection(firstRouteUnit), is(connection));
+        assertThat(sagaTransaction.acquireConnection(secondRouteUnit), is(anotherConnection));
+    }
+    
+    @Test
+    public void assertAcquireConnectionOfRouteUnitWithoutMatchedStatements() {
+        RouteUnit firstRouteUnit = MockTestUtil.mockRouteUnit("ds", "UPDATE t_order_0 SET status = ?", Collections.<Object>singletonList(1));
+        RouteUnit secondRouteUnit = MockTestUtil.mockRouteUnit("ds", "UPDATE t_order_1 SET status = ?", Collections.<Object>singletonList(1));
+        when(sqlRouteResult.getRouteUnits()).thenReturn(Arrays.asList(firstRouteUnit, secondRouteUnit));
+        sagaTransaction.cacheConnection("ds", connection);
+        sagaTransaction.nextLogicSQLTransaction(sqlRouteResult, shardingTableMetaData);
+        sagaTransaction.addStatementConnection("ds", "UPDATE t_order_0 SET status = ?", anotherConnection);
+        sagaTransaction.addStatementConnection("ds", "SELECT * FROM t_order_1", anotherConnection);
+        assertThat(sagaTransaction.acquireConnection(firstRouteUnit), is(anotherConnection));
+        assertThat(sagaTransaction.acquireConnection(secondRouteUnit), is(connection));
+    }
+    
+    @Test
+    public void assertEscalateLocalTransactionWithoutDML() throws SQLException {
+        sagaTransaction.setLocalTransactionEnabled(true);
+        sagaTransaction.joinLocalTransaction("ds", connection);
+        sagaTransaction.setSavepoint("savepoint");
+        sagaTransaction.joinLocalTransaction("ds_other", anotherConnection);
+        assertFalse(sagaTransaction.isLocalDataSource("ds"));
+        verify(connection).commit();
+        verify(connection).setAutoCommit(true);
+        verify(anotherConnection, never()).setAutoCommit(false);
+        sagaTransaction.releaseSavepoint("savepoint");
+        verify(connection, never()).releaseSavepoint(any(Savepoint.class));
+        sagaTransaction.joinLocalTransaction("ds", connection);
+        assertFalse(sagaTransaction.isLocalDataSource("ds"));
+    }
+    
+    @Test(expected = ShardingException.class)
+    public void assertRejectJoiningAfterLocalTransactionWritten() throws SQLException {
+        sagaTransaction.setLocalTransactionEnabled(true);
+        sagaTransaction.joinLocalTransaction("ds", connection);
+        sagaTransaction.markLocalTransactionWritten();
+        try {
+            sagaTransaction.joinLocalTransaction("ds_other", anotherConnection);
+        } finally {
+            assertTrue(sagaTransaction.isLocalDataSource("ds"));
+            verify(connection, never()).commit();
+        }
+    }
+    
+    private BranchTransaction newBranchTransaction(final int orderId) {
+        List<Collection<Object>> parameters = new LinkedList<>();
+        parameters.add(Arrays.<Object>asList(orderId, "order_" + orderId));
+        BranchTransaction result = new BranchTransaction("ds", actualSQL, parameters, ExecuteStatus.SUCCESS);
+        RevertSQLResult revertSQLResult = new RevertSQLResult("revert-sql");
+        revertSQLResult.getParameters().add(Collections.<Object>singletonList(orderId));
+        result.setRevertSQLResult(revertSQLResult);
+        return result;
+    }
 }
@@ -0,0 +1,98 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.shardingsphere.transaction.base.context;
+
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public final class StatementConnectionRecorderTest {
+    
+    @Mock
+    private Connection connection;
+    
+    @Mock
+    private PreparedStatement preparedStatement;
+    
+    @Mock
+    private Statement statement;
+    
+    @Mock
+    private TransactionContext transactionContext;
+    
+    @After
+    public void tearDown() {
+        TransactionContextHolder.clear();
+    }
+    
+    @Test
+    public void assertRecordStatementConnection() throws SQLException {
+        when(connection.prepareStatement("UPDATE t_order_0 SET status = ?")).thenReturn(preparedStatement);
+        TransactionContextHolder.set(transactionContext);
+        Connection actual = StatementConnectionRecorder.newInstance("ds", connection);
+        assertThat(actual.prepareStatement("UPDATE t_order_0 SET status = ?"), is(preparedStatement));
+        verify(transactionContext).addStatementConnection("ds", "UPDATE t_order_0 SET status = ?", actual);
+    }
+    
+    @Test
+    public void assertNotRecordStatementWithoutSQL() throws SQLException {
+        when(connection.createStatement()).thenReturn(statement);
+        TransactionContextHolder.set(transactionContext);
+        assertThat(StatementConnectionRecorder.newInstance("ds", connection).createStatement(), is(statement));
+        verify(transactionContext, never()).addStatementConnection(anyString(), anyString(), any(Connection.class));
+    }
+    
+    @Test
+    public void assertRecordWithoutTransactionContext() throws SQLException {
+        when(connection.prepareStatement("UPDATE t_order_0 SET status = ?")).thenReturn(preparedStatement);
+        assertThat(StatementConnectionRecorder.newInstance("ds", connection).prepareStatement("UPDATE t_order_0 SET status = ?"), is(preparedStatement));
+    }
+    
+    @Test
+    public void assertEqualsByIdentity() {
+        Connection actual = StatementConnectionRecorder.newInstance("ds", connection);
+        assertTrue(actual.equals(actual));
+        assertFalse(actual.equals(connection));
+        assertFalse(actual.equals(StatementConnectionRecorder.newInstance("ds", connection)));
+        assertThat(actual.hashCode(), is(System.identityHashCode(actual)));
+    }
+    
+    @Test(expected = SQLException.class)
+    public void assertThrowExceptionOfConnection() throws SQLException {
+        when(connection.createStatement()).thenThrow(new SQLException("closed"));
+        StatementConnectionRecorder.newInstance("ds", connection).createStatement();
+    }
+}
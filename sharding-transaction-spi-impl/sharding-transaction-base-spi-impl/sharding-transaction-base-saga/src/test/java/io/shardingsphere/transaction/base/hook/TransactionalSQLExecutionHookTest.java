@@ -21,6 +21,9 @@ import io.shardingsphere.transaction.base.context.BranchTransaction;
 import io.shardingsphere.transaction.base.context.ExecuteStatus;
 import io.shardingsphere.transaction.base.context.LogicSQLTransaction;
 import io.shardingsphere.transaction.base.context.TransactionContext;
+import io.shardingsphere.transaction.base.hook.revert.SQLTemplateCache;
+import io.shardingsphere.transaction.base.hook.revert.executor.SQLRouteResultIndex;
+import io.shardingsphere.transaction.base.hook.revert.snapshot.BatchSnapshotLoader;
 import io.shardingsphere.transaction.base.hook.revert.utils.MockTestUtil;
 import io.shardingsphere.transaction.base.saga.SagaShardingTransactionManager;
 import lombok.SneakyThrows;
@@ -28,6 +31,7 @@ import org.apache.shardingsphere.core.metadata.datasource.DataSourceMetaData;
 import org.apache.shardingsphere.core.metadata.table.TableMetaData;
 import org.apache.shardingsphere.core.parse.antlr.sql.statement.SQLStatement;
 import org.apache.shardingsphere.core.route.RouteUnit;
+import org.apache.shardingsphere.core.route.SQLRouteResult;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -38,7 +42,6 @@ import java.lang.reflect.Field;
 import java.sql.Connection;
 import java.sql.SQLException;
 import java.util.Arrays;
-import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.Map;
 
@@ -67,28 +70,42 @@ public class TransactionalSQLExecutionHookTest {
     
     private TransactionalSQLExecutionHook sqlExecutionHook = new TransactionalSQLExecutionHook();
     
-    private Map<String, Connection> cachedConnections = new HashMap<>();
-    
+    private TableMetaData tableMetaData;
     
     @Before
     public void setUp() {
         when(transactionContext.getCurrentLogicSQLTransaction()).thenReturn(logicSQLTransaction);
-        TableMetaData tableMetaData = MockTestUtil.mockTableMetaData("c1", "c2");
+        tableMetaData = MockTestUtil.mockTableMetaData("c1", "c2");
         MockTestUtil.addPrimaryKeyColumn(tableMetaData, "pk1");
         when(logicSQLTransaction.getTableMetaData()).thenReturn(tableMetaData);
     }
     
     @Test
     public void assertStartWithinTransaction() throws SQLException {
-        when(logicSQLTransaction.isDMLLogicSQL()).thenReturn(true);
         shardingExecuteDataMap.put(SagaShardingTransactionManager.SAGA_TRANSACTION_KEY, transactionContext);
-        cachedConnections.put("ds", MockTestUtil.mockConnection());
-        when(transactionContext.getCachedConnections()).thenReturn(cachedConnections);
+        Connection connection = MockTestUtil.mockConnection();
+        when(transactionContext.getSqlTemplateCache()).thenReturn(new SQLTemplateCache());
         SQLStatement sqlStatement = MockTestUtil.mockDeleteStatement("t_order");
-        when(logicSQLTransaction.getSqlRouteResult()).thenReturn(MockTestUtil.mockSQLRouteResult(sqlStatement, "ds", "t_order", "t_order_0"));
+        SQLRouteResult sqlRouteResult = MockTestUtil.mockSQLRouteResult(sqlStatement, "ds", "t_order", "t_order_0");
+        when(logicSQLTransaction.getSqlRouteResult()).thenReturn(sqlRouteResult);
+        when(logicSQLTransaction.getSqlRouteResultIndex()).thenReturn(new SQLRouteResultIndex(sqlRouteResult));
+        when(logicSQLTransaction.getSnapshotLoader()).thenReturn(new BatchSnapshotLoader(sqlRouteResult, tableMetaData));
         RouteUnit routeUnit = MockTestUtil.mockRouteUnit("ds", "delete from t_order_0 where c1=? and c2=? and c3=?", Arrays.<Object>asList(1, 2, 3));
+        when(transactionContext.acquireConnection(routeUnit)).thenReturn(connection);
         sqlExecutionHook.start(routeUnit, dataSourceMetaData, true, shardingExecuteDataMap);
         verify(transactionContext).addBranchTransaction(any(BranchTransaction.class));
+        verify(transactionContext).releaseConnection("ds", connection);
+    }
+    
+    @Test
+    public void assertStartWithLocalDataSource() {
+        when(transactionContext.isLocalDataSource("ds")).thenReturn(true);
+        shardingExecuteDataMap.put(SagaShardingTransactionManager.SAGA_TRANSACTION_KEY, transactionContext);
+        RouteUnit routeUnit = MockTestUtil.mockRouteUnit("ds", "delete from t_order_0 where c1=?", Arrays.<Object>asList(1));
+        sqlExecutionHook.start(routeUnit, dataSourceMetaData, true, shardingExecuteDataMap);
+        verify(transactionContext, never()).acquireConnection(routeUnit);
+        verify(transactionContext, never()).addBranchTransaction(any(BranchTransaction.class));
+        verify(transactionContext).markLocalTransactionWritten();
     }
     
     @Test
@@ -99,6 +116,8 @@ public class TransactionalSQLExecutionHookTest {
     
     @Test
     public void assertStartIsNotDMLLogicSQL() {
+        when(transactionContext.getCurrentLogicSQLTransaction()).thenReturn(null);
+        shardingExecuteDataMap.put(SagaShardingTransactionManager.SAGA_TRANSACTION_KEY, transactionContext);
         sqlExecutionHook.start(mock(RouteUnit.class), dataSourceMetaData, true, shardingExecuteDataMap);
         verify(transactionContext, never()).addBranchTransaction(any(BranchTransaction.class));
     }
@@ -18,8 +18,11 @@
 package io.shardingsphere.transaction.base.hook;
 
 import io.shardingsphere.transaction.base.context.TransactionContext;
+import io.shardingsphere.transaction.base.context.TransactionContextFactory;
 import io.shardingsphere.transaction.base.context.TransactionContextHolder;
+import org.apache.shardingsphere.core.constant.SQLType;
 import org.apache.shardingsphere.core.metadata.table.ShardingTableMetaData;
+import org.apache.shardingsphere.core.parse.antlr.sql.statement.SQLStatement;
 import org.apache.shardingsphere.core.route.SQLRouteResult;
 import org.junit.After;
 import org.junit.Before;
@@ -28,8 +31,13 @@ import org.junit.runner.RunWith;
 import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnitRunner;
 
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThat;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 @RunWith(MockitoJUnitRunner.class)
 public final class TransactionalSQLShardHookTest {
@@ -43,6 +51,11 @@ public final class TransactionalSQLShardHookTest {
     @Mock
     private ShardingTableMetaData shardingTableMetaData;
     
+    @Mock
+    private SQLStatement sqlStatement;
+    
+    @Mock
+    private TransactionContextFactory transactionContextFactory;
     
     private final TransactionalSQLRoutingHook sagaSQLShardHook = new TransactionalSQLRoutingHook();
     
@@ -58,11 +71,36 @@ public final class TransactionalSQLShardHookTest {
     
     @Test
     public void assertFinishSuccess() {
+        when(sqlRouteResult.getSqlStatement()).thenReturn(sqlStatement);
+        when(sqlStatement.getType()).thenReturn(SQLType.DML);
         sagaSQLShardHook.start("logicSQL");
         sagaSQLShardHook.finishSuccess(sqlRouteResult, shardingTableMetaData);
         verify(sagaTransaction).nextLogicSQLTransaction(sqlRouteResult, shardingTableMetaData);
     }
     
+    @Test
+    public void assertFinishSuccessWithFirstDML() {
+        TransactionContextHolder.clear();
+        TransactionContextHolder.begin(transactionContextFactory);
+        when(transactionContextFactory.newInstance()).thenReturn(sagaTransaction);
+        when(sqlRouteResult.getSqlStatement()).thenReturn(sqlStatement);
+        when(sqlStatement.getType()).thenReturn(SQLType.DML);
+        sagaSQLShardHook.finishSuccess(sqlRouteResult, shardingTableMetaData);
+        verify(sagaTransaction).nextLogicSQLTransaction(sqlRouteResult, shardingTableMetaData);
+        assertThat(TransactionContextHolder.get(), is(sagaTransaction));
+    }
+    
+    @Test
+    public void assertFinishSuccessWithReadOnlyStatement() {
+        TransactionContextHolder.clear();
+        TransactionContextHolder.begin(transactionContextFactory);
+        when(sqlRouteResult.getSqlStatement()).thenReturn(sqlStatement);
+        when(sqlStatement.getType()).thenReturn(SQLType.DQL);
+        sagaSQLShardHook.finishSuccess(sqlRouteResult, shardingTableMetaData);
+        verify(transactionContextFactory, never()).newInstance();
+        assertNull(TransactionContextHolder.get());
+    }
+    
     @Test
     public void assertFinishFailure() {
         sagaSQLShardHook.finishFailure(mock(Exception.class));
@@ -23,11 +23,17 @@ import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.Mock;
+import org.mockito.invocation.InvocationOnMock;
 import org.mockito.junit.MockitoJUnitRunner;
+import org.mockito.stubbing.Answer;
+
+import java.util.Collections;
 
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -41,7 +47,7 @@ public class DMLSQLRevertEngineTest {
     
     @Before
     public void setUp() {
-        sqlRevertEngine = new DMLSQLRevertEngine(sqlRevertExecutor);
+        sqlRevertEngine = new DMLSQLRevertEngine(sqlRevertExecutor, new SetBasedRevertLimit(1000, Integer.MAX_VALUE, true));
     }
     
     @Test
@@ -57,5 +63,47 @@ public class DMLSQLRevertEngineTest {
         Optional<RevertSQLResult> actual = sqlRevertEngine.revert();
         assertTrue(actual.isPresent());
         verify(sqlRevertExecutor).fillParameters(any(RevertSQLResult.class));
+        assertFalse(actual.get().getSetBasedSQLUnits().hasNext());
+        verify(sqlRevertExecutor, never()).generateSetBasedSQLUnits(any(SetBasedRevertLimit.class));
+    }
+    
+    @Test
+    public void assertRevertSQLExistWithMultipleRows() {
+        when(sqlRevertExecutor.revertSQL()).thenReturn(Optional.of("revert sql"));
+        doAnswer(new Answer<Void>() {
+            
+            @Override
+            public Void answer(final InvocationOnMock invocation) {
+                RevertSQLResult revertSQLResult = invocation.getArgument(0);
+                revertSQLResult.getParameters().add(Collections.<Object>singletonList(1));
+                revertSQLResult.getParameters().add(Collections.<Object>singletonList(2));
+                return null;
+            }
+        }).when(sqlRevertExecutor).fillParameters(any(RevertSQLResult.class));
+        Optional<RevertSQLResult> actual = sqlRevertEngine.revert();
+        assertTrue(actual.isPresent());
+        verify(sqlRevertExecutor, never()).generateSetBasedSQLUnits(any(SetBasedRevertLimit.class));
+        actual.get().getSetBasedSQLUnits();
+        verify(sqlRevertExecutor).generateSetBasedSQLUnits(any(SetBasedRevertLimit.class));
+    }
+    
+    @Test
+    public void assertRevertSQLExistWithMultipleRowsAndRowLevelLimit() {
+        sqlRevertEngine = new DMLSQLRevertEngine(sqlRevertExecutor, new SetBasedRevertLimit(1, Integer.MAX_VALUE, true));
+        when(sqlRevertExecutor.revertSQL()).thenReturn(Optional.of("revert sql"));
+        doAnswer(new Answer<Void>() {
+            
+            @Override
+            public Void answer(final InvocationOnMock invocation) {
+                RevertSQLResult revertSQLResult = invocation.getArgument(0);
+                revertSQLResult.getParameters().add(Collections.<Object>singletonList(1));
+                revertSQLResult.getParameters().add(Collections.<Object>singletonList(2));
+                return null;
+            }
+        }).when(sqlRevertExecutor).fillParameters(any(RevertSQLResult.class));
+        Optional<RevertSQLResult> actual = sqlRevertEngine.revert();
+        assertTrue(actual.isPresent());
+        assertFalse(actual.get().getSetBasedSQLUnits().hasNext());
+        verify(sqlRevertExecutor, never()).generateSetBasedSQLUnits(any(SetBasedRevertLimit.class));
     }
 }
\ No newline at end of file
@@ -0,0 +1,93 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.shardingsphere.transaction.base.hook.revert;
+
+import com.google.common.collect.Lists;
+import io.shardingsphere.transaction.base.hook.revert.utils.MockTestUtil;
+import org.apache.shardingsphere.core.metadata.table.TableMetaData;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.List;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public final class SQLTemplateCacheTest {
+    
+    private static final String LOGIC_SQL = "DELETE FROM t_order WHERE order_id = ?";
+    
+    @Test
+    public void assertFindSQL() {
+        SQLTemplateCache sqlTemplateCache = new SQLTemplateCache();
+        SQLTemplateKey key = new SQLTemplateKey(SQLTemplateType.REVERT, "t_order_0", LOGIC_SQL, 3, 1);
+        assertFalse(sqlTemplateCache.findSQL(key).isPresent());
+        assertThat(sqlTemplateCache.putSQL(key, "INSERT INTO t_order_0 VALUES (?,?,?)"), is("INSERT INTO t_order_0 VALUES (?,?,?)"));
+        assertThat(sqlTemplateCache.findSQL(new SQLTemplateKey(SQLTemplateType.REVERT, "t_order_0", LOGIC_SQL, 3, 1)).get(), is("INSERT INTO t_order_0 VALUES (?,?,?)"));
+        assertFalse(sqlTemplateCache.findSQL(new SQLTemplateKey(SQLTemplateType.REVERT, "t_order_1", LOGIC_SQL, 3, 1)).isPresent());
+        assertFalse(sqlTemplateCache.findSQL(new SQLTemplateKey(SQLTemplateType.SET_BASED_REVERT, "t_order_0", LOGIC_SQL, 3, 1)).isPresent());
+        assertThat(sqlTemplateCache.getStats().hitCount(), is(1L));
+        assertThat(sqlTemplateCache.getStats().missCount(), is(3L));
+    }
+    
+    @Test
+    public void assertEvictLeastRecentlyUsedSQL() {
+        SQLTemplateCache sqlTemplateCache = new SQLTemplateCache(2);
+        SQLTemplateKey firstKey = new SQLTemplateKey(SQLTemplateType.SNAPSHOT, "t_order_0", LOGIC_SQL);
+        SQLTemplateKey secondKey = new SQLTemplateKey(SQLTemplateType.SNAPSHOT, "t_order_1", LOGIC_SQL);
+        SQLTemplateKey thirdKey = new SQLTemplateKey(SQLTemplateType.SNAPSHOT, "t_order_2", LOGIC_SQL);
+        sqlTemplateCache.putSQL(firstKey, "SELECT * FROM t_order_0 WHERE order_id = ? ");
+        sqlTemplateCache.putSQL(secondKey, "SELECT * FROM t_order_1 WHERE order_id = ? ");
+        assertTrue(sqlTemplateCache.findSQL(firstKey).isPresent());
+        sqlTemplateCache.putSQL(thirdKey, "SELECT * FROM t_order_2 WHERE order_id = ? ");
+        assertTrue(sqlTemplateCache.findSQL(firstKey).isPresent());
+        assertFalse(sqlTemplateCache.findSQL(secondKey).isPresent());
+        assertTrue(sqlTemplateCache.findSQL(thirdKey).isPresent());
+        assertThat(sqlTemplateCache.size(), is(2L));
+        assertThat(sqlTemplateCache.getStats().evictionCount(), is(1L));
+    }
+    
+    @Test
+    public void assertFindPrimaryKeyColumnsByTableMetaDataIdentity() {
+        SQLTemplateCache sqlTemplateCache = new SQLTemplateCache();
+        TableMetaData tableMetaData = MockTestUtil.mockTableMetaData("status");
+        MockTestUtil.addPrimaryKeyColumn(tableMetaData, "order_id");
+        List<String> primaryKeyColumns = sqlTemplateCache.putPrimaryKeyColumns(tableMetaData, Collections.singletonList("order_id"));
+        assertThat(sqlTemplateCache.findPrimaryKeyColumns(tableMetaData).get(), is(primaryKeyColumns));
+        TableMetaData refreshedTableMetaData = MockTestUtil.mockTableMetaData("status");
+        MockTestUtil.addPrimaryKeyColumn(refreshedTableMetaData, "order_id");
+        assertFalse(sqlTemplateCache.findPrimaryKeyColumns(refreshedTableMetaData).isPresent());
+    }
+    
+    @Test(expected = UnsupportedOperationException.class)
+    public void assertModifyCachedPrimaryKeyColumns() {
+        new SQLTemplateCache().putPrimaryKeyColumns(MockTestUtil.mockTableMetaData("order_id"), Lists.newArrayList("order_id")).add("user_id");
+    }
+    
+    @Test
+    public void assertGetPlaceholderCount() {
+        SQLTemplateCache sqlTemplateCache = new SQLTemplateCache();
+        assertThat(sqlTemplateCache.getPlaceholderCount("DELETE FROM t_order_0 WHERE order_id = ? AND user_id = ?"), is(2));
+        assertThat(sqlTemplateCache.getPlaceholderCount("DELETE FROM t_order_0 WHERE order_id = ? AND user_id = ?"), is(2));
+        assertThat(sqlTemplateCache.getPlaceholderCount("DELETE FROM t_order_0"), is(0));
+        assertThat(sqlTemplateCache.getStats().hitCount(), is(1L));
+        assertThat(sqlTemplateCache.getStats().missCount(), is(2L));
+    }
+}
@@ -0,0 +1,65 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.shardingsphere.transaction.base.hook.revert;
+
+import org.apache.shardingsphere.core.constant.DatabaseType;
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public final class SetBasedRevertLimitTest {
+    
+    @Test
+    public void assertChunkSizeOfSQLServer() {
+        SetBasedRevertLimit actual = SetBasedRevertLimit.newInstance(DatabaseType.SQLServer, 5000);
+        assertTrue(actual.isMultiRowValuesSupported());
+        assertThat(actual.getChunkSize(1, 0), is(1000));
+        assertThat(actual.getChunkSize(10, 0), is(210));
+        assertThat(actual.getChunkSize(2, 100), is(1000));
+        assertThat(actual.getChunkSize(3, 100), is(666));
+    }
+    
+    @Test
+    public void assertChunkSizeOfOracle() {
+        SetBasedRevertLimit actual = SetBasedRevertLimit.newInstance(DatabaseType.Oracle, 5000);
+        assertFalse(actual.isMultiRowValuesSupported());
+        assertThat(actual.getChunkSize(1, 0), is(1000));
+    }
+    
+    @Test
+    public void assertChunkSizeOfPostgreSQL() {
+        SetBasedRevertLimit actual = SetBasedRevertLimit.newInstance(DatabaseType.PostgreSQL, 50000);
+        assertThat(actual.getChunkSize(1, 0), is(32767));
+        assertThat(actual.getChunkSize(100, 0), is(327));
+    }
+    
+    @Test
+    public void assertChunkSizeOfMySQL() {
+        SetBasedRevertLimit actual = SetBasedRevertLimit.newInstance(DatabaseType.MySQL, 1000);
+        assertThat(actual.getChunkSize(10, 0), is(1000));
+        assertThat(actual.getChunkSize(100, 0), is(655));
+    }
+    
+    @Test
+    public void assertChunkSizeWithRowLevelCompensation() {
+        assertThat(SetBasedRevertLimit.newInstance(DatabaseType.H2, 1).getChunkSize(1, 0), is(1));
+    }
+}
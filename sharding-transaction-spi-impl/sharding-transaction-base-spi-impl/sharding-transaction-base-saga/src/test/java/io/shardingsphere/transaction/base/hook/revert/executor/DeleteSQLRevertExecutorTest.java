@@ -20,6 +20,9 @@ package io.shardingsphere.transaction.base.hook.revert.executor;
 import com.google.common.base.Optional;
 import com.google.common.collect.Lists;
 import io.shardingsphere.transaction.base.hook.revert.RevertSQLResult;
+import io.shardingsphere.transaction.base.hook.revert.RevertSQLUnit;
+import io.shardingsphere.transaction.base.hook.revert.SQLTemplateCache;
+import io.shardingsphere.transaction.base.hook.revert.SetBasedRevertLimit;
 import io.shardingsphere.transaction.base.hook.revert.executor.delete.DeleteSQLRevertExecutor;
 import io.shardingsphere.transaction.base.hook.revert.snapshot.DeleteSnapshotAccessor;
 import org.junit.Before;
@@ -29,6 +32,7 @@ import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnitRunner;
 
 import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -57,6 +61,7 @@ public class DeleteSQLRevertExecutorTest {
     @Before
     public void setUp() throws SQLException {
         when(executorContext.getActualTableName()).thenReturn("t_order_0");
+        when(executorContext.getSqlTemplateCache()).thenReturn(new SQLTemplateCache());
         when(snapshotAccessor.queryUndoData()).thenReturn(undoData);
         addUndoData();
     }
@@ -94,4 +99,32 @@ public class DeleteSQLRevertExecutorTest {
         assertThat(revertSQLResult.getParameters().size(), is(10));
         assertThat(revertSQLResult.getParameters().iterator().next().size(), is(3));
     }
+    
+    @Test
+    public void assertGenerateSetBasedSQLUnits() throws SQLException {
+        deleteSQLRevertExecutor = new DeleteSQLRevertExecutor(executorContext, snapshotAccessor);
+        List<RevertSQLUnit> actual = Lists.newArrayList(deleteSQLRevertExecutor.generateSetBasedSQLUnits(new SetBasedRevertLimit(4, Integer.MAX_VALUE, true)));
+        assertThat(actual.size(), is(3));
+        assertThat(actual.get(0).getSql(), is("INSERT INTO t_order_0 VALUES (?,?,?), (?,?,?), (?,?,?), (?,?,?)"));
+        assertThat(actual.get(0).getParameters().size(), is(1));
+        assertThat(actual.get(0).getParameters().get(0).size(), is(12));
+        assertThat(actual.get(1).getSql(), is("INSERT INTO t_order_0 VALUES (?,?,?), (?,?,?), (?,?,?), (?,?,?)"));
+        assertThat(actual.get(2).getSql(), is("INSERT INTO t_order_0 VALUES (?,?,?), (?,?,?)"));
+        assertThat(actual.get(2).getParameters().get(0).size(), is(6));
+    }
+    
+    @Test
+    public void assertGenerateSetBasedSQLUnitsCappedByParameterCount() throws SQLException {
+        deleteSQLRevertExecutor = new DeleteSQLRevertExecutor(executorContext, snapshotAccessor);
+        List<RevertSQLUnit> actual = Lists.newArrayList(deleteSQLRevertExecutor.generateSetBasedSQLUnits(new SetBasedRevertLimit(1000, 9, true)));
+        assertThat(actual.size(), is(4));
+        assertThat(actual.get(0).getSql(), is("INSERT INTO t_order_0 VALUES (?,?,?), (?,?,?), (?,?,?)"));
+        assertThat(actual.get(3).getSql(), is("INSERT INTO t_order_0 VALUES (?,?,?)"));
+    }
+    
+    @Test
+    public void assertGenerateSetBasedSQLUnitsWithoutMultiRowValues() throws SQLException {
+        deleteSQLRevertExecutor = new DeleteSQLRevertExecutor(executorContext, snapshotAccessor);
+        assertFalse(deleteSQLRevertExecutor.generateSetBasedSQLUnits(new SetBasedRevertLimit(1000, 65535, false)).hasNext());
+    }
 }
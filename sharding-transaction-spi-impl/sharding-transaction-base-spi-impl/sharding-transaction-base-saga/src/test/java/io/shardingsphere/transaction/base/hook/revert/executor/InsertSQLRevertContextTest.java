@@ -118,6 +118,18 @@ public class InsertSQLRevertContextTest {
         }
     }
     
+    @Test
+    public void assertCreateInsertSQLRevertContextWithRoutedInsertUnits() {
+        primaryKeys.add("order_id");
+        List<InsertOptimizeResultUnit> routedInsertUnits = mockInsertOptimizeResult("order_id", "user_id", "status");
+        InsertSQLRevertContext sqlRevertContext = new InsertSQLRevertContext(dataSourceName, tableName, primaryKeys, routedInsertUnits);
+        assertThat(sqlRevertContext.getPrimaryKeyInsertValues().size(), is(10));
+        for (Map<String, Object> each : sqlRevertContext.getPrimaryKeyInsertValues()) {
+            assertThat(each.size(), is(1));
+            assertThat(each.get("order_id"), CoreMatchers.<Object>is(0));
+        }
+    }
+    
     @Test
     public void assertCreateInsertSQLRevertContextWithoutPrimaryKey() {
         InsertSQLRevertContext sqlRevertContext = new InsertSQLRevertContext(dataSourceName, tableName, primaryKeys, insertOptimizeResult);
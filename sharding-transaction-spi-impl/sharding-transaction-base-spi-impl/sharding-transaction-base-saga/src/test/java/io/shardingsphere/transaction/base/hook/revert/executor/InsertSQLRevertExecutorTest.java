@@ -18,7 +18,11 @@
 package io.shardingsphere.transaction.base.hook.revert.executor;
 
 import com.google.common.base.Optional;
+import com.google.common.collect.Lists;
 import io.shardingsphere.transaction.base.hook.revert.RevertSQLResult;
+import io.shardingsphere.transaction.base.hook.revert.RevertSQLUnit;
+import io.shardingsphere.transaction.base.hook.revert.SQLTemplateCache;
+import io.shardingsphere.transaction.base.hook.revert.SetBasedRevertLimit;
 import io.shardingsphere.transaction.base.hook.revert.executor.insert.InsertSQLRevertContext;
 import io.shardingsphere.transaction.base.hook.revert.executor.insert.InsertSQLRevertExecutor;
 import lombok.SneakyThrows;
@@ -29,10 +33,14 @@ import org.junit.runner.RunWith;
 import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnitRunner;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.Map;
 
 import static org.hamcrest.CoreMatchers.is;
@@ -54,7 +62,7 @@ public class InsertSQLRevertExecutorTest {
     @SneakyThrows
     public void setUp() {
         when(revertSQLContext.getActualTable()).thenReturn("t_order_0");
-        insertSQLRevertExecutor = new InsertSQLRevertExecutor(revertSQLContext);
+        insertSQLRevertExecutor = new InsertSQLRevertExecutor(revertSQLContext, new SQLTemplateCache());
     }
     
     private Collection<Map<String, Object>> mockPrimaryKeyInsertValues(final int count, final String... primaryKeys) {
@@ -110,6 +118,27 @@ public class InsertSQLRevertExecutorTest {
         assertThat(iterator.next(), CoreMatchers.<Object>is("user_id_1"));
     }
     
+    @Test
+    public void assertGenerateSetBasedSQLUnitsWithSinglePrimaryKey() {
+        when(revertSQLContext.getPrimaryKeyInsertValues()).thenReturn(mockPrimaryKeyInsertValues(5, "user_id"));
+        List<RevertSQLUnit> actual = Lists.newArrayList(insertSQLRevertExecutor.generateSetBasedSQLUnits(new SetBasedRevertLimit(2, Integer.MAX_VALUE, true)));
+        assertThat(actual.size(), is(3));
+        assertThat(actual.get(0).getSql(), is("DELETE FROM t_order_0 WHERE user_id IN (?, ?)"));
+        assertThat(actual.get(1).getSql(), is("DELETE FROM t_order_0 WHERE user_id IN (?, ?)"));
+        assertThat(new ArrayList<>(actual.get(1).getParameters().get(0)), is(Arrays.<Object>asList("user_id_3", "user_id_4")));
+        assertThat(actual.get(2).getSql(), is("DELETE FROM t_order_0 WHERE user_id IN (?)"));
+        assertThat(new ArrayList<>(actual.get(2).getParameters().get(0)), is(Collections.<Object>singletonList("user_id_5")));
+    }
+    
+    @Test
+    public void assertGenerateSetBasedSQLUnitsWithMultiPrimaryKeys() {
+        when(revertSQLContext.getPrimaryKeyInsertValues()).thenReturn(mockPrimaryKeyInsertValues(2, "user_id", "order_id"));
+        List<RevertSQLUnit> actual = Lists.newArrayList(insertSQLRevertExecutor.generateSetBasedSQLUnits(new SetBasedRevertLimit(10, Integer.MAX_VALUE, true)));
+        assertThat(actual.size(), is(1));
+        assertThat(actual.get(0).getSql(), is("DELETE FROM t_order_0 WHERE (user_id = ? AND order_id = ?) OR (user_id = ? AND order_id = ?)"));
+        assertThat(new ArrayList<>(actual.get(0).getParameters().get(0)), is(Arrays.<Object>asList("user_id_1", "order_id_1", "user_id_2", "order_id_2")));
+    }
+    
     @Test(expected = IllegalStateException.class)
     public void assertGenerateSQLWithoutPrimaryKeyValue() {
         when(revertSQLContext.getPrimaryKeyInsertValues()).thenReturn(mockPrimaryKeyInsertValues(5));
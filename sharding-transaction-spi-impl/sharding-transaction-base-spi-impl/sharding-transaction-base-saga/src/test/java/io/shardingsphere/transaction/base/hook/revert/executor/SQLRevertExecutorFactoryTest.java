@@ -18,11 +18,10 @@
 package io.shardingsphere.transaction.base.hook.revert.executor;
 
 import com.google.common.base.Optional;
+import io.shardingsphere.transaction.base.hook.revert.SQLTemplateCache;
 import io.shardingsphere.transaction.base.hook.revert.executor.delete.DeleteSQLRevertExecutor;
 import io.shardingsphere.transaction.base.hook.revert.executor.insert.InsertSQLRevertExecutor;
 import io.shardingsphere.transaction.base.hook.revert.executor.update.UpdateSQLRevertExecutor;
-import org.apache.shardingsphere.core.optimize.result.OptimizeResult;
-import org.apache.shardingsphere.core.optimize.result.insert.InsertOptimizeResult;
 import org.apache.shardingsphere.core.parse.antlr.sql.statement.dml.DMLStatement;
 import org.apache.shardingsphere.core.parse.antlr.sql.statement.dml.DeleteStatement;
 import org.apache.shardingsphere.core.parse.antlr.sql.statement.dml.InsertStatement;
@@ -66,10 +65,7 @@ public class SQLRevertExecutorFactoryTest {
     private UpdateStatement updateStatement;
     
     @Mock
-    private OptimizeResult optimizeResult;
-    
-    @Mock
-    private InsertOptimizeResult insertOptimizeResult;
+    private SQLRouteResultIndex sqlRouteResultIndex;
     
     @Mock
     private Tables tables;
@@ -100,13 +96,13 @@ public class SQLRevertExecutorFactoryTest {
         primaryKeyColumns.add("order_id");
         tableName = "t_order";
         tableAlias = "t";
+        when(executorContext.getSqlTemplateCache()).thenReturn(new SQLTemplateCache());
     }
     
     @Test
     public void assertNewSQLRevertExecutor() {
         when(executorContext.getSqlStatement()).thenReturn(insertStatement);
-        when(executorContext.getOptimizeResult()).thenReturn(optimizeResult);
-        when(optimizeResult.getInsertOptimizeResult()).thenReturn(Optional.of(insertOptimizeResult));
+        when(executorContext.getSqlRouteResultIndex()).thenReturn(sqlRouteResultIndex);
         SQLRevertExecutor actual = SQLRevertExecutorFactory.newInstance(executorContext);
         assertThat(actual, instanceOf(InsertSQLRevertExecutor.class));
     }
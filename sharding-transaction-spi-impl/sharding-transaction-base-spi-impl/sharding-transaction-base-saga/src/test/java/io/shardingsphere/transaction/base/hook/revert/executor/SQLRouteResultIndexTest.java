@@ -0,0 +1,147 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.shardingsphere.transaction.base.hook.revert.executor;
+
+import com.google.common.base.Optional;
+import org.apache.shardingsphere.core.exception.ShardingException;
+import org.apache.shardingsphere.core.optimize.result.OptimizeResult;
+import org.apache.shardingsphere.core.optimize.result.insert.ColumnValueOptimizeResult;
+import org.apache.shardingsphere.core.optimize.result.insert.InsertOptimizeResult;
+import org.apache.shardingsphere.core.optimize.result.insert.InsertOptimizeResultUnit;
+import org.apache.shardingsphere.core.parse.old.parser.expression.SQLExpression;
+import org.apache.shardingsphere.core.parse.old.parser.expression.SQLParameterMarkerExpression;
+import org.apache.shardingsphere.core.route.RouteUnit;
+import org.apache.shardingsphere.core.route.SQLRouteResult;
+import org.apache.shardingsphere.core.route.SQLUnit;
+import org.apache.shardingsphere.core.route.type.RoutingResult;
+import org.apache.shardingsphere.core.route.type.RoutingUnit;
+import org.apache.shardingsphere.core.route.type.TableUnit;
+import org.apache.shardingsphere.core.rule.DataNode;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.List;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public final class SQLRouteResultIndexTest {
+    
+    private static final int ROW_COUNT = 10000;
+    
+    private static final int TABLE_COUNT = 64;
+    
+    @Mock
+    private SQLRouteResult sqlRouteResult;
+    
+    @Mock
+    private OptimizeResult optimizeResult;
+    
+    @Mock
+    private InsertOptimizeResult insertOptimizeResult;
+    
+    private RoutingResult routingResult = new RoutingResult();
+    
+    private List<RouteUnit> routeUnits = new LinkedList<>();
+    
+    private SQLRouteResultIndex sqlRouteResultIndex;
+    
+    @Before
+    public void setUp() {
+        when(sqlRouteResult.getRoutingResult()).thenReturn(routingResult);
+        when(sqlRouteResult.getRouteUnits()).thenReturn(routeUnits);
+        when(sqlRouteResult.getOptimizeResult()).thenReturn(optimizeResult);
+        when(optimizeResult.getInsertOptimizeResult()).thenReturn(Optional.of(insertOptimizeResult));
+        sqlRouteResultIndex = new SQLRouteResultIndex(sqlRouteResult);
+    }
+    
+    @Test
+    public void assertGetActualTableNameByPosition() {
+        addRouteUnit("ds", "t_order_0");
+        addRouteUnit("ds", "t_order_1");
+        assertThat(sqlRouteResultIndex.getActualTableName(routeUnits.get(0), "t_order"), is("t_order_0"));
+        assertThat(sqlRouteResultIndex.getActualTableName(routeUnits.get(1), "T_ORDER"), is("t_order_1"));
+    }
+    
+    @Test
+    public void assertGetActualTableNameByDataSource() {
+        addRouteUnit("ds", "t_order_0");
+        RouteUnit routeUnit = new RouteUnit("DS", new SQLUnit("DELETE FROM t_order_0", Collections.<Object>emptyList()));
+        assertThat(sqlRouteResultIndex.getActualTableName(routeUnit, "t_order"), is("t_order_0"));
+    }
+    
+    @Test(expected = ShardingException.class)
+    public void assertGetActualTableNameWithoutRoutingUnit() {
+        addRouteUnit("ds", "t_order_0");
+        sqlRouteResultIndex.getActualTableName(new RouteUnit("ds_1", new SQLUnit("DELETE FROM t_order_0", Collections.<Object>emptyList())), "t_order");
+    }
+    
+    @Test(expected = ShardingException.class)
+    public void assertGetActualTableNameWithoutLogicTable() {
+        addRouteUnit("ds", "t_order_0");
+        sqlRouteResultIndex.getActualTableName(routeUnits.get(0), "t_order_item");
+    }
+    
+    @Test
+    public void assertGetInsertOptimizeResultUnitsOfLargeInsert() {
+        List<InsertOptimizeResultUnit> units = new LinkedList<>();
+        SQLExpression[] values = new SQLExpression[]{mock(SQLParameterMarkerExpression.class), mock(SQLParameterMarkerExpression.class)};
+        for (int i = 0; i < ROW_COUNT; i++) {
+            InsertOptimizeResultUnit unit = new ColumnValueOptimizeResult(Arrays.asList("order_id", "user_id"), values, new Object[]{i, i}, 1);
+            unit.getDataNodes().add(new DataNode("ds", "t_order_" + i % TABLE_COUNT));
+            units.add(unit);
+        }
+        when(insertOptimizeResult.getUnits()).thenReturn(units);
+        int actualRowCount = 0;
+        for (int i = 0; i < TABLE_COUNT; i++) {
+            List<InsertOptimizeResultUnit> actual = sqlRouteResultIndex.getInsertOptimizeResultUnits(new DataNode("ds", "t_order_" + i));
+            assertThat(actual.size(), is(ROW_COUNT / TABLE_COUNT + (i < ROW_COUNT % TABLE_COUNT ? 1 : 0)));
+            for (InsertOptimizeResultUnit each : actual) {
+                assertThat(((Integer) each.getParameters()[0]) % TABLE_COUNT, is(i));
+            }
+            actualRowCount += actual.size();
+        }
+        assertThat(actualRowCount, is(ROW_COUNT));
+        verify(insertOptimizeResult, times(1)).getUnits();
+    }
+    
+    @Test
+    public void assertGetInsertOptimizeResultUnitsOfNotRoutedDataNode() {
+        when(insertOptimizeResult.getUnits()).thenReturn(Collections.<InsertOptimizeResultUnit>emptyList());
+        assertTrue(sqlRouteResultIndex.getInsertOptimizeResultUnits(new DataNode("ds", "t_order_0")).isEmpty());
+    }
+    
+    private void addRouteUnit(final String dataSourceName, final String actualTableName) {
+        RoutingUnit routingUnit = new RoutingUnit(dataSourceName);
+        routingUnit.getTableUnits().add(new TableUnit("t_order", actualTableName));
+        routingResult.getRoutingUnits().add(routingUnit);
+        routeUnits.add(new RouteUnit(dataSourceName, new SQLUnit("DELETE FROM " + actualTableName, Collections.<Object>emptyList())));
+    }
+}
@@ -20,6 +20,9 @@ package io.shardingsphere.transaction.base.hook.revert.executor;
 import com.google.common.base.Optional;
 import com.google.common.collect.Lists;
 import io.shardingsphere.transaction.base.hook.revert.RevertSQLResult;
+import io.shardingsphere.transaction.base.hook.revert.RevertSQLUnit;
+import io.shardingsphere.transaction.base.hook.revert.SQLTemplateCache;
+import io.shardingsphere.transaction.base.hook.revert.SetBasedRevertLimit;
 import io.shardingsphere.transaction.base.hook.revert.executor.update.UpdateSQLRevertExecutor;
 import io.shardingsphere.transaction.base.hook.revert.snapshot.UpdateSnapshotAccessor;
 import org.apache.shardingsphere.core.parse.antlr.sql.statement.dml.UpdateStatement;
@@ -36,6 +39,7 @@ import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnitRunner;
 
 import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
@@ -79,6 +83,7 @@ public class UpdateSQLRevertExecutorTest {
         when(executorContext.getSqlStatement()).thenReturn(updateStatement);
         when(executorContext.getParameters()).thenReturn(parameters);
         when(executorContext.getActualTableName()).thenReturn("t_order_0");
+        when(executorContext.getSqlTemplateCache()).thenReturn(new SQLTemplateCache());
         when(executorContext.getPrimaryKeyColumns()).thenReturn(Lists.newLinkedList(Collections.singleton("order_id")));
     }
     
@@ -191,4 +196,30 @@ public class UpdateSQLRevertExecutorTest {
             offset++;
         }
     }
-}
\ No newline at end of file
+    
+    @Test
+    public void assertGenerateSetBasedSQLUnitsGroupedByBeforeImage() throws SQLException {
+        setUpdateAssignments("t_order", "user_id", "status");
+        for (int i = 1; i <= 3; i++) {
+            Map<String, Object> record = new HashMap<>();
+            record.put("user_id", 1);
+            record.put("status", "init");
+            record.put("order_id", i);
+            undoData.add(record);
+        }
+        Map<String, Object> record = new HashMap<>();
+        record.put("user_id", 2);
+        record.put("status", "init");
+        record.put("order_id", 4);
+        undoData.add(record);
+        sqlRevertExecutor = new UpdateSQLRevertExecutor(executorContext, snapshotAccessor);
+        List<RevertSQLUnit> actual = Lists.newArrayList(sqlRevertExecutor.generateSetBasedSQLUnits(new SetBasedRevertLimit(2, Integer.MAX_VALUE, true)));
+        assertThat(actual.size(), is(3));
+        assertThat(actual.get(0).getSql(), is("UPDATE t_order_0 SET user_id = ?, status = ? WHERE order_id IN (?, ?)"));
+        assertThat(new ArrayList<>(actual.get(0).getParameters().get(0)), is(Arrays.<Object>asList(1, "init", 1, 2)));
+        assertThat(actual.get(1).getSql(), is("UPDATE t_order_0 SET user_id = ?, status = ? WHERE order_id IN (?)"));
+        assertThat(new ArrayList<>(actual.get(1).getParameters().get(0)), is(Arrays.<Object>asList(1, "init", 3)));
+        assertThat(actual.get(2).getSql(), is("UPDATE t_order_0 SET user_id = ?, status = ? WHERE order_id IN (?)"));
+        assertThat(new ArrayList<>(actual.get(2).getParameters().get(0)), is(Arrays.<Object>asList(2, "init", 4)));
+    }
+}
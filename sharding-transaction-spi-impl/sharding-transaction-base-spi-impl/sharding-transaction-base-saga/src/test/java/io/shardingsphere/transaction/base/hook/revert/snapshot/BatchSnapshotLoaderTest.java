@@ -0,0 +1,176 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.shardingsphere.transaction.base.hook.revert.snapshot;
+
+import com.google.common.base.Optional;
+import io.shardingsphere.transaction.base.hook.revert.SQLTemplateCache;
+import io.shardingsphere.transaction.base.hook.revert.executor.SQLRevertExecutorContext;
+import io.shardingsphere.transaction.base.hook.revert.executor.SQLRouteResultIndex;
+import io.shardingsphere.transaction.base.hook.revert.utils.MockTestUtil;
+import org.apache.shardingsphere.core.metadata.table.TableMetaData;
+import org.apache.shardingsphere.core.parse.antlr.sql.statement.dml.DeleteStatement;
+import org.apache.shardingsphere.core.route.RouteUnit;
+import org.apache.shardingsphere.core.route.SQLRouteResult;
+import org.apache.shardingsphere.core.route.SQLUnit;
+import org.apache.shardingsphere.core.route.type.RoutingResult;
+import org.apache.shardingsphere.core.route.type.RoutingUnit;
+import org.apache.shardingsphere.core.route.type.TableUnit;
+import org.hamcrest.CoreMatchers;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public final class BatchSnapshotLoaderTest {
+    
+    @Mock
+    private Connection connection;
+    
+    @Mock
+    private Connection anotherConnection;
+    
+    @Mock
+    private RouteUnitConnectionFinder connectionFinder;
+    
+    @Mock
+    private PreparedStatement preparedStatement;
+    
+    @Mock
+    private ResultSet resultSet;
+    
+    @Mock
+    private ResultSetMetaData resultSetMetaData;
+    
+    private DeleteStatement deleteStatement;
+    
+    private SQLRouteResult sqlRouteResult;
+    
+    private TableMetaData tableMetaData;
+    
+    private final SQLTemplateCache sqlTemplateCache = new SQLTemplateCache();
+    
+    @Before
+    public void setUp() throws SQLException {
+        deleteStatement = MockTestUtil.mockDeleteStatement("t_order");
+        when(deleteStatement.getLogicSQL()).thenReturn("DELETE FROM t_order WHERE order_id = ?");
+        when(deleteStatement.getWhereStartIndex()).thenReturn(20);
+        when(deleteStatement.getWhereStopIndex()).thenReturn(37);
+        tableMetaData = MockTestUtil.mockTableMetaData("status");
+        MockTestUtil.addPrimaryKeyColumn(tableMetaData, "order_id");
+        sqlRouteResult = new SQLRouteResult(deleteStatement);
+        sqlRouteResult.setRoutingResult(new RoutingResult());
+        addRouteUnit("ds", "t_order_0", 1);
+        addRouteUnit("ds", "t_order_1", 2);
+        when(connection.prepareStatement(anyString())).thenReturn(preparedStatement);
+        when(preparedStatement.executeQuery()).thenReturn(resultSet);
+        when(resultSet.getMetaData()).thenReturn(resultSetMetaData);
+    }
+    
+    private void addRouteUnit(final String dataSourceName, final String actualTableName, final int orderId) {
+        RoutingUnit routingUnit = new RoutingUnit(dataSourceName);
+        routingUnit.getTableUnits().add(new TableUnit("t_order", actualTableName));
+        sqlRouteResult.getRoutingResult().getRoutingUnits().add(routingUnit);
+        sqlRouteResult.getRouteUnits().add(new RouteUnit(dataSourceName, new SQLUnit("DELETE FROM " + actualTableName + " WHERE order_id = ?", Collections.<Object>singletonList(orderId))));
+    }
+    
+    @Test
+    public void assertLoadUndoDataOfSameDataSourceInOneQuery() throws SQLException {
+        when(resultSet.next()).thenReturn(true, true, false);
+        when(resultSetMetaData.getColumnCount()).thenReturn(2);
+        when(resultSetMetaData.getColumnName(1)).thenReturn("order_id");
+        when(resultSetMetaData.getColumnName(2)).thenReturn("SHARDING_SNAPSHOT_INDEX");
+        when(resultSet.getObject(1)).thenReturn(2, 1);
+        when(resultSet.getObject(2)).thenReturn(1, 0);
+        List<RouteUnit> routeUnits = new ArrayList<>(sqlRouteResult.getRouteUnits());
+        when(connectionFinder.findExecutingConnection(routeUnits.get(1))).thenReturn(Optional.of(connection));
+        BatchSnapshotLoader snapshotLoader = new BatchSnapshotLoader(sqlRouteResult, tableMetaData, new UndoDataStore(), connectionFinder);
+        List<Map<String, Object>> actualFirst = snapshotLoader.load(new DeleteSnapshotAccessor(newExecutorContext(routeUnits.get(0))));
+        List<Map<String, Object>> actualSecond = snapshotLoader.load(new DeleteSnapshotAccessor(newExecutorContext(routeUnits.get(1))));
+        verify(connection, times(1)).prepareStatement(
+            "SELECT status, order_id, 0 AS sharding_snapshot_index FROM t_order_0 WHERE order_id = ? UNION ALL SELECT status, order_id, 1 AS sharding_snapshot_index FROM t_order_1 WHERE order_id = ? ");
+        verify(preparedStatement).setObject(1, 1);
+        verify(preparedStatement).setObject(2, 2);
+        assertThat(actualFirst.size(), is(1));
+        assertThat(actualFirst.get(0).get("order_id"), CoreMatchers.<Object>is(1));
+        assertFalse(actualFirst.get(0).containsKey("SHARDING_SNAPSHOT_INDEX"));
+        assertThat(actualSecond.size(), is(1));
+        assertThat(actualSecond.get(0).get("order_id"), CoreMatchers.<Object>is(2));
+    }
+    
+    @Test
+    public void assertLoadUndoDataOfDifferentConnectionsSeparately() throws SQLException {
+        when(anotherConnection.prepareStatement(anyString())).thenReturn(preparedStatement);
+        List<RouteUnit> routeUnits = new ArrayList<>(sqlRouteResult.getRouteUnits());
+        when(connectionFinder.findExecutingConnection(routeUnits.get(0))).thenReturn(Optional.of(connection));
+        when(connectionFinder.findExecutingConnection(routeUnits.get(1))).thenReturn(Optional.of(anotherConnection));
+        BatchSnapshotLoader snapshotLoader = new BatchSnapshotLoader(sqlRouteResult, tableMetaData, new UndoDataStore(), connectionFinder);
+        snapshotLoader.load(new DeleteSnapshotAccessor(newExecutorContext(routeUnits.get(0), connection)));
+        snapshotLoader.load(new DeleteSnapshotAccessor(newExecutorContext(routeUnits.get(1), anotherConnection)));
+        verify(connection).prepareStatement("SELECT status, order_id FROM t_order_0 WHERE order_id = ? ");
+        verify(anotherConnection).prepareStatement("SELECT status, order_id FROM t_order_1 WHERE order_id = ? ");
+    }
+    
+    @Test
+    public void assertLoadUndoDataWithoutExecutingConnectionSeparately() throws SQLException {
+        List<RouteUnit> routeUnits = new ArrayList<>(sqlRouteResult.getRouteUnits());
+        BatchSnapshotLoader snapshotLoader = new BatchSnapshotLoader(sqlRouteResult, tableMetaData);
+        snapshotLoader.load(new DeleteSnapshotAccessor(newExecutorContext(routeUnits.get(0))));
+        snapshotLoader.load(new DeleteSnapshotAccessor(newExecutorContext(routeUnits.get(1))));
+        verify(connection).prepareStatement("SELECT status, order_id FROM t_order_0 WHERE order_id = ? ");
+        verify(connection).prepareStatement("SELECT status, order_id FROM t_order_1 WHERE order_id = ? ");
+    }
+    
+    @Test
+    public void assertLoadUndoDataOfSingleRouteUnit() throws SQLException {
+        sqlRouteResult.getRouteUnits().clear();
+        sqlRouteResult.getRoutingResult().getRoutingUnits().clear();
+        addRouteUnit("ds", "t_order_0", 1);
+        addRouteUnit("ds_1", "t_order_1", 2);
+        BatchSnapshotLoader snapshotLoader = new BatchSnapshotLoader(sqlRouteResult, tableMetaData);
+        snapshotLoader.load(new DeleteSnapshotAccessor(newExecutorContext(sqlRouteResult.getRouteUnits().iterator().next())));
+        verify(connection).prepareStatement("SELECT status, order_id FROM t_order_0 WHERE order_id = ? ");
+    }
+    
+    private SQLRevertExecutorContext newExecutorContext(final RouteUnit routeUnit) {
+        return newExecutorContext(routeUnit, connection);
+    }
+    
+    private SQLRevertExecutorContext newExecutorContext(final RouteUnit routeUnit, final Connection executingConnection) {
+        return new SQLRevertExecutorContext(sqlRouteResult, routeUnit, tableMetaData, executingConnection, sqlTemplateCache, new SQLRouteResultIndex(sqlRouteResult));
+    }
+}
@@ -17,6 +17,7 @@
 
 package io.shardingsphere.transaction.base.hook.revert.snapshot;
 
+import io.shardingsphere.transaction.base.hook.revert.SQLTemplateCache;
 import io.shardingsphere.transaction.base.hook.revert.executor.SQLRevertExecutorContext;
 import org.apache.shardingsphere.core.parse.antlr.sql.statement.dml.DeleteStatement;
 import org.hamcrest.CoreMatchers;
@@ -31,8 +32,8 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
+import java.util.Arrays;
 import java.util.Collection;
-import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
 
@@ -70,6 +71,8 @@ public class DeleteSnapshotAccessorTest {
     @Before
     public void setUp() throws SQLException {
         when(executorContext.getActualTableName()).thenReturn("t_order_0");
+        when(executorContext.getColumnNames()).thenReturn(Arrays.asList("order_id", "user_id", "status"));
+        when(executorContext.getSqlTemplateCache()).thenReturn(new SQLTemplateCache());
         when(executorContext.getSqlStatement()).thenReturn(deleteStatement);
         when(deleteStatement.getLogicSQL()).thenReturn("DELETE FROM t_order WHERE order_id = ?");
         when(deleteStatement.getWhereStartIndex()).thenReturn(20);
@@ -86,7 +89,7 @@ public class DeleteSnapshotAccessorTest {
         SnapshotSQLContext actual = deleteSnapshotAccessor.getSnapshotSQLContext(executorContext);
         assertThat(actual.getConnection(), is(connection));
         assertThat(actual.getParameters(), CoreMatchers.<Collection<Object>>is(parameters));
-        assertThat(actual.getQueryColumnNames(), CoreMatchers.<Collection<String>>is(Collections.singleton("*")));
+        assertThat(actual.getQueryColumnNames(), CoreMatchers.<Collection<String>>is(Arrays.asList("order_id", "user_id", "status")));
         assertThat(actual.getTableName(), is("t_order_0"));
         assertThat(actual.getWhereClause(), is("WHERE order_id = ?"));
     }
@@ -94,6 +97,6 @@ public class DeleteSnapshotAccessorTest {
     @Test
     public void assertQueryUndoData() throws SQLException {
         deleteSnapshotAccessor.queryUndoData();
-        verify(connection).prepareStatement("SELECT * FROM t_order_0 WHERE order_id = ? ");
+        verify(connection).prepareStatement("SELECT order_id, user_id, status FROM t_order_0 WHERE order_id = ? ");
     }
 }
\ No newline at end of file
@@ -0,0 +1,108 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.shardingsphere.transaction.base.hook.revert.snapshot;
+
+import org.hamcrest.CoreMatchers;
+import org.junit.After;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Map;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public final class UndoDataTest {
+    
+    private UndoDataStore undoDataStore;
+    
+    @After
+    public void tearDown() {
+        undoDataStore.close();
+    }
+    
+    @Test
+    public void assertAddRowInMemory() {
+        undoDataStore = new UndoDataStore();
+        UndoData undoData = undoDataStore.newUndoData(Arrays.asList("order_id", "status"));
+        undoData.addRow(new Object[]{1L, "init"});
+        undoData.addRow(new Object[]{2L, null});
+        assertThat(undoData.size(), is(2));
+        Map<String, Object> actual = undoData.get(0);
+        assertThat(actual.get("order_id"), CoreMatchers.<Object>is(1L));
+        assertThat(actual.get("status"), CoreMatchers.<Object>is("init"));
+        assertTrue(actual.containsKey("status"));
+        assertFalse(actual.containsKey("user_id"));
+        assertThat(new ArrayList<>(actual.keySet()), is(Arrays.asList("order_id", "status")));
+        assertThat(new ArrayList<>(undoData.get(1).values()), is(Arrays.<Object>asList(2L, null)));
+        assertThat(undoDataStore.getSpilledBytes(), is(0L));
+        assertTrue(undoDataStore.getUndoDataBytes() > 0L);
+    }
+    
+    @Test
+    public void assertAddRowExceedMaxMemoryBytes() {
+        undoDataStore = new UndoDataStore(200L);
+        UndoData undoData = undoDataStore.newUndoData(Arrays.asList("order_id", "amount", "status", "create_time", "content"));
+        Timestamp createTime = new Timestamp(System.currentTimeMillis());
+        for (int i = 0; i < 100; i++) {
+            undoData.addRow(new Object[]{(long) i, new BigDecimal(i + ".5"), "status_" + i, createTime, new byte[]{(byte) i}});
+        }
+        assertThat(undoData.size(), is(100));
+        assertTrue(undoDataStore.getSpilledBytes() > 0L);
+        for (int i = 0; i < 100; i++) {
+            Object[] actual = undoData.getRow(i);
+            assertThat(actual[0], CoreMatchers.<Object>is((long) i));
+            assertThat(actual[1], CoreMatchers.<Object>is(new BigDecimal(i + ".5")));
+            assertThat(actual[2], CoreMatchers.<Object>is("status_" + i));
+            assertThat(actual[3], CoreMatchers.<Object>is(createTime));
+            assertThat(((byte[]) actual[4])[0], is((byte) i));
+        }
+        assertThat(new ArrayList<>(undoData.getRowValues(99)).get(2), CoreMatchers.<Object>is("status_99"));
+    }
+    
+    @Test
+    public void assertReleaseGivesMemoryBack() {
+        undoDataStore = new UndoDataStore(100L);
+        UndoData undoData = undoDataStore.newUndoData(Arrays.asList("order_id", "status"));
+        undoData.addRow(new Object[]{1L, "init"});
+        long memoryBytes = undoDataStore.getUndoDataBytes();
+        assertTrue(memoryBytes > 0L);
+        undoData.release();
+        assertThat(undoData.size(), is(0));
+        assertThat(undoDataStore.getUndoDataBytes(), is(0L));
+        UndoData newUndoData = undoDataStore.newUndoData(Arrays.asList("order_id", "status"));
+        newUndoData.addRow(new Object[]{2L, "init"});
+        assertThat(undoDataStore.getSpilledBytes(), is(0L));
+        assertThat(undoDataStore.getUndoDataBytes(), is(memoryBytes));
+    }
+    
+    @Test
+    public void assertGetNotExistedColumn() {
+        undoDataStore = new UndoDataStore(0L);
+        UndoData undoData = undoDataStore.newUndoData(Arrays.asList("order_id", "status"));
+        undoData.addRow(new Object[]{1L, "init"});
+        assertNull(undoData.get(0).get("user_id"));
+        assertThat(undoData.get(0).get("order_id"), CoreMatchers.<Object>is(1L));
+    }
+}
@@ -19,6 +19,7 @@ package io.shardingsphere.transaction.base.hook.revert.snapshot;
 
 import com.google.common.base.Optional;
 import com.google.common.collect.Lists;
+import io.shardingsphere.transaction.base.hook.revert.SQLTemplateCache;
 import io.shardingsphere.transaction.base.hook.revert.executor.SQLRevertExecutorContext;
 import org.apache.shardingsphere.core.parse.antlr.sql.statement.dml.UpdateStatement;
 import org.apache.shardingsphere.core.parse.old.parser.context.condition.Column;
@@ -86,6 +87,7 @@ public class UpdateSnapshotAccessorTest {
         parameters.addAll(Arrays.asList(1, 2));
         when(executorContext.getParameters()).thenReturn(parameters);
         when(executorContext.getActualTableName()).thenReturn("t_order_0");
+        when(executorContext.getSqlTemplateCache()).thenReturn(new SQLTemplateCache());
         when(executorContext.getPrimaryKeyColumns()).thenReturn(Lists.newArrayList("order_id"));
         when(executorContext.getSqlStatement()).thenReturn(updateStatement);
         when(executorContext.getConnection()).thenReturn(connection);
@@ -17,6 +17,13 @@
 
 package io.shardingsphere.transaction.base.hook.revert.utils;
 
+import io.shardingsphere.transaction.base.context.TransactionContext;
+import io.shardingsphere.transaction.base.hook.revert.SQLTemplateCache;
+import io.shardingsphere.transaction.base.hook.revert.SetBasedRevertLimit;
+import io.shardingsphere.transaction.base.hook.revert.snapshot.UndoDataStore;
+import io.shardingsphere.transaction.base.saga.actuator.SagaBulkhead;
+import io.shardingsphere.transaction.base.saga.actuator.SagaCircuitBreaker;
+import io.shardingsphere.transaction.base.saga.actuator.SagaRetryBackoff;
 import org.apache.shardingsphere.core.metadata.table.ColumnMetaData;
 import org.apache.shardingsphere.core.metadata.table.TableMetaData;
 import org.apache.shardingsphere.core.parse.antlr.sql.statement.SQLStatement;
@@ -49,6 +56,11 @@ import static org.mockito.Mockito.when;
  */
 public class MockTestUtil {
     
+    public static TransactionContext newTransactionContext() {
+        return new TransactionContext(SetBasedRevertLimit.newInstance(null, 1), new UndoDataStore(), new SQLTemplateCache(),
+            new SagaBulkhead(0, 0L), new SagaCircuitBreaker(0, 0L), new SagaRetryBackoff(0L, 0L));
+    }
+    
     public static SQLRouteResult mockSQLRouteResult(final SQLStatement sqlStatement, final String dataSourceName, final String logicTableName, final String actualTableName) {
         SQLRouteResult result = new SQLRouteResult(sqlStatement);
         result.setRoutingResult(mockRoutingResult(dataSourceName, logicTableName, actualTableName));
@@ -18,11 +18,18 @@
 package io.shardingsphere.transaction.base.saga;
 
 import com.google.common.collect.Lists;
+import io.shardingsphere.transaction.base.context.BranchTransaction;
+import io.shardingsphere.transaction.base.context.ExecuteStatus;
+import io.shardingsphere.transaction.base.context.LogicSQLTransaction;
 import io.shardingsphere.transaction.base.context.TransactionContext;
 import io.shardingsphere.transaction.base.context.TransactionContextHolder;
+import io.shardingsphere.transaction.base.hook.revert.RevertSQLResult;
+import io.shardingsphere.transaction.base.hook.revert.snapshot.UndoDataStore;
+import io.shardingsphere.transaction.base.hook.revert.utils.MockTestUtil;
 import lombok.SneakyThrows;
 import org.apache.servicecomb.saga.core.application.SagaExecutionComponent;
 import org.apache.shardingsphere.core.constant.DatabaseType;
+import org.apache.shardingsphere.core.exception.ShardingException;
 import org.apache.shardingsphere.core.execute.ShardingExecuteDataMap;
 import org.apache.shardingsphere.transaction.core.ResourceDataSource;
 import org.apache.shardingsphere.transaction.core.TransactionOperationType;
@@ -37,17 +44,26 @@ import org.mockito.junit.MockitoJUnitRunner;
 import javax.sql.DataSource;
 import java.lang.reflect.Field;
 import java.sql.Connection;
+import java.sql.SQLException;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedList;
 import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 import static org.hamcrest.CoreMatchers.is;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -78,6 +94,7 @@ public class SagaShardingTransactionManagerTest {
     @After
     public void tearDown() {
         TransactionContextHolder.clear();
+        ShardingExecuteDataMap.getDataMap().remove(SagaShardingTransactionManager.SAGA_TRANSACTION_KEY);
     }
     
     @Test
@@ -97,7 +114,7 @@ public class SagaShardingTransactionManagerTest {
     @Test
     public void assertIsInTransaction() {
         assertFalse(transactionManager.isInTransaction());
-        TransactionContextHolder.set(new TransactionContext());
+        TransactionContextHolder.set(MockTestUtil.newTransactionContext());
         assertTrue(transactionManager.isInTransaction());
     }
     
@@ -107,21 +124,134 @@ public class SagaShardingTransactionManagerTest {
         dataSourceMap.put("ds1", dataSource);
         setDataSourceMap(dataSourceMap);
         when(dataSource.getConnection()).thenReturn(connection);
-        TransactionContextHolder.set(new TransactionContext());
+        TransactionContextHolder.set(MockTestUtil.newTransactionContext());
         Connection actual = transactionManager.getConnection("ds1");
-        assertThat(actual, is(connection));
-        assertThat(TransactionContextHolder.get().getCachedConnections().get("ds1"), is(connection));
+        actual.close();
+        verify(connection).close();
+        assertThat(TransactionContextHolder.get().getCachedConnections().get("ds1"), is(actual));
+    }
+    
+    @Test
+    @SneakyThrows
+    public void assertGetConnectionInLocalTransaction() {
+        DataSource anotherDataSource = mock(DataSource.class);
+        Connection anotherConnection = mock(Connection.class);
+        dataSourceMap.put("ds1", dataSource);
+        dataSourceMap.put("ds2", anotherDataSource);
+        setDataSourceMap(dataSourceMap);
+        when(dataSource.getConnection()).thenReturn(connection);
+        when(anotherDataSource.getConnection()).thenReturn(anotherConnection);
+        TransactionContext transactionContext = MockTestUtil.newTransactionContext();
+        transactionContext.setLocalTransactionEnabled(true);
+        TransactionContextHolder.set(transactionContext);
+        transactionManager.getConnection("ds1");
+        assertTrue(transactionContext.isLocalDataSource("ds1"));
+        transactionManager.getConnection("ds2");
+        assertFalse(transactionContext.isLocalDataSource("ds1"));
+        assertFalse(transactionContext.isLocalDataSource("ds2"));
+        verify(connection).setAutoCommit(false);
+        verify(connection).commit();
+        verify(connection).setAutoCommit(true);
+        verify(anotherConnection, never()).setAutoCommit(false);
+    }
+    
+    @Test(expected = ShardingException.class)
+    @SneakyThrows
+    public void assertGetConnectionAfterLocalTransactionWritten() {
+        DataSource anotherDataSource = mock(DataSource.class);
+        Connection anotherConnection = mock(Connection.class);
+        dataSourceMap.put("ds1", dataSource);
+        dataSourceMap.put("ds2", anotherDataSource);
+        setDataSourceMap(dataSourceMap);
+        when(dataSource.getConnection()).thenReturn(connection);
+        when(anotherDataSource.getConnection()).thenReturn(anotherConnection);
+        TransactionContext transactionContext = MockTestUtil.newTransactionContext();
+        transactionContext.setLocalTransactionEnabled(true);
+        TransactionContextHolder.set(transactionContext);
+        transactionManager.getConnection("ds1");
+        transactionContext.markLocalTransactionWritten();
+        try {
+            transactionManager.getConnection("ds2");
+        } finally {
+            assertTrue(transactionContext.isLocalDataSource("ds1"));
+            verify(connection, never()).commit();
+            verify(anotherConnection).close();
+        }
+    }
+    
+    @Test
+    public void assertNotReadyBeforeBegin() {
+        assertFalse(transactionManager.isReady());
+        assertThat(transactionManager.getReadyMilliseconds(), is(-1L));
+        assertThat(transactionManager.getRecoveryMilliseconds(), is(-1L));
     }
     
     @Test
     public void assertBegin() {
         transactionManager.begin();
-        TransactionContext expect = TransactionContextHolder.get();
+        assertTrue(transactionManager.isInTransaction());
+        assertFalse(transactionManager.isReady());
+        assertNull(TransactionContextHolder.get());
+        assertFalse(ShardingExecuteDataMap.getDataMap().containsKey(SagaShardingTransactionManager.SAGA_TRANSACTION_KEY));
+    }
+    
+    @Test
+    public void assertCreateTransactionContextAtFirstDML() {
+        transactionManager.begin();
+        TransactionContext expect = TransactionContextHolder.getOrCreate();
         assertNotNull(expect);
+        assertTrue(transactionManager.isReady());
+        assertTrue(transactionManager.getReadyMilliseconds() >= 0L);
         TransactionContext actual = (TransactionContext) ShardingExecuteDataMap.getDataMap().get(SagaShardingTransactionManager.SAGA_TRANSACTION_KEY);
         assertThat(actual, is(expect));
     }
     
+    @Test
+    @SneakyThrows
+    public void assertGetConnectionBeforeTransactionContextCreated() {
+        dataSourceMap.put("ds1", dataSource);
+        setDataSourceMap(dataSourceMap);
+        when(dataSource.getConnection()).thenReturn(connection);
+        transactionManager.begin();
+        Connection actual = transactionManager.getConnection("ds1");
+        assertNull(TransactionContextHolder.get());
+        assertThat(TransactionContextHolder.getOrCreate().getCachedConnections().get("ds1"), is(actual));
+    }
+    
+    @Test
+    public void assertCommitReadOnlyTransaction() {
+        transactionManager.begin();
+        transactionManager.commit();
+        assertFalse(transactionManager.isInTransaction());
+        assertFalse(transactionManager.isReady());
+    }
+    
+    @Test
+    public void assertGauges() {
+        transactionManager.begin();
+        assertThat(transactionManager.getExecutorQueueDepth(), is(0));
+        assertTrue(transactionManager.getActiveCountsPerDataSource().isEmpty());
+        assertTrue(transactionManager.getCircuitStatesPerDataSource().isEmpty());
+        assertTrue(transactionManager.getRetryCountsPerDataSource().isEmpty());
+        assertThat(transactionManager.getUndoDataBytes(), is(0L));
+        assertThat(transactionManager.getSpilledUndoDataBytes(), is(0L));
+    }
+    
+    @Test
+    public void assertUndoDataBytesAccumulatedAtTransactionEnd() {
+        UndoDataStore undoDataStore = mock(UndoDataStore.class);
+        when(undoDataStore.getUndoDataBytes()).thenReturn(100L);
+        when(undoDataStore.getSpilledBytes()).thenReturn(40L);
+        when(transactionContext.getUndoDataStore()).thenReturn(undoDataStore);
+        TransactionContextHolder.set(transactionContext);
+        transactionManager.commit();
+        TransactionContextHolder.set(transactionContext);
+        transactionManager.rollback();
+        assertThat(transactionManager.getUndoDataBytes(), is(200L));
+        assertThat(transactionManager.getSpilledUndoDataBytes(), is(80L));
+        verify(undoDataStore, times(2)).close();
+    }
+    
     @Test
     public void assertCommitContainsException() {
         setSagaActuator();
@@ -140,15 +270,77 @@ public class SagaShardingTransactionManagerTest {
         transactionManager.commit();
         verify(transactionContext, never()).setOperationType(TransactionOperationType.COMMIT);
         verify(sagaActuator, never()).run(anyString());
+        verify(transactionContext).commitLocalTransaction();
+    }
+    
+    @Test
+    public void assertCommitWithLocalTransactionFailure() {
+        setSagaActuator();
+        when(transactionContext.isContainsBranchTransaction()).thenReturn(true);
+        doThrow(new ShardingException("Commit local transaction failed")).when(transactionContext).commitLocalTransaction();
+        TransactionContextHolder.set(transactionContext);
+        try {
+            transactionManager.commit();
+        } catch (final ShardingException ignored) {
+            // local commit failure is rethrown after saga compensation
+        }
+        verify(transactionContext).setOperationType(TransactionOperationType.ROLLBACK);
+        verify(sagaActuator).run(anyString());
+        verify(transactionContext, never()).isContainsException();
     }
     
     @Test
     public void assertRollback() {
         setSagaActuator();
+        when(transactionContext.isContainsBranchTransaction()).thenReturn(true);
         TransactionContextHolder.set(transactionContext);
         transactionManager.rollback();
         verify(transactionContext).setOperationType(TransactionOperationType.ROLLBACK);
         verify(sagaActuator).run(anyString());
+        verify(transactionContext).rollbackLocalTransaction();
+    }
+    
+    @Test
+    public void assertRollbackWithoutBranchTransaction() {
+        setSagaActuator();
+        TransactionContextHolder.set(transactionContext);
+        transactionManager.rollback();
+        verify(transactionContext, never()).setOperationType(TransactionOperationType.ROLLBACK);
+        verify(sagaActuator, never()).run(anyString());
+        verify(transactionContext).rollbackLocalTransaction();
+    }
+    
+    @Test
+    public void assertRollbackToSavepoint() {
+        setSagaActuator();
+        LogicSQLTransaction logicSQLTransaction = mock(LogicSQLTransaction.class);
+        Queue<BranchTransaction> branchTransactions = new ConcurrentLinkedQueue<>();
+        BranchTransaction branchTransaction = new BranchTransaction("ds", "INSERT", new LinkedList<Collection<Object>>(), ExecuteStatus.SUCCESS);
+        branchTransaction.setRevertSQLResult(new RevertSQLResult("DELETE"));
+        branchTransactions.add(branchTransaction);
+        when(logicSQLTransaction.getBranchTransactions()).thenReturn(branchTransactions);
+        when(transactionContext.startRollbackToSavepoint("sp")).thenReturn(Collections.singletonList(logicSQLTransaction));
+        TransactionContextHolder.set(transactionContext);
+        transactionManager.rollbackToSavepoint("sp");
+        verify(transactionContext).setOperationType(TransactionOperationType.ROLLBACK);
+        verify(sagaActuator).run(anyString());
+        verify(transactionContext).finishRollbackToSavepoint("sp", true);
+        assertTrue(transactionManager.isInTransaction());
+    }
+    
+    @Test
+    public void assertRollbackToSavepointWithoutBranchTransaction() {
+        setSagaActuator();
+        when(transactionContext.startRollbackToSavepoint("sp")).thenReturn(Collections.<LogicSQLTransaction>emptyList());
+        TransactionContextHolder.set(transactionContext);
+        transactionManager.rollbackToSavepoint("sp");
+        verify(sagaActuator, never()).run(anyString());
+        verify(transactionContext).finishRollbackToSavepoint("sp", true);
+    }
+    
+    @Test(expected = ShardingException.class)
+    public void assertSetSavepointOutOfTransaction() throws SQLException {
+        transactionManager.setSavepoint("sp");
     }
     
     @Test
@@ -18,15 +18,23 @@
 package io.shardingsphere.transaction.base.saga.actuator;
 
 import io.shardingsphere.transaction.base.saga.actuator.definition.SagaDefinitionFactoryTest;
+import io.shardingsphere.transaction.base.saga.actuator.definition.SagaDefinitionFormatTest;
 import io.shardingsphere.transaction.base.saga.actuator.definition.SagaDefinitionTest;
+import io.shardingsphere.transaction.base.saga.actuator.transport.SagaRecoveryTransportTest;
 import org.junit.runner.RunWith;
 import org.junit.runners.Suite;
 
 @RunWith(Suite.class)
 @Suite.SuiteClasses({
     SagaActuatorFactoryTest.class,
+    SagaCircuitBreakerTest.class,
+    SagaRetryBackoffTest.class,
+    SagaRecoveryTest.class,
+    SagaRecoveryRestartTest.class,
     SagaDefinitionFactoryTest.class,
-    SagaDefinitionTest.class
+    SagaDefinitionFormatTest.class,
+    SagaDefinitionTest.class,
+    SagaRecoveryTransportTest.class
 })
 public final class AllActuatorTests {
 }
@@ -35,7 +35,7 @@ public final class SagaActuatorFactoryTest {
     @Test
     public void assertCreateSagaExecutionComponent() throws NoSuchFieldException, IllegalAccessException {
         assertCreateWithFixedExecutors();
-        assertCreateWithCachedExecutors();
+        assertCreateWithDefaultSizeExecutors();
     }
     
     private void assertCreateWithFixedExecutors() throws NoSuchFieldException, IllegalAccessException {
@@ -45,16 +45,18 @@ public final class SagaActuatorFactoryTest {
         ThreadPoolExecutor threadPoolExecutor = getExecutorFromComponent(sagaExecutionComponent);
         assertThat(threadPoolExecutor.getCorePoolSize(), is(sagaConfiguration.getExecutorSize()));
         assertThat(threadPoolExecutor.getMaximumPoolSize(), is(sagaConfiguration.getExecutorSize()));
+        assertThat(threadPoolExecutor.getQueue().remainingCapacity(), is(sagaConfiguration.getExecutorQueueSize()));
+        assertThat(threadPoolExecutor.getRejectedExecutionHandler(), instanceOf(ThreadPoolExecutor.CallerRunsPolicy.class));
     }
     
-    private void assertCreateWithCachedExecutors() throws NoSuchFieldException, IllegalAccessException {
+    private void assertCreateWithDefaultSizeExecutors() throws NoSuchFieldException, IllegalAccessException {
         SagaConfiguration sagaConfiguration = new SagaConfiguration();
         sagaConfiguration.setExecutorSize(0);
         SagaExecutionComponent sagaExecutionComponent = SagaActuatorFactory.newInstance(sagaConfiguration, new EmptySagaPersistence());
         assertThat(sagaExecutionComponent, instanceOf(SagaExecutionComponent.class));
         ThreadPoolExecutor threadPoolExecutor = getExecutorFromComponent(sagaExecutionComponent);
-        assertThat(threadPoolExecutor.getCorePoolSize(), is(0));
-        assertThat(threadPoolExecutor.getMaximumPoolSize(), is(Integer.MAX_VALUE));
+        assertThat(threadPoolExecutor.getCorePoolSize(), is(Runtime.getRuntime().availableProcessors()));
+        assertThat(threadPoolExecutor.getMaximumPoolSize(), is(Runtime.getRuntime().availableProcessors()));
     }
     
     private ThreadPoolExecutor getExecutorFromComponent(final SagaExecutionComponent sagaExecutionComponent) throws NoSuchFieldException, IllegalAccessException {
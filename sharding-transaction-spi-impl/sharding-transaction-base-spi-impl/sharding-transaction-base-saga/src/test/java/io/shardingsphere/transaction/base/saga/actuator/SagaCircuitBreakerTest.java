@@ -0,0 +1,72 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.shardingsphere.transaction.base.saga.actuator;
+
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public final class SagaCircuitBreakerTest {
+    
+    @Test
+    public void assertOpenAfterConsecutiveFailures() {
+        SagaCircuitBreaker circuitBreaker = new SagaCircuitBreaker(2, 60000L);
+        assertTrue(circuitBreaker.tryPass("ds"));
+        circuitBreaker.onFailure("ds");
+        assertThat(circuitBreaker.getStates().get("ds"), is(SagaCircuitBreaker.State.CLOSED));
+        circuitBreaker.onSuccess("ds");
+        circuitBreaker.onFailure("ds");
+        assertThat(circuitBreaker.getStates().get("ds"), is(SagaCircuitBreaker.State.CLOSED));
+        circuitBreaker.onFailure("ds");
+        assertThat(circuitBreaker.getStates().get("ds"), is(SagaCircuitBreaker.State.OPEN));
+        assertFalse(circuitBreaker.tryPass("ds"));
+        assertThat(circuitBreaker.getStates().get("ds_other"), nullValue());
+    }
+    
+    @Test
+    public void assertProbeAfterOpenTime() throws InterruptedException {
+        SagaCircuitBreaker circuitBreaker = new SagaCircuitBreaker(1, 50L);
+        circuitBreaker.onFailure("ds");
+        assertFalse(circuitBreaker.tryPass("ds"));
+        Thread.sleep(100L);
+        assertTrue(circuitBreaker.tryPass("ds"));
+        assertThat(circuitBreaker.getStates().get("ds"), is(SagaCircuitBreaker.State.HALF_OPEN));
+        assertFalse(circuitBreaker.tryPass("ds"));
+        circuitBreaker.onFailure("ds");
+        assertThat(circuitBreaker.getStates().get("ds"), is(SagaCircuitBreaker.State.OPEN));
+        Thread.sleep(100L);
+        assertTrue(circuitBreaker.tryPass("ds"));
+        circuitBreaker.onSuccess("ds");
+        assertThat(circuitBreaker.getStates().get("ds"), is(SagaCircuitBreaker.State.CLOSED));
+        assertTrue(circuitBreaker.tryPass("ds"));
+    }
+    
+    @Test
+    public void assertDisabledCircuitBreaker() {
+        SagaCircuitBreaker circuitBreaker = new SagaCircuitBreaker(0, 0L);
+        circuitBreaker.onFailure("ds");
+        assertTrue(circuitBreaker.tryPass("ds"));
+        circuitBreaker.onRetry("ds");
+        assertThat(circuitBreaker.getStates().get("ds"), is(SagaCircuitBreaker.State.CLOSED));
+        assertThat(circuitBreaker.getRetryCounts().get("ds"), is(1L));
+    }
+}
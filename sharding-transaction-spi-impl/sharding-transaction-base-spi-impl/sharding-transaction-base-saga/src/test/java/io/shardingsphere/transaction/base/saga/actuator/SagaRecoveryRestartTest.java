@@ -0,0 +1,168 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.shardingsphere.transaction.base.saga.actuator;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import io.shardingsphere.transaction.base.saga.actuator.definition.SagaDefinition;
+import io.shardingsphere.transaction.base.saga.actuator.definition.SagaDefinitionFactory;
+import io.shardingsphere.transaction.base.saga.actuator.definition.SagaDefinitionFormat;
+import io.shardingsphere.transaction.base.saga.actuator.definition.SagaRequest;
+import io.shardingsphere.transaction.base.saga.actuator.definition.SagaSQLUnit;
+import io.shardingsphere.transaction.base.saga.config.SagaConfiguration;
+import io.shardingsphere.transaction.base.saga.persistence.impl.jdbc.JDBCSagaPersistence;
+import io.shardingsphere.transaction.base.utils.JDBCUtil;
+import lombok.RequiredArgsConstructor;
+import org.apache.servicecomb.saga.core.EventEnvelope;
+import org.apache.servicecomb.saga.core.PersistentStore;
+import org.apache.servicecomb.saga.core.RecoveryPolicy;
+import org.apache.servicecomb.saga.core.SagaEndedEvent;
+import org.apache.servicecomb.saga.core.SagaEvent;
+import org.apache.servicecomb.saga.core.SagaResponse;
+import org.apache.servicecomb.saga.core.SuccessfulSagaResponse;
+import org.apache.servicecomb.saga.core.TransportFailedException;
+import org.apache.servicecomb.saga.core.application.SagaExecutionComponent;
+import org.apache.servicecomb.saga.core.dag.GraphBasedSagaFactory;
+import org.apache.servicecomb.saga.transports.SQLTransport;
+import org.apache.servicecomb.saga.transports.TransportFactory;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+public final class SagaRecoveryRestartTest {
+    
+    private final SagaConfiguration sagaConfiguration = new SagaConfiguration();
+    
+    private HikariDataSource businessDataSource;
+    
+    private HikariDataSource persistenceDataSource;
+    
+    private ExecutorService sagaExecutor;
+    
+    @Before
+    public void setUp() throws SQLException {
+        businessDataSource = createH2DataSource("saga_recovery_business");
+        persistenceDataSource = createH2DataSource("saga_recovery_persistence");
+        new JDBCSagaPersistence(persistenceDataSource).createTableIfNotExists();
+        sagaExecutor = Executors.newFixedThreadPool(2);
+        try (Connection connection = businessDataSource.getConnection()) {
+            JDBCUtil.executeUpdate(connection, "CREATE TABLE IF NOT EXISTS t_order (order_id INT PRIMARY KEY, status VARCHAR(16))", Collections.<Object>emptyList());
+            JDBCUtil.executeUpdate(connection, "MERGE INTO t_order (order_id, status) VALUES (1, 'INIT')", Collections.<Object>emptyList());
+        }
+    }
+    
+    @After
+    public void tearDown() {
+        sagaExecutor.shutdownNow();
+        businessDataSource.close();
+        persistenceDataSource.close();
+    }
+    
+    @Test
+    public void assertCompensateAfterRestart() throws SQLException, InterruptedException {
+        try (Connection connection = businessDataSource.getConnection()) {
+            JDBCUtil.executeUpdate(connection, "UPDATE t_order SET status = 'PAID' WHERE order_id = 1", Collections.<Object>emptyList());
+        }
+        PersistentStore crashingPersistence = new CrashBeforeCompensationPersistentStore(new JDBCSagaPersistence(persistenceDataSource));
+        GraphBasedSagaFactory sagaFactory = SagaActuatorFactory.newSagaFactory(sagaConfiguration, crashingPersistence, sagaExecutor);
+        new SagaExecutionComponent(crashingPersistence, new SagaDefinitionFormat(new CrashingTransportFactory()), null, sagaFactory).run(newBackwardSagaDefinition().toJson());
+        assertThat(getOrderStatus(), is("PAID"));
+        JDBCSagaPersistence restartedPersistence = new JDBCSagaPersistence(persistenceDataSource);
+        Map<String, DataSource> dataSourceMap = Collections.<String, DataSource>singletonMap("ds", businessDataSource);
+        SagaRecovery sagaRecovery = SagaActuatorFactory.newRecovery(
+            sagaConfiguration, SagaActuatorFactory.newSagaFactory(sagaConfiguration, restartedPersistence, sagaExecutor), restartedPersistence, dataSourceMap);
+        assertThat(sagaRecovery.recover(), is(1));
+        assertThat(getOrderStatus(), is("INIT"));
+        assertThat(restartedPersistence.findPendingSagaEvents().size(), is(0));
+    }
+    
+    private SagaDefinition newBackwardSagaDefinition() {
+        List<Collection<Object>> compensationParameters = new LinkedList<>();
+        compensationParameters.add(Arrays.<Object>asList("INIT", 1));
+        SagaRequest branchRequest = new SagaRequest("branch", "ds", "sql", new SagaSQLUnit("", new LinkedList<Collection<Object>>(), 0),
+            new SagaSQLUnit("UPDATE t_order SET status = ? WHERE order_id = ?", compensationParameters, 3), Collections.<String>emptyList(), 0);
+        SagaRequest rollbackRequest = new SagaRequest("rollback", SagaDefinitionFactory.ROLLBACK_TAG, "sql",
+            new SagaSQLUnit(SagaDefinitionFactory.ROLLBACK_TAG, new LinkedList<Collection<Object>>(), 0),
+            new SagaSQLUnit(SagaDefinitionFactory.ROLLBACK_TAG, new LinkedList<Collection<Object>>(), 0), Collections.singletonList("branch"), 0);
+        return new SagaDefinition(RecoveryPolicy.SAGA_BACKWARD_RECOVERY_POLICY, Arrays.asList(branchRequest, rollbackRequest));
+    }
+    
+    private String getOrderStatus() throws SQLException {
+        try (Connection connection = businessDataSource.getConnection()) {
+            return JDBCUtil.executeQuery(connection, "SELECT status FROM t_order WHERE order_id = 1", Collections.<Object>emptyList()).get(0).values().iterator().next().toString();
+        }
+    }
+    
+    private HikariDataSource createH2DataSource(final String databaseName) {
+        HikariConfig config = new HikariConfig();
+        config.setDriverClassName("org.h2.Driver");
+        config.setJdbcUrl(String.format("jdbc:h2:mem:%s;DB_CLOSE_DELAY=-1;DATABASE_TO_UPPER=false;", databaseName));
+        config.setMaximumPoolSize(4);
+        return new HikariDataSource(config);
+    }
+    
+    @RequiredArgsConstructor
+    private static final class CrashBeforeCompensationPersistentStore implements PersistentStore {
+        
+        private final PersistentStore delegate;
+        
+        @Override
+        public Map<String, List<EventEnvelope>> findPendingSagaEvents() {
+            return delegate.findPendingSagaEvents();
+        }
+        
+        @Override
+        public void offer(final SagaEvent sagaEvent) {
+            if (sagaEvent instanceof SagaEndedEvent || sagaEvent.getClass().getSimpleName().contains("Compensat")) {
+                return;
+            }
+            delegate.offer(sagaEvent);
+        }
+    }
+    
+    private static final class CrashingTransportFactory implements TransportFactory<SQLTransport> {
+        
+        @Override
+        public SQLTransport getTransport() {
+            return new SQLTransport() {
+                @Override
+                public SagaResponse with(final String datasource, final String sql, final List<List<String>> params) {
+                    if (SagaDefinitionFactory.ROLLBACK_TAG.equals(sql)) {
+                        throw new TransportFailedException("Forced rollback");
+                    }
+                    return new SuccessfulSagaResponse("Compensation is lost by crash");
+                }
+            };
+        }
+    }
+}
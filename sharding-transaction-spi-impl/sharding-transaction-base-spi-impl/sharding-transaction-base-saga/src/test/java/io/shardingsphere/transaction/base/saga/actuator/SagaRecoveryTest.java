@@ -0,0 +1,84 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.shardingsphere.transaction.base.saga.actuator;
+
+import io.shardingsphere.transaction.base.saga.persistence.PendingSagaHandler;
+import io.shardingsphere.transaction.base.saga.persistence.RecoverablePersistentStore;
+import org.apache.servicecomb.saga.core.EventEnvelope;
+import org.apache.servicecomb.saga.core.SagaDefinition;
+import org.apache.servicecomb.saga.core.application.interpreter.FromJsonFormat;
+import org.apache.servicecomb.saga.core.dag.GraphBasedSagaFactory;
+import org.apache.servicecomb.saga.format.SagaEventFormat;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.mockito.stubbing.Answer;
+
+import java.util.Collections;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+@RunWith(MockitoJUnitRunner.class)
+public final class SagaRecoveryTest {
+    
+    @Mock
+    private RecoverablePersistentStore sagaPersistence;
+    
+    @Mock
+    private FromJsonFormat<SagaDefinition> fromJsonFormat;
+    
+    @Mock
+    private SagaEventFormat sagaEventFormat;
+    
+    @Mock
+    private GraphBasedSagaFactory sagaFactory;
+    
+    @Test
+    public void assertRecoverStreamsPendingSagas() throws InterruptedException {
+        final int sagaCount = 5;
+        doAnswer(new Answer<Void>() {
+            
+            @Override
+            public Void answer(final InvocationOnMock invocation) {
+                PendingSagaHandler handler = invocation.getArgument(2);
+                for (int i = 0; i < sagaCount; i++) {
+                    handler.handle("saga_" + i, Collections.singletonList(new EventEnvelope(i, 0L, null)));
+                }
+                return null;
+            }
+        }).when(sagaPersistence).streamPendingSagaEvents(eq(100), eq(sagaEventFormat), any(PendingSagaHandler.class));
+        SagaRecovery sagaRecovery = new SagaRecovery(sagaPersistence, fromJsonFormat, sagaEventFormat, sagaFactory, 100, 2, 2);
+        assertThat(sagaRecovery.recover(), is(sagaCount));
+        verify(sagaPersistence, never()).findPendingSagaEvents();
+    }
+    
+    @Test
+    public void assertRecoverWithoutPendingSagas() throws InterruptedException {
+        SagaRecovery sagaRecovery = new SagaRecovery(sagaPersistence, fromJsonFormat, sagaEventFormat, sagaFactory, 100, 2, 2);
+        assertThat(sagaRecovery.recover(), is(0));
+        verify(sagaPersistence).streamPendingSagaEvents(eq(100), eq(sagaEventFormat), any(PendingSagaHandler.class));
+    }
+}
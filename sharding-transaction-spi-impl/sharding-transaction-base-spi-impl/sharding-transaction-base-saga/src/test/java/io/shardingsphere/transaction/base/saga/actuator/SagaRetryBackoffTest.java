@@ -0,0 +1,44 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.shardingsphere.transaction.base.saga.actuator;
+
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public final class SagaRetryBackoffTest {
+    
+    @Test
+    public void assertNextDelayInDecorrelatedJitterRange() {
+        SagaRetryBackoff retryBackoff = new SagaRetryBackoff(100L, 1000L);
+        long delay = 0L;
+        for (int i = 0; i < 100; i++) {
+            long previousDelay = delay;
+            delay = retryBackoff.nextDelay(previousDelay);
+            assertTrue(delay >= 100L);
+            assertTrue(delay <= Math.min(1000L, Math.max(100L, previousDelay) * 3));
+        }
+    }
+    
+    @Test
+    public void assertNextDelayWithoutBackoff() {
+        assertThat(new SagaRetryBackoff(0L, 1000L).nextDelay(500L), is(0L));
+    }
+}
@@ -18,9 +18,11 @@
 package io.shardingsphere.transaction.base.saga.actuator.definition;
 
 import io.shardingsphere.transaction.base.context.BranchTransaction;
+import io.shardingsphere.transaction.base.context.ExecuteStatus;
 import io.shardingsphere.transaction.base.context.LogicSQLTransaction;
 import io.shardingsphere.transaction.base.context.TransactionContext;
 import io.shardingsphere.transaction.base.hook.revert.RevertSQLResult;
+import io.shardingsphere.transaction.base.hook.revert.utils.MockTestUtil;
 import io.shardingsphere.transaction.base.saga.config.SagaConfiguration;
 import org.apache.servicecomb.saga.core.RecoveryPolicy;
 import org.junit.Before;
@@ -28,8 +30,10 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.junit.MockitoJUnitRunner;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Queue;
@@ -38,13 +42,14 @@ import java.util.concurrent.ConcurrentLinkedQueue;
 import static org.hamcrest.CoreMatchers.instanceOf;
 import static org.hamcrest.CoreMatchers.is;
 import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
 @RunWith(MockitoJUnitRunner.class)
 public class SagaDefinitionFactoryTest {
     
-    private TransactionContext transactionContext = new TransactionContext();
+    private TransactionContext transactionContext = MockTestUtil.newTransactionContext();
     
     private SagaConfiguration sagaConfiguration = new SagaConfiguration();
     
@@ -67,8 +72,8 @@ public class SagaDefinitionFactoryTest {
             }
             if (i <= 5) {
                 assertThat(each.getDatasource(), is("ds"));
-                assertThat(each.getTransaction().getSql(), is("tx-sql"));
-                assertThat(each.getTransaction().getParams().size(), is(3));
+                assertThat(each.getTransaction().getSql(), is(""));
+                assertThat(each.getTransaction().getParams().size(), is(0));
                 assertThat(each.getId(), instanceOf(String.class));
                 assertThat(each.getType(), is("sql"));
                 assertThat(each.getFailRetryDelayMilliseconds(), is(sagaConfiguration.getTransactionRetryDelayMilliseconds()));
@@ -94,13 +99,65 @@ public class SagaDefinitionFactoryTest {
         assertThat(actual.getRequests().size(), is(8));
         for (SagaRequest each : actual.getRequests()) {
             assertThat(each.getDatasource(), is("ds"));
-            assertThat(each.getTransaction().getSql(), is("tx-sql"));
-            assertThat(each.getTransaction().getParams().size(), is(3));
+            assertThat(each.getTransaction().getSql(), is(""));
+            assertThat(each.getTransaction().getParams().size(), is(0));
             assertThat(each.getCompensation().getSql(), is("revert-sql"));
             assertThat(each.getCompensation().getParams().size(), is(3));
         }
     }
     
+    @Test
+    public void assertNewInstanceOfForwardRecoveryKeepsFailedBranchSQL() {
+        transactionContext.getLogicSQLTransactions().addAll(mockLogicSQLTransactions(1, 2));
+        transactionContext.getLogicSQLTransactions().get(0).getBranchTransactions().peek().setExecuteStatus(ExecuteStatus.FAILURE);
+        SagaDefinition actual = SagaDefinitionFactory.newInstance(RecoveryPolicy.SAGA_FORWARD_RECOVERY_POLICY, sagaConfiguration, transactionContext);
+        List<SagaRequest> requests = new ArrayList<>(actual.getRequests());
+        assertThat(requests.size(), is(2));
+        assertThat(requests.get(0).getTransaction().getSql(), is("tx-sql"));
+        assertThat(requests.get(0).getTransaction().getParams().size(), is(3));
+        assertThat(requests.get(1).getTransaction().getSql(), is(""));
+        assertThat(requests.get(1).getTransaction().getParams().size(), is(0));
+    }
+    
+    @Test
+    public void assertNewInstanceOfBackwardRecoveryDropsFailedBranchSQL() {
+        transactionContext.getLogicSQLTransactions().addAll(mockLogicSQLTransactions(1, 1));
+        transactionContext.getLogicSQLTransactions().get(0).getBranchTransactions().peek().setExecuteStatus(ExecuteStatus.FAILURE);
+        SagaDefinition actual = SagaDefinitionFactory.newInstance(RecoveryPolicy.SAGA_BACKWARD_RECOVERY_POLICY, sagaConfiguration, transactionContext);
+        SagaRequest branchRequest = actual.getRequests().iterator().next();
+        assertThat(branchRequest.getTransaction().getSql(), is(""));
+        assertThat(branchRequest.getTransaction().getParams().size(), is(0));
+    }
+    
+    @Test
+    public void assertNewInstanceWithIndependentLogicSQLs() {
+        transactionContext.getLogicSQLTransactions().add(mockLogicSQLTransaction("t_order", "ds_0", "ds_1"));
+        transactionContext.getLogicSQLTransactions().add(mockLogicSQLTransaction("t_user", "ds_0", "ds_1"));
+        transactionContext.getLogicSQLTransactions().add(mockLogicSQLTransaction("t_order", "ds_1"));
+        SagaDefinition actual = SagaDefinitionFactory.newInstance(RecoveryPolicy.SAGA_BACKWARD_RECOVERY_POLICY, sagaConfiguration, transactionContext);
+        List<SagaRequest> requests = new ArrayList<>(actual.getRequests());
+        assertThat(requests.size(), is(6));
+        assertTrue(requests.get(0).getParents().isEmpty());
+        assertTrue(requests.get(1).getParents().isEmpty());
+        assertTrue(requests.get(2).getParents().isEmpty());
+        assertTrue(requests.get(3).getParents().isEmpty());
+        assertThat(requests.get(4).getParents(), is((Collection<String>) Collections.singletonList(requests.get(1).getId())));
+        assertThat(new ArrayList<>(requests.get(5).getParents()), is(Arrays.asList(requests.get(0).getId(), requests.get(2).getId(), requests.get(3).getId(), requests.get(4).getId())));
+    }
+    
+    private LogicSQLTransaction mockLogicSQLTransaction(final String logicTableName, final String... dataSourceNames) {
+        LogicSQLTransaction result = mock(LogicSQLTransaction.class);
+        Queue<BranchTransaction> branchTransactions = new ConcurrentLinkedQueue<>();
+        for (String each : dataSourceNames) {
+            BranchTransaction branchTransaction = new BranchTransaction(each, "tx-sql", mockParameters());
+            branchTransaction.setRevertSQLResult(new RevertSQLResult("revert-sql"));
+            branchTransactions.offer(branchTransaction);
+        }
+        when(result.getLogicTableName()).thenReturn(logicTableName);
+        when(result.getBranchTransactions()).thenReturn(branchTransactions);
+        return result;
+    }
+    
     private List<LogicSQLTransaction> mockLogicSQLTransactions(final int logicSQLCount, int branchCount) {
         List<LogicSQLTransaction> result = new LinkedList<>();
         for (int i = 0; i < logicSQLCount; i++) {
@@ -0,0 +1,107 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.shardingsphere.transaction.base.saga.actuator.definition;
+
+import org.apache.servicecomb.saga.core.RecoveryPolicy;
+import org.apache.servicecomb.saga.transports.TransportFactory;
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.List;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(MockitoJUnitRunner.class)
+public class SagaDefinitionFormatTest {
+    
+    @Mock
+    private TransportFactory transportFactory;
+    
+    @After
+    public void tearDown() {
+        SagaDefinitionHolder.clear();
+    }
+    
+    @Test
+    public void assertFromInMemoryDefinitionEqualsToJson() {
+        assertFromInMemoryDefinition(10);
+    }
+    
+    @Test(timeout = 10000)
+    public void assertFromInMemoryDefinitionOfLargeTransaction() {
+        assertFromInMemoryDefinition(1000);
+    }
+    
+    @Test(timeout = 60000)
+    public void assertFromInMemoryDefinitionFasterThanJsonOfHugeTransaction() {
+        SagaDefinition sagaDefinition = newSagaDefinition(50000);
+        SagaDefinitionFormat sagaDefinitionFormat = new SagaDefinitionFormat(transportFactory);
+        long startTime = System.nanoTime();
+        org.apache.servicecomb.saga.core.SagaDefinition expected = sagaDefinitionFormat.fromJson(sagaDefinition.toJson());
+        long jsonNanos = System.nanoTime() - startTime;
+        SagaDefinitionHolder.set(sagaDefinition);
+        startTime = System.nanoTime();
+        org.apache.servicecomb.saga.core.SagaDefinition actual = sagaDefinitionFormat.fromJson(SagaDefinitionHolder.IN_MEMORY_REQUEST);
+        long inMemoryNanos = System.nanoTime() - startTime;
+        assertThat(actual.requests().length, is(expected.requests().length));
+        assertThat(actual.requests()[49999].parents(), is(expected.requests()[49999].parents()));
+        assertTrue(inMemoryNanos < jsonNanos);
+    }
+    
+    @Test(expected = IllegalStateException.class)
+    public void assertFromInMemoryDefinitionWithoutHolder() {
+        new SagaDefinitionFormat(transportFactory).fromJson(SagaDefinitionHolder.IN_MEMORY_REQUEST);
+    }
+    
+    private void assertFromInMemoryDefinition(final int requestCount) {
+        SagaDefinition sagaDefinition = newSagaDefinition(requestCount);
+        SagaDefinitionFormat sagaDefinitionFormat = new SagaDefinitionFormat(transportFactory);
+        org.apache.servicecomb.saga.core.SagaDefinition expected = sagaDefinitionFormat.fromJson(sagaDefinition.toJson());
+        SagaDefinitionHolder.set(sagaDefinition);
+        org.apache.servicecomb.saga.core.SagaDefinition actual = sagaDefinitionFormat.fromJson(SagaDefinitionHolder.IN_MEMORY_REQUEST);
+        assertThat(actual.policy().getClass().getName(), is(expected.policy().getClass().getName()));
+        assertThat(actual.requests().length, is(requestCount));
+        for (int i = 0; i < requestCount; i++) {
+            assertThat(actual.requests()[i].id(), is(expected.requests()[i].id()));
+            assertThat(actual.requests()[i].parents(), is(expected.requests()[i].parents()));
+        }
+    }
+    
+    private SagaDefinition newSagaDefinition(final int requestCount) {
+        List<SagaRequest> sagaRequests = new LinkedList<>();
+        String parentId = null;
+        for (int i = 0; i < requestCount; i++) {
+            List<Collection<Object>> params = Collections.<Collection<Object>>singletonList(Collections.<Object>singletonList(i));
+            SagaSQLUnit transaction = new SagaSQLUnit("UPDATE t_order SET status = 'finished' WHERE order_id = ?", params, 5);
+            SagaSQLUnit compensation = new SagaSQLUnit("UPDATE t_order SET status = 'init' WHERE order_id = ?", params, 5);
+            String id = "request-" + i;
+            sagaRequests.add(new SagaRequest(id, "ds_" + i % 2, "sql", transaction, compensation,
+                null == parentId ? Collections.<String>emptyList() : Collections.singletonList(parentId), 100));
+            parentId = id;
+        }
+        return new SagaDefinition(RecoveryPolicy.SAGA_BACKWARD_RECOVERY_POLICY, sagaRequests);
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.shardingsphere.transaction.base.saga.actuator.transport;
+
+import io.shardingsphere.transaction.base.saga.actuator.definition.SagaDefinitionFactory;
+import org.apache.servicecomb.saga.core.TransportFailedException;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public final class SagaRecoveryTransportTest {
+    
+    @Mock
+    private DataSource dataSource;
+    
+    @Mock
+    private Connection connection;
+    
+    @Mock
+    private PreparedStatement preparedStatement;
+    
+    private SagaRecoveryTransport sagaRecoveryTransport;
+    
+    @Before
+    public void setUp() {
+        sagaRecoveryTransport = new SagaRecoveryTransport(Collections.singletonMap("ds", dataSource));
+    }
+    
+    @Test
+    public void assertWithEmptySQL() {
+        sagaRecoveryTransport.with("ds", "", Collections.<List<String>>emptyList());
+        verifyZeroInteractions(dataSource);
+    }
+    
+    @Test(expected = TransportFailedException.class)
+    public void assertWithRollbackTag() {
+        sagaRecoveryTransport.with(SagaDefinitionFactory.ROLLBACK_TAG, SagaDefinitionFactory.ROLLBACK_TAG, Collections.<List<String>>emptyList());
+    }
+    
+    @Test(expected = TransportFailedException.class)
+    public void assertWithUnknownDataSource() {
+        sagaRecoveryTransport.with("ds_unknown", "UPDATE t_order SET status = 'INIT'", Collections.<List<String>>emptyList());
+    }
+    
+    @Test
+    public void assertWithParameters() throws SQLException {
+        when(dataSource.getConnection()).thenReturn(connection);
+        when(connection.prepareStatement("UPDATE t_order SET status = ? WHERE order_id = ?")).thenReturn(preparedStatement);
+        sagaRecoveryTransport.with("ds", "UPDATE t_order SET status = ? WHERE order_id = ?", Collections.singletonList(Arrays.asList("INIT", "1")));
+        verify(connection).setAutoCommit(true);
+        verify(preparedStatement).setObject(1, "INIT");
+        verify(preparedStatement).setObject(2, "1");
+        verify(preparedStatement).addBatch();
+        verify(preparedStatement).executeBatch();
+    }
+    
+    @Test(expected = TransportFailedException.class)
+    public void assertWithSQLException() throws SQLException {
+        when(dataSource.getConnection()).thenThrow(new SQLException("connection refused"));
+        sagaRecoveryTransport.with("ds", "UPDATE t_order SET status = 'INIT'", Collections.<List<String>>emptyList());
+    }
+}
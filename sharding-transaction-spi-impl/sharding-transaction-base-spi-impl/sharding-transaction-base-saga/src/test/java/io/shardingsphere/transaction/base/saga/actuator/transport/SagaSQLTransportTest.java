@@ -21,55 +21,102 @@ import com.google.common.base.Optional;
 import com.google.common.collect.Lists;
 import io.shardingsphere.transaction.base.context.BranchTransaction;
 import io.shardingsphere.transaction.base.context.ExecuteStatus;
+import io.shardingsphere.transaction.base.context.LogicSQLTransaction;
 import io.shardingsphere.transaction.base.context.TransactionContext;
+import io.shardingsphere.transaction.base.context.TransactionContextHolder;
+import io.shardingsphere.transaction.base.hook.revert.RevertSQLResult;
+import io.shardingsphere.transaction.base.hook.revert.RevertSQLUnit;
+import io.shardingsphere.transaction.base.hook.revert.SetBasedRevertSQLGenerator;
+import io.shardingsphere.transaction.base.hook.revert.utils.MockTestUtil;
+import io.shardingsphere.transaction.base.saga.actuator.SagaBulkhead;
+import io.shardingsphere.transaction.base.saga.actuator.SagaCircuitBreaker;
+import io.shardingsphere.transaction.base.saga.actuator.SagaRetryBackoff;
 import io.shardingsphere.transaction.base.saga.actuator.definition.SagaDefinitionFactory;
+import io.shardingsphere.transaction.base.saga.actuator.definition.SagaDefinitionFormat;
+import io.shardingsphere.transaction.base.saga.actuator.definition.SagaDefinitionHolder;
+import io.shardingsphere.transaction.base.saga.config.SagaConfiguration;
+import org.apache.servicecomb.saga.core.RecoveryPolicy;
+import org.apache.servicecomb.saga.core.SagaRequest;
 import org.apache.servicecomb.saga.core.TransportFailedException;
+import org.apache.shardingsphere.core.constant.SQLType;
+import org.apache.shardingsphere.core.exception.ShardingException;
+import org.apache.shardingsphere.core.metadata.table.ShardingTableMetaData;
+import org.apache.shardingsphere.core.parse.antlr.sql.statement.dml.DMLStatement;
+import org.apache.shardingsphere.core.parse.old.parser.context.table.Tables;
+import org.apache.shardingsphere.core.route.SQLRouteResult;
 import org.apache.shardingsphere.transaction.core.TransactionOperationType;
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
-import org.mockito.ArgumentMatchers;
 import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnitRunner;
 
+import java.math.BigDecimal;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
+import java.sql.Timestamp;
 import java.util.Arrays;
-import java.util.HashMap;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedList;
 import java.util.List;
-import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @RunWith(MockitoJUnitRunner.class)
 public class SagaSQLTransportTest {
     
+    private static final String BRANCH_ID = "branch-1";
+    
     @Mock
     private TransactionContext transactionContext;
     
     @Mock
     private BranchTransaction branchTransaction;
     
+    @Mock
+    private LogicSQLTransaction logicSQLTransaction;
+    
     @Mock
     private Connection connection;
     
     @Mock
     private PreparedStatement preparedStatement;
     
+    private final SagaBulkhead bulkhead = new SagaBulkhead(1, 10L);
+    
+    private final SagaCircuitBreaker circuitBreaker = new SagaCircuitBreaker(1, 60000L);
+    
     private SagaSQLTransport sagaSQLTransport;
     
-    private final Map<String, Connection> cachedConnections = new HashMap<>();
+    @After
+    public void tearDown() {
+        TransactionContextHolder.clear();
+        SagaDefinitionHolder.clear();
+    }
     
     @Before
     public void setUp() throws SQLException {
-        sagaSQLTransport = new SagaSQLTransport(transactionContext);
-        when(transactionContext.getCachedConnections()).thenReturn(cachedConnections);
-        cachedConnections.put("ds1", connection);
+        sagaSQLTransport = new SagaSQLTransport(transactionContext, BRANCH_ID);
+        when(transactionContext.acquireConnection("ds1")).thenReturn(connection);
         when(connection.prepareStatement(anyString())).thenReturn(preparedStatement);
+        when(transactionContext.getBulkhead()).thenReturn(bulkhead);
+        when(transactionContext.getCircuitBreaker()).thenReturn(circuitBreaker);
+        when(transactionContext.getRetryBackoff()).thenReturn(new SagaRetryBackoff(0L, 0L));
     }
     
     @Test(expected = TransportFailedException.class)
@@ -82,17 +129,21 @@ public class SagaSQLTransportTest {
         }
     }
     
-    @Test
-    public void assertWithBranchTransactionNotPresent() {
-        when(transactionContext.findBranchTransaction(anyString(), anyString(), ArgumentMatchers.<List<String>>anyList())).thenReturn(Optional.<BranchTransaction>absent());
-        sagaSQLTransport.with("ds1", "xxx", Lists.<List<String>>newLinkedList());
-        verify(transactionContext).findBranchTransaction(anyString(), anyString(), ArgumentMatchers.<List<String>>anyList());
+    @Test(expected = TransportFailedException.class)
+    public void assertWithBranchTransactionNotPresent() throws SQLException {
+        when(transactionContext.findBranchTransaction(BRANCH_ID)).thenReturn(Optional.<BranchTransaction>absent());
+        try {
+            sagaSQLTransport.with("ds1", "xxx", Lists.<List<String>>newLinkedList());
+        } catch (final TransportFailedException ex) {
+            verify(connection, never()).prepareStatement("xxx");
+            throw ex;
+        }
     }
     
     @Test
     public void assertWithExecuteStatusSuccess() throws SQLException {
         when(branchTransaction.getExecuteStatus()).thenReturn(ExecuteStatus.SUCCESS);
-        when(transactionContext.findBranchTransaction(anyString(), anyString(), ArgumentMatchers.<List<String>>anyList())).thenReturn(Optional.of(branchTransaction));
+        when(transactionContext.findBranchTransaction(BRANCH_ID)).thenReturn(Optional.of(branchTransaction));
         sagaSQLTransport.with("ds1", "xxx", Lists.<List<String>>newLinkedList());
         verify(connection, never()).prepareStatement("xxx");
     }
@@ -101,7 +152,7 @@ public class SagaSQLTransportTest {
     public void assertWithExecuteStatusFailedOfRollback() throws SQLException {
         when(branchTransaction.getExecuteStatus()).thenReturn(ExecuteStatus.FAILURE);
         when(transactionContext.getOperationType()).thenReturn(TransactionOperationType.ROLLBACK);
-        when(transactionContext.findBranchTransaction(anyString(), anyString(), ArgumentMatchers.<List<String>>anyList())).thenReturn(Optional.of(branchTransaction));
+        when(transactionContext.findBranchTransaction(BRANCH_ID)).thenReturn(Optional.of(branchTransaction));
         sagaSQLTransport.with("ds1", "xxx", Lists.<List<String>>newLinkedList());
         verify(connection, never()).prepareStatement("xxx");
     }
@@ -109,20 +160,245 @@ public class SagaSQLTransportTest {
     @Test
     public void assertWithExecuteSQL() throws SQLException {
         when(branchTransaction.getExecuteStatus()).thenReturn(ExecuteStatus.COMPENSATING);
-        when(transactionContext.findBranchTransaction(anyString(), anyString(), ArgumentMatchers.<List<String>>anyList())).thenReturn(Optional.of(branchTransaction));
+        when(transactionContext.findLogicSQLTransaction(branchTransaction)).thenReturn(Optional.<LogicSQLTransaction>absent());
+        when(branchTransaction.getRevertSQLResult()).thenReturn(new RevertSQLResult("xxx"));
+        when(transactionContext.findBranchTransaction(BRANCH_ID)).thenReturn(Optional.of(branchTransaction));
         sagaSQLTransport.with("ds1", "xxx", Lists.<List<String>>newLinkedList());
         verify(connection).prepareStatement("xxx");
         verify(preparedStatement).executeUpdate();
+        verify(transactionContext).releaseConnection("ds1", connection);
+    }
+    
+    @Test(expected = TransportFailedException.class)
+    public void assertWithoutIdleConnection() throws SQLException {
+        when(branchTransaction.getExecuteStatus()).thenReturn(ExecuteStatus.COMPENSATING);
+        when(transactionContext.findLogicSQLTransaction(branchTransaction)).thenReturn(Optional.<LogicSQLTransaction>absent());
+        when(branchTransaction.getRevertSQLResult()).thenReturn(new RevertSQLResult("xxx"));
+        when(transactionContext.findBranchTransaction(BRANCH_ID)).thenReturn(Optional.of(branchTransaction));
+        when(transactionContext.acquireConnection("ds1")).thenThrow(new ShardingException("No idle connection of data source `%s` in saga transaction", "ds1"));
+        try {
+            sagaSQLTransport.with("ds1", "xxx", Lists.<List<String>>newLinkedList());
+        } catch (final TransportFailedException ex) {
+            verify(connection, never()).prepareStatement("xxx");
+            throw ex;
+        }
+    }
+    
+    @Test
+    public void assertWithSaturatedDataSource() throws SQLException, InterruptedException {
+        when(branchTransaction.getExecuteStatus()).thenReturn(ExecuteStatus.COMPENSATING);
+        when(transactionContext.findLogicSQLTransaction(branchTransaction)).thenReturn(Optional.<LogicSQLTransaction>absent());
+        when(branchTransaction.getRevertSQLResult()).thenReturn(new RevertSQLResult("xxx"));
+        when(transactionContext.findBranchTransaction(BRANCH_ID)).thenReturn(Optional.of(branchTransaction));
+        assertTrue(bulkhead.tryAcquire("ds1"));
+        try {
+            sagaSQLTransport.with("ds1", "xxx", Lists.<List<String>>newLinkedList());
+            fail("Saturated data source should fail saga branch");
+        } catch (final TransportFailedException ignored) {
+            verify(connection, never()).prepareStatement("xxx");
+            assertThat(bulkhead.getActiveCounts().get("ds1"), is(1));
+        }
+        bulkhead.release("ds1");
+        sagaSQLTransport.with("ds1", "xxx", Lists.<List<String>>newLinkedList());
+        verify(connection).prepareStatement("xxx");
+        assertThat(bulkhead.getActiveCounts().get("ds1"), is(0));
     }
     
     @Test
-    public void assertWithExecuteBatchSQL() throws SQLException {
+    public void assertWithFailedSQLOpensCircuit() throws SQLException {
         when(branchTransaction.getExecuteStatus()).thenReturn(ExecuteStatus.COMPENSATING);
-        when(transactionContext.findBranchTransaction(anyString(), anyString(), ArgumentMatchers.<List<String>>anyList())).thenReturn(Optional.of(branchTransaction));
+        when(transactionContext.findLogicSQLTransaction(branchTransaction)).thenReturn(Optional.<LogicSQLTransaction>absent());
+        when(branchTransaction.getRevertSQLResult()).thenReturn(new RevertSQLResult("xxx"));
+        when(transactionContext.findBranchTransaction(BRANCH_ID)).thenReturn(Optional.of(branchTransaction));
+        when(preparedStatement.executeUpdate()).thenThrow(new SQLException("Connection refused"));
+        try {
+            sagaSQLTransport.with("ds1", "xxx", Lists.<List<String>>newLinkedList());
+            fail("Failed SQL should fail saga branch");
+        } catch (final TransportFailedException ignored) {
+            assertThat(circuitBreaker.getStates().get("ds1"), is(SagaCircuitBreaker.State.OPEN));
+            verify(branchTransaction).setRetryCount(1);
+            assertThat(bulkhead.getActiveCounts().get("ds1"), is(0));
+        }
+    }
+    
+    @Test
+    public void assertWithOpenCircuitFailsFast() throws SQLException {
+        when(branchTransaction.getExecuteStatus()).thenReturn(ExecuteStatus.COMPENSATING);
+        when(branchTransaction.getRevertSQLResult()).thenReturn(new RevertSQLResult("xxx"));
+        when(transactionContext.findBranchTransaction(BRANCH_ID)).thenReturn(Optional.of(branchTransaction));
+        circuitBreaker.onFailure("ds1");
+        try {
+            sagaSQLTransport.with("ds1", "xxx", Lists.<List<String>>newLinkedList());
+            fail("Open circuit should fail saga branch");
+        } catch (final TransportFailedException ignored) {
+            verify(connection, never()).prepareStatement("xxx");
+            assertThat(bulkhead.getActiveCounts().get("ds1"), is(0));
+        }
+    }
+    
+    @Test
+    public void assertWithBackingOffBranchFailsFast() throws SQLException {
+        when(branchTransaction.getExecuteStatus()).thenReturn(ExecuteStatus.COMPENSATING);
+        when(branchTransaction.getRevertSQLResult()).thenReturn(new RevertSQLResult("xxx"));
+        when(branchTransaction.getNextRetryTimeMillis()).thenReturn(System.currentTimeMillis() + 60000L);
+        when(transactionContext.findBranchTransaction(BRANCH_ID)).thenReturn(Optional.of(branchTransaction));
+        try {
+            sagaSQLTransport.with("ds1", "xxx", Lists.<List<String>>newLinkedList());
+            fail("Backing off branch should fail saga branch");
+        } catch (final TransportFailedException ignored) {
+            verify(connection, never()).prepareStatement("xxx");
+            verify(branchTransaction, never()).setRetryCount(1);
+        }
+    }
+    
+    @Test
+    public void assertWithExecuteBatchSQLOfSagaRequest() throws SQLException {
+        TransactionContext transactionContext = newTransactionContextWithLogicSQL();
+        RevertSQLResult revertSQLResult = new RevertSQLResult("xxx");
+        Timestamp timestamp = new Timestamp(System.currentTimeMillis());
+        revertSQLResult.getParameters().add(Arrays.<Object>asList(1L, "2", timestamp, null));
+        BranchTransaction branchTransaction = new BranchTransaction("ds1", "yyy", new LinkedList<Collection<Object>>(), ExecuteStatus.SUCCESS);
+        branchTransaction.setRevertSQLResult(revertSQLResult);
+        transactionContext.addBranchTransaction(branchTransaction);
+        TransactionContextHolder.set(transactionContext);
+        SagaDefinitionHolder.set(SagaDefinitionFactory.newInstance(RecoveryPolicy.SAGA_BACKWARD_RECOVERY_POLICY, new SagaConfiguration(), transactionContext));
+        SagaRequest sagaRequest = new SagaDefinitionFormat(SagaTransportFactory.getInstance()).fromJson(SagaDefinitionHolder.IN_MEMORY_REQUEST).requests()[0];
+        transactionContext.changeAllLogicTransactionStatus(ExecuteStatus.COMPENSATING);
+        sagaRequest.compensation().send("ds1");
+        verify(connection).prepareStatement("xxx");
+        verify(preparedStatement).setLong(1, 1L);
+        verify(preparedStatement).setString(2, "2");
+        verify(preparedStatement).setTimestamp(3, timestamp);
+        verify(preparedStatement).setObject(4, null);
+        verify(preparedStatement).executeBatch();
+        assertThat(branchTransaction.getExecuteStatus(), is(ExecuteStatus.COMPENSATED));
+    }
+    
+    @Test
+    public void assertWithExecuteSetBasedSQL() throws SQLException {
+        RevertSQLResult revertSQLResult = new RevertSQLResult("xxx");
+        revertSQLResult.getParameters().add(Collections.<Object>singletonList(1L));
+        revertSQLResult.getParameters().add(Collections.<Object>singletonList(2L));
+        revertSQLResult.setSetBasedRevertSQLGenerator(new SetBasedRevertSQLGenerator() {
+            @Override
+            public Iterator<RevertSQLUnit> generate() {
+                RevertSQLUnit result = new RevertSQLUnit("yyy");
+                result.getParameters().add(Arrays.<Object>asList(1L, 2L));
+                return Collections.singletonList(result).iterator();
+            }
+        });
+        when(branchTransaction.getExecuteStatus()).thenReturn(ExecuteStatus.COMPENSATING);
+        when(transactionContext.findLogicSQLTransaction(branchTransaction)).thenReturn(Optional.<LogicSQLTransaction>absent());
+        when(branchTransaction.getRevertSQLResult()).thenReturn(revertSQLResult);
+        when(transactionContext.findBranchTransaction(BRANCH_ID)).thenReturn(Optional.of(branchTransaction));
+        sagaSQLTransport.with("ds1", "xxx", Lists.<List<String>>newLinkedList());
+        verify(connection, never()).prepareStatement("xxx");
+        verify(connection).prepareStatement("yyy");
+        verify(preparedStatement).setLong(1, 1L);
+        verify(preparedStatement).setLong(2, 2L);
+        verify(preparedStatement).executeBatch();
+        verify(connection).commit();
+        verify(connection).setAutoCommit(true);
+    }
+    
+    @Test
+    public void assertWithFailedSetBasedSQLRollsBack() throws SQLException {
+        RevertSQLResult revertSQLResult = new RevertSQLResult("xxx");
+        revertSQLResult.setSetBasedRevertSQLGenerator(new SetBasedRevertSQLGenerator() {
+            @Override
+            public Iterator<RevertSQLUnit> generate() {
+                return Arrays.asList(new RevertSQLUnit("yyy"), new RevertSQLUnit("zzz")).iterator();
+            }
+        });
+        when(branchTransaction.getExecuteStatus()).thenReturn(ExecuteStatus.COMPENSATING);
+        when(transactionContext.findLogicSQLTransaction(branchTransaction)).thenReturn(Optional.<LogicSQLTransaction>absent());
+        when(branchTransaction.getRevertSQLResult()).thenReturn(revertSQLResult);
+        when(transactionContext.findBranchTransaction(BRANCH_ID)).thenReturn(Optional.of(branchTransaction));
+        when(preparedStatement.executeUpdate()).thenReturn(1).thenThrow(new SQLException("Lock wait timeout"));
+        try {
+            sagaSQLTransport.with("ds1", "xxx", Lists.<List<String>>newLinkedList());
+            fail("Failed set based SQL should fail saga branch");
+        } catch (final TransportFailedException ignored) {
+            verify(connection).prepareStatement("yyy");
+            verify(connection).prepareStatement("zzz");
+            verify(connection, never()).commit();
+            verify(connection).rollback();
+            verify(connection).setAutoCommit(true);
+            verify(transactionContext).releaseConnection("ds1", connection);
+            verify(branchTransaction, never()).setExecuteStatus(ExecuteStatus.COMPENSATED);
+        }
+    }
+    
+    @Test
+    public void assertWithCoalescedRevertSQL() throws SQLException {
+        BranchTransaction branchTransaction1 = newCompensatingBranchTransaction("ds1", 1L);
+        BranchTransaction branchTransaction2 = newCompensatingBranchTransaction("ds1", 2L);
+        BranchTransaction branchTransaction3 = newCompensatingBranchTransaction("ds2", 3L);
+        Queue<BranchTransaction> branchTransactions = new ConcurrentLinkedQueue<>(Arrays.asList(branchTransaction1, branchTransaction2, branchTransaction3));
+        when(logicSQLTransaction.getBranchTransactions()).thenReturn(branchTransactions);
+        when(transactionContext.findLogicSQLTransaction(branchTransaction1)).thenReturn(Optional.of(logicSQLTransaction));
+        when(logicSQLTransaction.getCompensationLock("ds1", "revert")).thenReturn(new Object());
+        when(transactionContext.findBranchTransaction(BRANCH_ID)).thenReturn(Optional.of(branchTransaction1));
+        sagaSQLTransport.with("ds1", "revert", Lists.<List<String>>newLinkedList());
+        verify(connection).prepareStatement("revert");
+        verify(preparedStatement).setLong(1, 1L);
+        verify(preparedStatement).setLong(1, 2L);
+        verify(preparedStatement, times(2)).addBatch();
+        verify(preparedStatement).executeBatch();
+        assertThat(branchTransaction1.getExecuteStatus(), is(ExecuteStatus.COMPENSATED));
+        assertThat(branchTransaction2.getExecuteStatus(), is(ExecuteStatus.COMPENSATED));
+        assertThat(branchTransaction3.getExecuteStatus(), is(ExecuteStatus.COMPENSATING));
+    }
+    
+    @Test
+    public void assertWithCompensatedBranchTransaction() throws SQLException {
+        BranchTransaction branchTransaction = newCompensatingBranchTransaction("ds1", 1L);
+        when(transactionContext.findLogicSQLTransaction(branchTransaction)).thenReturn(Optional.of(logicSQLTransaction));
+        when(logicSQLTransaction.getCompensationLock("ds1", "revert")).thenReturn(new Object());
+        when(transactionContext.findBranchTransaction(BRANCH_ID)).thenReturn(Optional.of(branchTransaction));
+        Queue<BranchTransaction> branchTransactions = new ConcurrentLinkedQueue<>(Collections.singletonList(branchTransaction));
+        when(logicSQLTransaction.getBranchTransactions()).thenReturn(branchTransactions);
+        sagaSQLTransport.with("ds1", "revert", Lists.<List<String>>newLinkedList());
+        sagaSQLTransport.with("ds1", "revert", Lists.<List<String>>newLinkedList());
+        verify(connection).prepareStatement("revert");
+    }
+    
+    @Test
+    public void assertWithExecuteFailedSQLOfCommit() throws SQLException {
+        List<Collection<Object>> branchParameters = new LinkedList<>();
+        branchParameters.add(Arrays.<Object>asList(10, new BigDecimal("1.5")));
+        when(branchTransaction.getExecuteStatus()).thenReturn(ExecuteStatus.FAILURE);
+        when(branchTransaction.getSql()).thenReturn("xxx");
+        when(branchTransaction.getParameters()).thenReturn(branchParameters);
+        when(transactionContext.getOperationType()).thenReturn(TransactionOperationType.COMMIT);
+        when(transactionContext.findBranchTransaction(BRANCH_ID)).thenReturn(Optional.of(branchTransaction));
         List<List<String>> parameters = Lists.newLinkedList();
-        parameters.add(Arrays.asList("1", "2", "3"));
+        parameters.add(Arrays.asList("10", "1.5"));
         sagaSQLTransport.with("ds1", "xxx", parameters);
-        verify(connection).prepareStatement("xxx");
+        verify(preparedStatement).setInt(1, 10);
+        verify(preparedStatement).setBigDecimal(2, new BigDecimal("1.5"));
         verify(preparedStatement).executeBatch();
     }
-}
\ No newline at end of file
+    
+    private TransactionContext newTransactionContextWithLogicSQL() {
+        DMLStatement sqlStatement = mock(DMLStatement.class);
+        Tables tables = mock(Tables.class);
+        SQLRouteResult sqlRouteResult = mock(SQLRouteResult.class);
+        when(sqlStatement.getType()).thenReturn(SQLType.DML);
+        when(sqlStatement.getTables()).thenReturn(tables);
+        when(tables.getSingleTableName()).thenReturn("t_order");
+        when(sqlRouteResult.getSqlStatement()).thenReturn(sqlStatement);
+        TransactionContext result = MockTestUtil.newTransactionContext();
+        result.cacheConnection("ds1", connection);
+        result.nextLogicSQLTransaction(sqlRouteResult, mock(ShardingTableMetaData.class));
+        return result;
+    }
+    
+    private BranchTransaction newCompensatingBranchTransaction(final String dataSourceName, final long orderId) {
+        BranchTransaction result = new BranchTransaction(dataSourceName, "sql", new LinkedList<Collection<Object>>(), ExecuteStatus.COMPENSATING);
+        RevertSQLResult revertSQLResult = new RevertSQLResult("revert");
+        revertSQLResult.getParameters().add(Collections.<Object>singletonList(orderId));
+        result.setRevertSQLResult(revertSQLResult);
+        return result;
+    }
+}
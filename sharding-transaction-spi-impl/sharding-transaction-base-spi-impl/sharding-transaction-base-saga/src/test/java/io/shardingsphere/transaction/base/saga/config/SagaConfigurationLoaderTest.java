@@ -19,26 +19,48 @@ package io.shardingsphere.transaction.base.saga.config;
 
 import org.junit.Test;
 
+import java.util.Arrays;
+
 import static org.hamcrest.CoreMatchers.is;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
 
 public final class SagaConfigurationLoaderTest {
     
+    @Test
+    public void assertLocalTransactionDisabledByDefault() {
+        assertFalse(new SagaConfiguration().isLocalTransactionEnabled());
+    }
+    
     @Test
     public void assertLoad() {
         SagaConfiguration sagaConfiguration = SagaConfigurationLoader.load();
         assertThat(sagaConfiguration.getExecutorSize(), is(16));
+        assertThat(sagaConfiguration.getExecutorQueueSize(), is(512));
+        assertThat(sagaConfiguration.getDataSourceMaxConcurrency(), is(8));
+        assertThat(sagaConfiguration.getDataSourceAcquireTimeoutMilliseconds(), is(1500L));
         assertThat(sagaConfiguration.getTransactionMaxRetries(), is(8));
         assertThat(sagaConfiguration.getCompensationMaxRetries(), is(4));
         assertThat(sagaConfiguration.getTransactionRetryDelayMilliseconds(), is(1000));
         assertThat(sagaConfiguration.getCompensationRetryDelayMilliseconds(), is(2000));
+        assertThat(sagaConfiguration.getRetryBackoffBaseMilliseconds(), is(200L));
+        assertThat(sagaConfiguration.getRetryBackoffMaxMilliseconds(), is(60000L));
+        assertThat(sagaConfiguration.getCircuitBreakerFailureThreshold(), is(3));
+        assertThat(sagaConfiguration.getCircuitBreakerOpenMilliseconds(), is(5000L));
+        assertTrue(sagaConfiguration.isLocalTransactionEnabled());
+        assertThat(sagaConfiguration.getCompensationChunkSize(), is(500));
+        assertThat(sagaConfiguration.getUndoDataMaxMemoryBytes(), is(1048576L));
+        assertThat(sagaConfiguration.getSqlTemplateCacheSize(), is(256));
+        assertThat(sagaConfiguration.getRecoveryFetchSize(), is(200));
+        assertThat(sagaConfiguration.getRecoveryBatchSize(), is(16));
         assertSagaPersistenceConfiguration(sagaConfiguration.getSagaPersistenceConfiguration());
     }
     
     private void assertSagaPersistenceConfiguration(final SagaPersistenceConfiguration sagaPersistenceConfiguration) {
         assertFalse(sagaPersistenceConfiguration.isEnablePersistence());
         assertThat(sagaPersistenceConfiguration.getUrl(), is("jdbc:mysql://localhost:3306/saga"));
+        assertThat(sagaPersistenceConfiguration.getUrls(), is(Arrays.asList("jdbc:mysql://localhost:3306/saga_0", "jdbc:mysql://localhost:3306/saga_1")));
         assertThat(sagaPersistenceConfiguration.getUsername(), is("root"));
         assertThat(sagaPersistenceConfiguration.getPassword(), is(""));
         assertThat(sagaPersistenceConfiguration.getMaxPoolSize(), is(32));
@@ -47,5 +69,18 @@ public final class SagaConfigurationLoaderTest {
         assertThat(sagaPersistenceConfiguration.getIdleTimeoutMilliseconds(), is(60000L));
         assertThat(sagaPersistenceConfiguration.getMaintenanceIntervalMilliseconds(), is(29999L));
         assertThat(sagaPersistenceConfiguration.getMaxLifetimeMilliseconds(), is(1800000L));
+        assertThat(sagaPersistenceConfiguration.getEventBufferSize(), is(2048));
+        assertThat(sagaPersistenceConfiguration.getEventBatchSize(), is(50));
+        assertThat(sagaPersistenceConfiguration.getEventFlushIntervalMilliseconds(), is(5L));
+        assertTrue(sagaPersistenceConfiguration.isEventAsync());
+        assertTrue(sagaPersistenceConfiguration.isEventCompact());
+        assertThat(sagaPersistenceConfiguration.getFileDirectory(), is("/tmp/saga-event-log"));
+        assertThat(sagaPersistenceConfiguration.getFileSegmentSize(), is(1048576));
+        assertThat(sagaPersistenceConfiguration.getFileFsyncPolicy(), is("EVERY_WRITE"));
+        assertThat(sagaPersistenceConfiguration.getFileFsyncIntervalMilliseconds(), is(20L));
+        assertThat(sagaPersistenceConfiguration.getRetentionMilliseconds(), is(604800000L));
+        assertThat(sagaPersistenceConfiguration.getRetentionBatchSize(), is(200));
+        assertThat(sagaPersistenceConfiguration.getRetentionBatchesPerSecond(), is(5D));
+        assertThat(sagaPersistenceConfiguration.getRetentionIntervalMilliseconds(), is(30000L));
     }
 }
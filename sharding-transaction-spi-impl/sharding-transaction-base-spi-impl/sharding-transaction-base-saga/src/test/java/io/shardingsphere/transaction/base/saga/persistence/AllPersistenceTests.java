@@ -23,6 +23,8 @@ import org.junit.runners.Suite;
 
 @RunWith(Suite.class)
 @Suite.SuiteClasses({
+        GroupCommitSagaEventWriterTest.class,
+        SagaEventCodecTest.class,
         SagaPersistenceLoaderTest.class,
         AllJDBCPersistenceTests.class
 })
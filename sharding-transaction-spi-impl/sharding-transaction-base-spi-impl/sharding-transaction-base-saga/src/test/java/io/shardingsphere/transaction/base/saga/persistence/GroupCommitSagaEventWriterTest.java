@@ -0,0 +1,173 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.shardingsphere.transaction.base.saga.persistence;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import io.shardingsphere.transaction.base.saga.persistence.impl.jdbc.JDBCSagaEventRepository;
+import io.shardingsphere.transaction.base.saga.persistence.impl.jdbc.JDBCSagaPersistence;
+import io.shardingsphere.transaction.base.utils.JDBCUtil;
+import lombok.SneakyThrows;
+import org.apache.servicecomb.saga.core.SagaEvent;
+import org.apache.servicecomb.saga.core.ToJsonFormat;
+import org.apache.shardingsphere.core.exception.ShardingException;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.ArgumentMatchers;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public final class GroupCommitSagaEventWriterTest {
+    
+    @Mock
+    private BatchSagaEventRepository eventRepository;
+    
+    @Mock
+    private SagaEvent sagaEvent;
+    
+    @Test
+    @SneakyThrows
+    public void assertSyncOfferReturnsAfterFlush() {
+        try (GroupCommitSagaEventWriter eventWriter = new GroupCommitSagaEventWriter(eventRepository, 16, 8, 0, false)) {
+            eventWriter.offer(sagaEvent);
+            verify(eventRepository).insert(Collections.singletonList(sagaEvent));
+            assertThat(eventWriter.getPendingEventCount(), is(0));
+        }
+    }
+    
+    @Test(expected = ShardingException.class)
+    @SneakyThrows
+    public void assertSyncOfferWithFlushFailure() {
+        doThrow(SQLException.class).when(eventRepository).insert(ArgumentMatchers.<Collection<SagaEvent>>any());
+        try (GroupCommitSagaEventWriter eventWriter = new GroupCommitSagaEventWriter(eventRepository, 16, 8, 0, false)) {
+            eventWriter.offer(sagaEvent);
+        } finally {
+            verify(eventRepository).insert(Collections.singletonList(sagaEvent));
+        }
+    }
+    
+    @Test
+    @SneakyThrows
+    public void assertAsyncOfferWithFlushFailure() {
+        doThrow(SQLException.class).when(eventRepository).insert(ArgumentMatchers.<Collection<SagaEvent>>any());
+        GroupCommitSagaEventWriter eventWriter = new GroupCommitSagaEventWriter(eventRepository, 16, 8, 0, true);
+        eventWriter.offer(sagaEvent);
+        eventWriter.close();
+        verify(eventRepository).insert(Collections.singletonList(sagaEvent));
+    }
+    
+    @Test
+    @SneakyThrows
+    @SuppressWarnings("unchecked")
+    public void assertAsyncOfferFlushedInBatches() {
+        int eventCount = 25;
+        GroupCommitSagaEventWriter eventWriter = new GroupCommitSagaEventWriter(eventRepository, 64, 10, 50, true);
+        for (int i = 0; i < eventCount; i++) {
+            eventWriter.offer(sagaEvent);
+        }
+        eventWriter.close();
+        ArgumentCaptor<Collection> captor = ArgumentCaptor.forClass(Collection.class);
+        verify(eventRepository, atLeastOnce()).insert(captor.capture());
+        int actualCount = 0;
+        for (Collection each : captor.getAllValues()) {
+            assertTrue(each.size() <= 10);
+            actualCount += each.size();
+        }
+        assertThat(actualCount, is(eventCount));
+        assertTrue(captor.getAllValues().size() < eventCount);
+    }
+    
+    @Test
+    public void assertOfferAfterClose() {
+        GroupCommitSagaEventWriter eventWriter = new GroupCommitSagaEventWriter(eventRepository, 16, 8, 0, false);
+        eventWriter.close();
+        eventWriter.offer(sagaEvent);
+        verify(eventRepository).insert(sagaEvent);
+    }
+    
+    @Test(timeout = 60000)
+    public void assertConcurrentSyncOfferWithH2() throws InterruptedException, SQLException {
+        int threadCount = 8;
+        final int eventCountPerThread = 500;
+        HikariDataSource dataSource = createH2DataSource();
+        final SagaEvent event = mock(SagaEvent.class);
+        when(event.json(any(ToJsonFormat.class))).thenReturn("{}");
+        final GroupCommitSagaEventWriter eventWriter = new GroupCommitSagaEventWriter(new JDBCSagaEventRepository(dataSource), 1024, 100, 1, false);
+        final CountDownLatch latch = new CountDownLatch(threadCount);
+        ExecutorService executorService = Executors.newFixedThreadPool(threadCount);
+        try {
+            for (int i = 0; i < threadCount; i++) {
+                executorService.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        for (int j = 0; j < eventCountPerThread; j++) {
+                            eventWriter.offer(event);
+                        }
+                        latch.countDown();
+                    }
+                });
+            }
+            assertTrue(latch.await(50, TimeUnit.SECONDS));
+            assertThat(countSagaEvents(dataSource), is(threadCount * eventCountPerThread));
+        } finally {
+            executorService.shutdown();
+            eventWriter.close();
+            dataSource.close();
+        }
+    }
+    
+    private HikariDataSource createH2DataSource() {
+        HikariConfig config = new HikariConfig();
+        config.setDriverClassName("org.h2.Driver");
+        config.setJdbcUrl("jdbc:h2:mem:group_commit;DB_CLOSE_DELAY=-1;DATABASE_TO_UPPER=false;");
+        config.setMaximumPoolSize(4);
+        HikariDataSource result = new HikariDataSource(config);
+        new JDBCSagaPersistence(result).createTableIfNotExists();
+        return result;
+    }
+    
+    private int countSagaEvents(final HikariDataSource dataSource) throws SQLException {
+        try (Connection connection = dataSource.getConnection()) {
+            List<Map<String, Object>> result = JDBCUtil.executeQuery(connection, "SELECT COUNT(1) AS event_count FROM saga_event", Collections.<Object>emptyList());
+            return ((Number) result.get(0).values().iterator().next()).intValue();
+        }
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.shardingsphere.transaction.base.saga.persistence;
+
+import org.apache.shardingsphere.core.exception.ShardingException;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public final class SagaEventCodecTest {
+    
+    private static final String SAGA_DEFINITION = "{\"policy\":\"BackwardRecovery\",\"requests\":[%s]}";
+    
+    private static final String REQUEST = "{\"id\":\"%d\",\"datasource\":\"ds_0\",\"type\":\"sql\","
+        + "\"transaction\":{\"sql\":\"INSERT INTO t_order_item (order_item_id, order_id, user_id, status) VALUES (?, ?, ?, ?)\",\"params\":[[%d,1,10,\"INIT\"]],\"retries\":0},"
+        + "\"compensation\":{\"sql\":\"DELETE FROM t_order_item WHERE order_item_id = ?\",\"params\":[[%d]],\"retries\":0},\"parents\":[],\"failRetryDelayMilliseconds\":5000}";
+    
+    @Test
+    public void assertEncodeWithoutCompact() {
+        SagaEventCodec eventCodec = new SagaEventCodec(false);
+        String json = newRequest(1);
+        assertThat(eventCodec.encode("saga_1", "TransactionStartedEvent", json), is(json));
+        assertThat(eventCodec.getEncodedBytes(), is(eventCodec.getRawBytes()));
+    }
+    
+    @Test
+    public void assertDecodePlainJson() {
+        SagaEventCodec eventCodec = new SagaEventCodec(true);
+        String json = newRequest(1);
+        assertThat(eventCodec.decode("saga_1", "TransactionStartedEvent", json, new HashMap<String, byte[]>()), is(json));
+    }
+    
+    @Test
+    public void assertEncodeAndDecodeSagaEvents() {
+        SagaEventCodec eventCodec = new SagaEventCodec(true);
+        String[] types = new String[] {"SagaStartedEvent", "TransactionStartedEvent", "TransactionEndedEvent", "TransactionStartedEvent", "TransactionEndedEvent", "SagaEndedEvent"};
+        String[] contents = new String[] {String.format(SAGA_DEFINITION, newRequest(1) + "," + newRequest(2)), newRequest(1), newRequest(1), newRequest(2), newRequest(2), "{}"};
+        String[] encoded = new String[types.length];
+        for (int i = 0; i < types.length; i++) {
+            encoded[i] = eventCodec.encode("saga_1", types[i], contents[i]);
+            assertFalse(encoded[i].equals(contents[i]));
+        }
+        assertTrue(eventCodec.getEncodedBytes() * 3 < eventCodec.getRawBytes());
+        Map<String, byte[]> dictionaries = new HashMap<>();
+        for (int i = 0; i < types.length; i++) {
+            assertThat(eventCodec.decode("saga_1", types[i], encoded[i], dictionaries), is(contents[i]));
+        }
+        assertTrue(dictionaries.isEmpty());
+    }
+    
+    @Test
+    public void assertDecodeSagaEventAfterDictionaryEvicted() {
+        SagaEventCodec eventCodec = new SagaEventCodec(true);
+        String sagaDefinition = String.format(SAGA_DEFINITION, newRequest(1));
+        String encodedSagaStartedEvent = eventCodec.encode("saga_0", "SagaStartedEvent", sagaDefinition);
+        for (int i = 1; i <= 2048; i++) {
+            eventCodec.encode("saga_" + i, "SagaStartedEvent", sagaDefinition);
+        }
+        String encoded = eventCodec.encode("saga_0", "TransactionStartedEvent", newRequest(1));
+        assertThat(eventCodec.decode("saga_0", "TransactionStartedEvent", encoded, new HashMap<String, byte[]>()), is(newRequest(1)));
+        Map<String, byte[]> dictionaries = new HashMap<>();
+        eventCodec.decode("saga_0", "SagaStartedEvent", encodedSagaStartedEvent, dictionaries);
+        assertThat(eventCodec.decode("saga_0", "TransactionStartedEvent", encoded, dictionaries), is(newRequest(1)));
+    }
+    
+    @Test(expected = ShardingException.class)
+    public void assertDecodeWithoutSagaStartedEvent() {
+        SagaEventCodec eventCodec = new SagaEventCodec(true);
+        eventCodec.encode("saga_1", "SagaStartedEvent", String.format(SAGA_DEFINITION, newRequest(1)));
+        String encoded = eventCodec.encode("saga_1", "TransactionStartedEvent", newRequest(1));
+        eventCodec.decode("saga_1", "TransactionStartedEvent", encoded, new HashMap<String, byte[]>());
+    }
+    
+    private String newRequest(final int id) {
+        return String.format(REQUEST, id, id, id);
+    }
+}
@@ -22,9 +22,10 @@ import org.junit.runners.Suite;
 
 @RunWith(Suite.class)
 @Suite.SuiteClasses({
-        AsyncSnapshotPersistenceTest.class,
         JDBCSagaEventRepositoryTest.class,
         JDBCSagaPersistenceTest.class,
+        SagaEventRetentionTest.class,
+        ShardingJDBCSagaPersistenceTest.class,
         SQLFileReaderTest.class
 })
 public class AllJDBCPersistenceTests {
@@ -17,9 +17,12 @@
 
 package io.shardingsphere.transaction.base.saga.persistence.impl.jdbc;
 
+import io.shardingsphere.transaction.base.saga.persistence.PendingSagaHandler;
 import lombok.SneakyThrows;
+import org.apache.servicecomb.saga.core.EventEnvelope;
 import org.apache.servicecomb.saga.core.SagaEvent;
 import org.apache.servicecomb.saga.core.ToJsonFormat;
+import org.apache.servicecomb.saga.format.SagaEventFormat;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -30,10 +33,19 @@ import javax.sql.DataSource;
 import java.lang.reflect.Field;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -70,4 +82,42 @@ public class JDBCSagaEventRepositoryTest {
         eventRepository.insert(sagaEvent);
         verify(statement).executeUpdate();
     }
+    
+    @Test
+    @SneakyThrows
+    public void assertInsertInOneTransaction() {
+        SagaEvent sagaEvent = mock(SagaEvent.class);
+        when(sagaEvent.json(any(ToJsonFormat.class))).thenReturn("{}");
+        eventRepository.insert(Arrays.asList(sagaEvent, sagaEvent, sagaEvent));
+        verify(statement, times(3)).addBatch();
+        verify(statement).executeBatch();
+        verify(connection).setAutoCommit(false);
+        verify(connection).commit();
+    }
+    
+    @Test
+    @SneakyThrows
+    public void assertStreamPendingSagaEvents() {
+        ResultSet resultSet = mock(ResultSet.class);
+        when(connection.prepareStatement(anyString(), anyInt(), anyInt())).thenReturn(statement);
+        when(statement.executeQuery()).thenReturn(resultSet);
+        when(resultSet.next()).thenReturn(true, true, true, false);
+        when(resultSet.getString("saga_id")).thenReturn("saga_1", "saga_1", "saga_2");
+        when(resultSet.getLong("id")).thenReturn(1L, 2L, 3L);
+        when(resultSet.getString("type")).thenReturn("SagaStartedEvent", "TransactionStartedEvent", "SagaStartedEvent");
+        when(resultSet.getString("content_json")).thenReturn("{}");
+        SagaEventFormat sagaEventFormat = mock(SagaEventFormat.class);
+        final Map<String, List<EventEnvelope>> actual = new LinkedHashMap<>();
+        eventRepository.streamPendingSagaEvents(100, sagaEventFormat, new PendingSagaHandler() {
+            @Override
+            public void handle(final String sagaId, final List<EventEnvelope> sagaEvents) {
+                actual.put(sagaId, sagaEvents);
+            }
+        });
+        verify(statement).setFetchSize(100);
+        assertThat(actual.size(), is(2));
+        assertThat(actual.get("saga_1").size(), is(2));
+        assertThat(actual.get("saga_1").get(1).id, is(2L));
+        assertThat(actual.get("saga_2").size(), is(1));
+    }
 }
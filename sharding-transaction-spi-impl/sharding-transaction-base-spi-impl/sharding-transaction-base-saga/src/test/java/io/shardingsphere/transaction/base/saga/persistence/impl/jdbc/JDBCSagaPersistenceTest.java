@@ -17,6 +17,7 @@
 
 package io.shardingsphere.transaction.base.saga.persistence.impl.jdbc;
 
+import com.zaxxer.hikari.HikariDataSource;
 import lombok.SneakyThrows;
 import org.apache.servicecomb.saga.core.SagaEvent;
 import org.junit.Before;
@@ -85,4 +86,22 @@ public final class JDBCSagaPersistenceTest {
     public void assertFindPendingSagaEvents() {
         assertThat(sagaPersistence.findPendingSagaEvents().size(), is(0));
     }
+    
+    @Test
+    public void assertCloseDataSource() {
+        HikariDataSource dataSource = mock(HikariDataSource.class);
+        new JDBCSagaPersistence(dataSource).close();
+        verify(dataSource).close();
+    }
+    
+    @Test
+    @SneakyThrows
+    public void assertCloseRetention() {
+        SagaEventRetention eventRetention = mock(SagaEventRetention.class);
+        Field eventRetentionField = JDBCSagaPersistence.class.getDeclaredField("eventRetention");
+        eventRetentionField.setAccessible(true);
+        eventRetentionField.set(sagaPersistence, eventRetention);
+        sagaPersistence.close();
+        verify(eventRetention).close();
+    }
 }
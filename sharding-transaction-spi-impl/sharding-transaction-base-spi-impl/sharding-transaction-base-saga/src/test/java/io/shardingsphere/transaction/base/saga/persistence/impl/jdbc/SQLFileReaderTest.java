@@ -24,20 +24,10 @@ import java.util.Iterator;
 
 import static org.hamcrest.CoreMatchers.is;
 import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
 
 public class SQLFileReaderTest {
     
-    private static final String SNAPSHOT_CREATE_TABLE_SQL = "CREATE TABLE IF NOT EXISTS saga_snapshot("
-        + "id BIGINT AUTO_INCREMENT PRIMARY KEY,"
-        + "transaction_id VARCHAR(255) null,"
-        + "snapshot_id int null,"
-        + "revert_context VARCHAR(255) null,"
-        + "transaction_context VARCHAR(255) null,"
-        + "create_time TIMESTAMP DEFAULT CURRENT_TIMESTAMP"
-        + ")";
-    
-    private static final String SNAPSHOT_CREATE_INDEX_SQL = "CREATE INDEX IF NOT EXISTS transaction_snapshot_index ON saga_snapshot(transaction_id, snapshot_id)";
-    
     private static final String EVENT_CREATE_TABLE_SQL = "CREATE TABLE IF NOT EXISTS saga_event("
         + "id BIGINT AUTO_INCREMENT PRIMARY KEY,"
         + "saga_id VARCHAR(255) null,"
@@ -48,14 +38,35 @@ public class SQLFileReaderTest {
     
     private static final String EVENT_CREATE_INDEX_SQL = "CREATE INDEX IF NOT EXISTS running_sagas_index ON saga_event (saga_id, type)";
     
+    private static final String EVENT_CREATE_END_TIME_INDEX_SQL = "CREATE INDEX IF NOT EXISTS saga_end_time_index ON saga_event (type, create_time)";
+    
+    private static final String PENDING_CREATE_TABLE_SQL = "CREATE TABLE IF NOT EXISTS saga_pending("
+        + "saga_id VARCHAR(255) PRIMARY KEY,"
+        + "create_time TIMESTAMP DEFAULT CURRENT_TIMESTAMP"
+        + ")";
+    
     @Test
     public void readSQLs() {
         Collection<String> sqls = SQLFileReader.readSQLs();
         assertThat(sqls.size(), is(4));
         Iterator<String> sqlIterator = sqls.iterator();
-        assertThat(sqlIterator.next(), is(SNAPSHOT_CREATE_TABLE_SQL));
-        assertThat(sqlIterator.next(), is(SNAPSHOT_CREATE_INDEX_SQL));
         assertThat(sqlIterator.next(), is(EVENT_CREATE_TABLE_SQL));
         assertThat(sqlIterator.next(), is(EVENT_CREATE_INDEX_SQL));
+        assertThat(sqlIterator.next(), is(EVENT_CREATE_END_TIME_INDEX_SQL));
+        assertThat(sqlIterator.next(), is(PENDING_CREATE_TABLE_SQL));
+    }
+    
+    @Test
+    public void assertReadSQLsOfShippedSchema() {
+        for (String each : new String[]{"mysql", "postgresql", "h2"}) {
+            Collection<String> sqls = SQLFileReader.readSQLs(String.format("saga/sql/schema/%s.sql", each));
+            assertTrue(sqls.iterator().next().startsWith("CREATE TABLE IF NOT EXISTS saga_event("));
+            assertTrue(sqls.contains(PENDING_CREATE_TABLE_SQL) || sqls.contains(PENDING_CREATE_TABLE_SQL + "ENGINE=InnoDB DEFAULT CHARSET=utf8"));
+        }
+    }
+    
+    @Test
+    public void assertReadSQLsOfAbsentFile() {
+        assertTrue(SQLFileReader.readSQLs("saga/sql/schema/absent.sql").isEmpty());
     }
 }
@@ -27,13 +27,21 @@ import org.mockito.junit.MockitoJUnitRunner;
 import javax.sql.DataSource;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
 
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @RunWith(MockitoJUnitRunner.class)
-public class AsyncSnapshotPersistenceTest {
+public class SagaEventRetentionTest {
     
     @Mock
     private DataSource dataSource;
@@ -44,20 +52,39 @@ public class AsyncSnapshotPersistenceTest {
     @Mock
     private PreparedStatement statement;
     
+    @Mock
+    private ResultSet resultSet;
+    
     @Before
     @SneakyThrows
     public void setUp() {
         when(dataSource.getConnection()).thenReturn(connection);
         when(connection.prepareStatement(anyString())).thenReturn(statement);
+        when(statement.executeQuery()).thenReturn(resultSet);
+    }
+    
+    @Test
+    @SneakyThrows
+    public void assertPurgeInBatches() {
+        when(resultSet.next()).thenReturn(true, true, false, true, false);
+        when(resultSet.getString(1)).thenReturn("1", "2", "3");
+        assertThat(new SagaEventRetention(dataSource, 1000L, 2, 1000D).purge(), is(3));
+        verify(statement, times(2)).setMaxRows(2);
+        verify(statement, times(2)).setTimestamp(anyInt(), any(Timestamp.class));
+        verify(connection).prepareStatement("DELETE FROM saga_event WHERE saga_id IN (?, ?)");
+        verify(connection).prepareStatement("DELETE FROM saga_event WHERE saga_id IN (?)");
+        verify(statement).setObject(1, "1");
+        verify(statement).setObject(2, "2");
+        verify(statement, times(2)).executeUpdate();
+        verify(connection, times(2)).commit();
     }
     
     @Test
     @SneakyThrows
-    public void assertDelete() {
-        AsyncSnapshotPersistence asyncSnapshotPersistence = new AsyncSnapshotPersistence(dataSource);
-        asyncSnapshotPersistence.delete("1");
-        Thread.sleep(1000);
-        verify(statement).executeBatch();
-        verify(connection).commit();
+    public void assertPurgeWithoutEndedSaga() {
+        when(resultSet.next()).thenReturn(false);
+        assertThat(new SagaEventRetention(dataSource, 1000L, 2, 1000D).purge(), is(0));
+        verify(statement, never()).executeUpdate();
+        verify(connection, never()).commit();
     }
 }
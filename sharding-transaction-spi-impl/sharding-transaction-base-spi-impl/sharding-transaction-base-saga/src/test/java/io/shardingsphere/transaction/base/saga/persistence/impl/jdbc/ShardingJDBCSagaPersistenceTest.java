@@ -0,0 +1,128 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.shardingsphere.transaction.base.saga.persistence.impl.jdbc;
+
+import io.shardingsphere.transaction.base.saga.persistence.PendingSagaHandler;
+import lombok.SneakyThrows;
+import org.apache.servicecomb.saga.core.EventEnvelope;
+import org.apache.servicecomb.saga.core.SagaEvent;
+import org.apache.servicecomb.saga.format.SagaEventFormat;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.mockito.stubbing.Answer;
+
+import java.lang.reflect.Field;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+@RunWith(MockitoJUnitRunner.class)
+public final class ShardingJDBCSagaPersistenceTest {
+    
+    @Mock
+    private JDBCSagaPersistence shard0;
+    
+    @Mock
+    private JDBCSagaPersistence shard1;
+    
+    private ShardingJDBCSagaPersistence sagaPersistence;
+    
+    @Before
+    public void setUp() {
+        sagaPersistence = new ShardingJDBCSagaPersistence(Arrays.asList(shard0, shard1));
+    }
+    
+    @After
+    public void tearDown() {
+        sagaPersistence.close();
+    }
+    
+    @Test
+    public void assertOfferRoutedToOneShard() {
+        SagaEvent sagaEvent = mock(SagaEvent.class);
+        sagaPersistence.offer(sagaEvent);
+        verify(shard1).offer(sagaEvent);
+        verify(shard0, never()).offer(sagaEvent);
+    }
+    
+    @Test
+    public void assertFindPendingSagaEventsFromAllShards() {
+        mockPendingSaga(shard0, "b");
+        mockPendingSaga(shard1, "a");
+        Map<String, List<EventEnvelope>> actual = sagaPersistence.findPendingSagaEvents();
+        assertThat(actual.size(), is(2));
+        assertTrue(actual.containsKey("a"));
+        assertTrue(actual.containsKey("b"));
+    }
+    
+    @Test
+    public void assertFindPendingSagaEventsRepeatedlyWithSharedExecutor() {
+        mockPendingSaga(shard0, "b");
+        mockPendingSaga(shard1, "a");
+        ExecutorService scanExecutor = getScanExecutor();
+        assertThat(sagaPersistence.findPendingSagaEvents().size(), is(2));
+        assertThat(sagaPersistence.findPendingSagaEvents().size(), is(2));
+        assertThat(getScanExecutor(), is(scanExecutor));
+        assertFalse(scanExecutor.isShutdown());
+    }
+    
+    @Test
+    public void assertCloseAllShards() {
+        sagaPersistence.close();
+        assertTrue(getScanExecutor().isShutdown());
+        verify(shard0).close();
+        verify(shard1).close();
+    }
+    
+    @SneakyThrows
+    private ExecutorService getScanExecutor() {
+        Field scanExecutorField = ShardingJDBCSagaPersistence.class.getDeclaredField("scanExecutor");
+        scanExecutorField.setAccessible(true);
+        return (ExecutorService) scanExecutorField.get(sagaPersistence);
+    }
+    
+    private void mockPendingSaga(final JDBCSagaPersistence shard, final String sagaId) {
+        doAnswer(new Answer<Void>() {
+            
+            @Override
+            public Void answer(final InvocationOnMock invocation) {
+                PendingSagaHandler handler = invocation.getArgument(2);
+                handler.handle(sagaId, Collections.<EventEnvelope>emptyList());
+                return null;
+            }
+        }).when(shard).streamPendingSagaEvents(anyInt(), any(SagaEventFormat.class), any(PendingSagaHandler.class));
+    }
+}